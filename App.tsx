@@ -39,11 +39,11 @@ import { AppContext } from './context';
 import { MOCK_ASSETS } from './constants';
 import { Language, getTranslation } from './services/i18n';
 import { encryptState, decryptState, isLegacyBlob } from './services/storage';
-import { encryptSeed } from './services/seed';
+import { encryptSeed, isLegacySeedVault, migrateSeedVault } from './services/seed';
 import * as bip39 from 'bip39';
 import { decryptSeed } from './services/seed';
 import { requestEnclaveSignature, SignRequest, SignResult } from './services/signer';
-import { clearEnclaveBiometricSession, getEnclaveBlob, hasEnclaveBlob, removeEnclaveBlob, setEnclaveBlob, SecureEnclave } from './services/enclave-storage';
+import { clearEnclaveBiometricSession, getCalibratedKdfIterations, getEnclaveBlob, hasEnclaveBlob, onVaultRewrapped, removeEnclaveBlob, setEnclaveBlob, SecureEnclave } from './services/enclave-storage';
 
 const STORAGE_KEY = 'conxius_enclave_v3_encrypted';
 
@@ -93,6 +93,25 @@ const App: React.FC = () => {
   const [enclaveChecked, setEnclaveChecked] = useState(false);
   const [enclaveExists, setEnclaveExists] = useState(false);
   const currentPinRef = useRef<string | null>(null);
+  // Seed vault handed to SecureEnclave.unlockSession; a re-wrap only applies to it
+  const sessionVaultRef = useRef<string | null>(null);
+
+  // Legacy seed vaults come back re-encrypted (v3, calibrated KDF cost) after unlock
+  useEffect(() => {
+    if (!(window as any).Capacitor?.isNativePlatform()) return;
+    const handle = onVaultRewrapped(({ vault }) => {
+      const source = sessionVaultRef.current;
+      sessionVaultRef.current = null;
+      if (!source) return;
+      setState(prev => {
+        if (!prev.walletConfig || prev.walletConfig.seedVault !== source) return prev;
+        return { ...prev, walletConfig: { ...prev.walletConfig, seedVault: vault } };
+      });
+    });
+    return () => {
+      handle.then(h => h.remove()).catch(() => {});
+    };
+  }, []);
 
   // Auto-lock timer
   useEffect(() => {
@@ -215,7 +234,10 @@ const App: React.FC = () => {
         const walletConfig: any = { ...nextState.walletConfig };
         if (!walletConfig.seedVault && typeof walletConfig.mnemonic === 'string') {
           const seedBytes = await bip39.mnemonicToSeed(walletConfig.mnemonic, walletConfig.passphrase || undefined);
-          walletConfig.seedVault = await encryptSeed(new Uint8Array(seedBytes), pin);
+          walletConfig.seedVault = await encryptSeed(new Uint8Array(seedBytes), pin, { iterations: await getCalibratedKdfIterations() });
+        } else if (walletConfig.seedVault && isLegacySeedVault(walletConfig.seedVault)) {
+          // v1 JSON envelope -> compact v2 encoding (persisted with the state below)
+          walletConfig.seedVault = migrateSeedVault(walletConfig.seedVault);
         }
         delete walletConfig.mnemonic;
         delete walletConfig.passphrase;
@@ -238,6 +260,7 @@ const App: React.FC = () => {
       
       // Phase 3: Optimize Session - Unlock Cache
       if ((window as any).Capacitor?.isNativePlatform() && nextState.walletConfig?.seedVault) {
+          sessionVaultRef.current = nextState.walletConfig.seedVault;
           SecureEnclave.unlockSession({ 
               vault: nextState.walletConfig.seedVault, 
               pin 
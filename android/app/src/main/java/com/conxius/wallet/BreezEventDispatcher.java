@@ -0,0 +1,183 @@
+package com.conxius.wallet;
+
+import android.util.Log;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import breez_sdk.BreezEvent;
+import breez_sdk.InvoicePaidDetails;
+import breez_sdk.Payment;
+import breez_sdk.PaymentFailedData;
+
+/**
+ * Moves Breez SDK events to JS without letting a burst flood the bridge.
+ *
+ * offer() runs on the SDK's callback thread and only enqueues: NewBlock and Synced
+ * collapse into the latest one, everything else goes on a bounded queue in arrival
+ * order. When the queue is full the oldest non-payment event is dropped; payment
+ * events (invoice paid, payment succeeded/failed) are only dropped if the whole queue
+ * is payments. A fixed-rate flush converts what accumulated into one JSObject batch
+ * {events: [...], dropped} and hands it to the sink; nothing is emitted while idle.
+ */
+final class BreezEventDispatcher {
+    private static final String TAG = "BreezEventDispatcher";
+
+    static final long FLUSH_INTERVAL_MS = 250;
+    static final int MAX_QUEUED = 256;
+
+    interface Sink {
+        void emit(JSObject batch);
+    }
+
+    private static final SdkAccessors.Getter BLOCK = new SdkAccessors.Getter("getBlock");
+    private static final SdkAccessors.Getter AMOUNT_MSAT = new SdkAccessors.Getter("getAmountMsat");
+
+    private final Sink sink;
+    private final ArrayDeque<BreezEvent> queue = new ArrayDeque<>();
+    private BreezEvent latestBlock = null;
+    private BreezEvent latestSynced = null;
+    private int dropped = 0;
+
+    private ScheduledExecutorService timer = null;
+    private ScheduledFuture<?> flushTask = null;
+
+    BreezEventDispatcher(Sink sink) {
+        this.sink = sink;
+    }
+
+    synchronized void start() {
+        if (flushTask != null) return;
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "breez-events");
+            t.setDaemon(true);
+            return t;
+        });
+        flushTask = timer.scheduleAtFixedRate(this::flush, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /** Stops the cadence after one last flush, so a final payment event still reaches JS. */
+    void stop() {
+        ScheduledExecutorService t;
+        synchronized (this) {
+            if (flushTask == null) return;
+            flushTask.cancel(false);
+            flushTask = null;
+            t = timer;
+            timer = null;
+        }
+        t.shutdown();
+        flush();
+    }
+
+    /** SDK callback thread: O(1) apart from the rare overflow scan, no conversion here. */
+    synchronized void offer(BreezEvent e) {
+        if (e instanceof BreezEvent.NewBlock) {
+            latestBlock = e;
+            return;
+        }
+        if (e instanceof BreezEvent.Synced) {
+            latestSynced = e;
+            return;
+        }
+        if (queue.size() >= MAX_QUEUED) {
+            dropOldest();
+        }
+        queue.addLast(e);
+    }
+
+    private void dropOldest() {
+        Iterator<BreezEvent> it = queue.iterator();
+        while (it.hasNext()) {
+            if (!isPayment(it.next())) {
+                it.remove();
+                dropped++;
+                return;
+            }
+        }
+        queue.pollFirst();
+        dropped++;
+    }
+
+    static boolean isPayment(BreezEvent e) {
+        return e instanceof BreezEvent.InvoicePaid
+            || e instanceof BreezEvent.PaymentSucceed
+            || e instanceof BreezEvent.PaymentFailed;
+    }
+
+    void flush() {
+        BreezEvent[] pending;
+        BreezEvent block;
+        BreezEvent synced;
+        int droppedNow;
+        synchronized (this) {
+            if (queue.isEmpty() && latestBlock == null && latestSynced == null) return;
+            pending = queue.toArray(new BreezEvent[0]);
+            queue.clear();
+            block = latestBlock;
+            synced = latestSynced;
+            latestBlock = null;
+            latestSynced = null;
+            droppedNow = dropped;
+            dropped = 0;
+        }
+
+        JSArray events = new JSArray();
+        if (block != null) events.put(toJson(block));
+        if (synced != null) events.put(toJson(synced));
+        for (BreezEvent e : pending) {
+            events.put(toJson(e));
+        }
+        JSObject batch = new JSObject();
+        batch.put("events", events);
+        batch.put("dropped", droppedNow);
+        try {
+            sink.emit(batch);
+        } catch (RuntimeException ex) {
+            Log.e(TAG, "Breez event delivery failed", ex);
+        }
+    }
+
+    static JSObject toJson(BreezEvent e) {
+        JSObject out = new JSObject();
+        out.put("type", typeOf(e));
+        try {
+            if (e instanceof BreezEvent.NewBlock) {
+                out.put("block", BLOCK.getLong(e));
+            } else if (e instanceof BreezEvent.InvoicePaid) {
+                InvoicePaidDetails details = ((BreezEvent.InvoicePaid) e).getDetails();
+                out.put("paymentHash", details.getPaymentHash());
+                out.put("bolt11", details.getBolt11());
+            } else if (e instanceof BreezEvent.PaymentSucceed) {
+                Payment payment = ((BreezEvent.PaymentSucceed) e).getDetails();
+                out.put("paymentHash", payment.getId());
+                out.put("amountMsat", AMOUNT_MSAT.getLong(payment));
+            } else if (e instanceof BreezEvent.PaymentFailed) {
+                PaymentFailedData details = ((BreezEvent.PaymentFailed) e).getDetails();
+                out.put("error", details.getError());
+                if (details.getInvoice() != null) {
+                    out.put("paymentHash", details.getInvoice().getPaymentHash());
+                    out.put("bolt11", details.getInvoice().getBolt11());
+                }
+            }
+        } catch (RuntimeException ex) {
+            // Keep the type so JS still learns something happened
+            Log.w(TAG, "Could not convert " + e.getClass().getSimpleName(), ex);
+            out.put("conversionError", ex.getMessage());
+        }
+        return out;
+    }
+
+    /** "newBlock", "synced", "invoicePaid", "paymentSucceed", "paymentFailed", "backupStarted", ... */
+    static String typeOf(BreezEvent e) {
+        String name = e.getClass().getSimpleName();
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+}
@@ -2,20 +2,24 @@ package com.conxius.wallet;
 
 import android.util.Log;
 
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Method;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 // Breez SDK Imports
 import breez_sdk.BlockingBreezServices;
-import breez_sdk.BreezEvent;
 import breez_sdk.Breez_sdkKt;
 import breez_sdk.Config;
 import breez_sdk.ConnectRequest;
@@ -23,7 +27,6 @@ import breez_sdk.EnvironmentType;
 import breez_sdk.EventListener;
 import breez_sdk.GreenlightNodeConfig;
 import breez_sdk.NodeConfig;
-import breez_sdk.NodeState;
 import breez_sdk.Payment;
 import breez_sdk.ReceivePaymentRequest;
 import breez_sdk.SendPaymentRequest;
@@ -36,54 +39,42 @@ import kotlin.ULong;
 @CapacitorPlugin(name = "Breez")
 public class BreezPlugin extends Plugin {
     private static final String TAG = "BreezPlugin";
-    private BlockingBreezServices breezServices;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
-
-    private static Long reflectLongNoArgByPrefix(Object target, String methodPrefix) {
-        try {
-            for (Method m : target.getClass().getMethods()) {
-                if (m.getParameterCount() == 0 && m.getName().startsWith(methodPrefix)) {
-                    Object v = m.invoke(target);
-                    if (v instanceof Long) return (Long) v;
-                    if (v instanceof Number) return ((Number) v).longValue();
-                    return null;
-                }
-            }
-        } catch (Exception ignored) {
-        }
-        return null;
-    }
-
-    private static Integer reflectIntNoArgByPrefix(Object target, String methodPrefix) {
-        try {
-            for (Method m : target.getClass().getMethods()) {
-                if (m.getParameterCount() == 0 && m.getName().startsWith(methodPrefix)) {
-                    Object v = m.invoke(target);
-                    if (v instanceof Integer) return (Integer) v;
-                    if (v instanceof Number) return ((Number) v).intValue();
-                    return null;
-                }
-            }
-        } catch (Exception ignored) {
-        }
-        return null;
-    }
+    private volatile BlockingBreezServices breezServices;
+    private final PluginMetrics metrics = new PluginMetrics();
+    // Invoice, payment and auth calls run on separate lanes with deadlines (cancel())
+    private final LightningScheduler scheduler = new LightningScheduler(metrics);
+    // connect + first sync can take a while on a cold node
+    private static final long START_TIMEOUT_MS = 120_000;
 
-    private static <T> T newPrivateInstance(Class<T> cls, Class<?>[] paramTypes, Object[] args) throws Exception {
-        Constructor<T> c = cls.getDeclaredConstructor(paramTypes);
-        c.setAccessible(true);
-        return c.newInstance(args);
-    }
+    // SDK members we reach reflectively, each resolved once (SdkAccessors)
+    private static final SdkAccessors.Getter AMOUNT_MSAT = new SdkAccessors.Getter("getAmountMsat");
+    private static final SdkAccessors.Ctor<ReceivePaymentRequest> RECEIVE_PAYMENT_REQUEST = new SdkAccessors.Ctor<>(
+        ReceivePaymentRequest.class,
+        long.class, String.class, java.util.List.class, OpeningFeeParams.class, Boolean.class, UInt.class, UInt.class);
+    private static final SdkAccessors.Ctor<SendPaymentRequest> SEND_PAYMENT_REQUEST = new SdkAccessors.Ctor<>(
+        SendPaymentRequest.class,
+        String.class, boolean.class, ULong.class, String.class);
 
-    private static UByte createUByte(byte b) {
-        try {
-             // Kotlin inline class boxing
-             Method m = UByte.class.getMethod("box-impl", byte.class);
-             return (UByte) m.invoke(null, b);
-        } catch (Exception e) {
-            return null;
-        }
-    }
+    // SDK events reach JS as coalesced "breezEvents" batches instead of per-event logging
+    static final String EVENT_BREEZ = "breezEvents";
+    private final BreezEventDispatcher events = new BreezEventDispatcher(batch -> notifyListeners(EVENT_BREEZ, batch));
+    // nodeInfo snapshot, invalidated by the same events
+    private final NodeStateCache nodeState = new NodeStateCache(() -> {
+        BlockingBreezServices services = breezServices;
+        if (services == null) throw new IllegalStateException("Not started");
+        return services.nodeInfo();
+    });
+    // listPayments index: loaded once per start, then kept current by payment events
+    private final PaymentHistory history = new PaymentHistory();
+    private static final List<String> PAYMENT_TYPES = Arrays.asList("sent", "received", "closedChannel");
+    private static final List<String> PAYMENT_STATUSES = Arrays.asList("pending", "complete", "failed");
+    // Pre-generated invoices for takeInvoice (point of sale)
+    private final InvoicePool invoicePool = new InvoicePool(this::createInvoice);
+    private final EventListener sdkListener = e -> {
+        if (NodeStateCache.invalidatedBy(e)) nodeState.invalidate();
+        history.onEvent(e);
+        events.offer(e);
+    };
 
     @PluginMethod
     public void start(PluginCall call) {
@@ -103,8 +94,9 @@ public class BreezPlugin extends Plugin {
             return;
         }
 
-        executor.submit(() -> {
+        scheduler.submit(LightningScheduler.Lane.AUTH, call, START_TIMEOUT_MS, op -> {
             try {
+                events.start(); // before connect: the SDK emits while it syncs
                 String mnemoToUse = mnemonic;
                 
                 // Native Decryption if Vault provided
@@ -113,11 +105,7 @@ public class BreezPlugin extends Plugin {
                         byte[] seedBytes = NativeCrypto.decryptVault(vault, pin);
                         mnemoToUse = null; // Ensure we don't use mnemonic path
                         // Convert to List<UByte>
-                        java.util.List<UByte> seedList = new java.util.ArrayList<>();
-                        for (byte b : seedBytes) {
-                            UByte ub = createUByte(b);
-                            if (ub != null) seedList.add(ub);
-                        }
+                        java.util.List<UByte> seedList = SdkAccessors.toUBytes(seedBytes);
                         // Wipe seedBytes
                         java.util.Arrays.fill(seedBytes, (byte)0);
                         
@@ -126,14 +114,9 @@ public class BreezPlugin extends Plugin {
                         Config config = Breez_sdkKt.defaultConfig(EnvironmentType.PRODUCTION, apiKey, nodeConfig);
                         
                         ConnectRequest connectRequest = new ConnectRequest(config, seedList, false);
-                        this.breezServices = Breez_sdkKt.connect(connectRequest, new EventListener() {
-                             @Override
-                             public void onEvent(BreezEvent e) {
-                                 Log.d(TAG, "Breez Event: " + e.toString());
-                             }
-                        });
+                        this.breezServices = Breez_sdkKt.connect(connectRequest, sdkListener);
                     } catch (Exception e) {
-                        call.reject("Vault connect failed: " + e.getMessage());
+                        op.reject("Vault connect failed: " + e.getMessage());
                         return;
                     }
                 } else {
@@ -142,24 +125,19 @@ public class BreezPlugin extends Plugin {
                     NodeConfig nodeConfig = new NodeConfig.Greenlight(new GreenlightNodeConfig(null, safeInviteCode));
                     Config config = Breez_sdkKt.defaultConfig(EnvironmentType.PRODUCTION, apiKey, nodeConfig);
                     ConnectRequest connectRequest = new ConnectRequest(config, Breez_sdkKt.mnemonicToSeed(mnemoToUse), false);
-                    this.breezServices = Breez_sdkKt.connect(connectRequest, new EventListener() {
-                         @Override
-                         public void onEvent(BreezEvent e) {
-                             Log.d(TAG, "Breez Event: " + e.toString());
-                         }
-                    });
+                    this.breezServices = Breez_sdkKt.connect(connectRequest, sdkListener);
                 }
 
-                NodeState state = this.breezServices.nodeInfo();
+                history.load(this.breezServices::listPayments);
+                NodeStateCache.Snapshot state = nodeState.get(true).get();
                 JSObject ret = new JSObject();
-                ret.put("id", state.getId());
-                Long maxPayableMsat = reflectLongNoArgByPrefix(state, "getMaxPayableMsat");
-                ret.put("balanceMsat", maxPayableMsat != null ? maxPayableMsat : 0);
-                call.resolve(ret);
+                ret.put("id", state.id);
+                ret.put("balanceMsat", state.maxPayableMsat);
+                op.resolve(ret);
 
             } catch (Exception e) {
                 Log.e(TAG, "Failed to start Breez", e);
-                call.reject("Start failed: " + e.getMessage());
+                op.reject("Start failed: " + e.getMessage());
             }
         });
     }
@@ -170,20 +148,19 @@ public class BreezPlugin extends Plugin {
             call.reject("Not started");
             return;
         }
-        try {
-            NodeState state = breezServices.nodeInfo();
-            JSObject ret = new JSObject();
-            ret.put("id", state.getId());
-            Integer blockHeight = reflectIntNoArgByPrefix(state, "getBlockHeight");
-            Long maxPayableMsat = reflectLongNoArgByPrefix(state, "getMaxPayableMsat");
-            Long maxReceivableMsat = reflectLongNoArgByPrefix(state, "getMaxReceivableMsat");
-            ret.put("blockHeight", blockHeight != null ? blockHeight : 0);
-            ret.put("maxPayableMsat", maxPayableMsat != null ? maxPayableMsat : 0);
-            ret.put("maxReceivableMsat", maxReceivableMsat != null ? maxReceivableMsat : 0);
-            call.resolve(ret);
-        } catch (Exception e) {
-            call.reject(e.getMessage());
-        }
+        PluginMetrics.MethodStats stats = metrics.method("nodeInfo");
+        long start = System.nanoTime();
+        // Fresh snapshot: answered inline; otherwise resolved when the (shared) refresh lands
+        nodeState.get(call.getBoolean("forceRefresh", false)).whenComplete((state, t) -> {
+            if (t != null) {
+                Throwable cause = t.getCause() != null ? t.getCause() : t;
+                stats.error();
+                call.reject(cause.getMessage());
+            } else {
+                call.resolve(state.toJson());
+            }
+            stats.completed(start);
+        });
     }
 
     @PluginMethod
@@ -195,23 +172,98 @@ public class BreezPlugin extends Plugin {
         Long amountMsat = call.getLong("amountMsat"); // can be null for any amount
         String description = call.getString("description", "");
         
-        executor.submit(() -> {
+        scheduler.submit(LightningScheduler.Lane.INVOICE, call, op -> {
             try {
                 long safeAmountMsat = amountMsat == null ? 0L : amountMsat;
                 java.util.List<UByte> preimage = new java.util.ArrayList<>();
-                ReceivePaymentRequest req = newPrivateInstance(
-                    ReceivePaymentRequest.class,
-                    new Class<?>[] { long.class, String.class, java.util.List.class, OpeningFeeParams.class, Boolean.class, UInt.class, UInt.class },
-                    new Object[] { safeAmountMsat, description, preimage, null, null, null, null }
-                );
+                ReceivePaymentRequest req = RECEIVE_PAYMENT_REQUEST.newInstance(
+                    safeAmountMsat, description, preimage, null, null, null, null);
                 breez_sdk.ReceivePaymentResponse response = breezServices.receivePayment(req);
                 
                 JSObject ret = new JSObject();
                 ret.put("bolt11", response.getLnInvoice().getBolt11());
                 ret.put("paymentHash", response.getLnInvoice().getPaymentHash());
-                call.resolve(ret);
+                op.resolve(ret);
             } catch (Exception e) {
-                 call.reject("Invoice failed: " + e.getMessage());
+                 op.reject("Invoice failed: " + e.getMessage());
+            }
+        });
+    }
+
+    /** InvoicePool.Generator: one receivePayment with an explicit expiry. */
+    private InvoicePool.Invoice createInvoice(long amountMsat, String description, int expirySecs) throws Exception {
+        BlockingBreezServices services = breezServices;
+        if (services == null) throw new IllegalStateException("Not started");
+        long createdAt = System.currentTimeMillis();
+        ReceivePaymentRequest req = RECEIVE_PAYMENT_REQUEST.newInstance(
+            amountMsat, description, new ArrayList<UByte>(), null, null, SdkAccessors.toUInt(expirySecs), null);
+        breez_sdk.LnInvoice invoice = services.receivePayment(req).getLnInvoice();
+        return new InvoicePool.Invoice(invoice.getBolt11(), invoice.getPaymentHash(), amountMsat, createdAt + expirySecs * 1000L);
+    }
+
+    /**
+     * Sets the invoice pool: buckets [{amountMsat? (omit for any amount), depth, lowWatermark?}],
+     * plus the description and expirySecs every pooled invoice gets. Generation starts right
+     * away in the background; an empty bucket list turns the pool off. Resolves the pool stats.
+     */
+    @PluginMethod
+    public void configureInvoicePool(PluginCall call) {
+        if (breezServices == null) {
+            call.reject("Not started");
+            return;
+        }
+        JSArray buckets = call.getArray("buckets");
+        if (buckets == null) {
+            call.reject("Missing buckets");
+            return;
+        }
+        try {
+            List<InvoicePool.BucketConfig> configs = new ArrayList<>();
+            for (int i = 0; i < buckets.length(); i++) {
+                JSONObject b = buckets.getJSONObject(i);
+                int depth = b.getInt("depth");
+                configs.add(new InvoicePool.BucketConfig(
+                    b.isNull("amountMsat") ? 0L : b.getLong("amountMsat"),
+                    depth,
+                    b.optInt("lowWatermark", (depth + 1) / 2)));
+            }
+            invoicePool.configure(configs,
+                call.getString("description", ""),
+                call.getInt("expirySecs", InvoicePool.DEFAULT_EXPIRY_SECS));
+        } catch (JSONException | IllegalArgumentException e) {
+            call.reject(e.getMessage());
+            return;
+        }
+        call.resolve(invoicePool.stats());
+    }
+
+    /**
+     * Hands out a pooled invoice for amountMsat (omit for any amount) without touching the
+     * SDK. With no ready invoice for that amount it falls back to generating one on the
+     * invoice lane (pooled: false).
+     */
+    @PluginMethod
+    public void takeInvoice(PluginCall call) {
+        if (breezServices == null) {
+            call.reject("Not started");
+            return;
+        }
+        Long amountMsat = call.getLong("amountMsat");
+        long safeAmountMsat = amountMsat == null ? 0L : amountMsat;
+
+        PluginMetrics.MethodStats stats = metrics.method("takeInvoice");
+        long start = System.nanoTime();
+        InvoicePool.Invoice pooled = invoicePool.take(safeAmountMsat);
+        if (pooled != null) {
+            call.resolve(pooled.toJson(true));
+            stats.completed(start);
+            return;
+        }
+        scheduler.submit(LightningScheduler.Lane.INVOICE, call, op -> {
+            try {
+                op.resolve(createInvoice(safeAmountMsat, invoicePool.description(), invoicePool.expirySecs()).toJson(false));
+            } catch (Exception e) {
+                op.reject("Invoice failed: " + e.getMessage());
             }
         });
     }
@@ -228,23 +280,18 @@ public class BreezPlugin extends Plugin {
             return;
         }
 
-        executor.submit(() -> {
+        scheduler.submit(LightningScheduler.Lane.PAY, call, op -> {
             try {
-                SendPaymentRequest req = newPrivateInstance(
-                    SendPaymentRequest.class,
-                    new Class<?>[] { String.class, boolean.class, ULong.class, String.class },
-                    new Object[] { bolt11, false, null, null }
-                );
+                SendPaymentRequest req = SEND_PAYMENT_REQUEST.newInstance(bolt11, false, null, null);
                 SendPaymentResponse resp = breezServices.sendPayment(req);
                 breez_sdk.Payment result = resp.getPayment();
                 JSObject ret = new JSObject();
                 ret.put("paymentHash", result.getId());
                 ret.put("status", result.getStatus().name());
-                Long amountMsat = reflectLongNoArgByPrefix(result, "getAmountMsat");
-                ret.put("amountMsat", amountMsat != null ? amountMsat : 0);
-                call.resolve(ret);
+                ret.put("amountMsat", AMOUNT_MSAT.getLong(result));
+                op.resolve(ret);
             } catch (Exception e) {
-                 call.reject("Pay failed: " + e.getMessage());
+                 op.reject("Pay failed: " + e.getMessage());
             }
         });
     }
@@ -261,7 +308,7 @@ public class BreezPlugin extends Plugin {
             return;
         }
 
-        executor.submit(() -> {
+        scheduler.submit(LightningScheduler.Lane.AUTH, call, op -> {
             try {
                 breez_sdk.InputType input = Breez_sdkKt.parseInput(lnurl);
                 if (input instanceof breez_sdk.InputType.LnUrlAuth) {
@@ -269,20 +316,105 @@ public class BreezPlugin extends Plugin {
                     breez_sdk.LnUrlCallbackStatus result = breezServices.lnurlAuth(data);
                     
                     if (result instanceof breez_sdk.LnUrlCallbackStatus.Ok) {
-                         call.resolve();
+                         op.resolve();
                     } else {
                          // Extract error details if available in the variant
-                         call.reject("LNURL Auth failed with status: " + result.toString());
+                         op.reject("LNURL Auth failed with status: " + result.toString());
                     }
                 } else {
-                    call.reject("Provided string is not a valid LNURL-Auth URL");
+                    op.reject("Provided string is not a valid LNURL-Auth URL");
                 }
             } catch (Exception e) {
-                call.reject("LNURL Auth Error: " + e.getMessage());
+                op.reject("LNURL Auth Error: " + e.getMessage());
             }
         });
     }
 
+    /**
+     * One page of payment history, newest first, from the local index; pass nextCursor back
+     * for the next page. types/statuses filter, sinceTimestamp (unix seconds) stops at the
+     * first older payment for incremental sync.
+     */
+    @PluginMethod
+    public void listPayments(PluginCall call) {
+        if (breezServices == null) {
+            call.reject("Not started");
+            return;
+        }
+        Set<String> types;
+        Set<String> statuses;
+        try {
+            types = filterOf(call.getArray("types"), PAYMENT_TYPES, "type");
+            statuses = filterOf(call.getArray("statuses"), PAYMENT_STATUSES, "status");
+        } catch (JSONException | IllegalArgumentException e) {
+            call.reject(e.getMessage());
+            return;
+        }
+        int limit = call.getInt("limit", PaymentIndex.DEFAULT_LIMIT);
+        long sinceTimestamp = call.getLong("sinceTimestamp", 0L);
+
+        PluginMetrics.MethodStats stats = metrics.method("listPayments");
+        long start = System.nanoTime();
+        history.page(call.getString("cursor"), limit, types, statuses, sinceTimestamp).whenComplete((page, t) -> {
+            try {
+                if (t != null) throw t.getCause() != null ? t.getCause() : t;
+                call.resolve(JSObject.fromJSONObject(page.toJson()));
+            } catch (Throwable e) {
+                stats.error();
+                call.reject(e.getMessage());
+            }
+            stats.completed(start);
+        });
+    }
+
+    /** null for "any"; rejects names listPayments never returns. */
+    private static Set<String> filterOf(JSArray values, List<String> allowed, String what) throws JSONException {
+        if (values == null) return null;
+        Set<String> out = new HashSet<>();
+        for (int i = 0; i < values.length(); i++) {
+            String v = values.getString(i);
+            if (!allowed.contains(v)) throw new IllegalArgumentException("Unknown " + what + ": " + v);
+            out.add(v);
+        }
+        return out;
+    }
+
+    /**
+     * Cancels a pending invoice/pay/lnurlAuth/start by the operationId it was called with.
+     * Resolves {cancelled: false} when the operation is unknown or already settled. A payment
+     * already handed to the SDK may still complete; its breezEvents event is authoritative.
+     */
+    @PluginMethod
+    public void cancel(PluginCall call) {
+        String operationId = call.getString("operationId");
+        if (operationId == null) {
+            call.reject("Missing operationId");
+            return;
+        }
+        JSObject ret = new JSObject();
+        ret.put("cancelled", scheduler.cancel(operationId));
+        call.resolve(ret);
+    }
+
+    /** Per-method call/error counts, latency and queue wait (microseconds), plus lane depths. */
+    @PluginMethod
+    public void getMetrics(PluginCall call) {
+        try {
+            JSObject ret = JSObject.fromJSONObject(metrics.toJson());
+            ret.put("scheduler", scheduler.stats());
+            ret.put("invoicePool", invoicePool.stats());
+            call.resolve(ret);
+        } catch (JSONException e) {
+            call.reject(e.getMessage());
+        }
+    }
+
+    @PluginMethod
+    public void resetMetrics(PluginCall call) {
+        metrics.reset();
+        call.resolve();
+    }
+
     @PluginMethod
     public void stop(PluginCall call) {
         if (breezServices != null) {
@@ -291,6 +423,11 @@ public class BreezPlugin extends Plugin {
              } catch (Exception e) {} // ignore
              breezServices = null;
         }
+        scheduler.abortAll("Node stopped");
+        nodeState.clear();
+        history.clear();
+        invoicePool.clear();
+        events.stop();
         call.resolve();
     }
 }
@@ -0,0 +1,121 @@
+package com.conxius.wallet;
+
+import android.util.Log;
+
+import com.getcapacitor.PluginCall;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Worker lanes for SecureEnclave calls, so the Capacitor plugin thread only
+ * validates arguments and hands off.
+ *
+ * FAST:  storage reads/writes and single-key work on an unlocked session.
+ * HEAVY: PBKDF2 unlocks, PIN-path decrypts and batch signing.
+ * forkJoin(): data-parallel fan-out used from inside a HEAVY task (range derivation).
+ *
+ * Separate pools mean a 200k-iteration unlock or a 500 input batch never sits in
+ * front of a getItem. Queues are bounded; a full lane rejects the call with
+ * "Enclave busy" instead of piling up work the UI has long given up on.
+ *
+ * Every submitted call is timed into PluginMetrics: queue wait when a lane thread
+ * picks it up, end-to-end latency when the task returns.
+ */
+final class CryptoWorkers {
+  private static final String TAG = "CryptoWorkers";
+
+  enum Lane { FAST, HEAVY }
+
+  static final int FAST_THREADS = 2;
+  static final int FAST_QUEUE = 64;
+  static final int HEAVY_QUEUE = 16;
+
+  private final ThreadPoolExecutor fast;
+  private final ThreadPoolExecutor heavy;
+  private final ForkJoinPool parallel;
+  private final PluginMetrics metrics;
+
+  CryptoWorkers(PluginMetrics metrics) {
+    this.metrics = metrics;
+    // KDF/EC work is CPU bound; leave a core for the UI and the fast lane.
+    int cores = Runtime.getRuntime().availableProcessors();
+    int heavyThreads = Math.max(1, Math.min(4, cores - 1));
+    fast = newLane("enclave-fast", FAST_THREADS, FAST_QUEUE);
+    heavy = newLane("enclave-heavy", heavyThreads, HEAVY_QUEUE);
+    // Own pool rather than commonPool(): app/library code sharing commonPool can't starve it
+    parallel = new ForkJoinPool(Math.max(1, cores));
+  }
+
+  ForkJoinPool forkJoin() {
+    return parallel;
+  }
+
+  private static ThreadPoolExecutor newLane(String name, int threads, int queueSize) {
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(
+      threads,
+      threads,
+      30, TimeUnit.SECONDS,
+      new ArrayBlockingQueue<>(queueSize),
+      new LaneThreadFactory(name),
+      new ThreadPoolExecutor.AbortPolicy()
+    );
+    pool.allowCoreThreadTimeOut(true); // idle wallet: no parked threads
+    return pool;
+  }
+
+  /**
+   * Runs task on lane. The task is expected to resolve/reject call itself; anything
+   * it throws rejects the call so the JS promise never hangs.
+   */
+  void submit(Lane lane, PluginCall call, Runnable task) {
+    ThreadPoolExecutor pool = lane == Lane.HEAVY ? heavy : fast;
+    PluginMetrics.MethodStats stats = metrics.method(call.getMethodName());
+    long queuedAt = System.nanoTime();
+    try {
+      pool.execute(() -> {
+        stats.dequeued(queuedAt);
+        try {
+          task.run();
+        } catch (Throwable t) {
+          Log.e(TAG, "Enclave task failed", t);
+          stats.error();
+          call.reject("Enclave task failed: " + t.getMessage());
+        } finally {
+          stats.completed(queuedAt);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      stats.error();
+      stats.completed(queuedAt);
+      call.reject("Enclave busy");
+    }
+  }
+
+  void shutdown() {
+    fast.shutdownNow();
+    heavy.shutdownNow();
+    parallel.shutdownNow();
+  }
+
+  private static final class LaneThreadFactory implements ThreadFactory {
+    private final String name;
+    private final AtomicInteger count = new AtomicInteger();
+
+    LaneThreadFactory(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    }
+  }
+}
@@ -0,0 +1,266 @@
+package com.conxius.wallet;
+
+import android.util.Log;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pre-generated Lightning invoices for point-of-sale receiving (BreezPlugin.takeInvoice).
+ *
+ * The pool has one bucket per configured amount (0 = any amount). Each bucket is a FIFO of
+ * ready invoices, and take() is one lock-free poll. A bucket whose ready plus generating count
+ * drops below its low watermark is topped back up to its depth. The invoices are generated
+ * by REFILL_THREADS parallel workers, so checkout never waits on receivePayment. Invoices are
+ * taken oldest first and never handed out with less than EXPIRY_MARGIN_MS left: take() skips
+ * them, and a periodic sweep drops them and refills.
+ */
+final class InvoicePool {
+    private static final String TAG = "InvoicePool";
+
+    static final int DEFAULT_EXPIRY_SECS = 3600;
+    static final int MIN_EXPIRY_SECS = 900;
+    static final long EXPIRY_MARGIN_MS = 10 * 60_000; // time left for the customer to pay
+    static final long SWEEP_INTERVAL_MS = 30_000;
+    static final int MAX_TOTAL_DEPTH = 200;
+    static final int REFILL_THREADS = 4;
+
+    interface Generator {
+        Invoice create(long amountMsat, String description, int expirySecs) throws Exception;
+    }
+
+    static final class Invoice {
+        final String bolt11;
+        final String paymentHash;
+        final long amountMsat;
+        final long expiresAtMs;
+
+        Invoice(String bolt11, String paymentHash, long amountMsat, long expiresAtMs) {
+            this.bolt11 = bolt11;
+            this.paymentHash = paymentHash;
+            this.amountMsat = amountMsat;
+            this.expiresAtMs = expiresAtMs;
+        }
+
+        JSObject toJson(boolean pooled) {
+            JSObject ret = new JSObject();
+            ret.put("bolt11", bolt11);
+            ret.put("paymentHash", paymentHash);
+            ret.put("amountMsat", amountMsat);
+            ret.put("expiresAt", expiresAtMs);
+            ret.put("pooled", pooled);
+            return ret;
+        }
+    }
+
+    static final class BucketConfig {
+        final long amountMsat;
+        final int depth;
+        final int lowWatermark;
+
+        BucketConfig(long amountMsat, int depth, int lowWatermark) {
+            this.amountMsat = amountMsat;
+            this.depth = depth;
+            this.lowWatermark = lowWatermark;
+        }
+    }
+
+    private static final class Bucket {
+        final BucketConfig config;
+        final ConcurrentLinkedQueue<Invoice> ready = new ConcurrentLinkedQueue<>();
+        final AtomicInteger size = new AtomicInteger(); // ready.size() is O(n)
+        final AtomicInteger generating = new AtomicInteger();
+        final AtomicLong taken = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong expired = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+
+        Bucket(BucketConfig config) {
+            this.config = config;
+        }
+    }
+
+    private final Generator generator;
+    private final ExecutorService refillers = Executors.newFixedThreadPool(REFILL_THREADS, r -> {
+        Thread t = new Thread(r, "invoice-pool");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "invoice-pool-sweep");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile Map<Long, Bucket> buckets = Collections.emptyMap();
+    private volatile String description = "";
+    private volatile int expirySecs = DEFAULT_EXPIRY_SECS;
+    private ScheduledFuture<?> sweep = null; // guarded by this
+
+    InvoicePool(Generator generator) {
+        this.generator = generator;
+    }
+
+    /**
+     * Replaces the configuration. Ready invoices survive for amounts that stay configured
+     * with the same description and expiry; everything else is discarded. An empty list
+     * turns the pool off.
+     */
+    synchronized void configure(List<BucketConfig> configs, String newDescription, int newExpirySecs) {
+        int total = 0;
+        Map<Long, Bucket> next = new HashMap<>();
+        for (BucketConfig c : configs) {
+            if (c.amountMsat < 0) throw new IllegalArgumentException("amountMsat must not be negative");
+            if (c.depth < 1) throw new IllegalArgumentException("depth must be at least 1");
+            if (c.lowWatermark < 0 || c.lowWatermark > c.depth) throw new IllegalArgumentException("lowWatermark must be 0..depth");
+            if (next.containsKey(c.amountMsat)) throw new IllegalArgumentException("Duplicate bucket: " + c.amountMsat);
+            next.put(c.amountMsat, new Bucket(c));
+            total += c.depth;
+        }
+        if (total > MAX_TOTAL_DEPTH) throw new IllegalArgumentException("Total depth exceeds " + MAX_TOTAL_DEPTH);
+        if (newExpirySecs < MIN_EXPIRY_SECS) throw new IllegalArgumentException("expirySecs must be at least " + MIN_EXPIRY_SECS);
+
+        if (newDescription.equals(description) && newExpirySecs == expirySecs) {
+            for (Bucket b : next.values()) {
+                Bucket old = buckets.get(b.config.amountMsat);
+                if (old == null) continue;
+                for (Invoice inv; (inv = old.ready.poll()) != null; ) {
+                    b.ready.add(inv);
+                    b.size.incrementAndGet();
+                }
+            }
+        }
+        description = newDescription;
+        expirySecs = newExpirySecs;
+        buckets = next; // in-flight refills for the old buckets now discard their result
+
+        if (next.isEmpty()) {
+            stopSweep();
+            return;
+        }
+        if (sweep == null) {
+            sweep = sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL_MS, SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+        for (Bucket b : next.values()) refill(b);
+    }
+
+    /** Node stopped: drops every invoice and the configuration. */
+    synchronized void clear() {
+        buckets = Collections.emptyMap();
+        stopSweep();
+    }
+
+    private void stopSweep() {
+        if (sweep != null) {
+            sweep.cancel(false);
+            sweep = null;
+        }
+    }
+
+    /** A ready invoice for amountMsat, or null when no bucket has one (caller generates). */
+    Invoice take(long amountMsat) {
+        Bucket b = buckets.get(amountMsat);
+        if (b == null) return null;
+        long usableAfter = System.currentTimeMillis() + EXPIRY_MARGIN_MS;
+        try {
+            for (Invoice inv; (inv = b.ready.poll()) != null; ) {
+                b.size.decrementAndGet();
+                if (inv.expiresAtMs > usableAfter) {
+                    b.taken.incrementAndGet();
+                    return inv;
+                }
+                b.expired.incrementAndGet();
+            }
+            b.misses.incrementAndGet();
+            return null;
+        } finally {
+            refill(b);
+        }
+    }
+
+    String description() {
+        return description;
+    }
+
+    int expirySecs() {
+        return expirySecs;
+    }
+
+    private void refill(Bucket b) {
+        int missing;
+        synchronized (b) {
+            int have = b.size.get() + b.generating.get();
+            if (have >= b.config.lowWatermark && have > 0) return;
+            missing = b.config.depth - have;
+            b.generating.addAndGet(missing);
+        }
+        String desc = description;
+        int expiry = expirySecs;
+        for (int i = 0; i < missing; i++) {
+            refillers.execute(() -> {
+                try {
+                    Invoice inv = generator.create(b.config.amountMsat, desc, expiry);
+                    if (buckets.get(b.config.amountMsat) == b) {
+                        b.ready.add(inv);
+                        b.size.incrementAndGet();
+                    }
+                } catch (Throwable t) {
+                    // Retried by the next take() or sweep
+                    b.failures.incrementAndGet();
+                    Log.w(TAG, "Invoice generation failed", t);
+                } finally {
+                    b.generating.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    /** Drops invoices about to expire (oldest are at the head) and tops buckets back up. */
+    private void sweep() {
+        long usableAfter = System.currentTimeMillis() + EXPIRY_MARGIN_MS + SWEEP_INTERVAL_MS;
+        for (Bucket b : buckets.values()) {
+            for (Invoice head; (head = b.ready.peek()) != null && head.expiresAtMs <= usableAfter; ) {
+                if (b.ready.remove(head)) {
+                    b.size.decrementAndGet();
+                    b.expired.incrementAndGet();
+                }
+            }
+            refill(b);
+        }
+    }
+
+    /** {description, expirySecs, buckets: [{amountMsat, depth, lowWatermark, ready, generating, taken, misses, expired, failures}]} */
+    JSObject stats() {
+        JSArray out = new JSArray();
+        for (Bucket b : buckets.values()) {
+            JSObject s = new JSObject();
+            s.put("amountMsat", b.config.amountMsat);
+            s.put("depth", b.config.depth);
+            s.put("lowWatermark", b.config.lowWatermark);
+            s.put("ready", b.size.get());
+            s.put("generating", b.generating.get());
+            s.put("taken", b.taken.get());
+            s.put("misses", b.misses.get());
+            s.put("expired", b.expired.get());
+            s.put("failures", b.failures.get());
+            out.put(s);
+        }
+        JSObject ret = new JSObject();
+        ret.put("description", description);
+        ret.put("expirySecs", expirySecs);
+        ret.put("buckets", out);
+        return ret;
+    }
+}
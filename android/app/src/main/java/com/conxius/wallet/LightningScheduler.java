@@ -0,0 +1,227 @@
+package com.conxius.wallet;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lanes for Breez SDK operations, so a payment stuck in routing for minutes never sits
+ * in front of an invoice or an LNURL-auth.
+ *
+ * INVOICE: receivePayment.  PAY: sendPayment.  AUTH: LNURL parse/auth and node start.
+ *
+ * Every call becomes an Operation with an id (the caller's operationId, or generated)
+ * and a deadline (the call's timeoutMs, or the lane default). The promise is settled
+ * exactly once: by the task, by the deadline ("Timed out") or by cancel() ("Cancelled").
+ * The SDK's blocking calls don't react to interrupts, so a timed-out or cancelled
+ * operation may still finish inside the SDK; its result is then dropped, and for a
+ * payment the outcome still arrives as a breezEvents payment event.
+ */
+final class LightningScheduler {
+    enum Lane {
+        INVOICE(2, 32, 30_000),
+        PAY(2, 8, 300_000),
+        AUTH(1, 16, 60_000);
+
+        final int threads;
+        final int queueSize;
+        final long defaultTimeoutMs;
+
+        Lane(int threads, int queueSize, long defaultTimeoutMs) {
+            this.threads = threads;
+            this.queueSize = queueSize;
+            this.defaultTimeoutMs = defaultTimeoutMs;
+        }
+    }
+
+    interface Body {
+        void run(Operation op) throws Exception;
+    }
+
+    /** One scheduled plugin call; resolve/reject are no-ops once it has settled. */
+    final class Operation {
+        final String id;
+        final Lane lane;
+        private final PluginCall call;
+        private final PluginMetrics.MethodStats stats;
+        private final long queuedAt = System.nanoTime();
+        private final AtomicBoolean settled = new AtomicBoolean();
+        private volatile Future<?> future = null;
+        private volatile ScheduledFuture<?> deadline = null;
+
+        private Operation(String id, Lane lane, PluginCall call) {
+            this.id = id;
+            this.lane = lane;
+            this.call = call;
+            this.stats = metrics.method(call.getMethodName());
+        }
+
+        boolean isSettled() {
+            return settled.get();
+        }
+
+        void resolve(JSObject result) {
+            if (settle()) call.resolve(result);
+        }
+
+        void resolve() {
+            if (settle()) call.resolve();
+        }
+
+        void reject(String message) {
+            if (settle()) {
+                stats.error();
+                call.reject(message);
+            }
+        }
+
+        private boolean settle() {
+            if (!settled.compareAndSet(false, true)) return false;
+            live.remove(id, this);
+            ScheduledFuture<?> d = deadline;
+            if (d != null) d.cancel(false);
+            stats.completed(queuedAt);
+            return true;
+        }
+
+        /** Settles with message and stops the task: dequeued if waiting, interrupted if running. */
+        private boolean abort(String message) {
+            if (settled.get()) return false;
+            reject(message);
+            Future<?> f = future;
+            if (f != null) f.cancel(true);
+            return true;
+        }
+    }
+
+    private final PluginMetrics metrics;
+    private final ThreadPoolExecutor[] pools = new ThreadPoolExecutor[Lane.values().length];
+    private final AtomicInteger[] inFlight = new AtomicInteger[Lane.values().length];
+    private final ScheduledExecutorService deadlines = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "lightning-deadlines");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Map<String, Operation> live = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+
+    LightningScheduler(PluginMetrics metrics) {
+        this.metrics = metrics;
+        for (Lane lane : Lane.values()) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                lane.threads,
+                lane.threads,
+                30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(lane.queueSize),
+                r -> {
+                    Thread t = new Thread(r, "lightning-" + lane.name().toLowerCase(Locale.ROOT));
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+            );
+            pool.allowCoreThreadTimeOut(true);
+            pools[lane.ordinal()] = pool;
+            inFlight[lane.ordinal()] = new AtomicInteger();
+        }
+    }
+
+    void submit(Lane lane, PluginCall call, Body body) {
+        submit(lane, call, lane.defaultTimeoutMs, body);
+    }
+
+    /**
+     * Queues body on lane. Rejects the call right away for a duplicate operationId, a
+     * non-positive timeoutMs or a full lane ("Lightning busy").
+     */
+    void submit(Lane lane, PluginCall call, long defaultTimeoutMs, Body body) {
+        String id = call.getString("operationId");
+        if (id == null) id = lane.name().toLowerCase(Locale.ROOT) + "-" + nextId.incrementAndGet();
+        Long requested = call.getLong("timeoutMs");
+        long timeoutMs = requested != null ? requested : defaultTimeoutMs;
+        if (timeoutMs <= 0) {
+            call.reject("timeoutMs must be positive");
+            return;
+        }
+
+        Operation op = new Operation(id, lane, call);
+        if (live.putIfAbsent(id, op) != null) {
+            call.reject("Duplicate operationId: " + id);
+            return;
+        }
+        AtomicInteger running = inFlight[lane.ordinal()];
+        try {
+            op.future = pools[lane.ordinal()].submit(() -> {
+                op.stats.dequeued(op.queuedAt);
+                if (op.isSettled()) return; // cancelled or timed out while queued
+                running.incrementAndGet();
+                try {
+                    body.run(op);
+                } catch (Throwable t) {
+                    op.reject(t.getMessage() != null ? t.getMessage() : t.getClass().getSimpleName());
+                } finally {
+                    running.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            op.reject("Lightning busy");
+            return;
+        }
+        op.deadline = deadlines.schedule(() -> {
+            if (op.abort("Timed out after " + timeoutMs + " ms")) timedOut.incrementAndGet();
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+        // Settled before the deadline was armed: settle() saw no deadline to cancel
+        if (op.isSettled()) op.deadline.cancel(false);
+    }
+
+    /** Rejects a queued or running operation with "Cancelled"; false if unknown or already settled. */
+    boolean cancel(String operationId) {
+        Operation op = live.get(operationId);
+        if (op == null || !op.abort("Cancelled")) return false;
+        cancelled.incrementAndGet();
+        return true;
+    }
+
+    /** Node stopped: every pending operation rejects with reason. */
+    void abortAll(String reason) {
+        for (Operation op : live.values()) {
+            op.abort(reason);
+        }
+    }
+
+    /** {lanes: {invoice|pay|auth: {threads, queued, queueCapacity, inFlight}}, live, timedOut, cancelled} */
+    JSObject stats() {
+        JSObject lanes = new JSObject();
+        for (Lane lane : Lane.values()) {
+            ThreadPoolExecutor pool = pools[lane.ordinal()];
+            JSObject l = new JSObject();
+            l.put("threads", lane.threads);
+            l.put("queued", pool.getQueue().size());
+            l.put("queueCapacity", lane.queueSize);
+            l.put("inFlight", inFlight[lane.ordinal()].get());
+            lanes.put(lane.name().toLowerCase(Locale.ROOT), l);
+        }
+        JSObject out = new JSObject();
+        out.put("lanes", lanes);
+        out.put("live", live.size());
+        out.put("timedOut", timedOut.get());
+        out.put("cancelled", cancelled.get());
+        return out;
+    }
+}
@@ -0,0 +1,138 @@
+package com.conxius.wallet;
+
+import com.getcapacitor.JSObject;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import breez_sdk.BreezEvent;
+import breez_sdk.NodeState;
+
+/**
+ * In-memory NodeState snapshot behind BreezPlugin.nodeInfo.
+ *
+ * A snapshot is fresh while no invalidating SDK event (payment, invoice paid, new block,
+ * synced) arrived after it was fetched and it is younger than MAX_STALENESS_MS; fresh
+ * reads are a volatile read. Invalidation bumps a generation and starts a refresh on the
+ * cache's own thread, so it never queues behind a payment on the plugin executor. At most
+ * one fetch runs at a time: callers join it, and one that started before the latest
+ * invalidation is followed by another, so a returned snapshot is never older than the
+ * state the caller asked for.
+ */
+final class NodeStateCache {
+    static final long MAX_STALENESS_MS = 30_000;
+
+    interface Source {
+        NodeState fetch() throws Exception;
+    }
+
+    static final class Snapshot {
+        private static final SdkAccessors.Getter BLOCK_HEIGHT = new SdkAccessors.Getter("getBlockHeight");
+        private static final SdkAccessors.Getter MAX_PAYABLE_MSAT = new SdkAccessors.Getter("getMaxPayableMsat");
+        private static final SdkAccessors.Getter MAX_RECEIVABLE_MSAT = new SdkAccessors.Getter("getMaxReceivableMsat");
+
+        final String id;
+        final int blockHeight;
+        final long maxPayableMsat;
+        final long maxReceivableMsat;
+        final long fetchedAtMs;
+        final long generation;
+
+        Snapshot(NodeState state, long fetchedAtMs, long generation) {
+            this.id = state.getId();
+            this.blockHeight = BLOCK_HEIGHT.getInt(state);
+            this.maxPayableMsat = MAX_PAYABLE_MSAT.getLong(state);
+            this.maxReceivableMsat = MAX_RECEIVABLE_MSAT.getLong(state);
+            this.fetchedAtMs = fetchedAtMs;
+            this.generation = generation;
+        }
+
+        JSObject toJson() {
+            JSObject ret = new JSObject();
+            ret.put("id", id);
+            ret.put("blockHeight", blockHeight);
+            ret.put("maxPayableMsat", maxPayableMsat);
+            ret.put("maxReceivableMsat", maxReceivableMsat);
+            ret.put("ageMs", Math.max(0, System.currentTimeMillis() - fetchedAtMs));
+            return ret;
+        }
+    }
+
+    private final Source source;
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "breez-nodestate");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Snapshot snapshot = null;
+    private CompletableFuture<Snapshot> inFlight = null; // guarded by this
+
+    NodeStateCache(Source source) {
+        this.source = source;
+    }
+
+    static boolean invalidatedBy(BreezEvent e) {
+        return e instanceof BreezEvent.NewBlock
+            || e instanceof BreezEvent.Synced
+            || BreezEventDispatcher.isPayment(e);
+    }
+
+    /** The current snapshot if it is still fresh, else null. */
+    Snapshot fresh() {
+        Snapshot s = snapshot;
+        if (s == null || s.generation != generation.get()) return null;
+        return System.currentTimeMillis() - s.fetchedAtMs <= MAX_STALENESS_MS ? s : null;
+    }
+
+    /** Marks the snapshot stale and refreshes in the background. */
+    void invalidate() {
+        generation.incrementAndGet();
+        join();
+    }
+
+    /** Drops the snapshot (node stopped); later reads fetch again. */
+    void clear() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    /**
+     * A snapshot at least as new as every invalidation before this call: the fresh one,
+     * or the result of a refresh. forceRefresh always fetches.
+     */
+    CompletableFuture<Snapshot> get(boolean forceRefresh) {
+        if (forceRefresh) generation.incrementAndGet();
+        Snapshot s = fresh();
+        if (s != null) return CompletableFuture.completedFuture(s);
+        long target = generation.get();
+        return join().thenCompose(r -> r.generation >= target ? CompletableFuture.completedFuture(r) : join());
+    }
+
+    private synchronized CompletableFuture<Snapshot> join() {
+        if (inFlight != null) return inFlight;
+        long g = generation.get();
+        CompletableFuture<Snapshot> f = new CompletableFuture<>();
+        inFlight = f;
+        refresher.execute(() -> {
+            try {
+                Snapshot s = new Snapshot(source.fetch(), System.currentTimeMillis(), g);
+                synchronized (this) {
+                    if (s.generation > (snapshot == null ? -1 : snapshot.generation)) snapshot = s;
+                    inFlight = null;
+                    // Invalidated while fetching: the result is already behind, go again
+                    if (generation.get() != g) join();
+                }
+                f.complete(s);
+            } catch (Throwable t) {
+                synchronized (this) {
+                    inFlight = null;
+                }
+                f.completeExceptionally(t);
+            }
+        });
+        return f;
+    }
+}
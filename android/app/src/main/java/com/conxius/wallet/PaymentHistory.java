@@ -0,0 +1,127 @@
+package com.conxius.wallet;
+
+import android.util.Log;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import breez_sdk.BreezEvent;
+import breez_sdk.InvoicePaidDetails;
+import breez_sdk.ListPaymentsRequest;
+import breez_sdk.Payment;
+import breez_sdk.PaymentFailedData;
+import kotlin.UInt;
+
+/**
+ * Keeps BreezPlugin's PaymentIndex in step with the node.
+ *
+ * load() pulls the full history once per start on its own thread; after that, payment
+ * events update the index, so listPayments never goes back to the SDK. Summaries that
+ * an event already wrote win over the (older) loaded copy. Pages requested before the
+ * load finishes wait for it.
+ */
+final class PaymentHistory {
+    private static final String TAG = "PaymentHistory";
+
+    interface Source {
+        List<Payment> fetch(ListPaymentsRequest request) throws Exception;
+    }
+
+    // (filters, metadataFilters, fromTimestamp, toTimestamp, includeFailures, offset, limit)
+    private static final SdkAccessors.Ctor<ListPaymentsRequest> LIST_PAYMENTS_REQUEST = new SdkAccessors.Ctor<>(
+        ListPaymentsRequest.class,
+        List.class, List.class, Long.class, Long.class, Boolean.class, UInt.class, UInt.class);
+    private static final SdkAccessors.Getter AMOUNT_MSAT = new SdkAccessors.Getter("getAmountMsat");
+    private static final SdkAccessors.Getter FEE_MSAT = new SdkAccessors.Getter("getFeeMsat");
+
+    private final PaymentIndex index = new PaymentIndex();
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "breez-payments");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicLong epoch = new AtomicLong();
+    private volatile CompletableFuture<Void> loaded = null;
+
+    /** Node connected: (re)builds the index from the SDK's full history, failures included. */
+    void load(Source source) {
+        long e = epoch.incrementAndGet();
+        CompletableFuture<Void> f = new CompletableFuture<>();
+        loaded = f;
+        loader.execute(() -> {
+            try {
+                List<Payment> payments = source.fetch(
+                    LIST_PAYMENTS_REQUEST.newInstance(null, null, null, null, true, null, null));
+                for (Payment p : payments) {
+                    if (epoch.get() != e) break; // stopped while loading
+                    index.putIfAbsent(summaryOf(p));
+                }
+                f.complete(null);
+            } catch (Throwable t) {
+                Log.w(TAG, "Payment history load failed", t);
+                f.completeExceptionally(t);
+            }
+        });
+    }
+
+    /** Node stopped: drops the index; listPayments fails until the next load. */
+    void clear() {
+        epoch.incrementAndGet();
+        loaded = null;
+        index.clear();
+    }
+
+    /** SDK callback thread: one index update per payment event. */
+    void onEvent(BreezEvent e) {
+        if (e instanceof BreezEvent.PaymentSucceed) {
+            index.put(summaryOf(((BreezEvent.PaymentSucceed) e).getDetails()));
+        } else if (e instanceof BreezEvent.InvoicePaid) {
+            InvoicePaidDetails details = ((BreezEvent.InvoicePaid) e).getDetails();
+            if (details.getPayment() != null) index.put(summaryOf(details.getPayment()));
+        } else if (e instanceof BreezEvent.PaymentFailed) {
+            PaymentFailedData details = ((BreezEvent.PaymentFailed) e).getDetails();
+            if (details.getInvoice() == null) return;
+            String hash = details.getInvoice().getPaymentHash();
+            if (!index.updateStatus(hash, "failed")) {
+                index.put(new PaymentIndex.Summary(hash, "sent", "failed",
+                    AMOUNT_MSAT.getLong(details.getInvoice()), 0, System.currentTimeMillis() / 1000, null));
+            }
+        }
+    }
+
+    CompletableFuture<PaymentIndex.Page> page(String cursor, int limit, Set<String> types, Set<String> statuses, long sinceTimestamp) {
+        CompletableFuture<Void> f = loaded;
+        if (f == null) {
+            CompletableFuture<PaymentIndex.Page> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalStateException("Not started"));
+            return failed;
+        }
+        return f.thenApply(v -> index.page(cursor, limit, types, statuses, sinceTimestamp));
+    }
+
+    static PaymentIndex.Summary summaryOf(Payment p) {
+        return new PaymentIndex.Summary(
+            p.getId(),
+            jsName(p.getPaymentType()),
+            jsName(p.getStatus()),
+            AMOUNT_MSAT.getLong(p),
+            FEE_MSAT.getLong(p),
+            p.getPaymentTime(),
+            p.getDescription());
+    }
+
+    /** CLOSED_CHANNEL -> "closedChannel", the names listPayments filters and returns. */
+    static String jsName(Enum<?> value) {
+        String[] parts = value.name().toLowerCase(Locale.ROOT).split("_");
+        StringBuilder out = new StringBuilder(parts[0]);
+        for (int i = 1; i < parts.length; i++) {
+            out.append(Character.toUpperCase(parts[i].charAt(0))).append(parts[i], 1, parts[i].length());
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,128 @@
+package com.conxius.wallet;
+
+import android.content.SharedPreferences;
+
+import org.bouncycastle.util.encoders.Base64;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The original SharedPreferences backend: one legacy "v2:iv:ct" string per key.
+ * Every apply() rewrites the whole XML file, so it is only used as a fallback
+ * and as the source of the one-time migration into MappedLogStore.
+ *
+ * Records without a legacy form (chunked) are kept as "raw:" + Base64 of the encoding,
+ * and streamed values are buffered in full: no bounded-memory path here.
+ */
+final class PrefsStore implements EnclaveStore {
+  private final SharedPreferences prefs;
+
+  PrefsStore(SharedPreferences prefs) {
+    this.prefs = prefs;
+  }
+
+  @Override
+  public boolean contains(String key) {
+    return prefs.contains(key);
+  }
+
+  private static final String RAW_PREFIX = "raw:";
+
+  private static byte[] decodeEntry(String entry) {
+    if (entry.startsWith(RAW_PREFIX)) return Base64.decode(entry.substring(RAW_PREFIX.length()));
+    return ItemRecord.parseLegacy(entry).encode();
+  }
+
+  private static String encodeEntry(byte[] value) {
+    if (value.length > 0 && (value[0] == 1 || value[0] == 2)) return ItemRecord.decode(value).toLegacy();
+    return RAW_PREFIX + Base64.toBase64String(value);
+  }
+
+  @Override
+  public byte[] get(String key) {
+    String record = prefs.getString(key, null);
+    return record == null ? null : decodeEntry(record);
+  }
+
+  @Override
+  public void put(String key, byte[] value) {
+    prefs.edit().putString(key, encodeEntry(value)).apply();
+  }
+
+  @Override
+  public void put(String key, int length, ValueWriter writer) throws IOException, GeneralSecurityException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(length);
+    writer.writeTo(out);
+    if (out.size() != length) throw new IOException("Value length mismatch");
+    put(key, out.toByteArray());
+  }
+
+  @Override
+  public <T> T read(String key, ValueReader<T> reader) throws IOException, GeneralSecurityException {
+    byte[] value = get(key);
+    return value == null ? null : reader.readFrom(ByteBuffer.wrap(value).asReadOnlyBuffer());
+  }
+
+  @Override
+  public void remove(String key) {
+    prefs.edit().remove(key).apply();
+  }
+
+  @Override
+  public void putAll(Map<String, byte[]> entries) throws IOException {
+    SharedPreferences.Editor editor = prefs.edit();
+    for (Map.Entry<String, byte[]> e : entries.entrySet()) {
+      editor.putString(e.getKey(), encodeEntry(e.getValue()));
+    }
+    if (!editor.commit()) throw new IOException("prefs commit failed");
+  }
+
+  @Override
+  public void removeAll(Collection<String> keys) throws IOException {
+    SharedPreferences.Editor editor = prefs.edit();
+    for (String key : keys) editor.remove(key);
+    if (!editor.commit()) throw new IOException("prefs commit failed");
+  }
+
+  @Override
+  public Set<String> keys() {
+    return new HashSet<>(prefs.getAll().keySet());
+  }
+
+  @Override
+  public void close() {
+  }
+
+  /**
+   * Copies every parseable legacy record into target, then clears the prefs file.
+   * Idempotent: a crash before the clear just re-copies (puts overwrite) next time.
+   * A clear that fails twice throws, so the caller stays on this (still complete) store:
+   * prefs left behind would be copied over newer target values on the next start.
+   */
+  int migrateInto(EnclaveStore target) throws IOException {
+    Map<String, ?> all = prefs.getAll();
+    if (all.isEmpty()) return 0;
+    Map<String, byte[]> records = new LinkedHashMap<>();
+    for (Map.Entry<String, ?> entry : all.entrySet()) {
+      if (!(entry.getValue() instanceof String)) continue;
+      try {
+        records.put(entry.getKey(), decodeEntry((String) entry.getValue()));
+      } catch (IllegalArgumentException e) {
+        continue; // Unreadable before, unreadable after: leave it behind
+      }
+    }
+    target.putAll(records);
+    if (!prefs.edit().clear().commit() && !prefs.edit().clear().commit()) {
+      throw new IOException("prefs clear failed");
+    }
+    return records.size();
+  }
+}
@@ -0,0 +1,143 @@
+package com.conxius.wallet;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import kotlin.UByte;
+import kotlin.UInt;
+
+/**
+ * Cached reflective access to Breez SDK (Kotlin binding) members we can't call directly:
+ * getters whose JVM names carry an inline-class mangling suffix (getMaxPayableMsat-s-VKNKU),
+ * non-public data class constructors and UByte/UInt boxing.
+ *
+ * Every member is resolved once per class on first use and reused, so the Lightning calls
+ * do no reflection lookups after warm-up. A member that is missing or has an unexpected
+ * type throws IllegalStateException naming the member, instead of silently reading 0.
+ * java.lang.invoke would avoid Method.invoke's boxing, but invokeExact needs API 26 and
+ * minSdk is 24.
+ */
+final class SdkAccessors {
+    private SdkAccessors() {}
+
+    private static volatile UByte[] uBytes = null;
+    private static volatile Method uIntBox = null;
+
+    static IllegalStateException shapeChanged(String what) {
+        return new IllegalStateException("Breez SDK shape changed: " + what);
+    }
+
+    /** No-arg integral getter matched by name prefix, resolved per receiver class. */
+    static final class Getter {
+        private final String prefix;
+        private final Map<Class<?>, Method> methods = new ConcurrentHashMap<>();
+
+        Getter(String prefix) {
+            this.prefix = prefix;
+        }
+
+        long getLong(Object target) {
+            try {
+                Object v = resolve(target.getClass()).invoke(target);
+                return v == null ? 0 : ((Number) v).longValue(); // nullable Kotlin property
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(prefix + " failed on " + target.getClass().getSimpleName(), e);
+            }
+        }
+
+        int getInt(Object target) {
+            return (int) getLong(target);
+        }
+
+        private Method resolve(Class<?> cls) {
+            Method m = methods.get(cls);
+            if (m != null) return m;
+            for (Method candidate : cls.getMethods()) {
+                if (candidate.getParameterCount() == 0 && candidate.getName().startsWith(prefix)) {
+                    Class<?> type = candidate.getReturnType();
+                    if (type != long.class && type != int.class && !Number.class.isAssignableFrom(type)) {
+                        throw shapeChanged(cls.getSimpleName() + "." + candidate.getName() + " returns " + type.getSimpleName());
+                    }
+                    methods.put(cls, candidate);
+                    return candidate;
+                }
+            }
+            throw shapeChanged(cls.getSimpleName() + " has no " + prefix + "*() getter");
+        }
+    }
+
+    /** Constructor with a fixed signature, made accessible once. */
+    static final class Ctor<T> {
+        private final Class<T> cls;
+        private final Class<?>[] paramTypes;
+        private volatile Constructor<T> constructor = null;
+
+        Ctor(Class<T> cls, Class<?>... paramTypes) {
+            this.cls = cls;
+            this.paramTypes = paramTypes;
+        }
+
+        T newInstance(Object... args) {
+            try {
+                return resolve().newInstance(args);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("new " + cls.getSimpleName() + " failed", e);
+            }
+        }
+
+        private Constructor<T> resolve() {
+            Constructor<T> c = constructor;
+            if (c != null) return c;
+            try {
+                c = cls.getDeclaredConstructor(paramTypes);
+            } catch (NoSuchMethodException e) {
+                throw shapeChanged("no " + cls.getSimpleName() + Arrays.toString(paramTypes) + " constructor");
+            }
+            c.setAccessible(true);
+            constructor = c;
+            return c;
+        }
+    }
+
+    /** Seed bytes as the List<UByte> the SDK takes; all 256 UByte values are boxed once. */
+    static List<UByte> toUBytes(byte[] data) {
+        UByte[] table = uByteTable();
+        List<UByte> out = new ArrayList<>(data.length);
+        for (byte b : data) out.add(table[b & 0xff]);
+        return out;
+    }
+
+    /** Boxes an int as the kotlin.UInt the SDK's nullable UInt parameters take. */
+    static UInt toUInt(int value) {
+        Method box = uIntBox;
+        try {
+            if (box == null) {
+                box = UInt.class.getMethod("box-impl", int.class);
+                uIntBox = box;
+            }
+            return (UInt) box.invoke(null, value);
+        } catch (ReflectiveOperationException e) {
+            throw shapeChanged("kotlin.UInt.box-impl(int) unavailable");
+        }
+    }
+
+    private static UByte[] uByteTable() {
+        UByte[] table = uBytes;
+        if (table != null) return table;
+        try {
+            // Kotlin inline class boxing
+            Method box = UByte.class.getMethod("box-impl", byte.class);
+            table = new UByte[256];
+            for (int i = 0; i < 256; i++) table[i] = (UByte) box.invoke(null, (byte) i);
+        } catch (ReflectiveOperationException e) {
+            throw shapeChanged("kotlin.UByte.box-impl(byte) unavailable");
+        }
+        uBytes = table;
+        return table;
+    }
+}
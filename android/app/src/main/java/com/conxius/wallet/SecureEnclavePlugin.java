@@ -6,6 +6,7 @@ import android.os.Build;
 import android.util.Base64;
 import android.util.Log;
 
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginMethod;
@@ -13,16 +14,11 @@ import com.getcapacitor.PluginCall;
 import com.getcapacitor.annotation.CapacitorPlugin;
 
 import org.bitcoinj.core.ECKey;
-import org.bitcoinj.core.NetworkParameters;
 import org.bitcoinj.core.Sha256Hash;
-import org.bitcoinj.crypto.DeterministicHierarchy;
 import org.bitcoinj.crypto.DeterministicKey;
 import org.bitcoinj.crypto.HDKeyDerivation;
-import org.bitcoinj.params.MainNetParams;
-import org.bitcoinj.params.TestNet3Params;
-import org.bitcoinj.params.TestNet3Params;
-import org.bitcoinj.wallet.DeterministicSeed;
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import org.web3j.crypto.Credentials;
@@ -30,24 +26,38 @@ import org.web3j.crypto.ECKeyPair;
 import org.web3j.crypto.Sign;
 import org.web3j.utils.Numeric;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyStore;
 import java.security.SecureRandom;
+import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
-import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.GCMParameterSpec;
-import javax.crypto.spec.PBEKeySpec;
-import javax.crypto.spec.SecretKeySpec;
 
 import android.security.keystore.KeyGenParameterSpec;
 import android.security.keystore.KeyProperties;
+import android.security.keystore.KeyPermanentlyInvalidatedException;
 import android.security.keystore.UserNotAuthenticatedException;
 
 import androidx.biometric.BiometricManager;
@@ -60,24 +70,121 @@ public class SecureEnclavePlugin extends Plugin {
   private static final String KEY_ALIAS = "com.conxius.wallet.enclave.aes.v1";
   private static final String KEY_ALIAS_AUTH = "com.conxius.wallet.enclave.aes.v2.auth";
   private static final int GCM_TAG_BITS = 128;
-  private long biometricSessionValidUntilMs = 0;
+  private static final String TAG = "SecureEnclavePlugin";
+  // Enclave bookkeeping (KDF calibration), kept out of the item store namespace
+  private static final String META_PREFS_NAME = "conxius_secure_enclave_meta";
+  private static final String META_KDF_ITERATIONS = "kdf.pbkdf2.iterations";
+  private static final String META_KDF_TARGET_MS = "kdf.pbkdf2.targetMs";
+  private static final String EVENT_VAULT_REWRAPPED = "vaultRewrapped";
+  private static final String ITEM_LOG_FILE = "enclave/items.log";
+  private volatile long biometricSessionValidUntilMs = 0;
+  // Auth-bound key stays usable this long after a biometric/credential auth (Keystore-enforced)
+  private static final int AUTH_KEY_VALIDITY_SECONDS = 300;
+  // Our view of that window, kept slightly short of the Keystore's own clock; 0 = unknown
+  private volatile long authKeyValidUntilMs = 0;
+  private static final long AUTH_KEY_VALIDITY_MARGIN_MS = 5000;
+
+  // Keystore IPC is the dominant cost of storage calls: load once, reuse handles per alias
+  private volatile KeyStore keyStore = null;
+  private final Map<String, SecretKey> keyHandles = new ConcurrentHashMap<>();
+  private final SecureRandom random = new SecureRandom();
+  private volatile EnclaveStore store = null;
   
   // Session Cache for Performance (Approved by Architecture Review)
-  private SecretKey cachedSessionKey = null;
-  private byte[] cachedSessionSalt = null;
-  private long cachedSessionExpiry = 0;
+  // The decrypted master key itself lives off-heap in sessionSeed; no AES key is kept around.
+  private final SessionSeed sessionSeed = new SessionSeed();
+  private volatile byte[] cachedSessionSalt = null;
+  private volatile long cachedSessionExpiry = 0;
   private static final long SESSION_DURATION_MS = 5 * 60 * 1000; // 5 Minutes
+  private final ScheduledExecutorService sessionTimer = Executors.newSingleThreadScheduledExecutor();
+  private ScheduledFuture<?> sessionWipe = null;
+  // BIP32 parents for the unlocked vault, wiped with the session
+  private final DerivationCache derivationCache = new DerivationCache();
+  // Fixed-base G table: built on the first Schnorr / EVM transaction signature of a session
+  // and shared by both signers
+  private volatile FixedBaseTable baseTable = null;
+  private volatile SchnorrSigner schnorrSigner = null;
+  private volatile EvmTxSigner evmSigner = null;
+  // getWalletInfo entries for the unlocked vault ("<fingerprint>|<chain>|<path>"), wiped with the session
+  private final Map<String, JSObject> walletInfoMemo = new ConcurrentHashMap<>();
+  // Per-method latency/error counts and KDF/decrypt/derive/sign phase timers (getMetrics)
+  private final PluginMetrics metrics = new PluginMetrics();
+  // Plugin methods validate inline and run the crypto on these lanes
+  private final CryptoWorkers workers = new CryptoWorkers(metrics);
 
 
   private SharedPreferences prefs() {
     return getContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
   }
 
+  /**
+   * Item backend, opened on first use: the mapped log under noBackupFilesDir (Keystore
+   * keys don't survive a restore anyway), with the legacy prefs file migrated into it
+   * once. Falls back to the prefs backend if the log can't be opened.
+   */
+  private EnclaveStore store() {
+    EnclaveStore s = store;
+    if (s != null) return s;
+    synchronized (this) {
+      if (store != null) return store;
+      PrefsStore legacy = new PrefsStore(prefs());
+      MappedLogStore log = null;
+      try {
+        log = new MappedLogStore(new File(getContext().getNoBackupFilesDir(), ITEM_LOG_FILE));
+        int migrated = legacy.migrateInto(log);
+        if (migrated > 0) Log.i(TAG, "Migrated " + migrated + " items from SharedPreferences");
+        store = log;
+      } catch (IOException e) {
+        Log.e(TAG, "Item log unavailable, using SharedPreferences", e);
+        if (log != null) {
+          try {
+            log.close();
+          } catch (IOException ignored) {
+            // Not in use; the next start reopens it and retries the migration
+          }
+        }
+        store = legacy;
+      }
+      return store;
+    }
+  }
+
+  private SharedPreferences metaPrefs() {
+    return getContext().getSharedPreferences(META_PREFS_NAME, Context.MODE_PRIVATE);
+  }
+
   // --- Existing Storage Logic ---
 
+  private KeyStore keyStore() throws Exception {
+    KeyStore ks = keyStore;
+    if (ks == null) {
+      synchronized (this) {
+        ks = keyStore;
+        if (ks == null) {
+          ks = KeyStore.getInstance("AndroidKeyStore");
+          ks.load(null);
+          keyStore = ks;
+        }
+      }
+    }
+    return ks;
+  }
+
   private SecretKey getOrCreateKey(String alias, boolean requireUserAuth) throws Exception {
-    KeyStore keyStore = KeyStore.getInstance("AndroidKeyStore");
-    keyStore.load(null);
+    SecretKey cached = keyHandles.get(alias);
+    if (cached != null) return cached;
+    synchronized (keyHandles) {
+      cached = keyHandles.get(alias);
+      if (cached == null) {
+        cached = loadOrGenerateKey(alias, requireUserAuth);
+        keyHandles.put(alias, cached);
+      }
+      return cached;
+    }
+  }
+
+  private SecretKey loadOrGenerateKey(String alias, boolean requireUserAuth) throws Exception {
+    KeyStore keyStore = keyStore();
     if (keyStore.containsAlias(alias)) {
       return ((SecretKey) keyStore.getKey(alias, null));
     }
@@ -96,11 +203,11 @@ public class SecureEnclavePlugin extends Plugin {
       builder.setUserAuthenticationRequired(true);
       if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
         builder.setUserAuthenticationParameters(
-          300,
+          AUTH_KEY_VALIDITY_SECONDS,
           KeyProperties.AUTH_BIOMETRIC_STRONG | KeyProperties.AUTH_DEVICE_CREDENTIAL
         );
       } else {
-        builder.setUserAuthenticationValidityDurationSeconds(300);
+        builder.setUserAuthenticationValidityDurationSeconds(AUTH_KEY_VALIDITY_SECONDS);
       }
     }
     
@@ -108,73 +215,181 @@ public class SecureEnclavePlugin extends Plugin {
     return keyGenerator.generateKey();
   }
 
-  private static class ParsedRecord {
-    final int version;
-    final byte[] iv;
-    final byte[] ciphertext;
+  /**
+   * Keys are generated with randomized encryption required, so the Keystore picks the
+   * IV (a caller-provided one is rejected); read it back with cipher.getIV().
+   */
+  private Cipher initKeystoreCipher(int mode, String alias, boolean requireUserAuth, byte[] iv) throws Exception {
+    return initKeystoreCipher(Cipher.getInstance("AES/GCM/NoPadding"), mode, alias, requireUserAuth, iv);
+  }
+
+  /** Re-inits an existing Cipher; GCM needs a fresh init per message, getInstance does not. */
+  private Cipher initKeystoreCipher(Cipher cipher, int mode, String alias, boolean requireUserAuth, byte[] iv) throws Exception {
+    SecretKey key = getOrCreateKey(alias, requireUserAuth);
+    try {
+      if (iv == null) {
+        cipher.init(mode, key);
+      } else {
+        cipher.init(mode, key, new GCMParameterSpec(GCM_TAG_BITS, iv));
+      }
+    } catch (KeyPermanentlyInvalidatedException e) {
+      // Enrollment changed: the cached handle is dead for good
+      keyHandles.remove(alias);
+      throw e;
+    } catch (UserNotAuthenticatedException e) {
+      authKeyValidUntilMs = 0;
+      throw e;
+    }
+    return cipher;
+  }
+
 
-    ParsedRecord(int version, byte[] iv, byte[] ciphertext) {
-      this.version = version;
-      this.iv = iv;
-      this.ciphertext = ciphertext;
+  /**
+   * Item ciphers for one call: one Cipher per key alias, created on first use and
+   * re-initialized per item, so a batch pays getInstance and the key lookup once.
+   */
+  private final class ItemCiphers {
+    private Cipher device;
+    private Cipher auth;
+
+    private Cipher cipherFor(boolean requireUserAuth) throws Exception {
+      if (requireUserAuth) {
+        if (auth == null) auth = Cipher.getInstance("AES/GCM/NoPadding");
+        return auth;
+      }
+      if (device == null) device = Cipher.getInstance("AES/GCM/NoPadding");
+      return device;
+    }
+
+    ItemRecord encrypt(byte[] plaintext, boolean requireUserAuth) throws Exception {
+      String alias = requireUserAuth ? KEY_ALIAS_AUTH : KEY_ALIAS;
+      Cipher cipher = initKeystoreCipher(cipherFor(requireUserAuth), Cipher.ENCRYPT_MODE, alias, requireUserAuth, null);
+      byte[] ciphertext = cipher.doFinal(plaintext);
+      return new ItemRecord(requireUserAuth ? 2 : 1, cipher.getIV(), ciphertext);
+    }
+
+    /** Decrypts with whichever key the record was sealed under. */
+    byte[] decrypt(ItemRecord parsed) throws Exception {
+      boolean authKey = parsed.version == 2;
+      Cipher cipher = initKeystoreCipher(cipherFor(authKey), Cipher.DECRYPT_MODE, authKey ? KEY_ALIAS_AUTH : KEY_ALIAS, authKey, parsed.iv);
+      return cipher.doFinal(parsed.ciphertext);
     }
   }
 
-  private ParsedRecord parseRecord(String record) {
-    String[] parts = record.split(":");
-    if (parts.length == 2) {
-      byte[] iv = Base64.decode(parts[0], Base64.NO_WRAP);
-      byte[] ciphertext = Base64.decode(parts[1], Base64.NO_WRAP);
-      return new ParsedRecord(1, iv, ciphertext);
+  /** A stored item as read from the store: a single-shot record, or a chunked header plus its wrapped key. */
+  private static final class StoredItem {
+    final ItemRecord record;
+    final ChunkedRecord chunked;
+
+    private StoredItem(ItemRecord record, ChunkedRecord chunked) {
+      this.record = record;
+      this.chunked = chunked;
     }
-    if (parts.length == 3 && "v2".equals(parts[0])) {
-      byte[] iv = Base64.decode(parts[1], Base64.NO_WRAP);
-      byte[] ciphertext = Base64.decode(parts[2], Base64.NO_WRAP);
-      return new ParsedRecord(2, iv, ciphertext);
+
+    static StoredItem parse(ByteBuffer value) throws IOException {
+      if (ChunkedRecord.isChunked(value)) {
+        ChunkedRecord chunked = ChunkedRecord.parse(value);
+        return new StoredItem(chunked.wrappedKey, chunked);
+      }
+      byte[] raw = new byte[value.remaining()];
+      value.duplicate().get(raw);
+      return new StoredItem(ItemRecord.decode(raw), null);
+    }
+
+    boolean authKey() {
+      return record.version == 2;
+    }
+  }
+
+  /** Decrypted item value and whether it was sealed under the auth-bound key. */
+  private static final class ItemValue {
+    final String value;
+    final boolean authKey;
+
+    ItemValue(String value, boolean authKey) {
+      this.value = value;
+      this.authKey = authKey;
     }
-    throw new IllegalArgumentException("Invalid record");
   }
 
-  private String toRecord(int version, byte[] iv, byte[] ciphertext) {
-    String ivB64 = Base64.encodeToString(iv, Base64.NO_WRAP);
-    String ctB64 = Base64.encodeToString(ciphertext, Base64.NO_WRAP);
-    if (version == 2) return "v2:" + ivB64 + ":" + ctB64;
-    return ivB64 + ":" + ctB64;
+  /**
+   * Reads and decrypts one item, or null if absent. Chunked records are read in two passes so
+   * the Keystore unwrap of the data key happens outside the store lock; the second pass checks
+   * the header is unchanged and streams the segments from the store's view.
+   */
+  private ItemValue readItem(EnclaveStore store, ItemCiphers ciphers, String key) throws Exception {
+    StoredItem stored = store.read(key, StoredItem::parse);
+    return stored == null ? null : readItem(store, ciphers, key, stored);
+  }
+
+  /** readItem for a header already read; null if the item was removed since. */
+  private ItemValue readItem(EnclaveStore store, ItemCiphers ciphers, String key, StoredItem stored) throws Exception {
+    if (stored.chunked == null) {
+      return new ItemValue(new String(ciphers.decrypt(stored.record), StandardCharsets.UTF_8), stored.authKey());
+    }
+    byte[] dek = ciphers.decrypt(stored.record);
+    try {
+      String value = store.read(key, view -> {
+        if (!stored.chunked.sameRecord(ChunkedRecord.parse(view))) throw new IOException("Item changed during read");
+        return stored.chunked.decrypt(dek, view);
+      });
+      return value == null ? null : new ItemValue(value, stored.authKey());
+    } finally {
+      Arrays.fill(dek, (byte) 0);
+    }
   }
 
-  private String encryptToRecord(String plaintext, boolean requireUserAuth) throws Exception {
-    SecretKey key = getOrCreateKey(requireUserAuth ? KEY_ALIAS_AUTH : KEY_ALIAS, requireUserAuth);
-    byte[] iv = new byte[12];
-    new SecureRandom().nextBytes(iv);
+  /** Values from this many UTF-8 bytes up are stored as ChunkedRecords. */
+  private static final int CHUNKED_THRESHOLD = ChunkedRecord.DEFAULT_CHUNK_SIZE;
+
+  /** Encrypts and stores one item; large values are streamed into the store chunk by chunk. */
+  private void writeItem(EnclaveStore store, ItemCiphers ciphers, String key, String value, boolean requireUserAuth) throws Exception {
+    int length = ChunkedRecord.utf8Length(value);
+    if (length < CHUNKED_THRESHOLD) {
+      store.put(key, ciphers.encrypt(value.getBytes(StandardCharsets.UTF_8), requireUserAuth).encode());
+      return;
+    }
+    writeChunked(store, ciphers, key, value, length, requireUserAuth);
+  }
 
-    Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-    cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, iv));
-    byte[] ciphertext = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
-    return toRecord(requireUserAuth ? 2 : 1, iv, ciphertext);
+  private void writeChunked(EnclaveStore store, ItemCiphers ciphers, String key, String value, int length,
+                            boolean requireUserAuth) throws Exception {
+    byte[] dek = new byte[ChunkedRecord.DEK_BYTES];
+    random.nextBytes(dek);
+    try {
+      ChunkedRecord record = ChunkedRecord.create(ciphers.encrypt(dek, requireUserAuth), length, random);
+      store.put(key, record.encodedLength(), out -> record.write(out, dek, value));
+    } finally {
+      Arrays.fill(dek, (byte) 0);
+    }
   }
 
-  private String decryptFromRecord(String record, boolean requireUserAuth) throws Exception {
-    ParsedRecord parsed = parseRecord(record);
-    if (requireUserAuth && parsed.version != 2) {
-      throw new IllegalStateException("auth required");
+  /**
+   * Batch write of one item: small records are queued in batch for a single putAll, large
+   * ones are streamed into the store right away (putAll takes whole values, and building a
+   * chunked record in memory is what chunking avoids).
+   */
+  private void stageItem(EnclaveStore store, ItemCiphers ciphers, Map<String, byte[]> batch, String key, String value,
+                         boolean requireUserAuth) throws Exception {
+    int length = ChunkedRecord.utf8Length(value);
+    if (length < CHUNKED_THRESHOLD) {
+      batch.put(key, ciphers.encrypt(value.getBytes(StandardCharsets.UTF_8), requireUserAuth).encode());
+      return;
     }
-    SecretKey key = getOrCreateKey(parsed.version == 2 ? KEY_ALIAS_AUTH : KEY_ALIAS, parsed.version == 2);
-    Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-    cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, parsed.iv));
-    byte[] plaintext = cipher.doFinal(parsed.ciphertext);
-    return new String(plaintext, StandardCharsets.UTF_8);
+    batch.remove(key); // an earlier entry for the same key must not overwrite this one
+    writeChunked(store, ciphers, key, value, length, requireUserAuth);
   }
 
+  /**
+   * Whether the auth-bound key can be used right now. Inside the window started by our
+   * own authenticate() this is answered from memory; only outside it (validity unknown,
+   * e.g. the user unlocked the device in between) is the Keystore probed.
+   */
   private boolean canUseAuthKeyNow() {
+    if (System.currentTimeMillis() < authKeyValidUntilMs) return true;
     try {
-      SecretKey key = getOrCreateKey(KEY_ALIAS_AUTH, true);
-      byte[] iv = new byte[12];
-      new SecureRandom().nextBytes(iv);
-      Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-      cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, iv));
-      byte[] probe = new byte[16];
-      new SecureRandom().nextBytes(probe);
-      cipher.doFinal(probe);
+      Cipher cipher = initKeystoreCipher(Cipher.ENCRYPT_MODE, KEY_ALIAS_AUTH, true, null);
+      cipher.doFinal(new byte[16]);
       return true;
     } catch (UserNotAuthenticatedException e) {
       return false;
@@ -183,6 +398,10 @@ public class SecureEnclavePlugin extends Plugin {
     }
   }
 
+  private void markAuthKeyUsable() {
+    authKeyValidUntilMs = System.currentTimeMillis() + AUTH_KEY_VALIDITY_SECONDS * 1000L - AUTH_KEY_VALIDITY_MARGIN_MS;
+  }
+
   @PluginMethod
   public void isAvailable(PluginCall call) {
     JSObject ret = new JSObject();
@@ -197,9 +416,15 @@ public class SecureEnclavePlugin extends Plugin {
       call.reject("key required");
       return;
     }
-    JSObject ret = new JSObject();
-    ret.put("exists", prefs().contains(key));
-    call.resolve(ret);
+    workers.submit(CryptoWorkers.Lane.FAST, call, () -> {
+      try {
+        JSObject ret = new JSObject();
+        ret.put("exists", store().contains(key));
+        call.resolve(ret);
+      } catch (IOException e) {
+        reject(call, "secure storage failed");
+      }
+    });
   }
 
   private boolean isBiometricSessionValid() {
@@ -219,25 +444,34 @@ public class SecureEnclavePlugin extends Plugin {
       call.reject("auth required");
       return;
     }
-    if (requireBiometric != null && requireBiometric && !canUseAuthKeyNow()) {
-      call.reject("auth required");
-      return;
-    }
-    try {
-      String record = encryptToRecord(value, requireBiometric != null && requireBiometric);
-      prefs().edit().putString(key, record).apply();
-      call.resolve(new JSObject());
-    } catch (UserNotAuthenticatedException e) {
-      call.reject("auth required");
-    } catch (Exception e) {
-      call.reject("secure storage failed");
-    }
+    workers.submit(CryptoWorkers.Lane.FAST, call, () -> {
+      // Keystore probe runs on the worker too; it is a full AES-GCM op in the TEE
+      if (requireBiometric != null && requireBiometric && !canUseAuthKeyNow()) {
+        reject(call, "auth required");
+        return;
+      }
+      try {
+        writeItem(store(), new ItemCiphers(), key, value, requireBiometric != null && requireBiometric);
+        call.resolve(new JSObject());
+      } catch (UserNotAuthenticatedException e) {
+        reject(call, "auth required");
+      } catch (Exception e) {
+        reject(call, "secure storage failed");
+      }
+    });
   }
 
+  /**
+   * With ranged: true a large (chunked) value is not returned inline: the result is
+   * { value: null, total, recordId } and the caller reads it through getItemRange (passing
+   * recordId), so the native side never holds more than a segment of it. A requireBiometric read that has to move a
+   * device-key item under the auth key still decrypts and rewrites it whole.
+   */
   @PluginMethod
   public void getItem(PluginCall call) {
     String key = call.getString("key");
     Boolean requireBiometric = call.getBoolean("requireBiometric", false);
+    boolean ranged = call.getBoolean("ranged", false);
     if (key == null) {
       call.reject("key required");
       return;
@@ -246,42 +480,124 @@ public class SecureEnclavePlugin extends Plugin {
       call.reject("auth required");
       return;
     }
-    try {
-      String record = prefs().getString(key, null);
-      JSObject ret = new JSObject();
-      if (record == null) {
-        ret.put("value", null);
-        call.resolve(ret);
-        return;
-      }
-      ParsedRecord parsed = parseRecord(record);
-      if (requireBiometric != null && requireBiometric && parsed.version == 1) {
-        if (!canUseAuthKeyNow()) {
-          call.reject("auth required");
+    workers.submit(CryptoWorkers.Lane.FAST, call, () -> {
+      try {
+        EnclaveStore store = store();
+        ItemCiphers ciphers = new ItemCiphers();
+        StoredItem stored = store.read(key, StoredItem::parse);
+        JSObject ret = new JSObject();
+        boolean upgrade = stored != null && requireBiometric != null && requireBiometric && !stored.authKey();
+        if (ranged && stored != null && stored.chunked != null && !upgrade) {
+          ret.put("value", null);
+          ret.put("total", stored.chunked.length);
+          ret.put("recordId", stored.chunked.recordId());
+          call.resolve(ret);
           return;
         }
-        String plaintext = decryptFromRecord(record, false);
-        String migrated = encryptToRecord(plaintext, true);
-        prefs().edit().putString(key, migrated).apply();
-        ret.put("value", plaintext);
+        ItemValue item = stored == null ? null : readItem(store, ciphers, key, stored);
+        if (item == null) {
+          ret.put("value", null);
+          call.resolve(ret);
+          return;
+        }
+        if (requireBiometric != null && requireBiometric && !item.authKey) {
+          // Device-key item read with requireBiometric: move it under the auth key
+          if (!canUseAuthKeyNow()) {
+            reject(call, "auth required");
+            return;
+          }
+          writeItem(store, ciphers, key, item.value, true);
+        }
+        ret.put("value", item.value);
         call.resolve(ret);
-        return;
+      } catch (UserNotAuthenticatedException e) {
+        reject(call, "auth required");
+      } catch (IllegalStateException e) {
+        String msg = e.getMessage();
+        if (msg != null && msg.toLowerCase().contains("auth required")) {
+          reject(call, "auth required");
+        } else {
+          reject(call, "secure storage failed");
+        }
+      } catch (Exception e) {
+        reject(call, "secure storage failed");
       }
-      String plaintext = decryptFromRecord(record, requireBiometric != null && requireBiometric);
-      ret.put("value", plaintext);
-      call.resolve(ret);
-    } catch (UserNotAuthenticatedException e) {
+    });
+  }
+
+  /**
+   * Bytes [offset, offset + length) of an item's UTF-8 value, Base64 encoded. Chunked records
+   * decrypt only the segments the range touches; small records are decrypted whole.
+   * Does not upgrade device-key items; a requireBiometric read of one is refused.
+   * recordId (from a ranged getItem) fails the read if the item has been rewritten since.
+   */
+  @PluginMethod
+  public void getItemRange(PluginCall call) {
+    String key = call.getString("key");
+    Integer offset = call.getInt("offset", 0);
+    Integer length = call.getInt("length");
+    boolean requireBiometric = call.getBoolean("requireBiometric", false);
+    String recordId = call.getString("recordId");
+    if (key == null || length == null || offset == null) {
+      call.reject("key and length required");
+      return;
+    }
+    if (requireBiometric && !isBiometricSessionValid()) {
       call.reject("auth required");
-    } catch (IllegalStateException e) {
-      String msg = e.getMessage();
-      if (msg != null && msg.toLowerCase().contains("auth required")) {
-        call.reject("auth required");
-      } else {
-        call.reject("secure storage failed");
-      }
-    } catch (Exception e) {
-      call.reject("secure storage failed");
+      return;
     }
+    workers.submit(CryptoWorkers.Lane.FAST, call, () -> {
+      try {
+        EnclaveStore store = store();
+        ItemCiphers ciphers = new ItemCiphers();
+        StoredItem stored = store.read(key, StoredItem::parse);
+        JSObject ret = new JSObject();
+        if (stored == null) {
+          ret.put("data", null);
+          call.resolve(ret);
+          return;
+        }
+        if (requireBiometric && !stored.authKey()) {
+          reject(call, "auth required");
+          return;
+        }
+        if (recordId != null && (stored.chunked == null || !recordId.equals(stored.chunked.recordId()))) {
+          throw new IOException("Item changed during read");
+        }
+        byte[] data;
+        int total;
+        if (stored.chunked == null) {
+          byte[] plain = ciphers.decrypt(stored.record);
+          if (offset < 0 || length < 0 || (long) offset + length > plain.length) {
+            throw new IllegalArgumentException("Range out of bounds");
+          }
+          data = Arrays.copyOfRange(plain, offset, offset + length);
+          total = plain.length;
+          Arrays.fill(plain, (byte) 0);
+        } else {
+          byte[] dek = ciphers.decrypt(stored.record);
+          try {
+            data = store.read(key, view -> {
+              if (!stored.chunked.sameRecord(ChunkedRecord.parse(view))) throw new IOException("Item changed during read");
+              return stored.chunked.decryptRange(dek, view, offset, length);
+            });
+          } finally {
+            Arrays.fill(dek, (byte) 0);
+          }
+          if (data == null) throw new IOException("Item removed during read");
+          total = stored.chunked.length;
+        }
+        ret.put("data", Base64.encodeToString(data, Base64.NO_WRAP));
+        ret.put("total", total);
+        call.resolve(ret);
+      } catch (UserNotAuthenticatedException e) {
+        reject(call, "auth required");
+      } catch (IllegalArgumentException e) {
+        reject(call, e.getMessage());
+      } catch (Exception e) {
+        reject(call, "secure storage failed");
+      }
+    });
   }
 
   @PluginMethod
@@ -296,17 +612,209 @@ public class SecureEnclavePlugin extends Plugin {
       call.reject("auth required");
       return;
     }
-    if (requireBiometric != null && requireBiometric && !canUseAuthKeyNow()) {
+    workers.submit(CryptoWorkers.Lane.FAST, call, () -> {
+      if (requireBiometric != null && requireBiometric && !canUseAuthKeyNow()) {
+        reject(call, "auth required");
+        return;
+      }
+      try {
+        store().remove(key);
+        call.resolve(new JSObject());
+      } catch (IOException e) {
+        reject(call, "secure storage failed");
+      }
+    });
+  }
+
+  /** Per-entry requireBiometric, defaulting to the call-level flag. */
+  private static boolean entryRequiresBiometric(JSONObject entry, boolean fallback) {
+    return entry.optBoolean("requireBiometric", fallback);
+  }
+
+  /**
+   * Auth-key availability for one batch: the window check is free, the Keystore
+   * probe (a full TEE op) runs at most once and only if an entry needs it.
+   */
+  private final class AuthGate {
+    private Boolean usable;
+
+    boolean allows(boolean requireBiometric) {
+      if (!requireBiometric) return true;
+      if (!isBiometricSessionValid()) return false;
+      if (usable == null) usable = canUseAuthKeyNow();
+      return usable;
+    }
+  }
+
+  private static String itemError(Exception e) {
+    if (e instanceof UserNotAuthenticatedException) return "auth required";
+    String msg = e.getMessage();
+    if (e instanceof IllegalStateException && msg != null && msg.toLowerCase().contains("auth required")) {
+      return "auth required";
+    }
+    return "secure storage failed";
+  }
+
+  /**
+   * Batch getItem: items = [{ key, requireBiometric? }] (requireBiometric at the top level is the
+   * default). Same per-item rules as getItem, including the v1 -> auth-key upgrade; upgraded
+   * records are written back in one store commit. Per-item failures land in results[i].error.
+   */
+  @PluginMethod
+  public void getItems(PluginCall call) {
+    JSArray items = call.getArray("items");
+    boolean defaultBiometric = call.getBoolean("requireBiometric", false);
+    if (items == null) {
+      call.reject("items required");
+      return;
+    }
+    workers.submit(CryptoWorkers.Lane.FAST, call, () -> {
+      try {
+        EnclaveStore store = store();
+        ItemCiphers ciphers = new ItemCiphers();
+        AuthGate gate = new AuthGate();
+        Map<String, byte[]> migrated = new LinkedHashMap<>();
+        JSArray results = new JSArray();
+        int failed = 0;
+        for (int i = 0; i < items.length(); i++) {
+          JSONObject item = items.getJSONObject(i);
+          String key = item.optString("key", null);
+          JSObject result = new JSObject();
+          result.put("key", key);
+          try {
+            if (key == null) throw new IllegalArgumentException("key required");
+            boolean requireBiometric = entryRequiresBiometric(item, defaultBiometric);
+            if (!gate.allows(requireBiometric)) throw new IllegalStateException("auth required");
+            ItemValue value = readItem(store, ciphers, key);
+            if (value == null) {
+              result.put("value", null);
+            } else {
+              if (requireBiometric && !value.authKey) {
+                try {
+                  stageItem(store, ciphers, migrated, key, value.value, true);
+                } catch (IOException e) {
+                  Log.w(TAG, "Item key upgrade not persisted", e); // retried on the next read
+                }
+              }
+              result.put("value", value.value);
+            }
+          } catch (IllegalArgumentException e) {
+            failed++;
+            result.put("error", e.getMessage());
+          } catch (Exception e) {
+            failed++;
+            result.put("error", itemError(e));
+          }
+          results.put(result);
+        }
+        if (!migrated.isEmpty()) {
+          try {
+            store.putAll(migrated);
+          } catch (IOException e) {
+            // Values were read fine; the upgrade is retried on the next read
+            Log.w(TAG, "Item key upgrade not persisted", e);
+          }
+        }
+        JSObject ret = new JSObject();
+        ret.put("results", results);
+        ret.put("failed", failed);
+        call.resolve(ret);
+      } catch (Exception e) {
+        reject(call, "secure storage failed");
+      }
+    });
+  }
+
+  /**
+   * Batch setItem: items = [{ key, value, requireBiometric? }]. Every item is encrypted first,
+   * then the successful ones are persisted with one store commit. Values large enough to be
+   * chunked are the exception: each is streamed into the store as it is reached. Items that
+   * cannot be encrypted (e.g. auth required) are reported per entry and not written.
+   */
+  @PluginMethod
+  public void setItems(PluginCall call) {
+    JSArray items = call.getArray("items");
+    boolean defaultBiometric = call.getBoolean("requireBiometric", false);
+    if (items == null) {
+      call.reject("items required");
+      return;
+    }
+    workers.submit(CryptoWorkers.Lane.FAST, call, () -> {
+      try {
+        EnclaveStore store = store();
+        ItemCiphers ciphers = new ItemCiphers();
+        AuthGate gate = new AuthGate();
+        Map<String, byte[]> records = new LinkedHashMap<>();
+        JSArray results = new JSArray();
+        int written = 0;
+        int failed = 0;
+        for (int i = 0; i < items.length(); i++) {
+          JSONObject item = items.getJSONObject(i);
+          String key = item.optString("key", null);
+          JSObject result = new JSObject();
+          result.put("key", key);
+          try {
+            String value = item.has("value") && !item.isNull("value") ? item.getString("value") : null;
+            if (key == null || value == null) throw new IllegalArgumentException("key and value required");
+            boolean requireBiometric = entryRequiresBiometric(item, defaultBiometric);
+            if (!gate.allows(requireBiometric)) throw new IllegalStateException("auth required");
+            stageItem(store, ciphers, records, key, value, requireBiometric);
+            written++;
+          } catch (IllegalArgumentException e) {
+            failed++;
+            result.put("error", e.getMessage());
+          } catch (Exception e) {
+            failed++;
+            result.put("error", itemError(e));
+          }
+          results.put(result);
+        }
+        store.putAll(records);
+        JSObject ret = new JSObject();
+        ret.put("results", results);
+        ret.put("written", written);
+        ret.put("failed", failed);
+        call.resolve(ret);
+      } catch (Exception e) {
+        reject(call, "secure storage failed");
+      }
+    });
+  }
+
+  /** Batch removeItem: keys = [...], one store commit. requireBiometric gates the whole call. */
+  @PluginMethod
+  public void removeItems(PluginCall call) {
+    JSArray keys = call.getArray("keys");
+    boolean requireBiometric = call.getBoolean("requireBiometric", false);
+    if (keys == null) {
+      call.reject("keys required");
+      return;
+    }
+    if (requireBiometric && !isBiometricSessionValid()) {
       call.reject("auth required");
       return;
     }
-    prefs().edit().remove(key).apply();
-    call.resolve(new JSObject());
+    workers.submit(CryptoWorkers.Lane.FAST, call, () -> {
+      if (requireBiometric && !canUseAuthKeyNow()) {
+        reject(call, "auth required");
+        return;
+      }
+      try {
+        List<String> list = new ArrayList<>(keys.length());
+        for (int i = 0; i < keys.length(); i++) list.add(keys.getString(i));
+        store().removeAll(list);
+        call.resolve(new JSObject());
+      } catch (Exception e) {
+        reject(call, "secure storage failed");
+      }
+    });
   }
 
   @PluginMethod
   public void clearBiometricSession(PluginCall call) {
     biometricSessionValidUntilMs = 0;
+    authKeyValidUntilMs = 0;
+    wipeSession();
     call.resolve(new JSObject());
   }
 
@@ -321,11 +829,7 @@ public class SecureEnclavePlugin extends Plugin {
         return;
       }
 
-      SecretKey authKey = getOrCreateKey(KEY_ALIAS_AUTH, true);
-      byte[] iv = new byte[12];
-      new SecureRandom().nextBytes(iv);
-      Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-      cipher.init(Cipher.ENCRYPT_MODE, authKey, new GCMParameterSpec(GCM_TAG_BITS, iv));
+      Cipher cipher = initKeystoreCipher(Cipher.ENCRYPT_MODE, KEY_ALIAS_AUTH, true, null);
 
       Executor executor = ContextCompat.getMainExecutor(getContext());
       BiometricPrompt prompt = new BiometricPrompt(
@@ -338,13 +842,12 @@ public class SecureEnclavePlugin extends Plugin {
             int dur = durationSeconds == null ? 300 : Math.max(10, durationSeconds);
             biometricSessionValidUntilMs = System.currentTimeMillis() + (dur * 1000L);
             try {
-              byte[] probe = new byte[16];
-              new SecureRandom().nextBytes(probe);
-              cipher.doFinal(probe);
+              cipher.doFinal(new byte[16]);
             } catch (Exception e) {
               call.reject("biometric failed");
               return;
             }
+            markAuthKeyUsable(); // Keystore validity window starts now
             JSObject ret = new JSObject();
             ret.put("authenticated", true);
             ret.put("validUntilMs", biometricSessionValidUntilMs);
@@ -378,50 +881,7 @@ public class SecureEnclavePlugin extends Plugin {
 
   // --- NATIVE SIGNING LOGIC (Phase 2) ---
 
-  /**
-   * Decrypts the Seed Vault (Layer 3) using PBKDF2/AES-GCM matching seed.ts logic.
-   * vaultJson: "{ v:1, salt:[...], iv:[...], data:[...] }"
-   * pin: User's PIN
-   */
-  private byte[] decryptSeedVault(String vaultJson, String pin) throws Exception {
-    JSONObject envelope = new JSONObject(vaultJson);
-    int v = envelope.getInt("v");
-    if (v != 1) throw new IllegalArgumentException("Unknown vault version");
-
-    JSONArray saltJson = envelope.getJSONArray("salt");
-    JSONArray ivJson = envelope.getJSONArray("iv");
-    JSONArray dataJson = envelope.getJSONArray("data");
-
-    byte[] salt = new byte[saltJson.length()];
-    for(int i=0; i<saltJson.length(); i++) salt[i] = (byte)saltJson.getInt(i);
-
-    byte[] iv = new byte[ivJson.length()];
-    for(int i=0; i<ivJson.length(); i++) iv[i] = (byte)ivJson.getInt(i);
-
-    byte[] data = new byte[dataJson.length()];
-    for(int i=0; i<dataJson.length(); i++) data[i] = (byte)dataJson.getInt(i);
-
-    // Derive Key: PBKDF2WithHmacSHA256, 200000 iterations
-    SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
-    // seed.ts uses 256 bits (32 bytes) for AES key
-    PBEKeySpec spec = new PBEKeySpec(pin.toCharArray(), salt, 200000, 256);
-    SecretKey tmp = factory.generateSecret(spec);
-    SecretKeySpec secret = new SecretKeySpec(tmp.getEncoded(), "AES");
-
-    // Decrypt: AES/GCM/NoPadding
-    Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-    cipher.init(Cipher.DECRYPT_MODE, secret, new GCMParameterSpec(GCM_TAG_BITS, iv));
-    
-    return cipher.doFinal(data);
-  }
-
-  // Helper to derive key only (refactored for cache usage)
-  private SecretKey deriveKeyForVault(String pin, byte[] salt) throws Exception {
-     SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
-     PBEKeySpec spec = new PBEKeySpec(pin.toCharArray(), salt, 200000, 256);
-     SecretKey tmp = factory.generateSecret(spec);
-     return new SecretKeySpec(tmp.getEncoded(), "AES");
-  }
+  // Vault parsing, PBKDF2 and AES-GCM live in VaultEnvelope (shared with NativeCrypto).
 
   @PluginMethod
   public void unlockSession(PluginCall call) {
@@ -433,39 +893,37 @@ public class SecureEnclavePlugin extends Plugin {
           return;
       }
 
-      try {
-          JSONObject envelope = new JSONObject(vaultJson);
-          JSONArray saltJson = envelope.getJSONArray("salt");
-          byte[] salt = new byte[saltJson.length()];
-          for(int i=0; i<saltJson.length(); i++) salt[i] = (byte)saltJson.getInt(i);
+      workers.submit(CryptoWorkers.Lane.HEAVY, call, () -> {
+        try {
+            VaultEnvelope envelope = VaultEnvelope.parse(vaultJson);
+            byte[] salt = envelope.salt();
 
-          // 1. Derive
-          SecretKey key = deriveKeyForVault(pin, salt);
+            // 1. Derive
+            SecretKey key = pinKey(envelope, pin);
           
-          // 2. Validate (Try to decrypt)
-          // We need the IV and Data to test
-          JSONArray ivJson = envelope.getJSONArray("iv");
-          JSONArray dataJson = envelope.getJSONArray("data");
-          byte[] iv = new byte[ivJson.length()];
-          for(int i=0; i<ivJson.length(); i++) iv[i] = (byte)ivJson.getInt(i);
-          byte[] data = new byte[dataJson.length()];
-          for(int i=0; i<dataJson.length(); i++) data[i] = (byte)dataJson.getInt(i);
-
-          Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-          cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, iv));
-          byte[] check = cipher.doFinal(data);
-          Arrays.fill(check, (byte)0); // Wipe check buffer
-
-          // 3. Cache
-          this.cachedSessionKey = key;
-          this.cachedSessionSalt = salt;
-          this.cachedSessionExpiry = System.currentTimeMillis() + SESSION_DURATION_MS;
-
-          call.resolve(new JSObject().put("unlocked", true));
+            // 2. Validate (Try to decrypt) and build the master key once
+            long decryptStart = System.nanoTime();
+            byte[] seed = envelope.decrypt(key);
+            metrics.phase(PluginMetrics.Phase.DECRYPT, decryptStart);
+            try {
+              // 3. Cache (off-heap master key + derivation cache, both wiped with the session)
+              startSession(salt, KeyDerivation.masterKeyFromSeed(seed));
 
-      } catch (Exception e) {
-          call.reject("Unlock failed: " + e.getMessage());
-      }
+              call.resolve(new JSObject().put("unlocked", true));
+
+              // 4. v1/v2 vaults carry no KDF params: re-wrap at the calibrated cost after
+              // the caller already has its answer (still on this heavy worker)
+              if (!envelope.hasKdfParams() && hasListeners(EVENT_VAULT_REWRAPPED)) {
+                rewrapVault(envelope, seed, pin);
+              }
+            } finally {
+              Arrays.fill(seed, (byte)0); // Wipe seed buffer
+            }
+
+        } catch (Exception e) {
+            reject(call, "Unlock failed: " + e.getMessage());
+        }
+      });
   }
 
   @PluginMethod
@@ -479,68 +937,21 @@ public class SecureEnclavePlugin extends Plugin {
       return;
     }
 
-    try {
-      SecretKey keyToUse = null;
-      JSONObject envelope = new JSONObject(vaultJson);
-      JSONArray ivJson = envelope.getJSONArray("iv");
-      JSONArray dataJson = envelope.getJSONArray("data");
-      
-      JSONArray saltJson = envelope.getJSONArray("salt");
-      byte[] salt = new byte[saltJson.length()];
-      for(int i=0; i<saltJson.length(); i++) salt[i] = (byte)saltJson.getInt(i);
-
-      if (pin != null) {
-          keyToUse = deriveKeyForVault(pin, salt);
-      } else {
-          if (cachedSessionKey != null && System.currentTimeMillis() < cachedSessionExpiry) {
-              if (Arrays.equals(this.cachedSessionSalt, salt)) {
-                  keyToUse = cachedSessionKey;
-              } else {
-                 call.reject("Session valid but wallet mismatch (salt). Unlock required.");
-                 return;
-              }
-          } else {
-              call.reject("Session expired or invalid. Unlock required.");
-              return;
-          }
-      }
-
-      byte[] iv = new byte[ivJson.length()];
-      for(int i=0; i<ivJson.length(); i++) iv[i] = (byte)ivJson.getInt(i);
-      byte[] data = new byte[dataJson.length()];
-      for(int i=0; i<dataJson.length(); i++) data[i] = (byte)dataJson.getInt(i);
-
-      Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-      cipher.init(Cipher.DECRYPT_MODE, keyToUse, new GCMParameterSpec(GCM_TAG_BITS, iv));
-      byte[] seed = cipher.doFinal(data);
-      
+    workers.submit(laneFor(pin), call, () -> {
       try {
-        DeterministicSeed detSeed = new DeterministicSeed(seed, (List<String>) null, 0L);
-        DeterministicKey rootKey = HDKeyDerivation.createMasterPrivateKey(detSeed.getSeedBytes());
-        
-        DeterministicHierarchy hierarchy = new DeterministicHierarchy(rootKey);
-        String[] parts = path.split("/");
-        DeterministicKey child = rootKey;
-        
-        for (String part : parts) {
-            if (part.equals("m")) continue;
-            boolean hardened = part.endsWith("'") || part.endsWith("h");
-            String numStr = part.replace("'", "").replace("h", "");
-            int index = Integer.parseInt(numStr);
-            child = HDKeyDerivation.deriveChildKey(child, new org.bitcoinj.crypto.ChildNumber(index, hardened));
-        }
+        VaultRoot root = resolveRoot(call, vaultJson, pin);
+        if (root == null) return;
+
+        DeterministicKey child = deriveForVault(path, root, null);
 
         JSObject ret = new JSObject();
         ret.put("pubkey", child.getPublicKeyAsHex());
         call.resolve(ret);
 
-      } finally {
-        Arrays.fill(seed, (byte)0);
+      } catch (Exception e) {
+        reject(call, "GetPublicKey failed: " + e.getMessage());
       }
-
-    } catch (Exception e) {
-      call.reject("GetPublicKey failed: " + e.getMessage());
-    }
+    });
   }
 
   @PluginMethod
@@ -554,319 +965,887 @@ public class SecureEnclavePlugin extends Plugin {
           return;
       }
 
-      try {
-          SecretKey keyToUse = null;
-          JSONObject envelope = new JSONObject(vaultJson);
-          JSONArray ivJson = envelope.getJSONArray("iv");
-          JSONArray dataJson = envelope.getJSONArray("data");
-          JSONArray saltJson = envelope.getJSONArray("salt");
-          byte[] salt = new byte[saltJson.length()];
-          for(int i=0; i<saltJson.length(); i++) salt[i] = (byte)saltJson.getInt(i);
-
-          if (pin != null) {
-              keyToUse = deriveKeyForVault(pin, salt);
-          } else {
-              if (cachedSessionKey != null && System.currentTimeMillis() < cachedSessionExpiry) {
-                  if (Arrays.equals(this.cachedSessionSalt, salt)) {
-                      keyToUse = cachedSessionKey;
-                  } else {
-                     call.reject("Session valid but wallet mismatch. Unlock required.");
-                     return;
-                  }
-              } else {
-                  call.reject("Session expired. Unlock required.");
-                  return;
-              }
-          }
-
-          byte[] iv = new byte[ivJson.length()];
-          for(int i=0; i<ivJson.length(); i++) iv[i] = (byte)ivJson.getInt(i);
-          byte[] data = new byte[dataJson.length()];
-          for(int i=0; i<dataJson.length(); i++) data[i] = (byte)dataJson.getInt(i);
+      workers.submit(laneFor(pin), call, () -> {
+        try {
+            VaultRoot root = resolveRoot(call, vaultJson, pin);
+            if (root == null) return;
 
-          Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-          cipher.init(Cipher.DECRYPT_MODE, keyToUse, new GCMParameterSpec(GCM_TAG_BITS, iv));
-          byte[] seed = cipher.doFinal(data);
+            DeterministicKey child = deriveForVault(path, root, null);
 
-          try {
-              DeterministicSeed detSeed = new DeterministicSeed(seed, (List<String>) null, 0L);
-              DeterministicKey rootKey = HDKeyDerivation.createMasterPrivateKey(detSeed.getSeedBytes());
-              
-              DeterministicHierarchy hierarchy = new DeterministicHierarchy(rootKey);
-              String[] parts = path.split("/");
-              DeterministicKey child = rootKey;
-              
-              for (String part : parts) {
-                  if (part.equals("m")) continue;
-                  boolean hardened = part.endsWith("'") || part.endsWith("h");
-                  String numStr = part.replace("'", "").replace("h", "");
-                  int index = Integer.parseInt(numStr);
-                  child = HDKeyDerivation.deriveChildKey(child, new org.bitcoinj.crypto.ChildNumber(index, hardened));
-              }
-              
-              JSObject ret = new JSObject();
-              ret.put("secret", child.getPrivateKeyAsHex());
-              ret.put("pubkey", child.getPublicKeyAsHex());
-              call.resolve(ret);
-          } finally {
-              Arrays.fill(seed, (byte)0);
-          }
-      } catch (Exception e) {
-          call.reject("Derivation failed: " + e.getMessage());
-      }
+            JSObject ret = new JSObject();
+            ret.put("secret", child.getPrivateKeyAsHex());
+            ret.put("pubkey", child.getPublicKeyAsHex());
+            call.resolve(ret);
+        } catch (Exception e) {
+            reject(call, "Derivation failed: " + e.getMessage());
+        }
+      });
   }
 
+  /**
+   * Pubkeys (and EVM addresses) for a list of descriptors:
+   *   accounts: [{ chain: "btc"|"btc-testnet"|"stacks"|"evm"|"rsk"|"liquid", account?, change?, index? } | { path }]
+   * Omitted accounts keeps the historical four account-0/index-0 keys and the flat
+   * btcPubkey/stxPubkey/liquidPubkey/evmAddress fields. The master key is resolved once;
+   * each chain/account branch is derived in parallel on the fork-join pool. On an unlocked
+   * session results are memoized per vault (master fingerprint) until the session is wiped.
+   */
   @PluginMethod
   public void getWalletInfo(PluginCall call) {
       String vaultJson = call.getString("vault");
       String pin = call.getString("pin");
+      JSArray accounts = call.getArray("accounts");
 
       if (vaultJson == null) {
           call.reject("Missing vault");
           return;
       }
 
+      List<AccountDescriptor> descriptors;
       try {
-          // Use NativeCrypto or internal logic?
-          // For consistency with session cache, we use internal logic or check session
-          SecretKey keyToUse = null;
-          JSONObject envelope = new JSONObject(vaultJson);
-          JSONArray ivJson = envelope.getJSONArray("iv");
-          JSONArray dataJson = envelope.getJSONArray("data");
-          JSONArray saltJson = envelope.getJSONArray("salt");
-          byte[] salt = new byte[saltJson.length()];
-          for(int i=0; i<saltJson.length(); i++) salt[i] = (byte)saltJson.getInt(i);
-
-          if (pin != null) {
-              keyToUse = deriveKeyForVault(pin, salt);
+          if (accounts == null) {
+              descriptors = AccountDescriptor.defaults();
           } else {
-              if (cachedSessionKey != null && System.currentTimeMillis() < cachedSessionExpiry) {
-                  if (Arrays.equals(this.cachedSessionSalt, salt)) {
-                      keyToUse = cachedSessionKey;
-                  } else {
-                     call.reject("Session valid but wallet mismatch. Unlock required.");
-                     return;
-                  }
-              } else {
-                  call.reject("Session expired. Unlock required.");
-                  return;
+              descriptors = new ArrayList<>(accounts.length());
+              for (int i = 0; i < accounts.length(); i++) {
+                  descriptors.add(AccountDescriptor.parse(accounts.getJSONObject(i)));
               }
           }
+      } catch (Exception e) {
+          call.reject("Invalid accounts: " + e.getMessage());
+          return;
+      }
 
-          byte[] iv = new byte[ivJson.length()];
-          for(int i=0; i<ivJson.length(); i++) iv[i] = (byte)ivJson.getInt(i);
-          byte[] data = new byte[dataJson.length()];
-          for(int i=0; i<dataJson.length(); i++) data[i] = (byte)dataJson.getInt(i);
+      workers.submit(laneFor(pin), call, () -> {
+        try {
+            VaultRoot root = resolveRoot(call, vaultJson, pin);
+            if (root == null) return;
+
+            // Only session calls read/write the memo: a PIN call must still prove the PIN
+            String memoPrefix = root.usesSession() ? sessionSeed.fingerprintHex() + "|" : null;
+            JSObject[] entries = new JSObject[descriptors.size()];
+            int memoHits = 0;
+
+            // Group by hardened account branch; branches share nothing below the master
+            Map<String, List<Integer>> branches = new LinkedHashMap<>();
+            for (int i = 0; i < descriptors.size(); i++) {
+                AccountDescriptor d = descriptors.get(i);
+                JSObject hit = memoPrefix == null ? null : walletInfoMemo.get(memoPrefix + d.memoKey());
+                if (hit != null) {
+                    entries[i] = hit;
+                    memoHits++;
+                    continue;
+                }
+                List<Integer> branch = branches.get(d.accountPath());
+                if (branch == null) {
+                    branch = new ArrayList<>();
+                    branches.put(d.accountPath(), branch);
+                }
+                branch.add(i);
+            }
 
-          Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-          cipher.init(Cipher.DECRYPT_MODE, keyToUse, new GCMParameterSpec(GCM_TAG_BITS, iv));
-          byte[] seed = cipher.doFinal(data);
+            if (!branches.isEmpty()) {
+                root.prepare(derivationCache); // Decrypt (and check the PIN) once up front, not per branch
+                List<Callable<Void>> tasks = new ArrayList<>(branches.size());
+                for (List<Integer> branch : branches.values()) {
+                    tasks.add(() -> {
+                        Map<String, DeterministicKey> parents = new HashMap<>();
+                        for (int i : branch) {
+                            AccountDescriptor d = descriptors.get(i);
+                            entries[i] = walletInfoEntry(d, deriveForVault(d.path, root, parents));
+                            if (memoPrefix != null) walletInfoMemo.put(memoPrefix + d.memoKey(), entries[i]);
+                        }
+                        return null;
+                    });
+                }
+                try {
+                    for (Future<Void> f : workers.forkJoin().invokeAll(tasks)) f.get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
 
-          try {
-              DeterministicSeed detSeed = new DeterministicSeed(seed, (List<String>) null, 0L);
-              DeterministicKey rootKey = HDKeyDerivation.createMasterPrivateKey(detSeed.getSeedBytes());
-              DeterministicHierarchy hierarchy = new DeterministicHierarchy(rootKey);
-
-              // 1. BTC (Native Segwit m/84'/0'/0'/0/0)
-              DeterministicKey btcKey = hierarchy.deriveChild(
-                  Arrays.asList(
-                      new org.bitcoinj.crypto.ChildNumber(84, true),
-                      new org.bitcoinj.crypto.ChildNumber(0, true),
-                      new org.bitcoinj.crypto.ChildNumber(0, true),
-                      new org.bitcoinj.crypto.ChildNumber(0, false),
-                      new org.bitcoinj.crypto.ChildNumber(0, false)
-                  ),
-                  true, true, new org.bitcoinj.crypto.ChildNumber(0, false)
-              );
-              // Address derivation (Bech32)
-              // BitcoinJ SegwitAddress not always straightforward in older versions, using script hash
-              // Actually, simpler to return pubkey and let JS do address if complex, 
-              // BUT user asked for native handling.
-              // Let's return pubkey for consistency with Stacks
-              
-              // 2. Stacks (m/44'/5757'/0'/0/0)
-              DeterministicKey stxKey = hierarchy.deriveChild(
-                  Arrays.asList(
-                      new org.bitcoinj.crypto.ChildNumber(44, true),
-                      new org.bitcoinj.crypto.ChildNumber(5757, true),
-                      new org.bitcoinj.crypto.ChildNumber(0, true),
-                      new org.bitcoinj.crypto.ChildNumber(0, false),
-                      new org.bitcoinj.crypto.ChildNumber(0, false)
-                  ),
-                  true, true, new org.bitcoinj.crypto.ChildNumber(0, false)
-              );
-
-              // 3. EVM (m/44'/60'/0'/0/0)
-              DeterministicKey evmKey = hierarchy.deriveChild(
-                  Arrays.asList(
-                      new org.bitcoinj.crypto.ChildNumber(44, true),
-                      new org.bitcoinj.crypto.ChildNumber(60, true),
-                      new org.bitcoinj.crypto.ChildNumber(0, true),
-                      new org.bitcoinj.crypto.ChildNumber(0, false),
-                      new org.bitcoinj.crypto.ChildNumber(0, false)
-                  ),
-                  true, true, new org.bitcoinj.crypto.ChildNumber(0, false)
-              );
-
-              // 4. Liquid (m/84'/1776'/0'/0/0)
-              DeterministicKey liquidKey = hierarchy.deriveChild(
-                  Arrays.asList(
-                      new org.bitcoinj.crypto.ChildNumber(84, true),
-                      new org.bitcoinj.crypto.ChildNumber(1776, true),
-                      new org.bitcoinj.crypto.ChildNumber(0, true),
-                      new org.bitcoinj.crypto.ChildNumber(0, false),
-                      new org.bitcoinj.crypto.ChildNumber(0, false)
-                  ),
-                  true, true, new org.bitcoinj.crypto.ChildNumber(0, false)
-              );
-
-              JSObject ret = new JSObject();
-              ret.put("btcPubkey", btcKey.getPublicKeyAsHex());
-              ret.put("stxPubkey", stxKey.getPublicKeyAsHex());
-              ret.put("liquidPubkey", liquidKey.getPublicKeyAsHex());
-              
-              // For EVM, we can easily get address
-              ECKeyPair evmPair = ECKeyPair.create(evmKey.getPrivKeyBytes());
-              ret.put("evmAddress", "0x" + org.web3j.crypto.Keys.getAddress(evmPair));
-              
-              call.resolve(ret);
+            JSObject ret = new JSObject();
+            ret.put("fingerprint", memoPrefix != null ? sessionSeed.fingerprintHex() : SessionSeed.fingerprintOf(root.load()));
+            JSArray list = new JSArray();
+            for (JSObject entry : entries) list.put(entry);
+            ret.put("entries", list);
+            ret.put("memoHits", memoHits);
+
+            if (accounts == null) {
+                // Historical flat fields, in AccountDescriptor.defaults() order
+                ret.put("btcPubkey", entries[0].getString("pubkey"));
+                ret.put("stxPubkey", entries[1].getString("pubkey"));
+                ret.put("evmAddress", entries[2].getString("address"));
+                ret.put("liquidPubkey", entries[3].getString("pubkey"));
+            }
 
-          } finally {
-              Arrays.fill(seed, (byte)0);
-          }
-      } catch (Exception e) {
-          call.reject("GetWalletInfo failed: " + e.getMessage());
-      }
+            call.resolve(ret);
+        } catch (Exception e) {
+            reject(call, "GetWalletInfo failed: " + e.getMessage());
+        }
+      });
   }
 
-  @PluginMethod
-  public void signTransaction(PluginCall call) {
+  private static JSObject walletInfoEntry(AccountDescriptor d, DeterministicKey key) {
+    JSObject entry = new JSObject();
+    entry.put("chain", d.chain);
+    if (d.account >= 0) {
+      entry.put("account", d.account);
+      entry.put("change", d.change);
+      entry.put("index", d.index);
+    }
+    entry.put("path", d.path);
+    // Address derivation (Bech32, c32) stays in JS; EVM is a plain keccak of the pubkey
+    entry.put("pubkey", key.getPublicKeyAsHex());
+    if (d.isEvm()) {
+      byte[] uncompressed = key.getPubKeyPoint().getEncoded(false);
+      BigInteger xy = new BigInteger(1, Arrays.copyOfRange(uncompressed, 1, uncompressed.length));
+      entry.put("address", "0x" + org.web3j.crypto.Keys.getAddress(xy));
+    }
+    return entry;
+  }
+
+
+  @PluginMethod
+  public void signTransaction(PluginCall call) {
     String vaultJson = call.getString("vault");
     String pin = call.getString("pin"); // Optional if session active
     String path = call.getString("path");
     String messageHashHex = call.getString("messageHash");
     String networkStr = call.getString("network", "mainnet");
+    String sigType = call.getString("sigType");
+    String merkleRoot = call.getString("merkleRoot");
 
     if (vaultJson == null || path == null || messageHashHex == null) {
       call.reject("Missing required parameters");
       return;
     }
 
+    workers.submit(laneFor(pin), call, () -> {
+      try {
+        VaultRoot root = resolveRoot(call, vaultJson, pin);
+        if (root == null) return;
+
+        // Resolve the master key (PIN decrypt or session), parse path (e.g. m/84'/0'/0'/0/0)
+        // and derive, reusing cached session parents when possible
+        DeterministicKey child = deriveForVault(path, root, null);
+
+        long signStart = System.nanoTime();
+        JSObject signature = signDigest(child, messageHashHex, networkStr, sigType, merkleRoot);
+        metrics.phase(PluginMetrics.Phase.SIGN, signStart);
+        call.resolve(signature);
+
+      } catch (Exception e) {
+        reject(call, "Signing failed: " + e.getMessage());
+      }
+    });
+  }
+
+  /**
+   * Bulk gap-limit derivation: derives accountPath once (hardened, cached per session),
+   * then children start..start+count-1 of its non-hardened chain on the fork-join pool.
+   * Returns packed pubkeys (33 B) or scriptPubKeys as one Base64 blob of count * stride bytes.
+   */
+  @PluginMethod
+  public void deriveRange(PluginCall call) {
+    String vaultJson = call.getString("vault");
+    String pin = call.getString("pin");
+    String accountPath = call.getString("accountPath");
+    Integer chain = call.getInt("chain", 0);
+    Integer start = call.getInt("start", 0);
+    Integer count = call.getInt("count");
+    String formatStr = call.getString("format", "pubkey");
+
+    if (vaultJson == null || accountPath == null || count == null) {
+      call.reject("Missing required parameters");
+      return;
+    }
+    if (chain == null || chain < 0 || start == null || start < 0 || count <= 0 || count > RangeDeriver.MAX_COUNT) {
+      call.reject("Invalid range (count 1.." + RangeDeriver.MAX_COUNT + ")");
+      return;
+    }
+    RangeDeriver.Format format;
     try {
-      SecretKey keyToUse = null;
-      JSONObject envelope = new JSONObject(vaultJson);
-      JSONArray ivJson = envelope.getJSONArray("iv");
-      JSONArray dataJson = envelope.getJSONArray("data");
-      
-      // We always need salt to verify/derive
-      JSONArray saltJson = envelope.getJSONArray("salt");
-      byte[] salt = new byte[saltJson.length()];
-      for(int i=0; i<saltJson.length(); i++) salt[i] = (byte)saltJson.getInt(i);
-
-      if (pin != null) {
-          // Slow Path: Explicit PIN
-          keyToUse = deriveKeyForVault(pin, salt);
-      } else {
-          // Fast Path: Session Cache
-          if (cachedSessionKey != null && System.currentTimeMillis() < cachedSessionExpiry) {
-              if (Arrays.equals(this.cachedSessionSalt, salt)) {
-                  keyToUse = cachedSessionKey;
-                  // Extend session? maybe not, keep strict 5 min
-              } else {
-                 call.reject("Session valid but wallet mismatch (salt). Unlock required.");
-                 return;
-              }
-          } else {
-              call.reject("Session expired or invalid. Unlock required.");
-              return;
+      format = RangeDeriver.Format.parse(formatStr);
+    } catch (IllegalArgumentException e) {
+      call.reject(e.getMessage());
+      return;
+    }
+
+    workers.submit(CryptoWorkers.Lane.HEAVY, call, () -> {
+      try {
+        VaultRoot root = resolveRoot(call, vaultJson, pin);
+        if (root == null) return;
+
+        DeterministicKey account = deriveForVault(accountPath, root, null);
+        DeterministicKey chainNode = HDKeyDerivation.deriveChildKey(account, new org.bitcoinj.crypto.ChildNumber(chain, false));
+        byte[] packed = RangeDeriver.derive(chainNode, start, count, format, workers.forkJoin());
+
+        JSObject ret = new JSObject();
+        ret.put("data", Base64.encodeToString(packed, Base64.NO_WRAP));
+        ret.put("format", formatStr);
+        ret.put("stride", format.stride);
+        ret.put("start", start);
+        ret.put("count", count);
+        call.resolve(ret);
+      } catch (Exception e) {
+        reject(call, "DeriveRange failed: " + e.getMessage());
+      }
+    });
+  }
+
+  /**
+   * Verifies many signatures in one call: items = [{ pubkey, msgHash, sig, scheme? }] (hex,
+   * scheme "ecdsa" default or "schnorr"). No vault involved. Returns a Base64 bitmap with bit i
+   * (byte i/8, LSB first) set when item i verified; malformed items simply come back unset.
+   */
+  @PluginMethod
+  public void verifyBatch(PluginCall call) {
+    JSArray items = call.getArray("items");
+    if (items == null) {
+      call.reject("items required");
+      return;
+    }
+    if (items.length() > BatchVerifier.MAX_ITEMS) {
+      call.reject("Too many items (max " + BatchVerifier.MAX_ITEMS + ")");
+      return;
+    }
+
+    workers.submit(CryptoWorkers.Lane.HEAVY, call, () -> {
+      try {
+        BatchVerifier.Item[] parsed = new BatchVerifier.Item[items.length()];
+        byte[] empty = new byte[0];
+        for (int i = 0; i < parsed.length; i++) {
+          try {
+            JSONObject item = items.getJSONObject(i);
+            parsed[i] = new BatchVerifier.Item(
+              BatchVerifier.Scheme.parse(item.optString("scheme", null)),
+              org.bouncycastle.util.encoders.Hex.decode(item.optString("pubkey", "")),
+              org.bouncycastle.util.encoders.Hex.decode(item.optString("msgHash", "")),
+              org.bouncycastle.util.encoders.Hex.decode(item.optString("sig", "")));
+          } catch (JSONException | RuntimeException e) {
+            // Not an object, unknown scheme or bad hex: an empty item, which never verifies
+            parsed[i] = new BatchVerifier.Item(BatchVerifier.Scheme.ECDSA, empty, empty, empty);
+          }
+        }
+        byte[] bitmap = BatchVerifier.verify(parsed, workers.forkJoin(), random);
+        int valid = 0;
+        for (byte b : bitmap) valid += Integer.bitCount(b & 0xff);
+
+        JSObject ret = new JSObject();
+        ret.put("bitmap", Base64.encodeToString(bitmap, Base64.NO_WRAP));
+        ret.put("count", parsed.length);
+        ret.put("valid", valid);
+        call.resolve(ret);
+      } catch (IllegalArgumentException e) {
+        reject(call, e.getMessage());
+      } catch (Exception e) {
+        reject(call, "Verification failed: " + e.getMessage());
+      }
+    });
+  }
+
+  private static final String SIG_TYPE_DER = "der";
+  private static final String SIG_TYPE_RECOVERABLE = "recoverable";
+  private static final String SIG_TYPE_SCHNORR = "schnorr";
+  private static final String SIG_TYPE_TAPROOT = "taproot";
+
+  private synchronized FixedBaseTable baseTable() {
+    if (baseTable == null) baseTable = new FixedBaseTable();
+    return baseTable;
+  }
+
+  private SchnorrSigner schnorr() {
+    SchnorrSigner signer = schnorrSigner;
+    if (signer != null) return signer;
+    synchronized (this) {
+      if (schnorrSigner == null) schnorrSigner = new SchnorrSigner(random, baseTable());
+      return schnorrSigner;
+    }
+  }
+
+  private EvmTxSigner evm() {
+    EvmTxSigner signer = evmSigner;
+    if (signer != null) return signer;
+    synchronized (this) {
+      if (evmSigner == null) evmSigner = new EvmTxSigner(baseTable());
+      return evmSigner;
+    }
+  }
+
+  private static boolean isAccountNetwork(String networkStr) {
+    return networkStr.equals("rsk") || networkStr.equals("ethereum") || networkStr.equals("evm") || networkStr.equals("stacks");
+  }
+
+  /**
+   * Derives path for root's vault through the session cache when it is live (see
+   * VaultRoot.derive; a PIN is still verified by decrypting), timed as the derive phase.
+   */
+  private DeterministicKey deriveForVault(String path, VaultRoot root, Map<String, DeterministicKey> parents) throws Exception {
+    long start = System.nanoTime();
+    try {
+      return root.derive(derivationCache, path, parents);
+    } finally {
+      metrics.phase(PluginMetrics.Phase.DERIVE, start);
+    }
+  }
+
+  /**
+   * The vault root for a signing/derivation call: PIN-keyed when a PIN is given, otherwise
+   * the unlocked session, which must belong to this vault. Rejects the call and returns
+   * null when there is no usable session.
+   */
+  private VaultRoot resolveRoot(PluginCall call, String vaultJson, String pin) throws Exception {
+    VaultEnvelope envelope = VaultEnvelope.parse(vaultJson);
+    if (pin != null) {
+      return new VaultRoot(pinKey(envelope, pin), envelope, sessionSeed, metrics);
+    }
+    if (!sessionSeed.isActive()) {
+      reject(call, "Session expired or invalid. Unlock required.");
+      return null;
+    }
+    if (!envelope.saltEquals(this.cachedSessionSalt)) {
+      reject(call, "Session valid but wallet mismatch (salt). Unlock required.");
+      return null;
+    }
+    // Fast path: master key comes from sessionSeed, nothing to decrypt
+    return new VaultRoot(null, envelope, sessionSeed, metrics);
+  }
+
+  /** PIN -> vault key (PBKDF2), timed as the KDF phase. */
+  private SecretKey pinKey(VaultEnvelope envelope, String pin) throws Exception {
+    long start = System.nanoTime();
+    try {
+      return envelope.deriveKey(pin);
+    } finally {
+      metrics.phase(PluginMetrics.Phase.KDF, start);
+    }
+  }
+
+  /** Publishes an unlocked session atomically w.r.t. wipeSession (workers run concurrently). */
+  private synchronized void startSession(byte[] salt, DeterministicKey masterKey) {
+    long expiry = System.currentTimeMillis() + SESSION_DURATION_MS;
+    sessionSeed.hold(salt, masterKey, expiry);
+    this.cachedSessionSalt = salt;
+    this.cachedSessionExpiry = expiry;
+    derivationCache.open(salt, expiry);
+    scheduleSessionWipe();
+  }
+
+  private synchronized void scheduleSessionWipe() {
+    if (sessionWipe != null) sessionWipe.cancel(false);
+    long delay = Math.max(0, cachedSessionExpiry - System.currentTimeMillis());
+    sessionWipe = sessionTimer.schedule(this::wipeSession, delay, TimeUnit.MILLISECONDS);
+  }
+
+  /** Zeroes the held master key and cached derivations; safe to call repeatedly. */
+  private synchronized void wipeSession() {
+    sessionSeed.wipe();
+    derivationCache.wipe();
+    walletInfoMemo.clear();
+    schnorrSigner = null;
+    evmSigner = null;
+    baseTable = null;
+    cachedSessionSalt = null;
+    cachedSessionExpiry = 0;
+    if (sessionWipe != null) {
+      sessionWipe.cancel(false);
+      sessionWipe = null;
+    }
+  }
+
+  /**
+   * Stored calibration for targetMs, or a fresh run (persisted) when there is none,
+   * the target changed or force is set.
+   */
+  private KdfCalibrator.Result kdfCalibration(int targetMs, boolean force) throws Exception {
+    SharedPreferences meta = metaPrefs();
+    int stored = meta.getInt(META_KDF_ITERATIONS, 0);
+    if (!force && stored > 0 && meta.getInt(META_KDF_TARGET_MS, 0) == targetMs) {
+      return new KdfCalibrator.Result(stored, targetMs, -1);
+    }
+    KdfCalibrator.Result result = KdfCalibrator.calibrate(targetMs);
+    meta.edit()
+      .putInt(META_KDF_ITERATIONS, result.iterations)
+      .putInt(META_KDF_TARGET_MS, targetMs)
+      .apply();
+    return result;
+  }
+
+  /**
+   * Re-encrypts an unlocked legacy vault as v3 and hands it to JS, which persists it.
+   * The salt is kept, so the session just started for the old vault also serves the new one.
+   */
+  private void rewrapVault(VaultEnvelope legacy, byte[] seed, String pin) {
+    try {
+      int iterations = kdfCalibration(KdfCalibrator.DEFAULT_TARGET_MS, false).iterations;
+      String vault = legacy.reseal(seed, pin, iterations, random);
+      JSObject event = new JSObject();
+      event.put("vault", vault);
+      event.put("previousVersion", legacy.version);
+      event.put("iterations", iterations);
+      notifyListeners(EVENT_VAULT_REWRAPPED, event);
+    } catch (Exception e) {
+      // Best effort: the old vault keeps working, next unlock tries again
+      Log.w(TAG, "Vault re-wrap failed", e);
+    }
+  }
+
+  /**
+   * Benchmarks PBKDF2 on this device against targetMs (default 500) and stores the
+   * chosen iteration count; returns the stored value unless force is set or the target changed.
+   */
+  @PluginMethod
+  public void calibrateKdf(PluginCall call) {
+    Integer target = call.getInt("targetMs", KdfCalibrator.DEFAULT_TARGET_MS);
+    boolean force = Boolean.TRUE.equals(call.getBoolean("force", false));
+    int targetMs = target == null ? KdfCalibrator.DEFAULT_TARGET_MS : target;
+    if (targetMs <= 0) {
+      call.reject("targetMs must be positive");
+      return;
+    }
+
+    workers.submit(CryptoWorkers.Lane.HEAVY, call, () -> {
+      try {
+        KdfCalibrator.Result result = kdfCalibration(targetMs, force);
+        JSObject ret = new JSObject();
+        ret.put("kdf", "pbkdf2-sha256");
+        ret.put("iterations", result.iterations);
+        ret.put("targetMs", result.targetMs);
+        if (result.estimatedMs >= 0) ret.put("estimatedMs", result.estimatedMs);
+        ret.put("cached", result.estimatedMs < 0);
+        call.resolve(ret);
+      } catch (Exception e) {
+        reject(call, "KDF calibration failed: " + e.getMessage());
+      }
+    });
+  }
+
+  @Override
+  protected void handleOnStop() {
+    // App went to background: drop the unlocked key material instead of waiting for expiry
+    wipeSession();
+    super.handleOnStop();
+  }
+
+  @Override
+  protected void handleOnDestroy() {
+    wipeSession();
+    workers.shutdown();
+    sessionTimer.shutdownNow();
+    closeStore();
+    super.handleOnDestroy();
+  }
+
+  private synchronized void closeStore() {
+    if (store == null) return;
+    try {
+      store.close();
+    } catch (IOException e) {
+      Log.w(TAG, "Item store close failed", e);
+    }
+    store = null;
+  }
+
+  /** Session calls only rebuild a cached key; a PIN means PBKDF2 + decrypt. */
+  private static CryptoWorkers.Lane laneFor(String pin) {
+    return pin == null ? CryptoWorkers.Lane.FAST : CryptoWorkers.Lane.HEAVY;
+  }
+
+  /** Rejects a call from inside its worker task, counting it as an error for getMetrics. */
+  private void reject(PluginCall call, String message) {
+    metrics.method(call.getMethodName()).error();
+    call.reject(message);
+  }
+
+  @PluginMethod
+  public void getDerivationCacheStats(PluginCall call) {
+    long[] stats = derivationCache.stats();
+    long lookups = stats[0] + stats[1];
+    JSObject ret = new JSObject();
+    ret.put("hits", stats[0]);
+    ret.put("misses", stats[1]);
+    ret.put("hitRate", lookups == 0 ? 0.0 : (double) stats[0] / lookups);
+    ret.put("evictions", stats[2]);
+    ret.put("stepsSaved", stats[3]);
+    ret.put("entries", stats[4]);
+    call.resolve(ret);
+  }
+
+  /**
+   * Latency histograms (p50/p95/p99/max, microseconds), call and error counts and
+   * lane queue wait per plugin method, plus KDF/decrypt/derive/sign phase timers,
+   * accumulated since the plugin loaded or the last resetMetrics.
+   */
+  @PluginMethod
+  public void getMetrics(PluginCall call) {
+    try {
+      call.resolve(JSObject.fromJSONObject(metrics.toJson()));
+    } catch (JSONException e) {
+      call.reject(e.getMessage());
+    }
+  }
+
+  @PluginMethod
+  public void resetMetrics(PluginCall call) {
+    metrics.reset();
+    call.resolve();
+  }
+
+  /**
+   * Signs a 32 byte digest with the derived child key.
+   * sigType null keeps the historical per-network behaviour: recoverable r||s||v for
+   * EVM/RSK/Stacks, DER for everything else. "schnorr" is plain BIP-340 (x-only pubkey),
+   * "taproot" BIP-340 under the BIP-341 tweaked key (merkleRootHex null = key-path only).
+   */
+  private JSObject signDigest(DeterministicKey child, String messageHashHex, String networkStr, String sigType, String merkleRootHex) {
+    if (sigType == null) {
+      sigType = isAccountNetwork(networkStr) ? SIG_TYPE_RECOVERABLE : SIG_TYPE_DER;
+    }
+
+    if (SIG_TYPE_RECOVERABLE.equals(sigType)) {
+      // RSK / EVM / Stacks Signing (Secp256k1 + Keccak256 usually handled by caller or we sign hash directly)
+      // Web3j Helper
+      ECKeyPair keyPair = ECKeyPair.create(child.getPrivKeyBytes());
+      // Sign.signMessage takes a byte array. We have a hex hash.
+      // When signing a transaction hash in ETH/RSK, we usually sign the raw bytes of the hash.
+      byte[] msgHash = org.bouncycastle.util.encoders.Hex.decode(messageHashHex);
+      Sign.SignatureData signature = Sign.signMessage(msgHash, keyPair, false);
+
+      // Construct R,S,V into 65 byte array or hex string
+      byte[] retval = new byte[65];
+      System.arraycopy(signature.getR(), 0, retval, 0, 32);
+      System.arraycopy(signature.getS(), 0, retval, 32, 32);
+
+      // Normalize V (Web3j returns 27/28, we might want 0/1 for compact/stacks depending on lib, but standard eth is 27/28 for legacy or EIP155)
+      // Stacks usually expects 0/1. Let's normalize to 0/1 if 'stacks'
+      byte v = signature.getV()[0];
+      if (networkStr.equals("stacks") && v >= 27) {
+        v -= 27;
+      }
+      retval[64] = v;
+
+      JSObject ret = new JSObject();
+      ret.put("signature", Numeric.toHexString(retval));
+      ret.put("pubkey", Numeric.toHexString(keyPair.getPublicKey().toByteArray())); // Usually address is derived from clean pubkey
+      ret.put("recId", signature.getV()[0] - 27); // Normalized recovery ID
+      return ret;
+    }
+
+    if (SIG_TYPE_DER.equals(sigType)) {
+      // Bitcoin / Liquid (DER)
+      Sha256Hash hash = Sha256Hash.wrap(messageHashHex);
+      ECKey.ECDSASignature sig = child.sign(hash);
+
+      JSObject ret = new JSObject();
+      ret.put("signature", org.bouncycastle.util.encoders.Hex.toHexString(sig.encodeToDER()));
+      ret.put("pubkey", child.getPublicKeyAsHex());
+      return ret;
+    }
+
+    if (SIG_TYPE_SCHNORR.equals(sigType) || SIG_TYPE_TAPROOT.equals(sigType)) {
+      byte[] msg = org.bouncycastle.util.encoders.Hex.decode(messageHashHex);
+      SchnorrSigner.Signature sig = SIG_TYPE_TAPROOT.equals(sigType)
+        ? schnorr().signTweaked(child.getPrivKey(), child.getPubKeyPoint(), msg,
+            merkleRootHex == null ? null : org.bouncycastle.util.encoders.Hex.decode(merkleRootHex))
+        : schnorr().sign(child.getPrivKey(), child.getPubKeyPoint(), msg);
+
+      JSObject ret = new JSObject();
+      ret.put("signature", org.bouncycastle.util.encoders.Hex.toHexString(sig.sig));
+      ret.put("pubkey", org.bouncycastle.util.encoders.Hex.toHexString(sig.pubkey));
+      if (sig.internalKey != null) {
+        ret.put("internalKey", org.bouncycastle.util.encoders.Hex.toHexString(sig.internalKey));
+      }
+      return ret;
+    }
+
+    throw new IllegalArgumentException("Unsupported sigType: " + sigType);
+  }
+
+  /**
+   * Signs many digests with a single vault decrypt.
+   * entries: [{ path, messageHash, network?, sigType?, merkleRoot? }]
+   * Each result carries its entry index and either signature/pubkey or an error,
+   * so one bad entry does not fail the whole batch.
+   */
+  @PluginMethod
+  public void signTransactionBatch(PluginCall call) {
+    String vaultJson = call.getString("vault");
+    String pin = call.getString("pin"); // Optional if session active
+    String defaultNetwork = call.getString("network", "mainnet");
+    JSArray entries = call.getArray("entries");
+
+    if (vaultJson == null || entries == null) {
+      call.reject("Missing required parameters");
+      return;
+    }
+
+    workers.submit(CryptoWorkers.Lane.HEAVY, call, () -> {
+      try {
+        VaultRoot root = resolveRoot(call, vaultJson, pin);
+        if (root == null) return;
+
+        // Parents shared across entries: 100 inputs on m/84'/0'/0'/0/x derive the account once.
+        Map<String, DeterministicKey> parents = new HashMap<>();
+        root.prepare(derivationCache); // Surface a bad PIN / corrupt vault as a call failure, not N entry errors
+
+        JSArray results = new JSArray();
+        int failed = 0;
+        for (int i = 0; i < entries.length(); i++) {
+          JSObject result;
+          try {
+            JSONObject entry = entries.getJSONObject(i);
+            String path = entry.optString("path", null);
+            String messageHashHex = entry.optString("messageHash", null);
+            if (path == null || messageHashHex == null) {
+              throw new IllegalArgumentException("Missing path or messageHash");
+            }
+            String networkStr = entry.optString("network", defaultNetwork);
+            String sigType = entry.has("sigType") ? entry.getString("sigType") : null;
+            String merkleRoot = entry.has("merkleRoot") ? entry.getString("merkleRoot") : null;
+
+            DeterministicKey child = deriveForVault(path, root, parents);
+            long signStart = System.nanoTime();
+            result = signDigest(child, messageHashHex, networkStr, sigType, merkleRoot);
+            metrics.phase(PluginMetrics.Phase.SIGN, signStart);
+          } catch (Exception e) {
+            failed++;
+            result = new JSObject();
+            result.put("error", e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
           }
+          result.put("index", i);
+          results.put(result);
+        }
+
+        JSObject ret = new JSObject();
+        ret.put("results", results);
+        ret.put("signed", entries.length() - failed);
+        ret.put("failed", failed);
+        call.resolve(ret);
+
+      } catch (Exception e) {
+        reject(call, "Batch signing failed: " + e.getMessage());
       }
+    });
+  }
 
-      // Decrypt using keyToUse
-      byte[] iv = new byte[ivJson.length()];
-      for(int i=0; i<ivJson.length(); i++) iv[i] = (byte)ivJson.getInt(i);
-      byte[] data = new byte[dataJson.length()];
-      for(int i=0; i<dataJson.length(); i++) data[i] = (byte)dataJson.getInt(i);
+  /**
+   * Signs a whole PSBT natively: parse, BIP-143/BIP-341 sighashes (transaction-wide hashes
+   * computed once), sign with the vault key and optionally finalize, in one call.
+   * Keys are found through the PSBT's BIP32 derivations for this vault's fingerprint, plus
+   * the optional hint paths. Resolves { psbt, tx? (hex, when every input is final), signed, inputs }.
+   */
+  @PluginMethod
+  public void signPsbt(PluginCall call) {
+    String vaultJson = call.getString("vault");
+    String pin = call.getString("pin"); // Optional if session active
+    String psbtBase64 = call.getString("psbt");
+    JSArray pathsArray = call.getArray("paths");
+    boolean finalize = Boolean.TRUE.equals(call.getBoolean("finalize", true));
 
-      Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-      cipher.init(Cipher.DECRYPT_MODE, keyToUse, new GCMParameterSpec(GCM_TAG_BITS, iv));
-      byte[] seed = cipher.doFinal(data);
-      
+    if (vaultJson == null || psbtBase64 == null) {
+      call.reject("Missing required parameters");
+      return;
+    }
+
+    workers.submit(CryptoWorkers.Lane.HEAVY, call, () -> {
       try {
+        Psbt psbt;
+        List<String> paths = new ArrayList<>();
+        try {
+          psbt = Psbt.parse(Base64.decode(psbtBase64, Base64.NO_WRAP));
+          if (pathsArray != null) {
+            for (int i = 0; i < pathsArray.length(); i++) paths.add(pathsArray.getString(i));
+          }
+        } catch (Exception e) {
+          reject(call, "Invalid PSBT: " + e.getMessage());
+          return;
+        }
 
-        // 2. Derive Key
-        NetworkParameters params = networkStr.equals("testnet") ? TestNet3Params.get() : MainNetParams.get();
-        DeterministicSeed detSeed = new DeterministicSeed(seed, (String) null, 0L);
-        DeterministicKey rootKey = HDKeyDerivation.createMasterPrivateKey(detSeed.getSeedBytes());
-        
-        // Parse path (e.g. m/84'/0'/0'/0/0)
-        // bitcoinj doesn't have a simple path string parser publically? We can roll one or match hierarchy
-        // The path from signer.ts is usually "m/84'/0'/0'/0/0"
-        
-        DeterministicHierarchy hierarchy = new DeterministicHierarchy(rootKey);
-        // We need to traverse the path manually or split string
-        String[] parts = path.split("/");
-        DeterministicKey child = rootKey;
-        
-        for (String part : parts) {
-            if (part.equals("m")) continue; // Root
-            boolean hardened = part.endsWith("'") || part.endsWith("h");
-            String numStr = part.replace("'", "").replace("h", "");
-            int index = Integer.parseInt(numStr);
-            child = HDKeyDerivation.deriveChildKey(child, new org.bitcoinj.crypto.ChildNumber(index, hardened));
+        VaultRoot root = resolveRoot(call, vaultJson, pin);
+        if (root == null) return;
+
+        Map<String, DeterministicKey> parents = new HashMap<>();
+        String fingerprint = root.usesSession() ? sessionSeed.fingerprintHex() : SessionSeed.fingerprintOf(root.load());
+        PsbtSigner signer = new PsbtSigner(schnorr(), org.bouncycastle.util.encoders.Hex.decode(fingerprint),
+          path -> deriveForVault(path, root, parents));
+        // Includes the derive phases of the keys the signer looks up
+        long signStart = System.nanoTime();
+        List<PsbtSigner.InputResult> results = signer.sign(psbt, paths, finalize);
+        metrics.phase(PluginMetrics.Phase.SIGN, signStart);
+
+        JSArray inputs = new JSArray();
+        int signed = 0;
+        boolean complete = true;
+        for (PsbtSigner.InputResult r : results) {
+          JSObject input = new JSObject();
+          input.put("index", r.index);
+          input.put("signed", r.signed);
+          input.put("finalized", r.finalized);
+          if (r.error != null) input.put("error", r.error);
+          inputs.put(input);
+          if (r.signed) signed++;
+          complete &= r.finalized;
         }
 
-        if (networkStr.equals("rsk") || networkStr.equals("ethereum") || networkStr.equals("evm") || networkStr.equals("stacks")) {
-            // RSK / EVM / Stacks Signing (Secp256k1 + Keccak256 usually handled by caller or we sign hash directly)
-            // Web3j Helper
-            ECKeyPair keyPair = ECKeyPair.create(child.getPrivKeyBytes());
-            // Sign.signMessage takes a byte array. We have a hex hash.
-            // When signing a transaction hash in ETH/RSK, we usually sign the raw bytes of the hash.
-             byte[] msgHash = org.bouncycastle.util.encoders.Hex.decode(messageHashHex);
-             Sign.SignatureData signature = Sign.signMessage(msgHash, keyPair, false);
-             
-             // Construct R,S,V into 65 byte array or hex string
-             byte[] retval = new byte[65];
-             System.arraycopy(signature.getR(), 0, retval, 0, 32);
-             System.arraycopy(signature.getS(), 0, retval, 32, 32);
-             
-             // Normalize V (Web3j returns 27/28, we might want 0/1 for compact/stacks depending on lib, but standard eth is 27/28 for legacy or EIP155)
-             // Stacks usually expects 0/1. Let's normalize to 0/1 if 'stacks'
-             byte v = signature.getV()[0];
-             if (networkStr.equals("stacks") && v >= 27) {
-                 v -= 27;
-             }
-             retval[64] = v;
-             
-             String sigHex = Numeric.toHexString(retval);
-             
-             JSObject ret = new JSObject();
-             ret.put("signature", sigHex);
-             ret.put("pubkey", Numeric.toHexString(keyPair.getPublicKey().toByteArray())); // Usually address is derived from clean pubkey
-             ret.put("recId", signature.getV()[0] - 27); // Normalized recovery ID
-             
-             call.resolve(ret);
+        JSObject ret = new JSObject();
+        ret.put("psbt", Base64.encodeToString(psbt.serialize(), Base64.NO_WRAP));
+        if (complete) {
+          ret.put("tx", org.bouncycastle.util.encoders.Hex.toHexString(psbt.extract()));
+        }
+        ret.put("signed", signed);
+        ret.put("inputs", inputs);
+        call.resolve(ret);
+
+      } catch (Exception e) {
+        reject(call, "PSBT signing failed: " + e.getMessage());
+      }
+    });
+  }
+
+  /**
+   * Encodes and signs EVM transactions (legacy, EIP-155, EIP-1559) with one key derivation.
+   * Either txs: [{ nonce, ...fields }] or template (fields) + nonceStart + count for a run of
+   * sequential nonces. Resolves { from, transactions: [{ nonce, raw, hash }] } with 0x-hex raw
+   * transactions ready for eth_sendRawTransaction.
+   */
+  @PluginMethod
+  public void signEvmTransactions(PluginCall call) {
+    String vaultJson = call.getString("vault");
+    String pin = call.getString("pin"); // Optional if session active
+    String path = call.getString("path");
+    JSArray txs = call.getArray("txs");
+    JSObject template = call.getObject("template");
+
+    if (vaultJson == null || path == null || (txs == null) == (template == null)) {
+      call.reject("Missing required parameters (vault, path and exactly one of txs / template)");
+      return;
+    }
+
+    workers.submit(CryptoWorkers.Lane.HEAVY, call, () -> {
+      List<EvmTxSigner.Fields> fields = new ArrayList<>();
+      List<BigInteger> nonces = new ArrayList<>();
+      try {
+        if (template != null) {
+          EvmTxSigner.Fields base = EvmTxSigner.Fields.parse(template);
+          BigInteger start = EvmTxSigner.quantity(call.getData(), "nonceStart");
+          int count = call.getInt("count", 1);
+          if (count <= 0 || count > EvmTxSigner.MAX_BATCH) throw new IllegalArgumentException("count must be 1.." + EvmTxSigner.MAX_BATCH);
+          for (int i = 0; i < count; i++) {
+            fields.add(base);
+            nonces.add(start.add(BigInteger.valueOf(i)));
+          }
         } else {
-            // Bitcoin / Stacks (DER)
-            Sha256Hash hash = Sha256Hash.wrap(messageHashHex);
-            ECKey.ECDSASignature sig = child.sign(hash);
-            
-            String sigHex = org.bouncycastle.util.encoders.Hex.toHexString(sig.encodeToDER());
-            
-            JSObject ret = new JSObject();
-            ret.put("signature", sigHex);
-            ret.put("pubkey", child.getPublicKeyAsHex());
-            
-            call.resolve(ret);
+          if (txs.length() == 0 || txs.length() > EvmTxSigner.MAX_BATCH) throw new IllegalArgumentException("txs must hold 1.." + EvmTxSigner.MAX_BATCH);
+          for (int i = 0; i < txs.length(); i++) {
+            JSONObject tx = txs.getJSONObject(i);
+            fields.add(EvmTxSigner.Fields.parse(tx));
+            nonces.add(EvmTxSigner.quantity(tx, "nonce"));
+          }
         }
+      } catch (Exception e) {
+        reject(call, "Invalid transaction: " + e.getMessage());
+        return;
+      }
 
-      } finally {
-        // 4. Wipe Seed
-        Arrays.fill(seed, (byte)0);
+      try {
+        VaultRoot root = resolveRoot(call, vaultJson, pin);
+        if (root == null) return;
+
+        DeterministicKey child = deriveForVault(path, root, null);
+        BigInteger privateKey = child.getPrivKey();
+        EvmTxSigner signer = evm();
+
+        JSArray out = new JSArray();
+        for (int i = 0; i < fields.size(); i++) {
+          long signStart = System.nanoTime();
+          EvmTxSigner.Signed signed = signer.sign(fields.get(i), nonces.get(i), privateKey);
+          metrics.phase(PluginMetrics.Phase.SIGN, signStart);
+          JSObject tx = new JSObject();
+          tx.put("nonce", Numeric.encodeQuantity(nonces.get(i)));
+          tx.put("raw", Numeric.toHexString(signed.raw));
+          tx.put("hash", Numeric.toHexString(signed.hash));
+          out.put(tx);
+        }
+
+        byte[] uncompressed = child.getPubKeyPoint().getEncoded(false);
+        BigInteger xy = new BigInteger(1, Arrays.copyOfRange(uncompressed, 1, uncompressed.length));
+        JSObject ret = new JSObject();
+        ret.put("from", "0x" + org.web3j.crypto.Keys.getAddress(xy));
+        ret.put("transactions", out);
+        call.resolve(ret);
+
+      } catch (Exception e) {
+        reject(call, "EVM signing failed: " + e.getMessage());
       }
+    });
+  }
 
-    } catch (Exception e) {
-      call.reject("Signing failed: " + e.getMessage());
+  /**
+   * Signs a batch of unsigned NIP-01 events with the vault's Nostr key (NIP-06 path by default)
+   * without the key leaving native code. events: [{ created_at, kind, tags, content, pubkey? }].
+   * Resolves { pubkey, results: [{ index, id, sig } | { index, error }] }; a bad event only fails itself.
+   */
+  @PluginMethod
+  public void signNostrEvents(PluginCall call) {
+    String vaultJson = call.getString("vault");
+    String pin = call.getString("pin"); // Optional if session active
+    String path = call.getString("path", NostrEvents.DEFAULT_PATH);
+    JSArray events = call.getArray("events");
+
+    if (vaultJson == null || events == null) {
+      call.reject("Missing required parameters");
+      return;
     }
+    if (events.length() > NostrEvents.MAX_BATCH) {
+      call.reject("Too many events (max " + NostrEvents.MAX_BATCH + ")");
+      return;
+    }
+
+    workers.submit(laneFor(pin), call, () -> {
+      try {
+        VaultRoot root = resolveRoot(call, vaultJson, pin);
+        if (root == null) return;
+
+        DeterministicKey child = deriveForVault(path, root, null);
+        SchnorrSigner signer = schnorr();
+        String pubkey = org.bouncycastle.util.encoders.Hex.toHexString(SchnorrSigner.xOnly(child.getPubKeyPoint()));
+
+        JSArray results = new JSArray();
+        int failed = 0;
+        for (int i = 0; i < events.length(); i++) {
+          JSObject result = new JSObject();
+          try {
+            JSONObject event = events.getJSONObject(i);
+            String claimed = event.optString("pubkey", pubkey);
+            if (!claimed.isEmpty() && !claimed.equals(pubkey)) {
+              throw new IllegalArgumentException("Event pubkey does not match the vault's Nostr key");
+            }
+            byte[] id = NostrEvents.id(pubkey, NostrEvents.Unsigned.parse(event));
+            long signStart = System.nanoTime();
+            SchnorrSigner.Signature sig = signer.sign(child.getPrivKey(), child.getPubKeyPoint(), id);
+            metrics.phase(PluginMetrics.Phase.SIGN, signStart);
+            result.put("id", org.bouncycastle.util.encoders.Hex.toHexString(id));
+            result.put("sig", org.bouncycastle.util.encoders.Hex.toHexString(sig.sig));
+          } catch (Exception e) {
+            failed++;
+            result.put("error", e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+          }
+          result.put("index", i);
+          results.put(result);
+        }
+
+        JSObject ret = new JSObject();
+        ret.put("pubkey", pubkey);
+        ret.put("results", results);
+        ret.put("signed", events.length() - failed);
+        ret.put("failed", failed);
+        call.resolve(ret);
+
+      } catch (Exception e) {
+        reject(call, "Nostr signing failed: " + e.getMessage());
+      }
+    });
   }
 }
@@ -0,0 +1,60 @@
+package com.conxius.wallet;
+
+import org.bitcoinj.crypto.DeterministicKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** BIP32 path derivation: cold walk, walk with shared parents, and the session cache hit path. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeriveBenchmark {
+  private static final String PATH = "m/84'/0'/0'/0/0";
+  private static final String ACCOUNT = "m/84'/0'/0'";
+  private static final byte[] SALT = new byte[16];
+
+  private DeterministicKey master;
+  private final Map<String, DeterministicKey> accountParents = new HashMap<>();
+  private final DerivationCache cache = new DerivationCache();
+
+  @Setup
+  public void setUp() throws Exception {
+    byte[] seed = new byte[64];
+    for (int i = 0; i < seed.length; i++) seed[i] = (byte) i;
+    master = KeyDerivation.masterKeyFromSeed(seed);
+    KeyDerivation.deriveFromPath(master, ACCOUNT, accountParents);
+    cache.open(SALT, Long.MAX_VALUE);
+    cache.derive(SALT, PATH, () -> master);
+  }
+
+  @Benchmark
+  public DeterministicKey fromMaster() {
+    return KeyDerivation.deriveFromPath(master, PATH, null);
+  }
+
+  /** Address under an already-walked account: only the two non-hardened tail steps are paid. */
+  @Benchmark
+  public DeterministicKey sharedParents() {
+    return KeyDerivation.deriveFromPath(master, PATH, new HashMap<>(accountParents));
+  }
+
+  @Benchmark
+  public DeterministicKey cachedSession() throws Exception {
+    return cache.derive(SALT, PATH, () -> master);
+  }
+}
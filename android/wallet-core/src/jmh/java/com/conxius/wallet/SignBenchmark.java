@@ -0,0 +1,161 @@
+package com.conxius.wallet;
+
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bitcoinj.params.MainNetParams;
+import org.bitcoinj.script.Script;
+import org.bouncycastle.util.encoders.Hex;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single signatures per scheme, and the batch paths the plugin exposes
+ * (PSBT with many inputs, EVM nonce range). Batch sizes are set with -p batch=...
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignBenchmark {
+  private static final NetworkParameters MAIN = MainNetParams.get();
+  private static final String PATH = "m/84'/0'/0'/0/0";
+
+  @Param({"1", "50"})
+  public int batch;
+
+  private final SecureRandom random = new SecureRandom();
+  private final FixedBaseTable table = new FixedBaseTable();
+  private final SchnorrSigner schnorr = new SchnorrSigner(random, table);
+  private final EvmTxSigner evm = new EvmTxSigner(table);
+
+  private DeterministicKey master;
+  private DeterministicKey key;
+  private byte[] fingerprint;
+  private Sha256Hash hash;
+  private EvmTxSigner.Fields evmFields;
+  private NostrEvents.Unsigned nostrEvent;
+  private String nostrPubkey;
+  private byte[] psbt;
+
+  @Setup
+  public void setUp() throws Exception {
+    byte[] seed = new byte[64];
+    random.nextBytes(seed);
+    master = KeyDerivation.masterKeyFromSeed(seed);
+    key = KeyDerivation.deriveFromPath(master, PATH, null);
+    fingerprint = Hex.decode(SessionSeed.fingerprintOf(master));
+    hash = Sha256Hash.of(seed);
+
+    evmFields = EvmTxSigner.Fields.parse(new JSONObject(
+      "{\"chainId\":1,\"maxFeePerGas\":\"0x77359400\",\"maxPriorityFeePerGas\":\"0x3b9aca00\",\"gasLimit\":21000," +
+      "\"to\":\"0x3535353535353535353535353535353535353535\",\"value\":\"0x1\"}"));
+    JSONObject event = new JSONObject();
+    event.put("created_at", 1700000000);
+    event.put("kind", 1);
+    event.put("tags", new JSONArray("[[\"p\",\"79be667ef9dcbbac55a06295ce870b07029bfcdb2dce28d959f2815b16f81798\"]]"));
+    event.put("content", "gm");
+    nostrEvent = NostrEvents.Unsigned.parse(event);
+    nostrPubkey = Hex.toHexString(SchnorrSigner.xOnly(key.getPubKeyPoint()));
+    psbt = buildPsbt(batch);
+  }
+
+  @Benchmark
+  public byte[] ecdsa() {
+    return key.sign(hash).encodeToDER();
+  }
+
+  @Benchmark
+  public SchnorrSigner.Signature schnorr() {
+    return schnorr.sign(key.getPrivKey(), key.getPubKeyPoint(), hash.getBytes());
+  }
+
+  @Benchmark
+  public void evmNonceRange(Blackhole bh) {
+    BigInteger d = key.getPrivKey();
+    for (int i = 0; i < batch; i++) {
+      bh.consume(evm.sign(evmFields, BigInteger.valueOf(i), d));
+    }
+  }
+
+  @Benchmark
+  public void nostrEvents(Blackhole bh) throws Exception {
+    BigInteger d = key.getPrivKey();
+    for (int i = 0; i < batch; i++) {
+      bh.consume(schnorr.sign(d, key.getPubKeyPoint(), NostrEvents.id(nostrPubkey, nostrEvent)));
+    }
+  }
+
+  /** Parse, sign every P2WPKH input through the shared BIP-143 midstates, finalize. */
+  @Benchmark
+  public List<PsbtSigner.InputResult> psbtInputs() {
+    Psbt parsed = Psbt.parse(psbt);
+    return new PsbtSigner(schnorr, fingerprint, path -> KeyDerivation.deriveFromPath(master, path, null))
+      .sign(parsed, null, true);
+  }
+
+  private byte[] buildPsbt(int inputs) {
+    byte[] script = concat(Hex.decode("0014"), key.getPubKeyHash());
+    Transaction tx = new Transaction(MAIN);
+    for (int i = 0; i < inputs; i++) {
+      byte[] txid = new byte[32];
+      random.nextBytes(txid);
+      tx.addInput(new TransactionInput(MAIN, tx, new byte[0], new TransactionOutPoint(MAIN, i, Sha256Hash.wrap(txid))));
+    }
+    tx.addOutput(Coin.valueOf(1000L * inputs), new Script(script));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(0x70); out.write(0x73); out.write(0x62); out.write(0x74); out.write(0xff);
+    field(out, new byte[] {Psbt.GLOBAL_UNSIGNED_TX}, tx.bitcoinSerialize());
+    out.write(0);
+
+    ByteArrayOutputStream utxo = new ByteArrayOutputStream();
+    new RawTx.Output(100000, script).writeTo(utxo);
+    ByteArrayOutputStream origin = new ByteArrayOutputStream();
+    origin.write(fingerprint, 0, fingerprint.length);
+    for (int index : new int[] {0x80000054, 0x80000000, 0x80000000, 0, 0}) RawTx.writeUInt32(origin, index & 0xffffffffL);
+    for (int i = 0; i < inputs; i++) {
+      field(out, new byte[] {Psbt.IN_WITNESS_UTXO}, utxo.toByteArray());
+      field(out, concat(new byte[] {Psbt.IN_BIP32_DERIVATION}, key.getPubKey()), origin.toByteArray());
+      out.write(0);
+    }
+    out.write(0);
+    return out.toByteArray();
+  }
+
+  private static void field(ByteArrayOutputStream out, byte[] key, byte[] value) {
+    RawTx.writeVarBytes(out, key);
+    RawTx.writeVarBytes(out, value);
+  }
+
+  private static byte[] concat(byte[]... parts) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (byte[] part : parts) out.write(part, 0, part.length);
+    return out.toByteArray();
+  }
+}
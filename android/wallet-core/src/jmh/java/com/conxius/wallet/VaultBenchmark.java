@@ -0,0 +1,56 @@
+package com.conxius.wallet;
+
+import org.bitcoinj.crypto.DeterministicKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vault parse and full PIN unlock (PBKDF2 + AES-GCM + BIP32 master key).
+ * Run with -p iterations=... to match what KdfCalibrator picks on a given device.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VaultBenchmark {
+  private static final String PIN = "123456";
+
+  @Param({"200000"})
+  public int iterations;
+
+  private String vault;
+
+  @Setup
+  public void setUp() throws Exception {
+    byte[] seed = new byte[64];
+    new SecureRandom().nextBytes(seed);
+    vault = VaultEnvelope.seal(seed, PIN, iterations, new SecureRandom());
+  }
+
+  @Benchmark
+  public VaultEnvelope parse() throws Exception {
+    return VaultEnvelope.parse(vault);
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public DeterministicKey unlock() throws Exception {
+    VaultEnvelope envelope = VaultEnvelope.parse(vault);
+    byte[] seed = envelope.decrypt(envelope.deriveKey(PIN));
+    return KeyDerivation.masterKeyFromSeed(seed);
+  }
+}
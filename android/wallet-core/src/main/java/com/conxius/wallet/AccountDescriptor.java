@@ -0,0 +1,89 @@
+package com.conxius.wallet;
+
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One getWalletInfo request entry: { chain, account?, change?, index? } or an explicit { path }.
+ *
+ * Known chains map to their BIP44/84 template m/purpose'/coin'/account'/change/index.
+ * accountPath() is the hardened branch shared by every entry of that chain+account,
+ * which is the unit getWalletInfo derives in parallel.
+ */
+final class AccountDescriptor {
+  final String chain;
+  final int account;
+  final int change;
+  final int index;
+  final String path;
+  private final String accountPath;
+
+  private AccountDescriptor(String chain, int account, int change, int index, String path, String accountPath) {
+    this.chain = chain;
+    this.account = account;
+    this.change = change;
+    this.index = index;
+    this.path = path;
+    this.accountPath = accountPath;
+  }
+
+  /** account-0/index-0 keys of the historical getWalletInfo response */
+  static List<AccountDescriptor> defaults() {
+    return Arrays.asList(
+      of("btc", 0, 0, 0),
+      of("stacks", 0, 0, 0),
+      of("evm", 0, 0, 0),
+      of("liquid", 0, 0, 0)
+    );
+  }
+
+  static AccountDescriptor parse(JSONObject json) {
+    String explicitPath = json.optString("path", null);
+    String chain = json.optString("chain", explicitPath != null ? "custom" : null);
+    if (chain == null) throw new IllegalArgumentException("chain or path required");
+    if (explicitPath != null) {
+      DerivationCache.parsePath(explicitPath); // validate
+      int cut = explicitPath.lastIndexOf('\'');
+      // Parallel unit for custom paths: the hardened prefix (or the path itself)
+      String branch = cut > 0 ? explicitPath.substring(0, cut + 1) : explicitPath;
+      return new AccountDescriptor(chain, -1, -1, -1, explicitPath, branch);
+    }
+    int account = json.optInt("account", 0);
+    int change = json.optInt("change", 0);
+    int index = json.optInt("index", 0);
+    if (account < 0 || change < 0 || index < 0) throw new IllegalArgumentException("Negative index");
+    return of(chain, account, change, index);
+  }
+
+  private static AccountDescriptor of(String chain, int account, int change, int index) {
+    String accountPath = "m/" + purposeAndCoin(chain) + "/" + account + "'";
+    return new AccountDescriptor(chain, account, change, index, accountPath + "/" + change + "/" + index, accountPath);
+  }
+
+  private static String purposeAndCoin(String chain) {
+    switch (chain) {
+      case "btc": return "84'/0'";
+      case "btc-testnet": return "84'/1'";
+      case "stacks": return "44'/5757'";
+      case "evm": return "44'/60'";
+      case "rsk": return "44'/137'";
+      case "liquid": return "84'/1776'";
+      default: throw new IllegalArgumentException("Unknown chain: " + chain);
+    }
+  }
+
+  String accountPath() {
+    return accountPath;
+  }
+
+  boolean isEvm() {
+    return chain.equals("evm") || chain.equals("rsk");
+  }
+
+  /** Memo key within one vault: same chain+path always yields the same entry. */
+  String memoKey() {
+    return chain + "|" + path;
+  }
+}
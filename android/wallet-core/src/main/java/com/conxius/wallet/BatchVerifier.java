@@ -0,0 +1,226 @@
+package com.conxius.wallet;
+
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.SignatureDecodeException;
+import org.bouncycastle.math.ec.ECAlgorithms;
+import org.bouncycastle.math.ec.ECPoint;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Verifies many ECDSA / BIP-340 signatures at once (co-signer PSBT partials, incoming Nostr events).
+ *
+ * The item list is split across a ForkJoinPool. Within a slice, ECDSA items are checked one by one,
+ * and the Schnorr items go through one BIP-340 batch equation:
+ *
+ *   (sum a_i*s_i)*G == sum a_i*R_i + sum (a_i*e_i)*P_i,   a_0 = 1, other a_i random
+ *
+ * evaluated as a single multi-scalar multiplication. Only a failing batch is bisected to find
+ * the bad signatures, so the all-valid case costs one multi-mult per slice. Results come back
+ * as a bitmap, bit i set when item i verified.
+ */
+final class BatchVerifier {
+  static final int MAX_ITEMS = 10000;
+  private static final int SPLIT_THRESHOLD = 64;
+  private static final BigInteger N = ECKey.CURVE.getN();
+  private static final BigInteger P = ECKey.CURVE.getCurve().getField().getCharacteristic();
+
+  enum Scheme {
+    ECDSA,
+    SCHNORR;
+
+    static Scheme parse(String name) {
+      if (name == null) return ECDSA;
+      switch (name) {
+        case "ecdsa": return ECDSA;
+        case "schnorr": return SCHNORR;
+        default: throw new IllegalArgumentException("Unsupported scheme: " + name);
+      }
+    }
+  }
+
+  /**
+   * pubkey: SEC1 (33/65 bytes) for ECDSA, x-only (32) for Schnorr. sig: DER or compact r||s for
+   * ECDSA, 64 bytes for Schnorr; a trailing sighash byte (PSBT partial sigs, BIP-341) is ignored.
+   */
+  static final class Item {
+    final Scheme scheme;
+    final byte[] pubkey;
+    final byte[] msg;
+    final byte[] sig;
+
+    Item(Scheme scheme, byte[] pubkey, byte[] msg, byte[] sig) {
+      this.scheme = scheme;
+      this.pubkey = pubkey;
+      this.msg = msg;
+      this.sig = sig;
+    }
+  }
+
+  private BatchVerifier() {}
+
+  /** Bitmap of ceil(n/8) bytes, item i at byte i/8, bit i%8 (LSB first). */
+  static byte[] verify(Item[] items, ForkJoinPool pool, SecureRandom random) {
+    if (items.length > MAX_ITEMS) throw new IllegalArgumentException("Too many items");
+    boolean[] valid = new boolean[items.length];
+    if (items.length > 0) pool.invoke(new Slice(items, 0, items.length, valid, random));
+    byte[] bitmap = new byte[(items.length + 7) / 8];
+    for (int i = 0; i < items.length; i++) {
+      if (valid[i]) bitmap[i >>> 3] |= (byte) (1 << (i & 7));
+    }
+    return bitmap;
+  }
+
+  private static final class Slice extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    // Tasks never leave the process; Item is not Serializable
+    private final transient Item[] items;
+    private final int from;
+    private final int to;
+    private final boolean[] valid;
+    private final transient SecureRandom random;
+
+    Slice(Item[] items, int from, int to, boolean[] valid, SecureRandom random) {
+      this.items = items;
+      this.from = from;
+      this.to = to;
+      this.valid = valid;
+      this.random = random;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= SPLIT_THRESHOLD) {
+        verifySlice(items, from, to, valid, random);
+        return;
+      }
+      int mid = (from + to) >>> 1;
+      invokeAll(
+        new Slice(items, from, mid, valid, random),
+        new Slice(items, mid, to, valid, random)
+      );
+    }
+  }
+
+  private static void verifySlice(Item[] items, int from, int to, boolean[] valid, SecureRandom random) {
+    List<Integer> schnorrIndex = new ArrayList<>();
+    List<SchnorrTerm> schnorr = new ArrayList<>();
+    for (int i = from; i < to; i++) {
+      Item item = items[i];
+      try {
+        if (item.scheme == Scheme.ECDSA) {
+          valid[i] = verifyEcdsa(item);
+        } else {
+          SchnorrTerm term = SchnorrTerm.prepare(item);
+          if (term != null) {
+            schnorrIndex.add(i);
+            schnorr.add(term);
+          }
+        }
+      } catch (RuntimeException e) {
+        valid[i] = false; // malformed input is just an invalid signature
+      }
+    }
+    if (schnorr.isEmpty()) return;
+    byte[] seed = new byte[32];
+    random.nextBytes(seed);
+    settle(schnorr, schnorrIndex, 0, schnorr.size(), seed, valid);
+  }
+
+  /** Marks [from, to) valid if their batch holds, else bisects. */
+  private static void settle(List<SchnorrTerm> terms, List<Integer> index, int from, int to, byte[] seed, boolean[] valid) {
+    if (batchHolds(terms, from, to, seed)) {
+      for (int i = from; i < to; i++) valid[index.get(i)] = true;
+      return;
+    }
+    if (to - from == 1) return;
+    int mid = (from + to) >>> 1;
+    settle(terms, index, from, mid, seed, valid);
+    settle(terms, index, mid, to, seed, valid);
+  }
+
+  private static boolean batchHolds(List<SchnorrTerm> terms, int from, int to, byte[] seed) {
+    int n = to - from;
+    ECPoint[] points = new ECPoint[2 * n + 1];
+    BigInteger[] scalars = new BigInteger[2 * n + 1];
+    BigInteger sSum = BigInteger.ZERO;
+    for (int j = 0; j < n; j++) {
+      SchnorrTerm t = terms.get(from + j);
+      BigInteger a = j == 0 ? BigInteger.ONE : weight(seed, from + j);
+      sSum = sSum.add(a.multiply(t.s));
+      points[2 * j] = t.r;
+      scalars[2 * j] = a;
+      points[2 * j + 1] = t.p;
+      scalars[2 * j + 1] = a.multiply(t.e).mod(N);
+    }
+    points[2 * n] = ECKey.CURVE.getG();
+    scalars[2 * n] = N.subtract(sSum.mod(N)).mod(N);
+    return ECAlgorithms.sumOfMultiplies(points, scalars).isInfinity();
+  }
+
+  /** a_i from a per-slice random seed: SHA256(seed || i) mod n, never zero in practice. */
+  private static BigInteger weight(byte[] seed, int i) {
+    byte[] h = SchnorrSigner.taggedHash("BatchVerifier/weight", seed, ByteBuffer.allocate(4).putInt(i).array());
+    BigInteger a = new BigInteger(1, h).mod(N);
+    return a.signum() == 0 ? BigInteger.ONE : a;
+  }
+
+  /** Parsed Schnorr item: lifted P and R, s, and the challenge e. */
+  private static final class SchnorrTerm {
+    final ECPoint p;
+    final ECPoint r;
+    final BigInteger s;
+    final BigInteger e;
+
+    private SchnorrTerm(ECPoint p, ECPoint r, BigInteger s, BigInteger e) {
+      this.p = p;
+      this.r = r;
+      this.s = s;
+      this.e = e;
+    }
+
+    /** null when the item cannot be valid (bad lengths, off-curve, out-of-range r/s). */
+    static SchnorrTerm prepare(Item item) {
+      byte[] sig = item.sig.length == 65 ? Arrays.copyOf(item.sig, 64) : item.sig;
+      if (item.pubkey.length != 32 || item.msg.length != 32 || sig.length != 64) return null;
+      byte[] rx = Arrays.copyOfRange(sig, 0, 32);
+      BigInteger r = new BigInteger(1, rx);
+      BigInteger s = new BigInteger(1, Arrays.copyOfRange(sig, 32, 64));
+      if (r.compareTo(P) >= 0 || s.compareTo(N) >= 0) return null;
+      ECPoint pk = SchnorrSigner.liftX(item.pubkey);
+      ECPoint rPoint = SchnorrSigner.liftX(rx);
+      if (pk == null || rPoint == null) return null;
+      BigInteger e = new BigInteger(1, SchnorrSigner.taggedHash("BIP0340/challenge", rx, item.pubkey, item.msg)).mod(N);
+      return new SchnorrTerm(pk, rPoint, s, e);
+    }
+  }
+
+  private static boolean verifyEcdsa(Item item) {
+    if (item.msg.length != 32) return false;
+    byte[] sig = item.sig;
+    ECKey.ECDSASignature signature;
+    if (sig.length >= 8 && sig[0] == 0x30) {
+      if (sig.length == (sig[1] & 0xff) + 3) sig = Arrays.copyOf(sig, sig.length - 1); // sighash byte
+      try {
+        signature = ECKey.ECDSASignature.decodeFromDER(sig);
+      } catch (SignatureDecodeException e) {
+        return false;
+      }
+    } else if (sig.length == 64 || sig.length == 65) {
+      signature = new ECKey.ECDSASignature(
+        new BigInteger(1, Arrays.copyOfRange(sig, 0, 32)),
+        new BigInteger(1, Arrays.copyOfRange(sig, 32, 64)));
+    } else {
+      return false;
+    }
+    return ECKey.verify(item.msg, signature, item.pubkey);
+  }
+}
@@ -0,0 +1,283 @@
+package com.conxius.wallet;
+
+import org.bouncycastle.util.encoders.Hex;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Chunked item record for large values (cached wallet state, tx history, contact lists).
+ *
+ * Header:  version u8 (=3) | chunkSize u32 | length u32 | noncePrefix[7] | wrapLen u16 | wrappedKey
+ * Segment: AES-256-GCM(dek, nonce = noncePrefix | index u32 | last u8, aad = first 16 header bytes)
+ *          over chunkSize plaintext bytes (the last one may be shorter, or empty for ""), + 16-byte tag
+ *
+ * The data key is random per record and wrapped by the Keystore as an ItemRecord (v1 device key,
+ * v2 auth key), so a record costs one Keystore op whatever its size and the segments run on
+ * software AES. Index + last flag in the nonce catch reordered or truncated segments; the AAD
+ * binds the sizes. Segments sit at fixed offsets, so a range read opens only the ones it touches.
+ *
+ * write() and decryptRange() work through chunk-sized buffers and never hold a full-size
+ * byte[] copy of the value. decrypt() returns the whole value as a String, so it needs a
+ * full-size char buffer plus the String's own copy: about 2x the value in chars (4x its
+ * ASCII byte length) at peak. Callers that need bounded heap use decryptRange(), as
+ * getEnclaveBlob does through getItem's ranged mode.
+ */
+final class ChunkedRecord {
+  static final int VERSION = 3;
+  static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+  static final int DEK_BYTES = 32;
+  private static final int MAX_CHUNK_SIZE = 1024 * 1024;
+  private static final int PREFIX_BYTES = 7;
+  private static final int TAG_BYTES = 16;
+  private static final int TAG_BITS = 128;
+  private static final int AAD_BYTES = 1 + 4 + 4 + PREFIX_BYTES;
+
+  final int chunkSize;
+  final int length;
+  final ItemRecord wrappedKey;
+  private final byte[] noncePrefix;
+  private final byte[] header;
+
+  private ChunkedRecord(int chunkSize, int length, byte[] noncePrefix, ItemRecord wrappedKey) {
+    this.chunkSize = chunkSize;
+    this.length = length;
+    this.noncePrefix = noncePrefix;
+    this.wrappedKey = wrappedKey;
+    byte[] wrapped = wrappedKey.encode();
+    this.header = ByteBuffer.allocate(AAD_BYTES + 2 + wrapped.length)
+      .put((byte) VERSION)
+      .putInt(chunkSize)
+      .putInt(length)
+      .put(noncePrefix)
+      .putShort((short) wrapped.length)
+      .put(wrapped)
+      .array();
+  }
+
+  /** New record for a value of length UTF-8 bytes, its data key already wrapped. */
+  static ChunkedRecord create(ItemRecord wrappedKey, int length, SecureRandom random) {
+    byte[] prefix = new byte[PREFIX_BYTES];
+    random.nextBytes(prefix);
+    return new ChunkedRecord(DEFAULT_CHUNK_SIZE, length, prefix, wrappedKey);
+  }
+
+  static boolean isChunked(ByteBuffer record) {
+    return record.remaining() > 0 && record.get(record.position()) == VERSION;
+  }
+
+  /** Reads the header at record's position; does not move it. */
+  static ChunkedRecord parse(ByteBuffer record) throws IOException {
+    ByteBuffer in = record.duplicate();
+    if (in.remaining() < AAD_BYTES + 2 || in.get() != VERSION) throw new IOException("Invalid chunked record");
+    int chunkSize = in.getInt();
+    int length = in.getInt();
+    if (chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE || length < 0) throw new IOException("Invalid chunked record");
+    byte[] prefix = new byte[PREFIX_BYTES];
+    in.get(prefix);
+    int wrapLen = in.getShort() & 0xffff;
+    if (wrapLen > in.remaining()) throw new IOException("Invalid chunked record");
+    byte[] wrapped = new byte[wrapLen];
+    in.get(wrapped);
+    ChunkedRecord parsed;
+    try {
+      parsed = new ChunkedRecord(chunkSize, length, prefix, ItemRecord.decode(wrapped));
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Invalid chunked record", e);
+    }
+    if (record.remaining() != parsed.encodedLength()) throw new IOException("Truncated chunked record");
+    return parsed;
+  }
+
+  /** Same stored record (a concurrent overwrite gets a fresh nonce prefix). */
+  boolean sameRecord(ChunkedRecord other) {
+    return other != null && Arrays.equals(header, other.header);
+  }
+
+  /** Random per write, so callers reading a record in several calls can tell it was replaced. */
+  String recordId() {
+    return Hex.toHexString(noncePrefix);
+  }
+
+  int segmentCount() {
+    return length == 0 ? 1 : (int) ((length + (long) chunkSize - 1) / chunkSize);
+  }
+
+  int encodedLength() {
+    return header.length + length + segmentCount() * TAG_BYTES;
+  }
+
+  private int segmentPlainLength(int index) {
+    return index < segmentCount() - 1 ? chunkSize : length - (segmentCount() - 1) * chunkSize;
+  }
+
+  private int segmentOffset(int index) {
+    return header.length + index * (chunkSize + TAG_BYTES);
+  }
+
+  private GCMParameterSpec nonce(int index) {
+    byte[] nonce = ByteBuffer.allocate(12)
+      .put(noncePrefix)
+      .putInt(index)
+      .put((byte) (index == segmentCount() - 1 ? 1 : 0))
+      .array();
+    return new GCMParameterSpec(TAG_BITS, nonce);
+  }
+
+  private void initSegment(Cipher cipher, int mode, SecretKeySpec key, int index) throws GeneralSecurityException {
+    cipher.init(mode, key, nonce(index));
+    cipher.updateAAD(header, 0, AAD_BYTES);
+  }
+
+  /**
+   * Writes header and segments for value, which must encode to exactly length bytes
+   * (see utf8Length). Encodes and seals one chunk at a time.
+   */
+  void write(OutputStream out, byte[] dek, String value) throws IOException, GeneralSecurityException {
+    SecretKeySpec key = new SecretKeySpec(dek, "AES");
+    Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+    CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    CharBuffer in = CharBuffer.wrap(value);
+    // Slack for one multi-byte char, so a full chunk is always available on overflow
+    ByteBuffer staging = ByteBuffer.allocate(chunkSize + 4);
+    byte[] sealed = new byte[chunkSize + TAG_BYTES];
+    int last = segmentCount() - 1;
+    int index = 0;
+    boolean inputDone = false;
+
+    out.write(header);
+    try {
+      while (true) {
+        if (!inputDone && encoder.encode(in, staging, true).isUnderflow()) {
+          encoder.flush(staging);
+          inputDone = true;
+        }
+        staging.flip();
+        while (index < last && staging.remaining() >= chunkSize) {
+          sealSegment(cipher, key, index++, staging, chunkSize, sealed, out);
+        }
+        if (inputDone) {
+          if (index != last || staging.remaining() != segmentPlainLength(last)) {
+            throw new IOException("Value length mismatch");
+          }
+          sealSegment(cipher, key, index, staging, staging.remaining(), sealed, out);
+          return;
+        }
+        staging.compact();
+        if (staging.position() > chunkSize) throw new IOException("Value length mismatch");
+      }
+    } finally {
+      Arrays.fill(staging.array(), (byte) 0);
+    }
+  }
+
+  private void sealSegment(Cipher cipher, SecretKeySpec key, int index, ByteBuffer plain, int n,
+                           byte[] sealed, OutputStream out) throws IOException, GeneralSecurityException {
+    initSegment(cipher, Cipher.ENCRYPT_MODE, key, index);
+    int written = cipher.doFinal(plain.array(), plain.position(), n, sealed, 0);
+    plain.position(plain.position() + n);
+    out.write(sealed, 0, written);
+  }
+
+  private void openSegment(Cipher cipher, SecretKeySpec key, ByteBuffer record, int index, ByteBuffer out)
+      throws GeneralSecurityException {
+    ByteBuffer segment = record.duplicate();
+    int start = record.position() + segmentOffset(index);
+    segment.limit(start + segmentPlainLength(index) + TAG_BYTES).position(start);
+    initSegment(cipher, Cipher.DECRYPT_MODE, key, index);
+    cipher.doFinal(segment, out);
+  }
+
+  /**
+   * Decrypts the whole record into a String, one segment at a time. The bytes stay
+   * chunk-sized, but the chars don't: see the class comment for the peak cost.
+   */
+  String decrypt(byte[] dek, ByteBuffer record) throws GeneralSecurityException {
+    SecretKeySpec key = new SecretKeySpec(dek, "AES");
+    Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+    CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    // Room for a multi-byte char split across segments
+    ByteBuffer plain = ByteBuffer.allocate(chunkSize + 4);
+    CharBuffer chars = CharBuffer.allocate(length); // UTF-8 never decodes to more chars than bytes
+    int count = segmentCount();
+    try {
+      for (int i = 0; i < count; i++) {
+        openSegment(cipher, key, record, i, plain);
+        plain.flip();
+        decoder.decode(plain, chars, i == count - 1);
+        plain.compact();
+      }
+      decoder.flush(chars);
+      chars.flip();
+      return chars.toString();
+    } finally {
+      Arrays.fill(plain.array(), (byte) 0);
+      Arrays.fill(chars.array(), '\0');
+    }
+  }
+
+  /** Plaintext bytes [offset, offset + len), opening only the segments that overlap. */
+  byte[] decryptRange(byte[] dek, ByteBuffer record, int offset, int len) throws GeneralSecurityException {
+    if (offset < 0 || len < 0 || (long) offset + len > length) {
+      throw new IllegalArgumentException("Range out of bounds");
+    }
+    byte[] out = new byte[len];
+    if (len == 0) return out;
+    SecretKeySpec key = new SecretKeySpec(dek, "AES");
+    Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+    ByteBuffer plain = ByteBuffer.allocate(chunkSize);
+    int end = offset + len;
+    try {
+      for (int i = offset / chunkSize; i <= (end - 1) / chunkSize; i++) {
+        plain.clear();
+        openSegment(cipher, key, record, i, plain);
+        int segStart = i * chunkSize;
+        int from = Math.max(offset, segStart);
+        int to = Math.min(end, segStart + plain.position());
+        System.arraycopy(plain.array(), from - segStart, out, from - offset, to - from);
+      }
+    } finally {
+      Arrays.fill(plain.array(), (byte) 0);
+    }
+    return out;
+  }
+
+  /** Length of value as written by write(): unpaired surrogates become '?', like String.getBytes. */
+  static int utf8Length(CharSequence value) {
+    long n = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        n += 1;
+      } else if (c < 0x800) {
+        n += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+        n += 4;
+        i++;
+      } else if (Character.isSurrogate(c)) {
+        n += 1;
+      } else {
+        n += 3;
+      }
+    }
+    if (n > Integer.MAX_VALUE) throw new IllegalArgumentException("Value too large");
+    return (int) n;
+  }
+}
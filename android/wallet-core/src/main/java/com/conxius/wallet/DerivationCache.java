@@ -0,0 +1,188 @@
+package com.conxius.wallet;
+
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.crypto.ChildNumber;
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bitcoinj.crypto.HDKeyDerivation;
+import org.bitcoinj.crypto.LazyECPoint;
+import org.bouncycastle.util.encoders.Hex;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Session-scoped BIP32 node cache.
+ *
+ * Entries are keyed by (vault salt, path prefix) and only live while the enclave
+ * session that opened the cache is valid. Key material is held as raw byte arrays
+ * so it can be zeroed on eviction, expiry or an explicit wipe; DeterministicKey
+ * instances are rebuilt on demand without re-running the HMAC/EC multiply.
+ */
+final class DerivationCache {
+  static final int MAX_ENTRIES = 128;
+
+  interface RootLoader {
+    DeterministicKey load() throws Exception;
+  }
+
+  private static final class Node {
+    final List<ChildNumber> path;
+    final byte[] privKey;   // 32 bytes, big-endian
+    final byte[] chainCode; // 32 bytes
+    final byte[] pubKey;    // 33 bytes, compressed
+
+    Node(DeterministicKey key) {
+      this.path = key.getPath();
+      this.privKey = key.getPrivKeyBytes();
+      this.chainCode = key.getChainCode().clone(); // getChainCode() is not a copy
+      this.pubKey = key.getPubKey();
+    }
+
+    DeterministicKey toKey() {
+      return new DeterministicKey(
+        path,
+        chainCode.clone(), // the rebuilt key must not share the array wipe() zeroes
+        new LazyECPoint(ECKey.CURVE.getCurve(), pubKey),
+        new BigInteger(1, privKey),
+        null
+      );
+    }
+
+    void wipe() {
+      Arrays.fill(privKey, (byte) 0);
+      Arrays.fill(chainCode, (byte) 0);
+    }
+  }
+
+  private final LinkedHashMap<String, Node> nodes = new LinkedHashMap<String, Node>(32, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Node> eldest) {
+      if (size() > MAX_ENTRIES) {
+        eldest.getValue().wipe();
+        evictions++;
+        return true;
+      }
+      return false;
+    }
+  };
+
+  private String sessionSalt = null;
+  private long expiresAtMs = 0;
+
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+  private long stepsSaved = 0;
+
+  /** Binds the cache to a freshly unlocked session. A different vault wipes previous entries. */
+  synchronized void open(byte[] salt, long expiresAtMs) {
+    String saltHex = Hex.toHexString(salt);
+    if (!saltHex.equals(sessionSalt)) {
+      wipeNodes();
+    }
+    this.sessionSalt = saltHex;
+    this.expiresAtMs = expiresAtMs;
+  }
+
+  /** True while the session bound to salt has not expired. Expired sessions are wiped here. */
+  synchronized boolean isActive(byte[] salt) {
+    if (sessionSalt == null) return false;
+    if (System.currentTimeMillis() >= expiresAtMs) {
+      wipe();
+      return false;
+    }
+    return sessionSalt.equals(Hex.toHexString(salt));
+  }
+
+  synchronized void wipe() {
+    wipeNodes();
+    sessionSalt = null;
+    expiresAtMs = 0;
+  }
+
+  private void wipeNodes() {
+    Iterator<Node> it = nodes.values().iterator();
+    while (it.hasNext()) {
+      it.next().wipe();
+      it.remove();
+    }
+  }
+
+  /**
+   * Derives path, starting from the longest cached ancestor. Only falls back to
+   * loader (seed decrypt + master key) when nothing under this vault is cached.
+   * Every prefix derived on the way is stored for later calls.
+   */
+  DeterministicKey derive(byte[] salt, String path, RootLoader loader) throws Exception {
+    List<ChildNumber> segments = parsePath(path);
+    String saltHex = Hex.toHexString(salt);
+    List<String> prefixes = prefixKeys(saltHex, segments);
+
+    DeterministicKey node = null;
+    int depth = segments.size();
+    synchronized (this) {
+      for (; depth > 0; depth--) {
+        Node cached = nodes.get(prefixes.get(depth - 1));
+        if (cached != null) {
+          node = cached.toKey();
+          break;
+        }
+      }
+      if (node != null) {
+        hits++;
+        stepsSaved += depth;
+      } else {
+        misses++;
+      }
+    }
+
+    if (node == null) {
+      node = loader.load();
+      depth = 0;
+    }
+    for (int i = depth; i < segments.size(); i++) {
+      node = HDKeyDerivation.deriveChildKey(node, segments.get(i));
+      synchronized (this) {
+        if (saltHex.equals(sessionSalt)) {
+          Node previous = nodes.put(prefixes.get(i), new Node(node));
+          if (previous != null) previous.wipe();
+        }
+      }
+    }
+    return node;
+  }
+
+  synchronized long[] stats() {
+    return new long[] { hits, misses, evictions, stepsSaved, nodes.size() };
+  }
+
+  /** Parses "m/84'/0'/0'/0/0" (also accepts the 'h' hardened marker). */
+  static List<ChildNumber> parsePath(String path) {
+    String[] parts = path.split("/");
+    List<ChildNumber> segments = new ArrayList<>(parts.length);
+    for (String part : parts) {
+      if (part.equals("m")) continue; // Root
+      boolean hardened = part.endsWith("'") || part.endsWith("h");
+      String numStr = part.replace("'", "").replace("h", "");
+      int index = Integer.parseInt(numStr);
+      segments.add(new ChildNumber(index, hardened));
+    }
+    return segments;
+  }
+
+  private static List<String> prefixKeys(String saltHex, List<ChildNumber> segments) {
+    List<String> keys = new ArrayList<>(segments.size());
+    StringBuilder prefix = new StringBuilder(saltHex).append(":m");
+    for (ChildNumber segment : segments) {
+      prefix.append('/').append(segment.num());
+      if (segment.isHardened()) prefix.append('\'');
+      keys.add(prefix.toString());
+    }
+    return keys;
+  }
+}
@@ -0,0 +1,57 @@
+package com.conxius.wallet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Backend for SecureEnclave items. Values are opaque encoded ItemRecords;
+ * encryption happens above this layer.
+ *
+ * MappedLogStore is the default; PrefsStore keeps the historical
+ * SharedPreferences layout and is the migration source.
+ */
+interface EnclaveStore {
+  interface ValueWriter {
+    void writeTo(OutputStream out) throws IOException, GeneralSecurityException;
+  }
+
+  interface ValueReader<T> {
+    T readFrom(ByteBuffer value) throws IOException, GeneralSecurityException;
+  }
+
+  boolean contains(String key) throws IOException;
+
+  /** Encoded record, or null if absent. */
+  byte[] get(String key) throws IOException;
+
+  void put(String key, byte[] value) throws IOException;
+
+  void remove(String key) throws IOException;
+
+  /**
+   * Streams a value of exactly length bytes into the store (large chunked records),
+   * without the caller building it in memory first.
+   */
+  void put(String key, int length, ValueWriter writer) throws IOException, GeneralSecurityException;
+
+  /**
+   * Hands reader a read-only view of the stored value, valid only during the call.
+   * Returns null if the key is absent, else whatever reader returns.
+   */
+  <T> T read(String key, ValueReader<T> reader) throws IOException, GeneralSecurityException;
+
+  /** Writes every entry and persists once for the whole batch. Not atomic across entries. */
+  void putAll(Map<String, byte[]> entries) throws IOException;
+
+  /** Removes every key (absent keys are ignored) and persists once. */
+  void removeAll(Collection<String> keys) throws IOException;
+
+  Set<String> keys() throws IOException;
+
+  void close() throws IOException;
+}
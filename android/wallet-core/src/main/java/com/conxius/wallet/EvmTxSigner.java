@@ -0,0 +1,183 @@
+package com.conxius.wallet;
+
+import org.bitcoinj.core.ECKey;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.signers.HMacDSAKCalculator;
+import org.bouncycastle.math.ec.ECPoint;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.Sign;
+import org.web3j.crypto.TransactionEncoder;
+import org.web3j.rlp.RlpEncoder;
+import org.web3j.rlp.RlpList;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * EVM / RSK transaction encode-and-sign: legacy (pre-155), EIP-155 and EIP-1559 (type 2).
+ *
+ * RLP comes from web3j's RawTransaction/TransactionEncoder so the bytes match what the
+ * rest of the stack produces. The ECDSA step is done here: RFC 6979 nonces (same as web3j,
+ * so signatures are byte-identical) but k*G goes through the session's FixedBaseTable and
+ * the recovery id is read off R, instead of web3j's trial public-key recoveries per signature.
+ */
+final class EvmTxSigner {
+  static final int MAX_BATCH = 1000;
+  private static final BigInteger N = ECKey.CURVE.getN();
+  private static final BigInteger HALF_N = N.shiftRight(1);
+
+  enum Type { LEGACY, EIP155, EIP1559 }
+
+  /** Unsigned fields; nonce is supplied per transaction so one template serves a nonce range. */
+  static final class Fields {
+    final Type type;
+    final long chainId;
+    final BigInteger gasPrice;
+    final BigInteger maxPriorityFeePerGas;
+    final BigInteger maxFeePerGas;
+    final BigInteger gasLimit;
+    final String to;
+    final BigInteger value;
+    final String data;
+
+    private Fields(Type type, long chainId, BigInteger gasPrice, BigInteger maxPriorityFeePerGas,
+                   BigInteger maxFeePerGas, BigInteger gasLimit, String to, BigInteger value, String data) {
+      this.type = type;
+      this.chainId = chainId;
+      this.gasPrice = gasPrice;
+      this.maxPriorityFeePerGas = maxPriorityFeePerGas;
+      this.maxFeePerGas = maxFeePerGas;
+      this.gasLimit = gasLimit;
+      this.to = to;
+      this.value = value;
+      this.data = data;
+    }
+
+    /**
+     * { type?, chainId?, gasPrice | maxFeePerGas + maxPriorityFeePerGas, gasLimit, to?, value?, data? }.
+     * Quantities are 0x-hex or decimal strings (or JSON numbers). type defaults to "eip1559" when
+     * maxFeePerGas is set, "eip155" when chainId is set, else "legacy".
+     */
+    static Fields parse(JSONObject o) throws JSONException {
+      String typeName = o.optString("type", null);
+      Type type;
+      if (typeName == null) {
+        type = o.has("maxFeePerGas") ? Type.EIP1559 : o.has("chainId") ? Type.EIP155 : Type.LEGACY;
+      } else {
+        switch (typeName) {
+          case "legacy": type = Type.LEGACY; break;
+          case "eip155": type = Type.EIP155; break;
+          case "eip1559": type = Type.EIP1559; break;
+          default: throw new IllegalArgumentException("Unsupported transaction type: " + typeName);
+        }
+      }
+      long chainId = 0;
+      if (type != Type.LEGACY) {
+        if (!o.has("chainId")) throw new IllegalArgumentException("chainId required");
+        chainId = quantity(o, "chainId").longValueExact();
+        if (chainId <= 0) throw new IllegalArgumentException("Invalid chainId");
+      }
+      BigInteger gasPrice = null, maxPriority = null, maxFee = null;
+      if (type == Type.EIP1559) {
+        maxFee = quantity(o, "maxFeePerGas");
+        maxPriority = quantity(o, "maxPriorityFeePerGas");
+      } else {
+        gasPrice = quantity(o, "gasPrice");
+      }
+      String to = o.optString("to", "");
+      if (!to.isEmpty() && !to.matches("(0x)?[0-9a-fA-F]{40}")) throw new IllegalArgumentException("Invalid to address");
+      String data = o.optString("data", "");
+      if (!data.isEmpty() && !data.matches("(0x)?([0-9a-fA-F]{2})*")) throw new IllegalArgumentException("Invalid data");
+      BigInteger value = o.has("value") ? quantity(o, "value") : BigInteger.ZERO;
+      return new Fields(type, chainId, gasPrice, maxPriority, maxFee, quantity(o, "gasLimit"), to, value, data);
+    }
+
+    RawTransaction withNonce(BigInteger nonce) {
+      if (type == Type.EIP1559) {
+        return RawTransaction.createTransaction(chainId, nonce, gasLimit, to, value, data, maxPriorityFeePerGas, maxFeePerGas);
+      }
+      return RawTransaction.createTransaction(nonce, gasPrice, gasLimit, to, value, data);
+    }
+  }
+
+  static BigInteger quantity(JSONObject o, String name) throws JSONException {
+    if (!o.has(name)) throw new IllegalArgumentException("Missing " + name);
+    Object v = o.get(name);
+    BigInteger q;
+    if (v instanceof Number) {
+      q = BigInteger.valueOf(((Number) v).longValue());
+    } else {
+      String s = v.toString();
+      q = s.startsWith("0x") || s.startsWith("0X") ? Numeric.toBigInt(s) : new BigInteger(s);
+    }
+    if (q.signum() < 0 || q.bitLength() > 256) throw new IllegalArgumentException("Invalid " + name);
+    return q;
+  }
+
+  static final class Signed {
+    final byte[] raw;   // ready for eth_sendRawTransaction
+    final byte[] hash;  // transaction hash, keccak256(raw)
+
+    Signed(byte[] raw, byte[] hash) {
+      this.raw = raw;
+      this.hash = hash;
+    }
+  }
+
+  private final FixedBaseTable table;
+
+  EvmTxSigner(FixedBaseTable table) {
+    this.table = table;
+  }
+
+  Signed sign(Fields fields, BigInteger nonce, BigInteger privateKey) {
+    RawTransaction tx = fields.withNonce(nonce);
+    byte[] preimage = fields.type == Type.EIP155
+      ? TransactionEncoder.encode(tx, fields.chainId)
+      : TransactionEncoder.encode(tx);
+    BigInteger[] rs = new BigInteger[2];
+    int recId = ecdsa(privateKey, Hash.sha3(preimage), rs);
+
+    byte[] r = Numeric.toBytesPadded(rs[0], 32);
+    byte[] s = Numeric.toBytesPadded(rs[1], 32);
+    Sign.SignatureData sig = new Sign.SignatureData((byte) (27 + recId), r, s);
+    if (fields.type == Type.EIP155) sig = TransactionEncoder.createEip155SignatureData(sig, fields.chainId);
+
+    byte[] encoded = RlpEncoder.encode(new RlpList(TransactionEncoder.asRlpValues(tx, sig)));
+    if (fields.type == Type.EIP1559) {
+      encoded = ByteBuffer.allocate(encoded.length + 1).put(tx.getType().getRlpType()).put(encoded).array();
+    }
+    return new Signed(encoded, Hash.sha3(encoded));
+  }
+
+  /** Low-S ECDSA over hash; fills rs and returns the recovery id (0/1). */
+  private int ecdsa(BigInteger d, byte[] hash, BigInteger[] rs) {
+    if (d.signum() <= 0 || d.compareTo(N) >= 0) throw new IllegalArgumentException("Invalid private key");
+    BigInteger e = new BigInteger(1, hash);
+    HMacDSAKCalculator kCalc = new HMacDSAKCalculator(new SHA256Digest());
+    kCalc.init(N, d, hash);
+    while (true) {
+      BigInteger k = kCalc.nextK();
+      ECPoint p = table.multiply(k).normalize();
+      BigInteger x = p.getAffineXCoord().toBigInteger();
+      BigInteger r = x.mod(N);
+      if (r.signum() == 0) continue;
+      BigInteger s = k.modInverse(N).multiply(e.add(d.multiply(r))).mod(N);
+      if (s.signum() == 0) continue;
+      int recId = (p.getAffineYCoord().testBitZero() ? 1 : 0) | (x.compareTo(N) >= 0 ? 2 : 0);
+      if (s.compareTo(HALF_N) > 0) {
+        s = N.subtract(s);
+        recId ^= 1;
+      }
+      // x >= n has probability ~2^-128 and no v encoding; retrying would break RFC 6979 parity with web3j
+      if (recId > 1) throw new IllegalStateException("Unrepresentable recovery id");
+      rs[0] = r;
+      rs[1] = s;
+      return recId;
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package com.conxius.wallet;
+
+import org.bitcoinj.core.ECKey;
+import org.bouncycastle.math.ec.ECCurve;
+import org.bouncycastle.math.ec.ECLookupTable;
+import org.bouncycastle.math.ec.ECPoint;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Precomputed k*G for secp256k1 with 4-bit fixed windows.
+ *
+ * Window j holds d * 16^j * G + G for d = 0..15 (affine), so k*G is 64 table lookups and
+ * 64 additions with no doublings, then one correction by -64G. The +G offset keeps every
+ * entry finite, which the cache-safe lookup tables need; lookups scan the whole window so
+ * the secret digit does not pick the memory that is touched.
+ *
+ * ~1000 points, built once (tens of ms) and shared by every signature of a session.
+ */
+final class FixedBaseTable {
+  private static final int WINDOW_BITS = 4;
+  private static final int WINDOWS = 256 / WINDOW_BITS;
+  private static final int WINDOW_SIZE = 1 << WINDOW_BITS;
+
+  private final ECCurve curve;
+  private final ECLookupTable[] windows = new ECLookupTable[WINDOWS];
+  private final ECPoint correction;
+
+  FixedBaseTable() {
+    ECPoint g = ECKey.CURVE.getG();
+    curve = g.getCurve();
+    ECPoint[] points = new ECPoint[WINDOW_SIZE];
+    ECPoint base = g; // 16^j * G
+    for (int j = 0; j < WINDOWS; j++) {
+      ECPoint entry = g; // 0 * base + G
+      for (int d = 0; d < WINDOW_SIZE; d++) {
+        points[d] = entry;
+        entry = entry.add(base);
+      }
+      curve.normalizeAll(points);
+      windows[j] = curve.createCacheSafeLookupTable(points, 0, WINDOW_SIZE);
+      base = base.timesPow2(WINDOW_BITS).normalize();
+    }
+    correction = g.multiply(BigInteger.valueOf(WINDOWS)).negate().normalize();
+  }
+
+  /** k*G for 0 < k < n, normalized. */
+  ECPoint multiply(BigInteger k) {
+    if (k.signum() <= 0 || k.compareTo(ECKey.CURVE.getN()) >= 0) {
+      throw new IllegalArgumentException("Scalar out of range");
+    }
+    byte[] scalar = new byte[32];
+    byte[] raw = k.toByteArray();
+    int copy = Math.min(raw.length, 32);
+    System.arraycopy(raw, raw.length - copy, scalar, 32 - copy, copy);
+
+    ECPoint r = curve.getInfinity();
+    for (int j = 0; j < WINDOWS; j++) {
+      int b = scalar[31 - j / 2] & 0xff;
+      int digit = (j & 1) == 0 ? b & 0x0f : b >>> 4;
+      r = r.add(windows[j].lookup(digit));
+    }
+    Arrays.fill(scalar, (byte) 0);
+    Arrays.fill(raw, (byte) 0);
+    return r.add(correction).normalize();
+  }
+}
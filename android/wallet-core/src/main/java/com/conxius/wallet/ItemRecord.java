@@ -0,0 +1,64 @@
+package com.conxius.wallet;
+
+import org.bouncycastle.util.encoders.Base64;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One encrypted enclave item.
+ *
+ * version 1: device key (KEY_ALIAS), version 2: auth-bound key (KEY_ALIAS_AUTH).
+ *
+ * Binary form (item stores):  version u8 | ivLen u8 | iv | ciphertext
+ * Legacy form (prefs):        "iv:ct" (v1) or "v2:iv:ct" (v2), Base64 without wrapping
+ */
+final class ItemRecord {
+  final int version;
+  final byte[] iv;
+  final byte[] ciphertext;
+
+  ItemRecord(int version, byte[] iv, byte[] ciphertext) {
+    this.version = version;
+    this.iv = iv;
+    this.ciphertext = ciphertext;
+  }
+
+  static ItemRecord parseLegacy(String record) {
+    String[] parts = record.split(":");
+    if (parts.length == 2) {
+      return new ItemRecord(1, Base64.decode(parts[0]), Base64.decode(parts[1]));
+    }
+    if (parts.length == 3 && "v2".equals(parts[0])) {
+      return new ItemRecord(2, Base64.decode(parts[1]), Base64.decode(parts[2]));
+    }
+    throw new IllegalArgumentException("Invalid record");
+  }
+
+  String toLegacy() {
+    String ivB64 = Base64.toBase64String(iv);
+    String ctB64 = Base64.toBase64String(ciphertext);
+    if (version == 2) return "v2:" + ivB64 + ":" + ctB64;
+    return ivB64 + ":" + ctB64;
+  }
+
+  static ItemRecord decode(byte[] raw) {
+    if (raw.length < 2) throw new IllegalArgumentException("Invalid record");
+    int version = raw[0] & 0xff;
+    int ivLen = raw[1] & 0xff;
+    if (2 + ivLen > raw.length) throw new IllegalArgumentException("Invalid record");
+    byte[] iv = new byte[ivLen];
+    byte[] ciphertext = new byte[raw.length - 2 - ivLen];
+    ByteBuffer buf = ByteBuffer.wrap(raw, 2, raw.length - 2);
+    buf.get(iv).get(ciphertext);
+    return new ItemRecord(version, iv, ciphertext);
+  }
+
+  byte[] encode() {
+    return ByteBuffer.allocate(2 + iv.length + ciphertext.length)
+      .put((byte) version)
+      .put((byte) iv.length)
+      .put(iv)
+      .put(ciphertext)
+      .array();
+  }
+}
@@ -0,0 +1,60 @@
+package com.conxius.wallet;
+
+import java.security.SecureRandom;
+
+/**
+ * Picks a PBKDF2-SHA256 iteration count for this device from a target unlock latency.
+ *
+ * A short probe is timed (best of a few runs, after a warm-up so JIT and CPU
+ * frequency ramp-up don't skew it) and scaled linearly, since PBKDF2 cost is
+ * linear in iterations. The result is clamped: low-end devices never drop below
+ * MIN_ITERATIONS, flagships don't produce vaults a slower restore device can't open
+ * in reasonable time.
+ */
+final class KdfCalibrator {
+  static final int DEFAULT_TARGET_MS = 500;
+  static final int MIN_ITERATIONS = 100000;
+  static final int MAX_ITERATIONS = 2000000;
+  private static final int PROBE_ITERATIONS = 20000;
+  private static final int PROBE_RUNS = 3;
+  private static final int ROUND_TO = 10000;
+
+  static final class Result {
+    final int iterations;
+    final int targetMs;
+    final long estimatedMs; // expected unlock KDF time at the chosen cost
+
+    Result(int iterations, int targetMs, long estimatedMs) {
+      this.iterations = iterations;
+      this.targetMs = targetMs;
+      this.estimatedMs = estimatedMs;
+    }
+  }
+
+  private KdfCalibrator() {}
+
+  static Result calibrate(int targetMs) throws Exception {
+    if (targetMs <= 0) throw new IllegalArgumentException("targetMs must be positive");
+    byte[] salt = new byte[16];
+    new SecureRandom().nextBytes(salt);
+    String probePin = "calibration";
+
+    VaultEnvelope.pbkdf2(probePin, salt, PROBE_ITERATIONS); // warm-up
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < PROBE_RUNS; i++) {
+      long start = System.nanoTime();
+      VaultEnvelope.pbkdf2(probePin, salt, PROBE_ITERATIONS);
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    double nanosPerIteration = Math.max(1L, best) / (double) PROBE_ITERATIONS;
+
+    long scaled = (long) (targetMs * 1_000_000L / nanosPerIteration);
+    int iterations = clamp((scaled / ROUND_TO) * ROUND_TO);
+    long estimatedMs = Math.round(iterations * nanosPerIteration / 1_000_000d);
+    return new Result(iterations, targetMs, estimatedMs);
+  }
+
+  static int clamp(long iterations) {
+    return (int) Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, iterations));
+  }
+}
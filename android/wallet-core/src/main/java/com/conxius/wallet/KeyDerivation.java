@@ -0,0 +1,43 @@
+package com.conxius.wallet;
+
+import org.bitcoinj.crypto.ChildNumber;
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bitcoinj.crypto.HDKeyDerivation;
+
+import java.util.Map;
+
+/** BIP32 master key and uncached path walking (the session-scoped variant is DerivationCache). */
+final class KeyDerivation {
+  private KeyDerivation() {}
+
+  /** The vault holds the 64-byte BIP39 seed (mnemonicToSeed output), not mnemonic entropy. */
+  static DeterministicKey masterKeyFromSeed(byte[] seed) {
+    return HDKeyDerivation.createMasterPrivateKey(seed);
+  }
+
+  /**
+   * Walks a BIP32 path ("m/84'/0'/0'/0/0") from the root key.
+   * If parents is non-null, every intermediate node is looked up / stored there
+   * so that entries sharing an account prefix only pay for the differing tail.
+   */
+  static DeterministicKey deriveFromPath(DeterministicKey rootKey, String path, Map<String, DeterministicKey> parents) {
+    DeterministicKey child = rootKey;
+    StringBuilder prefix = new StringBuilder("m");
+
+    for (ChildNumber segment : DerivationCache.parsePath(path)) {
+      prefix.append('/').append(segment.num());
+      if (segment.isHardened()) prefix.append('\'');
+
+      if (parents != null) {
+        DeterministicKey cached = parents.get(prefix.toString());
+        if (cached != null) {
+          child = cached;
+          continue;
+        }
+      }
+      child = HDKeyDerivation.deriveChildKey(child, segment);
+      if (parents != null) parents.put(prefix.toString(), child);
+    }
+    return child;
+  }
+}
@@ -0,0 +1,114 @@
+package com.conxius.wallet;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size, lock-free latency histogram in microseconds.
+ *
+ * Buckets are log-linear: values below 2 * SUB_BUCKETS are exact, above that every
+ * power of two is split into SUB_BUCKETS equal slices, so a reported percentile is
+ * within 1/SUB_BUCKETS (12.5%) of the true value. record() is a couple of atomic
+ * adds into preallocated arrays and never allocates, so it can stay on in production.
+ * Anything above MAX_MICROS (~71 min) lands in the top bucket; max is kept exactly.
+ */
+final class LatencyHistogram {
+  private static final int SUB_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;
+  static final long MAX_MICROS = (1L << 32) - 1;
+  private static final int BUCKETS = index(MAX_MICROS) + 1;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sumMicros = new AtomicLong();
+  private final AtomicLong maxMicros = new AtomicLong();
+
+  void recordNanos(long nanos) {
+    record(nanos / 1000);
+  }
+
+  void record(long micros) {
+    if (micros < 0) micros = 0;
+    counts.incrementAndGet(index(Math.min(micros, MAX_MICROS)));
+    count.incrementAndGet();
+    sumMicros.addAndGet(micros);
+    long max;
+    while (micros > (max = maxMicros.get()) && !maxMicros.compareAndSet(max, micros)) {
+      // lost a race with a larger or concurrent sample; re-read
+    }
+  }
+
+  long count() {
+    return count.get();
+  }
+
+  void reset() {
+    for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+    count.set(0);
+    sumMicros.set(0);
+    maxMicros.set(0);
+  }
+
+  /**
+   * Upper bound of the bucket holding the q-quantile (0 < q <= 1), capped at the
+   * observed max. Samples recorded while this runs may or may not be included.
+   */
+  long percentile(double q) {
+    return percentile(snapshot(), q);
+  }
+
+  private long percentile(long[] snapshot, double q) {
+    long total = snapshot[BUCKETS];
+    if (total == 0) return 0;
+    long rank = Math.max(1, (long) Math.ceil(q * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        // the top bucket also holds everything clamped to MAX_MICROS
+        return i == BUCKETS - 1 ? maxMicros.get() : Math.min(upperBound(i), maxMicros.get());
+      }
+    }
+    return maxMicros.get();
+  }
+
+  /** {count, meanUs, p50Us, p95Us, p99Us, maxUs} */
+  JSONObject toJson() throws JSONException {
+    long[] snapshot = snapshot();
+    long total = snapshot[BUCKETS];
+    JSONObject out = new JSONObject();
+    out.put("count", total);
+    out.put("meanUs", total == 0 ? 0 : sumMicros.get() / total);
+    out.put("p50Us", percentile(snapshot, 0.50));
+    out.put("p95Us", percentile(snapshot, 0.95));
+    out.put("p99Us", percentile(snapshot, 0.99));
+    out.put("maxUs", maxMicros.get());
+    return out;
+  }
+
+  /** Bucket counts, with their sum in the extra last slot. */
+  private long[] snapshot() {
+    long[] snapshot = new long[BUCKETS + 1];
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+      snapshot[BUCKETS] += snapshot[i];
+    }
+    return snapshot;
+  }
+
+  static int index(long micros) {
+    if (micros < 2 * SUB_BUCKETS) return (int) micros;
+    int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BITS;
+    return ((shift + 1) << SUB_BITS) + (int) (micros >>> shift) - SUB_BUCKETS;
+  }
+
+  static long upperBound(int index) {
+    if (index < 2 * SUB_BUCKETS) return index;
+    int shift = (index >>> SUB_BITS) - 1;
+    long sub = (index & (SUB_BUCKETS - 1)) + SUB_BUCKETS;
+    return ((sub + 1) << shift) - 1;
+  }
+}
@@ -0,0 +1,368 @@
+package com.conxius.wallet;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, memory-mapped item log.
+ *
+ * File:    magic u32 | reserved u32 | record*   (zero-filled past the last record)
+ * Record:  bodyLen u32 | crc32(body) u32 | body
+ * Body:    op u8 (1 put, 2 remove) | keyLen u16 | key utf8 | value (put only)
+ *
+ * Writes append one record and msync; nothing is rewritten in place. An in-memory
+ * index maps each live key to its value's offset, so reads are a copy out of the
+ * mapping. On open the log is replayed up to the first zero length, short or
+ * CRC-failing record (a torn append), and anything after it is discarded.
+ * Once dead records outweigh live ones the live set is copied to a side file,
+ * fsynced and renamed over the log; a crash mid-compaction leaves the old log intact.
+ * A write never fails because the compaction it triggered did: its record is already
+ * synced, so the error is kept for compactionFailure() and retried once more garbage
+ * has accumulated.
+ */
+final class MappedLogStore implements EnclaveStore {
+  private static final int MAGIC = 0x43584c31; // "CXL1"
+  private static final int FILE_HEADER = 8;
+  private static final int RECORD_HEADER = 8;
+  private static final byte OP_PUT = 1;
+  private static final byte OP_REMOVE = 2;
+  private static final int INITIAL_SIZE = 64 * 1024;
+  private static final int COMPACT_MIN_DEAD = 256 * 1024;
+  static final int MAX_VALUE = 16 * 1024 * 1024;
+
+  private static final class Entry {
+    final int valueOffset;
+    final int valueLength;
+    final int recordSize;
+
+    Entry(int valueOffset, int valueLength, int recordSize) {
+      this.valueOffset = valueOffset;
+      this.valueLength = valueLength;
+      this.recordSize = recordSize;
+    }
+  }
+
+  private final File file;
+  private final File compactFile;
+  private final Map<String, Entry> index = new HashMap<>();
+  private RandomAccessFile raf;
+  private FileChannel channel;
+  private MappedByteBuffer map;
+  private int tail;
+  private long deadBytes;
+  private long compactRetryAt;
+  private IOException compactionFailure;
+
+  MappedLogStore(File file) throws IOException {
+    this.file = file;
+    this.compactFile = new File(file.getPath() + ".compact");
+    File dir = file.getParentFile();
+    if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("Cannot create " + dir);
+    }
+    if (compactFile.exists() && !compactFile.delete()) {
+      throw new IOException("Cannot remove stale " + compactFile);
+    }
+    open();
+  }
+
+  private void open() throws IOException {
+    raf = new RandomAccessFile(file, "rw");
+    channel = raf.getChannel();
+    boolean fresh = raf.length() < FILE_HEADER;
+    long size = Math.max(raf.length(), INITIAL_SIZE);
+    if (size > Integer.MAX_VALUE) throw new IOException("Item log too large");
+    map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    if (fresh) {
+      map.putInt(0, MAGIC);
+      map.putInt(4, 0);
+      map.force();
+    } else if (map.getInt(0) != MAGIC) {
+      throw new IOException("Not an item log: " + file);
+    }
+    replay();
+  }
+
+  private void replay() {
+    index.clear();
+    deadBytes = 0;
+    int pos = FILE_HEADER;
+    int capacity = map.capacity();
+    CRC32 crc = new CRC32();
+    while (pos + RECORD_HEADER <= capacity) {
+      int bodyLen = map.getInt(pos);
+      if (bodyLen < 3 || bodyLen > capacity - pos - RECORD_HEADER) break; // end or torn
+      byte[] body = new byte[bodyLen];
+      ByteBuffer view = map.duplicate();
+      view.position(pos + RECORD_HEADER);
+      view.get(body);
+      crc.reset();
+      crc.update(body, 0, bodyLen);
+      if ((int) crc.getValue() != map.getInt(pos + 4)) break;
+
+      int keyLen = ((body[1] & 0xff) << 8) | (body[2] & 0xff);
+      if (3 + keyLen > bodyLen) break;
+      String key = new String(body, 3, keyLen, StandardCharsets.UTF_8);
+      int recordSize = RECORD_HEADER + bodyLen;
+      if (body[0] == OP_PUT) {
+        int valueOffset = pos + RECORD_HEADER + 3 + keyLen;
+        retire(index.put(key, new Entry(valueOffset, bodyLen - 3 - keyLen, recordSize)));
+      } else if (body[0] == OP_REMOVE) {
+        retire(index.remove(key));
+        deadBytes += recordSize;
+      } else {
+        break;
+      }
+      pos += recordSize;
+    }
+    tail = pos;
+    // Whatever a torn append left behind now sits after an explicit end marker
+    if (tail + 4 <= capacity) map.putInt(tail, 0);
+  }
+
+  private void retire(Entry previous) {
+    if (previous != null) deadBytes += previous.recordSize;
+  }
+
+  @Override
+  public synchronized boolean contains(String key) {
+    return index.containsKey(key);
+  }
+
+  @Override
+  public synchronized byte[] get(String key) {
+    Entry entry = index.get(key);
+    if (entry == null) return null;
+    byte[] out = new byte[entry.valueLength];
+    ByteBuffer view = map.duplicate();
+    view.position(entry.valueOffset);
+    view.get(out);
+    return out;
+  }
+
+  @Override
+  public synchronized void put(String key, byte[] value) throws IOException {
+    if (value.length > MAX_VALUE) throw new IOException("Value too large");
+    int before = tail;
+    int valueOffset = append(OP_PUT, key, value);
+    retire(index.put(key, new Entry(valueOffset, value.length, tail - before)));
+    map.force();
+    maybeCompact();
+  }
+
+  @Override
+  public synchronized void put(String key, int length, ValueWriter writer) throws IOException, GeneralSecurityException {
+    if (length < 0 || length > MAX_VALUE) throw new IOException("Value too large");
+    int before = tail;
+    int valueOffset = append(OP_PUT, key, length, writer);
+    retire(index.put(key, new Entry(valueOffset, length, tail - before)));
+    map.force();
+    maybeCompact();
+  }
+
+  @Override
+  public synchronized <T> T read(String key, ValueReader<T> reader) throws IOException, GeneralSecurityException {
+    Entry entry = index.get(key);
+    if (entry == null) return null;
+    ByteBuffer view = map.duplicate();
+    view.limit(entry.valueOffset + entry.valueLength).position(entry.valueOffset);
+    return reader.readFrom(view.slice().asReadOnlyBuffer());
+  }
+
+  @Override
+  public synchronized void remove(String key) throws IOException {
+    Entry previous = index.remove(key);
+    if (previous == null) return;
+    int before = tail;
+    append(OP_REMOVE, key, null);
+    deadBytes += previous.recordSize + (tail - before);
+    map.force();
+    maybeCompact();
+  }
+
+  /** One msync for the batch; a crash part-way keeps a prefix of it. */
+  @Override
+  public synchronized void putAll(Map<String, byte[]> entries) throws IOException {
+    if (entries.isEmpty()) return;
+    for (byte[] value : entries.values()) {
+      if (value.length > MAX_VALUE) throw new IOException("Value too large");
+    }
+    for (Map.Entry<String, byte[]> e : entries.entrySet()) {
+      int before = tail;
+      int valueOffset = append(OP_PUT, e.getKey(), e.getValue());
+      retire(index.put(e.getKey(), new Entry(valueOffset, e.getValue().length, tail - before)));
+    }
+    map.force();
+    maybeCompact();
+  }
+
+  @Override
+  public synchronized void removeAll(Collection<String> keys) throws IOException {
+    boolean changed = false;
+    for (String key : keys) {
+      Entry previous = index.remove(key);
+      if (previous == null) continue;
+      int before = tail;
+      append(OP_REMOVE, key, null);
+      deadBytes += previous.recordSize + (tail - before);
+      changed = true;
+    }
+    if (!changed) return;
+    map.force();
+    maybeCompact();
+  }
+
+  @Override
+  public synchronized Set<String> keys() {
+    return new HashSet<>(index.keySet());
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    map = null;
+    channel.close();
+    raf.close();
+  }
+
+  private static byte[] keyBytes(String key) {
+    return key.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private int append(byte op, String key, byte[] value) throws IOException {
+    try {
+      return append(op, key, value == null ? 0 : value.length, value == null ? null : out -> out.write(value));
+    } catch (GeneralSecurityException e) {
+      throw new IOException(e); // not thrown by a plain byte copy
+    }
+  }
+
+  /**
+   * Writes one record at tail (growing the mapping if needed); returns the value offset.
+   * The value is streamed straight into the mapping. bodyLen is written last, so a
+   * failed or interrupted writer leaves the end marker in place and nothing visible.
+   */
+  private int append(byte op, String key, int valueLen, ValueWriter writer) throws IOException, GeneralSecurityException {
+    byte[] k = keyBytes(key);
+    if (k.length > 0xffff) throw new IOException("Key too long");
+    int bodyLen = 3 + k.length + valueLen;
+    ensureCapacity((long) tail + RECORD_HEADER + bodyLen + 4);
+
+    int start = tail;
+    ByteBuffer body = map.duplicate();
+    body.limit(start + RECORD_HEADER + bodyLen).position(start + RECORD_HEADER);
+    byte[] prefix = ByteBuffer.allocate(3 + k.length).put(op).putShort((short) k.length).put(k).array();
+    CRC32 crc = new CRC32();
+    body.put(prefix);
+    crc.update(prefix, 0, prefix.length);
+    if (writer != null) {
+      writer.writeTo(new BodyOutput(body, crc));
+    }
+    if (body.hasRemaining()) throw new IOException("Value shorter than declared");
+
+    map.putInt(start + 4, (int) crc.getValue());
+    map.putInt(start, bodyLen);
+    tail = start + RECORD_HEADER + bodyLen;
+    map.putInt(tail, 0); // end marker (room reserved by ensureCapacity)
+    return start + RECORD_HEADER + 3 + k.length;
+  }
+
+  /** Bounded sink over the record body that checksums as it goes. */
+  private static final class BodyOutput extends OutputStream {
+    private final ByteBuffer body;
+    private final CRC32 crc;
+
+    BodyOutput(ByteBuffer body, CRC32 crc) {
+      this.body = body;
+      this.crc = crc;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      try {
+        body.put(b, off, len);
+      } catch (BufferOverflowException e) {
+        throw new IOException("Value longer than declared");
+      }
+      crc.update(b, off, len);
+    }
+  }
+
+  /** needed includes room for the end marker after the record. */
+  private void ensureCapacity(long needed) throws IOException {
+    if (needed <= map.capacity()) return;
+    long size = map.capacity();
+    while (size < needed) size *= 2;
+    if (size > Integer.MAX_VALUE) throw new IOException("Item log too large");
+    map.force();
+    raf.setLength(size);
+    map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+  }
+
+  private void maybeCompact() {
+    long live = tail - FILE_HEADER - deadBytes;
+    if (deadBytes < COMPACT_MIN_DEAD || deadBytes <= live || deadBytes < compactRetryAt) return;
+    try {
+      compact();
+      compactRetryAt = 0;
+      compactionFailure = null;
+    } catch (IOException e) {
+      compactionFailure = e;
+      compactRetryAt = deadBytes + COMPACT_MIN_DEAD;
+      compactFile.delete(); // best effort; the constructor also removes a stale one
+    }
+  }
+
+  /** Rewrites only live records into a side file, then atomically swaps it in. */
+  synchronized void compact() throws IOException {
+    try (FileOutputStream out = new FileOutputStream(compactFile)) {
+      FileChannel target = out.getChannel();
+      ByteBuffer header = ByteBuffer.allocate(FILE_HEADER).putInt(MAGIC).putInt(0);
+      header.flip();
+      target.write(header);
+      for (Map.Entry<String, Entry> e : index.entrySet()) {
+        Entry entry = e.getValue();
+        int recordStart = entry.valueOffset + entry.valueLength - entry.recordSize;
+        ByteBuffer record = map.duplicate();
+        record.position(recordStart);
+        record.limit(recordStart + entry.recordSize);
+        while (record.hasRemaining()) target.write(record);
+      }
+      target.force(true);
+    }
+    close();
+    if (!compactFile.renameTo(file)) {
+      open(); // old log is still complete
+      throw new IOException("Compaction rename failed");
+    }
+    open();
+  }
+
+  synchronized long deadBytes() {
+    return deadBytes;
+  }
+
+  /** Last automatic compaction error, null once one succeeds. */
+  synchronized IOException compactionFailure() {
+    return compactionFailure;
+  }
+}
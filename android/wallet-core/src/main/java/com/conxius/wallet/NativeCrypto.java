@@ -0,0 +1,17 @@
+package com.conxius.wallet;
+
+import javax.crypto.SecretKey;
+
+public class NativeCrypto {
+
+    public static byte[] decryptVault(String vault, String pin) throws Exception {
+        // Accepts the v1 JSON envelope and the compact v2 / v3 (calibrated KDF) encodings
+        VaultEnvelope envelope = VaultEnvelope.parse(vault);
+
+        // Derive Key: PBKDF2WithHmacSHA256, 200000 iterations for v1/v2, the header's count for v3
+        SecretKey secret = envelope.deriveKey(pin);
+
+        // Decrypt: AES/GCM/NoPadding
+        return envelope.decrypt(secret);
+    }
+}
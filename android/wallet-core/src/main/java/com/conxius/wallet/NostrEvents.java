@@ -0,0 +1,126 @@
+package com.conxius.wallet;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * NIP-01 event ids: SHA-256 of the canonical [0, pubkey, created_at, kind, tags, content].
+ *
+ * The serialization reproduces JSON.stringify byte for byte (no whitespace, the short escapes
+ * for \b \t \n \f \r " \\, \\u00xx for other control characters and lone surrogates, everything
+ * else as raw UTF-8), so an id computed here is the id any JS client computes for the same event.
+ */
+final class NostrEvents {
+  static final int MAX_BATCH = 1000;
+  static final String DEFAULT_PATH = "m/44'/1237'/0'/0/0"; // NIP-06
+
+  private NostrEvents() {}
+
+  /** Unsigned event fields as sent from JS. */
+  static final class Unsigned {
+    final long createdAt;
+    final long kind;
+    final JSONArray tags;
+    final String content;
+
+    private Unsigned(long createdAt, long kind, JSONArray tags, String content) {
+      this.createdAt = createdAt;
+      this.kind = kind;
+      this.tags = tags;
+      this.content = content;
+    }
+
+    static Unsigned parse(JSONObject o) throws JSONException {
+      long createdAt = integer(o, "created_at");
+      long kind = integer(o, "kind");
+      if (kind < 0 || kind > 65535) throw new IllegalArgumentException("Invalid kind");
+      JSONArray tags = o.has("tags") ? o.getJSONArray("tags") : new JSONArray();
+      for (int i = 0; i < tags.length(); i++) {
+        JSONArray tag = tags.getJSONArray(i);
+        for (int j = 0; j < tag.length(); j++) {
+          if (!(tag.get(j) instanceof String)) throw new IllegalArgumentException("Tag values must be strings");
+        }
+      }
+      Object content = o.opt("content");
+      if (!(content instanceof String)) throw new IllegalArgumentException("content must be a string");
+      return new Unsigned(createdAt, kind, tags, (String) content);
+    }
+
+    private static long integer(JSONObject o, String name) throws JSONException {
+      Object v = o.opt(name);
+      if (!(v instanceof Number)) throw new IllegalArgumentException(name + " must be a number");
+      double d = ((Number) v).doubleValue();
+      long l = ((Number) v).longValue();
+      if (d != l || l < 0) throw new IllegalArgumentException(name + " must be a non-negative integer");
+      return l;
+    }
+  }
+
+  static byte[] serialize(String pubkeyHex, Unsigned event) throws JSONException {
+    StringBuilder sb = new StringBuilder(96 + event.content.length());
+    sb.append("[0,");
+    appendString(sb, pubkeyHex);
+    sb.append(',').append(event.createdAt).append(',').append(event.kind).append(",[");
+    for (int i = 0; i < event.tags.length(); i++) {
+      if (i > 0) sb.append(',');
+      JSONArray tag = event.tags.getJSONArray(i);
+      sb.append('[');
+      for (int j = 0; j < tag.length(); j++) {
+        if (j > 0) sb.append(',');
+        appendString(sb, tag.getString(j));
+      }
+      sb.append(']');
+    }
+    sb.append("],");
+    appendString(sb, event.content);
+    sb.append(']');
+    return sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  static byte[] id(String pubkeyHex, Unsigned event) throws JSONException {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(serialize(pubkeyHex, event));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void appendString(StringBuilder sb, String s) {
+    sb.append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      switch (c) {
+        case '"': sb.append("\\\""); break;
+        case '\\': sb.append("\\\\"); break;
+        case '\b': sb.append("\\b"); break;
+        case '\t': sb.append("\\t"); break;
+        case '\n': sb.append("\\n"); break;
+        case '\f': sb.append("\\f"); break;
+        case '\r': sb.append("\\r"); break;
+        default:
+          if (c < 0x20) {
+            appendUnicodeEscape(sb, c);
+          } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+            sb.append(c).append(s.charAt(++i));
+          } else if (Character.isSurrogate(c)) {
+            appendUnicodeEscape(sb, c); // lone surrogate: JSON.stringify escapes, UTF-8 could not encode it
+          } else {
+            sb.append(c);
+          }
+      }
+    }
+    sb.append('"');
+  }
+
+  private static void appendUnicodeEscape(StringBuilder sb, char c) {
+    sb.append("\\u");
+    String hex = Integer.toHexString(c);
+    for (int k = hex.length(); k < 4; k++) sb.append('0');
+    sb.append(hex);
+  }
+}
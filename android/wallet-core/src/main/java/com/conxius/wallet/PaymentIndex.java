@@ -0,0 +1,167 @@
+package com.conxius.wallet;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Payment hash -> summary index behind Breez listPayments.
+ *
+ * Summaries are ordered newest first (payment time, then hash), so a page is a walk from
+ * the cursor that stops after limit matches, and a sinceTimestamp query stops at the first
+ * older payment instead of scanning the whole history. The cursor is the sort key of the
+ * last returned item, which keeps paging stable while new payments are inserted at the
+ * head. A summary is a handful of fields, not the SDK's Payment object graph.
+ */
+final class PaymentIndex {
+  static final int DEFAULT_LIMIT = 50;
+  static final int MAX_LIMIT = 500;
+
+  private static final Comparator<Summary> NEWEST_FIRST = (a, b) -> {
+    int c = Long.compare(b.timeSec, a.timeSec);
+    return c != 0 ? c : a.hash.compareTo(b.hash);
+  };
+
+  static final class Summary {
+    final String hash;
+    final String type;   // "sent" | "received" | "closedChannel"
+    final String status; // "pending" | "complete" | "failed"
+    final long amountMsat;
+    final long feeMsat;
+    final long timeSec;
+    final String description;
+
+    Summary(String hash, String type, String status, long amountMsat, long feeMsat, long timeSec, String description) {
+      this.hash = hash;
+      this.type = type;
+      this.status = status;
+      this.amountMsat = amountMsat;
+      this.feeMsat = feeMsat;
+      this.timeSec = timeSec;
+      this.description = description;
+    }
+
+    Summary withStatus(String newStatus) {
+      return new Summary(hash, type, newStatus, amountMsat, feeMsat, timeSec, description);
+    }
+
+    JSONObject toJson() throws JSONException {
+      JSONObject out = new JSONObject();
+      out.put("paymentHash", hash);
+      out.put("type", type);
+      out.put("status", status);
+      out.put("amountMsat", amountMsat);
+      out.put("feeMsat", feeMsat);
+      out.put("paymentTime", timeSec);
+      if (description != null) out.put("description", description);
+      return out;
+    }
+  }
+
+  static final class Page {
+    final List<Summary> items;
+    final String nextCursor; // null on the last page
+
+    Page(List<Summary> items, String nextCursor) {
+      this.items = items;
+      this.nextCursor = nextCursor;
+    }
+
+    /** {payments: [...], nextCursor?} */
+    JSONObject toJson() throws JSONException {
+      JSONArray payments = new JSONArray();
+      for (Summary s : items) payments.put(s.toJson());
+      JSONObject out = new JSONObject();
+      out.put("payments", payments);
+      if (nextCursor != null) out.put("nextCursor", nextCursor);
+      return out;
+    }
+  }
+
+  private final Map<String, Summary> byHash = new HashMap<>();
+  private final NavigableSet<Summary> ordered = new TreeSet<>(NEWEST_FIRST);
+
+  /** Inserts or replaces the summary for s.hash. */
+  synchronized void put(Summary s) {
+    Summary old = byHash.put(s.hash, s);
+    if (old != null) ordered.remove(old);
+    ordered.add(s);
+  }
+
+  /** Inserts s unless the hash is already indexed (a live event beat the history load). */
+  synchronized boolean putIfAbsent(Summary s) {
+    if (byHash.containsKey(s.hash)) return false;
+    put(s);
+    return true;
+  }
+
+  /** Changes the status of an indexed payment; false if the hash is unknown. */
+  synchronized boolean updateStatus(String hash, String status) {
+    Summary old = byHash.get(hash);
+    if (old == null) return false;
+    if (!old.status.equals(status)) put(old.withStatus(status));
+    return true;
+  }
+
+  synchronized Summary get(String hash) {
+    return byHash.get(hash);
+  }
+
+  synchronized int size() {
+    return byHash.size();
+  }
+
+  synchronized void clear() {
+    byHash.clear();
+    ordered.clear();
+  }
+
+  /**
+   * Up to limit summaries after cursor (null: from the newest), keeping those whose type
+   * and status are in types/statuses (null: any) and whose payment time is at least
+   * sinceTimestamp (unix seconds, 0: no bound).
+   */
+  synchronized Page page(String cursor, int limit, Set<String> types, Set<String> statuses, long sinceTimestamp) {
+    if (limit <= 0 || limit > MAX_LIMIT) throw new IllegalArgumentException("limit must be 1.." + MAX_LIMIT);
+    Iterator<Summary> it = (cursor == null ? ordered : ordered.tailSet(parseCursor(cursor), false)).iterator();
+    List<Summary> items = new ArrayList<>(Math.min(limit, byHash.size()));
+    while (it.hasNext()) {
+      Summary s = it.next();
+      if (s.timeSec < sinceTimestamp) {
+        return new Page(Collections.unmodifiableList(items), null);
+      }
+      if ((types != null && !types.contains(s.type)) || (statuses != null && !statuses.contains(s.status))) continue;
+      items.add(s);
+      if (items.size() == limit) {
+        return new Page(Collections.unmodifiableList(items), it.hasNext() ? cursorOf(s) : null);
+      }
+    }
+    return new Page(Collections.unmodifiableList(items), null);
+  }
+
+  static String cursorOf(Summary s) {
+    return s.timeSec + ":" + s.hash;
+  }
+
+  private static Summary parseCursor(String cursor) {
+    int colon = cursor.indexOf(':');
+    try {
+      if (colon <= 0) throw new NumberFormatException();
+      long time = Long.parseLong(cursor.substring(0, colon));
+      return new Summary(cursor.substring(colon + 1), null, null, 0, 0, time, null);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+  }
+}
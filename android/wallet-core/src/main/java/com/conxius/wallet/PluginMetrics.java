@@ -0,0 +1,106 @@
+package com.conxius.wallet;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-plugin-method call metrics plus process-wide crypto phase timers.
+ *
+ * Each method gets a call/error count, an end-to-end latency histogram (from the
+ * plugin handing the call off to the task finishing) and a queue-wait histogram
+ * (time spent in a worker lane queue before a thread picked it up). Phases time the
+ * expensive steps inside those calls wherever they happen, so a slow signPsbt can be
+ * split into KDF vs. derive vs. sign. Once a method has been seen, recording touches
+ * only preallocated atomics.
+ */
+final class PluginMetrics {
+  enum Phase { KDF, DECRYPT, DERIVE, SIGN }
+
+  static final class MethodStats {
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+
+    /** One finished call that started at startNanos (System.nanoTime()). */
+    void completed(long startNanos) {
+      calls.incrementAndGet();
+      latency.recordNanos(System.nanoTime() - startNanos);
+    }
+
+    void dequeued(long queuedAtNanos) {
+      queueWait.recordNanos(System.nanoTime() - queuedAtNanos);
+    }
+
+    void error() {
+      errors.incrementAndGet();
+    }
+
+    void reset() {
+      calls.set(0);
+      errors.set(0);
+      latency.reset();
+      queueWait.reset();
+    }
+
+    JSONObject toJson() throws JSONException {
+      JSONObject out = new JSONObject();
+      out.put("calls", calls.get());
+      out.put("errors", errors.get());
+      out.put("latency", latency.toJson());
+      out.put("queueWait", queueWait.toJson());
+      return out;
+    }
+  }
+
+  private final Map<String, MethodStats> methods = new ConcurrentHashMap<>();
+  private final LatencyHistogram[] phases = new LatencyHistogram[Phase.values().length];
+  private volatile long sinceMs = System.currentTimeMillis();
+
+  PluginMetrics() {
+    for (int i = 0; i < phases.length; i++) phases[i] = new LatencyHistogram();
+  }
+
+  MethodStats method(String name) {
+    MethodStats stats = methods.get(name);
+    if (stats != null) return stats;
+    return methods.computeIfAbsent(name, k -> new MethodStats());
+  }
+
+  /** Records the time since startNanos (System.nanoTime()) against phase. */
+  void phase(Phase phase, long startNanos) {
+    phases[phase.ordinal()].recordNanos(System.nanoTime() - startNanos);
+  }
+
+  LatencyHistogram phase(Phase phase) {
+    return phases[phase.ordinal()];
+  }
+
+  void reset() {
+    for (MethodStats stats : methods.values()) stats.reset();
+    for (LatencyHistogram histogram : phases) histogram.reset();
+    sinceMs = System.currentTimeMillis();
+  }
+
+  /** {sinceMs, methods: {name: {calls, errors, latency, queueWait}}, phases: {kdf, decrypt, derive, sign}} */
+  JSONObject toJson() throws JSONException {
+    JSONObject methodsJson = new JSONObject();
+    for (Map.Entry<String, MethodStats> e : methods.entrySet()) {
+      methodsJson.put(e.getKey(), e.getValue().toJson());
+    }
+    JSONObject phasesJson = new JSONObject();
+    for (Phase phase : Phase.values()) {
+      phasesJson.put(phase.name().toLowerCase(Locale.ROOT), phases[phase.ordinal()].toJson());
+    }
+    JSONObject out = new JSONObject();
+    out.put("sinceMs", sinceMs);
+    out.put("methods", methodsJson);
+    out.put("phases", phasesJson);
+    return out;
+  }
+}
@@ -0,0 +1,206 @@
+package com.conxius.wallet;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * BIP-174 (version 0) PSBT, parsed in a single forward pass over the buffer.
+ *
+ * Each map keeps its records in order, key bytes included, so fields this code does not
+ * understand (proprietary, newer types) survive a parse/serialize round trip unchanged.
+ * Only the unsigned transaction is decoded eagerly; everything else is looked up by type.
+ */
+final class Psbt {
+  private static final byte[] MAGIC = {0x70, 0x73, 0x62, 0x74, (byte) 0xff};
+
+  static final int GLOBAL_UNSIGNED_TX = 0x00;
+  static final int IN_NON_WITNESS_UTXO = 0x00;
+  static final int IN_WITNESS_UTXO = 0x01;
+  static final int IN_PARTIAL_SIG = 0x02;
+  static final int IN_SIGHASH_TYPE = 0x03;
+  static final int IN_REDEEM_SCRIPT = 0x04;
+  static final int IN_WITNESS_SCRIPT = 0x05;
+  static final int IN_BIP32_DERIVATION = 0x06;
+  static final int IN_FINAL_SCRIPTSIG = 0x07;
+  static final int IN_FINAL_SCRIPTWITNESS = 0x08;
+  static final int IN_TAP_KEY_SIG = 0x13;
+  static final int IN_TAP_BIP32_DERIVATION = 0x16;
+  static final int IN_TAP_INTERNAL_KEY = 0x17;
+  static final int IN_TAP_MERKLE_ROOT = 0x18;
+
+  static final class Field {
+    final byte[] key;
+    final byte[] value;
+
+    Field(byte[] key, byte[] value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    int type() {
+      return key[0] & 0xff;
+    }
+
+    /** Key data after the type byte (e.g. the pubkey of a partial sig). */
+    byte[] keyData() {
+      return Arrays.copyOfRange(key, 1, key.length);
+    }
+  }
+
+  static final class KeyMap {
+    final List<Field> fields = new ArrayList<>();
+
+    /** Value of the single-byte key of this type, or null. */
+    byte[] get(int type) {
+      for (Field f : fields) {
+        if (f.key.length == 1 && f.type() == type) return f.value;
+      }
+      return null;
+    }
+
+    List<Field> all(int type) {
+      List<Field> out = new ArrayList<>();
+      for (Field f : fields) {
+        if (f.type() == type) out.add(f);
+      }
+      return out;
+    }
+
+    boolean has(int type) {
+      for (Field f : fields) {
+        if (f.type() == type) return true;
+      }
+      return false;
+    }
+
+    /** Inserts or replaces the record with this exact key. */
+    void put(byte[] key, byte[] value) {
+      for (int i = 0; i < fields.size(); i++) {
+        if (Arrays.equals(fields.get(i).key, key)) {
+          fields.set(i, new Field(key, value));
+          return;
+        }
+      }
+      fields.add(new Field(key, value));
+    }
+
+    void removeTypes(int... types) {
+      fields.removeIf(f -> {
+        for (int t : types) {
+          if (f.type() == t) return true;
+        }
+        return false;
+      });
+    }
+  }
+
+  final RawTx tx;
+  final KeyMap global;
+  final KeyMap[] inputs;
+  final KeyMap[] outputs;
+
+  private Psbt(RawTx tx, KeyMap global, KeyMap[] inputs, KeyMap[] outputs) {
+    this.tx = tx;
+    this.global = global;
+    this.inputs = inputs;
+    this.outputs = outputs;
+  }
+
+  static Psbt parse(byte[] data) {
+    ByteBuffer in = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+    byte[] magic = new byte[MAGIC.length];
+    in.get(magic);
+    if (!Arrays.equals(magic, MAGIC)) throw new IllegalArgumentException("Not a PSBT");
+
+    KeyMap global = readMap(in);
+    byte[] unsigned = global.get(GLOBAL_UNSIGNED_TX);
+    if (unsigned == null) throw new IllegalArgumentException("PSBT has no unsigned transaction");
+    RawTx tx = RawTx.parse(unsigned);
+    for (RawTx.Input input : tx.inputs) {
+      if (input.scriptSig.length > 0 || input.witness.length > 0) {
+        throw new IllegalArgumentException("PSBT unsigned transaction has scriptSigs");
+      }
+    }
+
+    KeyMap[] inputs = new KeyMap[tx.inputs.size()];
+    for (int i = 0; i < inputs.length; i++) inputs[i] = readMap(in);
+    KeyMap[] outputs = new KeyMap[tx.outputs.size()];
+    for (int i = 0; i < outputs.length; i++) outputs[i] = readMap(in);
+    if (in.hasRemaining()) throw new IllegalArgumentException("Trailing bytes after PSBT");
+    return new Psbt(tx, global, inputs, outputs);
+  }
+
+  private static KeyMap readMap(ByteBuffer in) {
+    KeyMap map = new KeyMap();
+    while (true) {
+      byte[] key = RawTx.readVarBytes(in);
+      if (key.length == 0) return map; // separator
+      byte[] value = RawTx.readVarBytes(in);
+      for (Field f : map.fields) {
+        if (Arrays.equals(f.key, key)) throw new IllegalArgumentException("Duplicate PSBT key");
+      }
+      map.fields.add(new Field(key, value));
+    }
+  }
+
+  byte[] serialize() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(MAGIC, 0, MAGIC.length);
+    writeMap(out, global);
+    for (KeyMap map : inputs) writeMap(out, map);
+    for (KeyMap map : outputs) writeMap(out, map);
+    return out.toByteArray();
+  }
+
+  private static void writeMap(ByteArrayOutputStream out, KeyMap map) {
+    for (Field f : map.fields) {
+      RawTx.writeVarBytes(out, f.key);
+      RawTx.writeVarBytes(out, f.value);
+    }
+    out.write(0);
+  }
+
+  boolean isFinalized(int index) {
+    return inputs[index].has(IN_FINAL_SCRIPTSIG) || inputs[index].has(IN_FINAL_SCRIPTWITNESS);
+  }
+
+  /**
+   * Spent output of input i: WITNESS_UTXO, else NON_WITNESS_UTXO checked against the
+   * outpoint's txid (so a lying full tx cannot misstate the amount). Null if neither is present.
+   */
+  RawTx.Output spentOutput(int index) {
+    byte[] witnessUtxo = inputs[index].get(IN_WITNESS_UTXO);
+    if (witnessUtxo != null) {
+      return RawTx.Output.read(ByteBuffer.wrap(witnessUtxo).order(ByteOrder.LITTLE_ENDIAN));
+    }
+    byte[] full = inputs[index].get(IN_NON_WITNESS_UTXO);
+    if (full == null) return null;
+    RawTx prev = RawTx.parse(full);
+    RawTx.Input input = tx.inputs.get(index);
+    if (!Arrays.equals(prev.txid(), input.prevTxid)) throw new IllegalArgumentException("NON_WITNESS_UTXO txid mismatch");
+    if (input.prevIndex >= prev.outputs.size()) throw new IllegalArgumentException("NON_WITNESS_UTXO has no such output");
+    return prev.outputs.get((int) input.prevIndex);
+  }
+
+  /** Network transaction with final scriptSigs / witnesses; every input must be finalized. */
+  byte[] extract() {
+    List<RawTx.Input> finalInputs = new ArrayList<>();
+    for (int i = 0; i < inputs.length; i++) {
+      if (!isFinalized(i)) throw new IllegalStateException("Input " + i + " is not finalized");
+      RawTx.Input unsigned = tx.inputs.get(i);
+      byte[] scriptSig = inputs[i].get(IN_FINAL_SCRIPTSIG);
+      RawTx.Input input = new RawTx.Input(unsigned.prevTxid, unsigned.prevIndex,
+        scriptSig == null ? new byte[0] : scriptSig, unsigned.sequence);
+      byte[] witness = inputs[i].get(IN_FINAL_SCRIPTWITNESS);
+      if (witness != null) {
+        input.witness = RawTx.readWitness(ByteBuffer.wrap(witness).order(ByteOrder.LITTLE_ENDIAN));
+      }
+      finalInputs.add(input);
+    }
+    return new RawTx(tx.version, finalInputs, tx.outputs, tx.lockTime).serialize(true);
+  }
+}
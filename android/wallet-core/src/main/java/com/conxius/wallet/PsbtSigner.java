@@ -0,0 +1,258 @@
+package com.conxius.wallet;
+
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Utils;
+import org.bitcoinj.crypto.DeterministicKey;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Signs (and optionally finalizes) every input of a PSBT that belongs to one vault.
+ *
+ * Supported spends: P2WPKH, P2SH-P2WPKH and P2TR key path; P2WSH inputs are signed (partial
+ * sig) but left for the caller to finalize since the witness depends on the script. Keys are
+ * found through the input's BIP32 derivations matching our master fingerprint, then the
+ * caller's hint paths, and must actually match the spent script before anything is signed.
+ * All sighashes come from one SighashEngine, so the transaction-wide hashes are computed once.
+ */
+final class PsbtSigner {
+  interface KeySource {
+    DeterministicKey derive(String path) throws Exception;
+  }
+
+  static final class InputResult {
+    final int index;
+    boolean signed;
+    boolean finalized;
+    String error;
+
+    InputResult(int index) {
+      this.index = index;
+    }
+  }
+
+  private enum Kind { P2WPKH, P2SH_P2WPKH, P2WSH, P2TR }
+
+  private final SchnorrSigner schnorr;
+  private final byte[] fingerprint;
+  private final KeySource keys;
+
+  /** fingerprint: the vault's 4-byte BIP32 master fingerprint. */
+  PsbtSigner(SchnorrSigner schnorr, byte[] fingerprint, KeySource keys) {
+    this.schnorr = schnorr;
+    this.fingerprint = fingerprint;
+    this.keys = keys;
+  }
+
+  List<InputResult> sign(Psbt psbt, Collection<String> hintPaths, boolean finalize) {
+    int n = psbt.inputs.length;
+    RawTx.Output[] spent = new RawTx.Output[n];
+    String[] spentError = new String[n];
+    for (int i = 0; i < n; i++) {
+      try {
+        spent[i] = psbt.spentOutput(i);
+      } catch (RuntimeException e) {
+        spentError[i] = e.getMessage();
+      }
+    }
+    SighashEngine engine = new SighashEngine(psbt.tx, spent);
+
+    List<InputResult> results = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      InputResult result = new InputResult(i);
+      results.add(result);
+      if (psbt.isFinalized(i)) {
+        result.finalized = true;
+        continue;
+      }
+      try {
+        if (spentError[i] != null) throw new IllegalArgumentException(spentError[i]);
+        if (spent[i] == null) throw new IllegalArgumentException("Missing UTXO");
+        signInput(psbt, i, spent[i], engine, hintPaths, finalize, result);
+      } catch (Exception e) {
+        result.error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+      }
+    }
+    return results;
+  }
+
+  private void signInput(Psbt psbt, int i, RawTx.Output prev, SighashEngine engine,
+                         Collection<String> hintPaths, boolean finalize, InputResult result) throws Exception {
+    Psbt.KeyMap in = psbt.inputs[i];
+    byte[] script = prev.script;
+    byte[] redeemScript = null;
+    byte[] witnessScript = null;
+    Kind kind;
+    byte[] program;
+
+    if (isWitness(script, 0x00, 20)) {
+      kind = Kind.P2WPKH;
+      program = Arrays.copyOfRange(script, 2, 22);
+    } else if (script.length == 23 && script[0] == (byte) 0xa9 && script[1] == 0x14 && script[22] == (byte) 0x87) {
+      redeemScript = in.get(Psbt.IN_REDEEM_SCRIPT);
+      if (redeemScript == null) throw new IllegalArgumentException("P2SH input without redeem script");
+      if (!Arrays.equals(Utils.sha256hash160(redeemScript), Arrays.copyOfRange(script, 2, 22))) {
+        throw new IllegalArgumentException("Redeem script does not match P2SH output");
+      }
+      if (!isWitness(redeemScript, 0x00, 20)) throw new IllegalArgumentException("Only P2SH-P2WPKH is supported");
+      kind = Kind.P2SH_P2WPKH;
+      program = Arrays.copyOfRange(redeemScript, 2, 22);
+    } else if (isWitness(script, 0x00, 32)) {
+      witnessScript = in.get(Psbt.IN_WITNESS_SCRIPT);
+      if (witnessScript == null) throw new IllegalArgumentException("P2WSH input without witness script");
+      if (!Arrays.equals(Sha256Hash.hash(witnessScript), Arrays.copyOfRange(script, 2, 34))) {
+        throw new IllegalArgumentException("Witness script does not match P2WSH output");
+      }
+      kind = Kind.P2WSH;
+      program = witnessScript;
+    } else if (isWitness(script, 0x51, 32)) {
+      kind = Kind.P2TR;
+      program = Arrays.copyOfRange(script, 2, 34);
+    } else {
+      throw new IllegalArgumentException("Unsupported script type (legacy or unknown)");
+    }
+
+    byte[] merkleRoot = kind == Kind.P2TR ? in.get(Psbt.IN_TAP_MERKLE_ROOT) : null;
+    DeterministicKey child = findKey(in, kind, program, merkleRoot, hintPaths);
+    if (child == null) throw new IllegalArgumentException("No matching key");
+
+    byte[] hashTypeValue = in.get(Psbt.IN_SIGHASH_TYPE);
+    if (kind == Kind.P2TR) {
+      int hashType = hashTypeValue == null ? SighashEngine.SIGHASH_DEFAULT : SighashEngine.readHashType(hashTypeValue);
+      byte[] sighash = engine.taprootKeyPath(i, hashType);
+      byte[] sig = schnorr.signTweaked(child.getPrivKey(), child.getPubKeyPoint(), sighash, merkleRoot).sig;
+      if (hashType != SighashEngine.SIGHASH_DEFAULT) {
+        sig = Arrays.copyOf(sig, 65);
+        sig[64] = (byte) hashType;
+      }
+      in.put(new byte[] {Psbt.IN_TAP_KEY_SIG}, sig);
+      result.signed = true;
+      if (finalize) {
+        finalizeInput(in, null, new byte[][] {sig});
+        result.finalized = true;
+      }
+      return;
+    }
+
+    int hashType = hashTypeValue == null ? SighashEngine.SIGHASH_ALL : SighashEngine.readHashType(hashTypeValue);
+    byte[] scriptCode = kind == Kind.P2WSH ? witnessScript : p2pkhScriptCode(program);
+    byte[] sighash = engine.segwitV0(i, scriptCode, prev.value, hashType);
+    byte[] der = child.sign(Sha256Hash.wrap(sighash)).encodeToDER();
+    byte[] sig = Arrays.copyOf(der, der.length + 1);
+    sig[der.length] = (byte) hashType;
+    byte[] pubkey = child.getPubKey();
+    in.put(concat(new byte[] {Psbt.IN_PARTIAL_SIG}, pubkey), sig);
+    result.signed = true;
+
+    if (finalize && kind != Kind.P2WSH) {
+      byte[] scriptSig = kind == Kind.P2SH_P2WPKH ? concat(new byte[] {(byte) redeemScript.length}, redeemScript) : null;
+      finalizeInput(in, scriptSig, new byte[][] {sig, pubkey});
+      result.finalized = true;
+    }
+  }
+
+  /** BIP32 paths recorded for our fingerprint first, then the caller's hints; first key matching the script wins. */
+  private DeterministicKey findKey(Psbt.KeyMap in, Kind kind, byte[] program, byte[] merkleRoot, Collection<String> hintPaths) throws Exception {
+    Set<String> paths = new LinkedHashSet<>();
+    for (Psbt.Field f : in.all(Psbt.IN_BIP32_DERIVATION)) {
+      String path = ownPath(f.value, 0);
+      if (path != null) paths.add(path);
+    }
+    for (Psbt.Field f : in.all(Psbt.IN_TAP_BIP32_DERIVATION)) {
+      ByteBuffer value = ByteBuffer.wrap(f.value).order(ByteOrder.LITTLE_ENDIAN);
+      long leaves = RawTx.readVarInt(value);
+      if (leaves != 0) continue; // script-path key, not the key-path one we sign for
+      String path = ownPath(f.value, value.position());
+      if (path != null) paths.add(path);
+    }
+    if (hintPaths != null) paths.addAll(hintPaths);
+
+    for (String path : paths) {
+      DeterministicKey child = keys.derive(path);
+      if (matches(child, kind, program, merkleRoot)) return child;
+    }
+    return null;
+  }
+
+  private boolean matches(DeterministicKey child, Kind kind, byte[] program, byte[] merkleRoot) {
+    switch (kind) {
+      case P2WPKH:
+      case P2SH_P2WPKH:
+        return Arrays.equals(child.getPubKeyHash(), program);
+      case P2WSH:
+        return indexOf(program, child.getPubKey()) >= 0;
+      case P2TR:
+        return Arrays.equals(schnorr.outputKey(child.getPubKeyPoint(), merkleRoot), program);
+      default:
+        return false;
+    }
+  }
+
+  /** "m/..." for a fingerprint||u32le* derivation value at offset, or null if it is another wallet's. */
+  private String ownPath(byte[] value, int offset) {
+    int len = value.length - offset;
+    if (len < 4 || len % 4 != 0) return null;
+    for (int i = 0; i < 4; i++) {
+      if (value[offset + i] != fingerprint[i]) return null;
+    }
+    ByteBuffer in = ByteBuffer.wrap(value, offset + 4, len - 4).order(ByteOrder.LITTLE_ENDIAN);
+    StringBuilder path = new StringBuilder("m");
+    while (in.hasRemaining()) {
+      int index = in.getInt();
+      path.append('/').append(index & 0x7fffffff);
+      if (index < 0) path.append('\'');
+    }
+    return path.toString();
+  }
+
+  /** BIP-174 finalizer: writes the final fields and drops everything signing-related. */
+  private static void finalizeInput(Psbt.KeyMap in, byte[] scriptSig, byte[][] witness) {
+    in.removeTypes(0x02, 0x03, 0x04, 0x05, 0x06, 0x09, 0x0a, 0x0b, 0x0c,
+      0x13, 0x14, 0x15, 0x16, 0x17, 0x18);
+    if (scriptSig != null) in.put(new byte[] {Psbt.IN_FINAL_SCRIPTSIG}, scriptSig);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    RawTx.writeWitness(out, witness);
+    in.put(new byte[] {Psbt.IN_FINAL_SCRIPTWITNESS}, out.toByteArray());
+  }
+
+  private static boolean isWitness(byte[] script, int version, int programLength) {
+    return script.length == programLength + 2 && (script[0] & 0xff) == version && script[1] == programLength;
+  }
+
+  /** BIP-143 scriptCode for a P2WPKH program: OP_DUP OP_HASH160 <20> OP_EQUALVERIFY OP_CHECKSIG. */
+  private static byte[] p2pkhScriptCode(byte[] keyHash) {
+    byte[] code = new byte[25];
+    code[0] = 0x76;
+    code[1] = (byte) 0xa9;
+    code[2] = 0x14;
+    System.arraycopy(keyHash, 0, code, 3, 20);
+    code[23] = (byte) 0x88;
+    code[24] = (byte) 0xac;
+    return code;
+  }
+
+  private static int indexOf(byte[] haystack, byte[] needle) {
+    outer:
+    for (int i = 0; i + needle.length <= haystack.length; i++) {
+      for (int j = 0; j < needle.length; j++) {
+        if (haystack[i + j] != needle[j]) continue outer;
+      }
+      return i;
+    }
+    return -1;
+  }
+
+  private static byte[] concat(byte[] a, byte[] b) {
+    byte[] out = Arrays.copyOf(a, a.length + b.length);
+    System.arraycopy(b, 0, out, a.length, b.length);
+    return out;
+  }
+}
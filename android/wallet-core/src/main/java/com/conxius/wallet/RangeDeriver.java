@@ -0,0 +1,132 @@
+package com.conxius.wallet;
+
+import org.bitcoinj.core.Utils;
+import org.bitcoinj.crypto.ChildNumber;
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bitcoinj.crypto.HDKeyDerivation;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Bulk non-hardened derivation under one chain node (account/chain, e.g. m/84'/0'/0'/0).
+ *
+ * Only the chain node's public key and chain code are used: every child is a
+ * public CKD (one fixed-base multiply + point add), independent of its siblings,
+ * so the index range is split across a ForkJoinPool. Results are packed back to
+ * back with a fixed stride so 2,000 keys cross the bridge as one string.
+ */
+final class RangeDeriver {
+  static final int MAX_COUNT = 10000;
+  private static final int SPLIT_THRESHOLD = 64;
+
+  enum Format {
+    PUBKEY(33),      // compressed SEC1
+    P2WPKH(22),      // OP_0 <20>
+    P2SH_P2WPKH(23), // OP_HASH160 <20> OP_EQUAL
+    P2PKH(25);       // OP_DUP OP_HASH160 <20> OP_EQUALVERIFY OP_CHECKSIG
+
+    final int stride;
+
+    Format(int stride) {
+      this.stride = stride;
+    }
+
+    static Format parse(String name) {
+      if (name == null) return PUBKEY;
+      switch (name) {
+        case "pubkey": return PUBKEY;
+        case "p2wpkh": return P2WPKH;
+        case "p2sh-p2wpkh": return P2SH_P2WPKH;
+        case "p2pkh": return P2PKH;
+        default: throw new IllegalArgumentException("Unsupported format: " + name);
+      }
+    }
+  }
+
+  private RangeDeriver() {}
+
+  /** Children start .. start+count-1 of chainNode, packed at format.stride bytes each. */
+  static byte[] derive(DeterministicKey chainNode, int start, int count, Format format, ForkJoinPool pool) {
+    if (start < 0 || count <= 0 || count > MAX_COUNT || (long) start + count > (1L << 31)) {
+      throw new IllegalArgumentException("Invalid range");
+    }
+    DeterministicKey parent = chainNode.dropPrivateBytes(); // public CKD only
+    byte[] out = new byte[count * format.stride];
+    pool.invoke(new Slice(parent, start, 0, count, format, out));
+    return out;
+  }
+
+  private static final class Slice extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    // Tasks never leave the process; the key is not Serializable
+    private final transient DeterministicKey parent;
+    private final int start;
+    private final int from;
+    private final int to;
+    private final Format format;
+    private final byte[] out;
+
+    Slice(DeterministicKey parent, int start, int from, int to, Format format, byte[] out) {
+      this.parent = parent;
+      this.start = start;
+      this.from = from;
+      this.to = to;
+      this.format = format;
+      this.out = out;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= SPLIT_THRESHOLD) {
+        for (int i = from; i < to; i++) {
+          byte[] pub = HDKeyDerivation.deriveChildKeyBytesFromPublic(
+            parent, new ChildNumber(start + i, false), HDKeyDerivation.PublicDeriveMode.NORMAL).keyBytes;
+          write(pub, format, out, i * format.stride);
+        }
+        return;
+      }
+      int mid = (from + to) >>> 1;
+      invokeAll(
+        new Slice(parent, start, from, mid, format, out),
+        new Slice(parent, start, mid, to, format, out)
+      );
+    }
+  }
+
+  private static void write(byte[] pub, Format format, byte[] out, int off) {
+    if (format == Format.PUBKEY) {
+      System.arraycopy(pub, 0, out, off, 33);
+      return;
+    }
+    byte[] keyHash = Utils.sha256hash160(pub);
+    switch (format) {
+      case P2WPKH:
+        out[off] = 0x00;
+        out[off + 1] = 0x14;
+        System.arraycopy(keyHash, 0, out, off + 2, 20);
+        break;
+      case P2SH_P2WPKH: {
+        byte[] redeem = new byte[22];
+        redeem[1] = 0x14;
+        System.arraycopy(keyHash, 0, redeem, 2, 20);
+        out[off] = (byte) 0xa9;
+        out[off + 1] = 0x14;
+        System.arraycopy(Utils.sha256hash160(redeem), 0, out, off + 2, 20);
+        out[off + 22] = (byte) 0x87;
+        break;
+      }
+      case P2PKH:
+        out[off] = 0x76;
+        out[off + 1] = (byte) 0xa9;
+        out[off + 2] = 0x14;
+        System.arraycopy(keyHash, 0, out, off + 3, 20);
+        out[off + 23] = (byte) 0x88;
+        out[off + 24] = (byte) 0xac;
+        break;
+      default:
+        throw new IllegalStateException();
+    }
+  }
+}
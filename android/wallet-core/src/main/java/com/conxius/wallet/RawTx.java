@@ -0,0 +1,204 @@
+package com.conxius.wallet;
+
+import org.bitcoinj.core.Sha256Hash;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal Bitcoin transaction codec for the PSBT engine: exactly the fields the
+ * sighash algorithms and the finalizer touch, (de)serialized byte for byte.
+ * All integers little-endian; prevTxid kept in wire (internal) byte order.
+ */
+final class RawTx {
+  static final class Input {
+    final byte[] prevTxid;
+    final long prevIndex;
+    byte[] scriptSig;
+    final long sequence;
+    byte[][] witness = new byte[0][];
+
+    Input(byte[] prevTxid, long prevIndex, byte[] scriptSig, long sequence) {
+      this.prevTxid = prevTxid;
+      this.prevIndex = prevIndex;
+      this.scriptSig = scriptSig;
+      this.sequence = sequence;
+    }
+  }
+
+  static final class Output {
+    final long value;
+    final byte[] script;
+
+    Output(long value, byte[] script) {
+      this.value = value;
+      this.script = script;
+    }
+
+    void writeTo(ByteArrayOutputStream out) {
+      writeUInt64(out, value);
+      writeVarBytes(out, script);
+    }
+
+    static Output read(ByteBuffer in) {
+      long value = in.getLong();
+      return new Output(value, readVarBytes(in));
+    }
+  }
+
+  final long version;
+  final List<Input> inputs;
+  final List<Output> outputs;
+  final long lockTime;
+
+  RawTx(long version, List<Input> inputs, List<Output> outputs, long lockTime) {
+    this.version = version;
+    this.inputs = inputs;
+    this.outputs = outputs;
+    this.lockTime = lockTime;
+  }
+
+  /** Parses legacy or BIP-144 (marker/flag + witnesses) serialization. */
+  static RawTx parse(byte[] data) {
+    ByteBuffer in = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+    long version = in.getInt() & 0xffffffffL;
+    boolean segwit = false;
+    long inCount = readVarInt(in);
+    if (inCount == 0) {
+      if ((in.get() & 0xff) != 1) throw new IllegalArgumentException("Bad segwit flag");
+      segwit = true;
+      inCount = readVarInt(in);
+    }
+    List<Input> inputs = new ArrayList<>();
+    for (long i = 0; i < inCount; i++) {
+      byte[] txid = new byte[32];
+      in.get(txid);
+      long index = in.getInt() & 0xffffffffL;
+      byte[] scriptSig = readVarBytes(in);
+      long sequence = in.getInt() & 0xffffffffL;
+      inputs.add(new Input(txid, index, scriptSig, sequence));
+    }
+    long outCount = readVarInt(in);
+    List<Output> outputs = new ArrayList<>();
+    for (long i = 0; i < outCount; i++) {
+      outputs.add(Output.read(in));
+    }
+    if (segwit) {
+      for (Input input : inputs) {
+        input.witness = readWitness(in);
+      }
+    }
+    long lockTime = in.getInt() & 0xffffffffL;
+    if (in.hasRemaining()) throw new IllegalArgumentException("Trailing bytes after transaction");
+    return new RawTx(version, inputs, outputs, lockTime);
+  }
+
+  boolean hasWitness() {
+    for (Input input : inputs) {
+      if (input.witness.length > 0) return true;
+    }
+    return false;
+  }
+
+  byte[] serialize(boolean withWitness) {
+    boolean segwit = withWitness && hasWitness();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeUInt32(out, version);
+    if (segwit) {
+      out.write(0);
+      out.write(1);
+    }
+    writeVarInt(out, inputs.size());
+    for (Input input : inputs) {
+      out.write(input.prevTxid, 0, 32);
+      writeUInt32(out, input.prevIndex);
+      writeVarBytes(out, input.scriptSig);
+      writeUInt32(out, input.sequence);
+    }
+    writeVarInt(out, outputs.size());
+    for (Output output : outputs) {
+      output.writeTo(out);
+    }
+    if (segwit) {
+      for (Input input : inputs) {
+        writeWitness(out, input.witness);
+      }
+    }
+    writeUInt32(out, lockTime);
+    return out.toByteArray();
+  }
+
+  /** txid in internal byte order (what outpoints reference). */
+  byte[] txid() {
+    return Sha256Hash.hashTwice(serialize(false));
+  }
+
+  static byte[][] readWitness(ByteBuffer in) {
+    long count = readVarInt(in);
+    // Every item takes at least its length byte; bounds the allocation by the input size
+    if (count > in.remaining()) throw new IllegalArgumentException("Witness count exceeds buffer");
+    int items = (int) count;
+    byte[][] witness = new byte[items][];
+    for (int i = 0; i < items; i++) {
+      witness[i] = readVarBytes(in);
+    }
+    return witness;
+  }
+
+  static void writeWitness(ByteArrayOutputStream out, byte[][] witness) {
+    writeVarInt(out, witness.length);
+    for (byte[] item : witness) {
+      writeVarBytes(out, item);
+    }
+  }
+
+  static long readVarInt(ByteBuffer in) {
+    int first = in.get() & 0xff;
+    if (first < 0xfd) return first;
+    if (first == 0xfd) return in.getShort() & 0xffffL;
+    if (first == 0xfe) return in.getInt() & 0xffffffffL;
+    long v = in.getLong();
+    if (v < 0) throw new IllegalArgumentException("VarInt too large");
+    return v;
+  }
+
+  static byte[] readVarBytes(ByteBuffer in) {
+    long len = readVarInt(in);
+    if (len > in.remaining()) throw new IllegalArgumentException("Length exceeds buffer");
+    byte[] out = new byte[(int) len];
+    in.get(out);
+    return out;
+  }
+
+  static void writeVarInt(ByteArrayOutputStream out, long v) {
+    if (v < 0xfd) {
+      out.write((int) v);
+    } else if (v <= 0xffff) {
+      out.write(0xfd);
+      out.write((int) v);
+      out.write((int) (v >>> 8));
+    } else if (v <= 0xffffffffL) {
+      out.write(0xfe);
+      writeUInt32(out, v);
+    } else {
+      out.write(0xff);
+      writeUInt64(out, v);
+    }
+  }
+
+  static void writeVarBytes(ByteArrayOutputStream out, byte[] data) {
+    writeVarInt(out, data.length);
+    out.write(data, 0, data.length);
+  }
+
+  static void writeUInt32(ByteArrayOutputStream out, long v) {
+    for (int i = 0; i < 4; i++) out.write((int) (v >>> (8 * i)));
+  }
+
+  static void writeUInt64(ByteArrayOutputStream out, long v) {
+    for (int i = 0; i < 8; i++) out.write((int) (v >>> (8 * i)));
+  }
+}
@@ -0,0 +1,184 @@
+package com.conxius.wallet;
+
+import org.bitcoinj.core.ECKey;
+import org.bouncycastle.math.ec.ECPoint;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * BIP-340 Schnorr signing, plain (Nostr) or with the BIP-341 TapTweak (Taproot key path).
+ *
+ * Every multiplication is by G and goes through one FixedBaseTable, so the plugin keeps a
+ * signer per unlocked session: a run of Taproot inputs or Nostr events pays for the table
+ * once. P comes from the derived key (bitcoinj already computed it), leaving one k*G per
+ * plain signature and two per tweaked one (t*G for the output key, k*G for R).
+ */
+final class SchnorrSigner {
+  private static final BigInteger N = ECKey.CURVE.getN();
+
+  private final FixedBaseTable table;
+  private final SecureRandom random;
+
+  SchnorrSigner(SecureRandom random) {
+    this(random, new FixedBaseTable());
+  }
+
+  SchnorrSigner(SecureRandom random, FixedBaseTable table) {
+    this.random = random;
+    this.table = table;
+  }
+
+  static final class Signature {
+    final byte[] sig;          // 64 bytes R.x || s
+    final byte[] pubkey;       // x-only key the signature verifies under
+    final byte[] internalKey;  // x-only untweaked key (tweaked signing only)
+
+    Signature(byte[] sig, byte[] pubkey, byte[] internalKey) {
+      this.sig = sig;
+      this.pubkey = pubkey;
+      this.internalKey = internalKey;
+    }
+  }
+
+  /** Plain BIP-340 over a 32-byte message. */
+  Signature sign(BigInteger d, ECPoint p, byte[] msg) {
+    return sign(d, p, msg, freshAux());
+  }
+
+  /** With caller-supplied auxiliary randomness (BIP-340 test vectors). */
+  Signature sign(BigInteger d, ECPoint p, byte[] msg, byte[] aux) {
+    return signInternal(d, p.normalize(), msg, null, aux);
+  }
+
+  private byte[] freshAux() {
+    byte[] aux = new byte[32];
+    random.nextBytes(aux);
+    return aux;
+  }
+
+  /**
+   * BIP-341 key-path: tweaks (d, P) by hash_TapTweak(P.x || merkleRoot) and signs with the
+   * output key. merkleRoot null means no script tree (BIP-86).
+   */
+  Signature signTweaked(BigInteger d, ECPoint p, byte[] msg, byte[] merkleRoot) {
+    if (merkleRoot != null && merkleRoot.length != 32) throw new IllegalArgumentException("merkleRoot must be 32 bytes");
+    p = p.normalize();
+    byte[] internalKey = xOnly(p);
+    if (!hasEvenY(p)) {
+      d = N.subtract(d);
+      p = p.negate().normalize();
+    }
+    BigInteger tweak = tapTweak(internalKey, merkleRoot);
+    ECPoint q = p.add(table.multiply(tweak)).normalize();
+    if (q.isInfinity()) throw new IllegalStateException("Tweaked key is infinity");
+    BigInteger tweaked = d.add(tweak).mod(N);
+    return signInternal(tweaked, q, msg, internalKey, freshAux());
+  }
+
+  /** x-only BIP-341 output key for internal key P, i.e. what a P2TR scriptPubKey commits to. */
+  byte[] outputKey(ECPoint p, byte[] merkleRoot) {
+    if (merkleRoot != null && merkleRoot.length != 32) throw new IllegalArgumentException("merkleRoot must be 32 bytes");
+    p = p.normalize();
+    if (!hasEvenY(p)) p = p.negate();
+    ECPoint q = p.add(table.multiply(tapTweak(xOnly(p), merkleRoot))).normalize();
+    if (q.isInfinity()) throw new IllegalStateException("Tweaked key is infinity");
+    return xOnly(q);
+  }
+
+  private static BigInteger tapTweak(byte[] internalKey, byte[] merkleRoot) {
+    byte[] t = merkleRoot == null
+      ? taggedHash("TapTweak", internalKey)
+      : taggedHash("TapTweak", internalKey, merkleRoot);
+    BigInteger tweak = new BigInteger(1, t);
+    if (tweak.compareTo(N) >= 0) throw new IllegalStateException("Tweak out of range");
+    return tweak;
+  }
+
+  private Signature signInternal(BigInteger d, ECPoint p, byte[] msg, byte[] internalKey, byte[] aux) {
+    if (msg.length != 32) throw new IllegalArgumentException("Message must be 32 bytes");
+    if (d.signum() <= 0 || d.compareTo(N) >= 0) throw new IllegalArgumentException("Invalid private key");
+    if (!hasEvenY(p)) d = N.subtract(d);
+    byte[] px = xOnly(p);
+    byte[] dBytes = toBytes32(d);
+
+    byte[] t = taggedHash("BIP0340/aux", aux);
+    for (int i = 0; i < 32; i++) t[i] ^= dBytes[i];
+    byte[] rand = taggedHash("BIP0340/nonce", t, px, msg);
+    Arrays.fill(t, (byte) 0);
+    Arrays.fill(dBytes, (byte) 0);
+
+    BigInteger k = new BigInteger(1, rand).mod(N);
+    Arrays.fill(rand, (byte) 0);
+    if (k.signum() == 0) throw new IllegalStateException("Nonce is zero");
+    ECPoint r = table.multiply(k);
+    if (!hasEvenY(r)) k = N.subtract(k);
+    byte[] rx = xOnly(r);
+    BigInteger e = new BigInteger(1, taggedHash("BIP0340/challenge", rx, px, msg)).mod(N);
+    BigInteger s = k.add(e.multiply(d)).mod(N);
+
+    byte[] sig = new byte[64];
+    System.arraycopy(rx, 0, sig, 0, 32);
+    System.arraycopy(toBytes32(s), 0, sig, 32, 32);
+    return new Signature(sig, px, internalKey);
+  }
+
+  /** BIP-340 verification (generic multiplication; used by tests and callers that want it). */
+  static boolean verify(byte[] pubkey, byte[] msg, byte[] sig) {
+    if (pubkey.length != 32 || msg.length != 32 || sig.length != 64) return false;
+    ECPoint p = liftX(pubkey);
+    if (p == null) return false;
+    BigInteger r = new BigInteger(1, Arrays.copyOfRange(sig, 0, 32));
+    BigInteger s = new BigInteger(1, Arrays.copyOfRange(sig, 32, 64));
+    if (r.compareTo(ECKey.CURVE.getCurve().getField().getCharacteristic()) >= 0 || s.compareTo(N) >= 0) return false;
+    BigInteger e = new BigInteger(1, taggedHash("BIP0340/challenge", Arrays.copyOfRange(sig, 0, 32), pubkey, msg)).mod(N);
+    ECPoint rPoint = ECKey.CURVE.getG().multiply(s).add(p.multiply(N.subtract(e))).normalize();
+    return !rPoint.isInfinity() && hasEvenY(rPoint) && rPoint.getAffineXCoord().toBigInteger().equals(r);
+  }
+
+  /** Point with even y and the given x, or null if x is not on the curve. */
+  static ECPoint liftX(byte[] x) {
+    byte[] compressed = new byte[33];
+    compressed[0] = 0x02;
+    System.arraycopy(x, 0, compressed, 1, 32);
+    try {
+      return ECKey.CURVE.getCurve().decodePoint(compressed).normalize();
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  static byte[] xOnly(ECPoint p) {
+    return toBytes32(p.normalize().getAffineXCoord().toBigInteger());
+  }
+
+  static boolean hasEvenY(ECPoint p) {
+    return !p.normalize().getAffineYCoord().testBitZero();
+  }
+
+  static byte[] toBytes32(BigInteger v) {
+    byte[] raw = v.toByteArray();
+    byte[] out = new byte[32];
+    int copy = Math.min(raw.length, 32);
+    System.arraycopy(raw, raw.length - copy, out, 32 - copy, copy);
+    return out;
+  }
+
+  /** SHA256(SHA256(tag) || SHA256(tag) || parts...) */
+  static byte[] taggedHash(String tag, byte[]... parts) {
+    try {
+      MessageDigest sha = MessageDigest.getInstance("SHA-256");
+      byte[] tagHash = sha.digest(tag.getBytes(StandardCharsets.UTF_8));
+      sha.update(tagHash);
+      sha.update(tagHash);
+      for (byte[] part : parts) sha.update(part);
+      return sha.digest();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package com.conxius.wallet;
+
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bitcoinj.crypto.HDPath;
+import org.bitcoinj.crypto.LazyECPoint;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Holds the BIP32 master key of the unlocked vault for the lifetime of the
+ * enclave session, so signing and derivation skip the per-call AES-GCM decrypt.
+ *
+ * The key lives in one direct (off-heap) buffer that the GC never moves or copies:
+ *   privKey (32) | chainCode (32) | compressed pubKey (33)
+ * wipe() zeroes it in place. Heap copies handed to bitcoinj are zeroed right after
+ * the DeterministicKey is built.
+ */
+final class SessionSeed {
+  private static final int PRIV_LEN = 32;
+  private static final int CHAIN_LEN = 32;
+  private static final int PUB_LEN = 33;
+  private static final int SIZE = PRIV_LEN + CHAIN_LEN + PUB_LEN;
+
+  private final ByteBuffer master = ByteBuffer.allocateDirect(SIZE);
+  private byte[] salt = null;
+  private long expiresAtMs = 0;
+  private String fingerprintHex = null;
+
+  synchronized void hold(byte[] salt, DeterministicKey masterKey, long expiresAtMs) {
+    byte[] priv = masterKey.getPrivKeyBytes();
+    try {
+      master.clear();
+      // getChainCode() is the key's own array, not a copy: read it, never wipe it
+      master.put(priv).put(masterKey.getChainCode()).put(masterKey.getPubKey());
+    } finally {
+      Arrays.fill(priv, (byte) 0);
+    }
+    this.salt = salt.clone();
+    this.expiresAtMs = expiresAtMs;
+    this.fingerprintHex = fingerprintOf(masterKey);
+  }
+
+  /** True while a non-expired session is held. Expired sessions are wiped here. */
+  synchronized boolean isActive() {
+    if (salt == null) return false;
+    if (System.currentTimeMillis() >= expiresAtMs) {
+      wipe();
+      return false;
+    }
+    return true;
+  }
+
+  synchronized boolean matches(byte[] otherSalt) {
+    return isActive() && Arrays.equals(salt, otherSalt);
+  }
+
+  /** BIP32 master fingerprint of the held vault; identifies it without touching the key. */
+  synchronized String fingerprintHex() {
+    if (!isActive()) throw new IllegalStateException("Session expired. Unlock required.");
+    return fingerprintHex;
+  }
+
+  static String fingerprintOf(DeterministicKey master) {
+    return String.format("%08x", master.getFingerprint());
+  }
+
+  synchronized long expiresAtMs() {
+    return expiresAtMs;
+  }
+
+  /** Rebuilds the master key for salt, or throws if the session was wiped in the meantime. */
+  synchronized DeterministicKey masterKey(byte[] forSalt) {
+    if (!matches(forSalt)) {
+      throw new IllegalStateException("Session expired. Unlock required.");
+    }
+    byte[] priv = new byte[PRIV_LEN];
+    byte[] chainCode = new byte[CHAIN_LEN];
+    byte[] pub = new byte[PUB_LEN];
+    ByteBuffer view = master.duplicate();
+    view.clear();
+    view.get(priv).get(chainCode).get(pub);
+    try {
+      return new DeterministicKey(
+        HDPath.m(),
+        chainCode.clone(), // DeterministicKey keeps this reference
+        new LazyECPoint(ECKey.CURVE.getCurve(), pub),
+        new BigInteger(1, priv),
+        null
+      );
+    } finally {
+      Arrays.fill(priv, (byte) 0);
+      Arrays.fill(chainCode, (byte) 0);
+    }
+  }
+
+  synchronized void wipe() {
+    master.clear();
+    while (master.hasRemaining()) master.put((byte) 0);
+    master.clear();
+    salt = null;
+    expiresAtMs = 0;
+    fingerprintHex = null;
+  }
+}
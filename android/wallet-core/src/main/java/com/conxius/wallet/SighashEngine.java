@@ -0,0 +1,183 @@
+package com.conxius.wallet;
+
+import org.bitcoinj.core.Sha256Hash;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * BIP-143 (segwit v0) and BIP-341 (taproot key path) signature hashes for one transaction.
+ *
+ * The per-transaction parts (prevouts, sequences, outputs, amounts, scriptPubKeys) are hashed
+ * once, on first use, and shared by every input. BIP-143's double hashes are SHA256 of the
+ * BIP-341 single hashes, so both algorithms use the same midstates and an input only hashes
+ * its own ~200-byte preimage.
+ */
+final class SighashEngine {
+  static final int SIGHASH_DEFAULT = 0x00;
+  static final int SIGHASH_ALL = 0x01;
+  static final int SIGHASH_NONE = 0x02;
+  static final int SIGHASH_SINGLE = 0x03;
+  static final int SIGHASH_ANYONECANPAY = 0x80;
+
+  private final RawTx tx;
+  private final RawTx.Output[] spent;
+
+  private byte[] shaPrevouts;
+  private byte[] shaSequences;
+  private byte[] shaOutputs;
+  private byte[] shaAmounts;
+  private byte[] shaScriptPubKeys;
+
+  /** spent[i] is the output input i spends; taproot hashes need all of them. */
+  SighashEngine(RawTx tx, RawTx.Output[] spent) {
+    this.tx = tx;
+    this.spent = spent;
+  }
+
+  private byte[] shaPrevouts() {
+    if (shaPrevouts == null) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream(tx.inputs.size() * 36);
+      for (RawTx.Input input : tx.inputs) writeOutpoint(out, input);
+      shaPrevouts = Sha256Hash.hash(out.toByteArray());
+    }
+    return shaPrevouts;
+  }
+
+  private byte[] shaSequences() {
+    if (shaSequences == null) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream(tx.inputs.size() * 4);
+      for (RawTx.Input input : tx.inputs) RawTx.writeUInt32(out, input.sequence);
+      shaSequences = Sha256Hash.hash(out.toByteArray());
+    }
+    return shaSequences;
+  }
+
+  private byte[] shaOutputs() {
+    if (shaOutputs == null) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      for (RawTx.Output output : tx.outputs) output.writeTo(out);
+      shaOutputs = Sha256Hash.hash(out.toByteArray());
+    }
+    return shaOutputs;
+  }
+
+  private byte[] shaAmounts() {
+    if (shaAmounts == null) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream(spent.length * 8);
+      for (RawTx.Output output : requireAllSpent()) RawTx.writeUInt64(out, output.value);
+      shaAmounts = Sha256Hash.hash(out.toByteArray());
+    }
+    return shaAmounts;
+  }
+
+  private byte[] shaScriptPubKeys() {
+    if (shaScriptPubKeys == null) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      for (RawTx.Output output : requireAllSpent()) RawTx.writeVarBytes(out, output.script);
+      shaScriptPubKeys = Sha256Hash.hash(out.toByteArray());
+    }
+    return shaScriptPubKeys;
+  }
+
+  private RawTx.Output[] requireAllSpent() {
+    for (RawTx.Output output : spent) {
+      if (output == null) throw new IllegalArgumentException("Taproot signing needs the UTXO of every input");
+    }
+    return spent;
+  }
+
+  private static byte[] singleOutputHash(RawTx.Output output) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    output.writeTo(out);
+    return Sha256Hash.hash(out.toByteArray());
+  }
+
+  /** BIP-143 digest for input index spending amount under scriptCode. */
+  byte[] segwitV0(int index, byte[] scriptCode, long amount, int hashType) {
+    int base = hashType & 0x1f;
+    boolean anyoneCanPay = (hashType & SIGHASH_ANYONECANPAY) != 0;
+    byte[] zero = new byte[32];
+
+    byte[] hashPrevouts = anyoneCanPay ? zero : Sha256Hash.hash(shaPrevouts());
+    byte[] hashSequence = anyoneCanPay || base == SIGHASH_SINGLE || base == SIGHASH_NONE
+      ? zero : Sha256Hash.hash(shaSequences());
+    byte[] hashOutputs;
+    if (base != SIGHASH_SINGLE && base != SIGHASH_NONE) {
+      hashOutputs = Sha256Hash.hash(shaOutputs());
+    } else if (base == SIGHASH_SINGLE && index < tx.outputs.size()) {
+      hashOutputs = Sha256Hash.hash(singleOutputHash(tx.outputs.get(index)));
+    } else {
+      hashOutputs = zero;
+    }
+
+    RawTx.Input input = tx.inputs.get(index);
+    ByteArrayOutputStream out = new ByteArrayOutputStream(156 + scriptCode.length);
+    RawTx.writeUInt32(out, tx.version);
+    out.write(hashPrevouts, 0, 32);
+    out.write(hashSequence, 0, 32);
+    writeOutpoint(out, input);
+    RawTx.writeVarBytes(out, scriptCode);
+    RawTx.writeUInt64(out, amount);
+    RawTx.writeUInt32(out, input.sequence);
+    out.write(hashOutputs, 0, 32);
+    RawTx.writeUInt32(out, tx.lockTime);
+    RawTx.writeUInt32(out, hashType & 0xffffffffL);
+    return Sha256Hash.hashTwice(out.toByteArray());
+  }
+
+  /** BIP-341 key-path digest (no annex) for input index. */
+  byte[] taprootKeyPath(int index, int hashType) {
+    if (!(hashType <= 0x03 || (hashType >= 0x81 && hashType <= 0x83))) {
+      throw new IllegalArgumentException("Invalid taproot sighash type");
+    }
+    int base = hashType & 0x03;
+    boolean anyoneCanPay = (hashType & SIGHASH_ANYONECANPAY) != 0;
+    if (base == SIGHASH_SINGLE && index >= tx.outputs.size()) {
+      throw new IllegalArgumentException("SIGHASH_SINGLE without matching output");
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream(206);
+    out.write(0x00); // epoch
+    out.write(hashType);
+    RawTx.writeUInt32(out, tx.version);
+    RawTx.writeUInt32(out, tx.lockTime);
+    if (!anyoneCanPay) {
+      out.write(shaPrevouts(), 0, 32);
+      out.write(shaAmounts(), 0, 32);
+      out.write(shaScriptPubKeys(), 0, 32);
+      out.write(shaSequences(), 0, 32);
+    }
+    if (base != SIGHASH_NONE && base != SIGHASH_SINGLE) {
+      out.write(shaOutputs(), 0, 32);
+    }
+    out.write(0x00); // spend_type: key path, no annex
+    if (anyoneCanPay) {
+      RawTx.Input input = tx.inputs.get(index);
+      RawTx.Output prev = spent[index];
+      if (prev == null) throw new IllegalArgumentException("Missing UTXO for input " + index);
+      writeOutpoint(out, input);
+      RawTx.writeUInt64(out, prev.value);
+      RawTx.writeVarBytes(out, prev.script);
+      RawTx.writeUInt32(out, input.sequence);
+    } else {
+      RawTx.writeUInt32(out, index);
+    }
+    if (base == SIGHASH_SINGLE) {
+      out.write(singleOutputHash(tx.outputs.get(index)), 0, 32);
+    }
+    return SchnorrSigner.taggedHash("TapSighash", out.toByteArray());
+  }
+
+  private static void writeOutpoint(ByteArrayOutputStream out, RawTx.Input input) {
+    out.write(input.prevTxid, 0, 32);
+    RawTx.writeUInt32(out, input.prevIndex);
+  }
+
+  /** Reads a PSBT_IN_SIGHASH_TYPE value (u32 LE). */
+  static int readHashType(byte[] value) {
+    if (value.length != 4) throw new IllegalArgumentException("Bad sighash type");
+    return ByteBuffer.wrap(value).order(ByteOrder.LITTLE_ENDIAN).getInt();
+  }
+}
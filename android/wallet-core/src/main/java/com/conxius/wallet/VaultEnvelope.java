@@ -0,0 +1,201 @@
+package com.conxius.wallet;
+
+import org.bouncycastle.util.encoders.Base64;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Shared codec for the seed vault written by seed.ts.
+ *
+ * v1: JSON "{ v:1, salt:[...], iv:[...], data:[...] }" (one JSON number per byte)
+ * v2: Base64 of  'C' 'X' 0x02 | saltLen u8 | ivLen u8 | salt | iv | ciphertext
+ * v3: Base64 of  'C' 'X' 0x03 | kdf u8 | iterations u32 BE | saltLen u8 | ivLen u8 | salt | iv | ciphertext
+ *
+ * v1/v2 always used PBKDF2-SHA256 x 200000; v3 records the device-calibrated
+ * cost (see KdfCalibrator) so decrypt reads it from the header. A v3 cost outside
+ * KdfCalibrator's [MIN_ITERATIONS, MAX_ITERATIONS] is rejected, so a forged header
+ * can neither weaken the KDF nor stall the unlock.
+ *
+ * Both are parsed into a single backing array; salt, iv and ciphertext are
+ * ByteBuffer slices over it, so decrypting does not copy the ciphertext again.
+ */
+final class VaultEnvelope {
+  static final int GCM_TAG_BITS = 128;
+  static final int KDF_ITERATIONS = 200000; // fixed cost of v1/v2 vaults
+  static final int KDF_PBKDF2_SHA256 = 1;
+  private static final int SALT_LEN = 16;
+  private static final int IV_LEN = 12;
+  private static final byte MAGIC_0 = 'C';
+  private static final byte MAGIC_1 = 'X';
+  private static final int V2_HEADER_LEN = 5;
+  private static final int V3_HEADER_LEN = 10;
+
+  final int version;
+  final int iterations;
+  private final ByteBuffer salt;
+  private final ByteBuffer iv;
+  private final ByteBuffer data;
+
+  private VaultEnvelope(int version, int iterations, byte[] backing, int saltOff, int saltLen, int ivOff, int ivLen, int dataOff, int dataLen) {
+    this.version = version;
+    this.iterations = iterations;
+    this.salt = ByteBuffer.wrap(backing, saltOff, saltLen).slice();
+    this.iv = ByteBuffer.wrap(backing, ivOff, ivLen).slice();
+    this.data = ByteBuffer.wrap(backing, dataOff, dataLen).slice();
+  }
+
+  static VaultEnvelope parse(String vault) throws Exception {
+    String trimmed = vault.trim();
+    if (trimmed.startsWith("{")) {
+      return parseV1(new JSONObject(trimmed));
+    }
+    return parseBinary(Base64.decode(trimmed));
+  }
+
+  private static VaultEnvelope parseV1(JSONObject envelope) throws Exception {
+    int v = envelope.getInt("v");
+    if (v != 1) throw new IllegalArgumentException("Unknown vault version");
+
+    JSONArray saltJson = envelope.getJSONArray("salt");
+    JSONArray ivJson = envelope.getJSONArray("iv");
+    JSONArray dataJson = envelope.getJSONArray("data");
+
+    int saltLen = saltJson.length();
+    int ivLen = ivJson.length();
+    int dataLen = dataJson.length();
+    byte[] backing = new byte[saltLen + ivLen + dataLen];
+    int pos = 0;
+    for (int i = 0; i < saltLen; i++) backing[pos++] = (byte) saltJson.getInt(i);
+    for (int i = 0; i < ivLen; i++) backing[pos++] = (byte) ivJson.getInt(i);
+    for (int i = 0; i < dataLen; i++) backing[pos++] = (byte) dataJson.getInt(i);
+
+    return new VaultEnvelope(1, KDF_ITERATIONS, backing, 0, saltLen, saltLen, ivLen, saltLen + ivLen, dataLen);
+  }
+
+  private static VaultEnvelope parseBinary(byte[] raw) {
+    if (raw.length < V2_HEADER_LEN || raw[0] != MAGIC_0 || raw[1] != MAGIC_1) {
+      throw new IllegalArgumentException("Invalid vault encoding");
+    }
+    int v = raw[2] & 0xff;
+    int iterations = KDF_ITERATIONS;
+    int headerLen;
+    if (v == 2) {
+      headerLen = V2_HEADER_LEN;
+    } else if (v == 3) {
+      if (raw.length < V3_HEADER_LEN) throw new IllegalArgumentException("Truncated vault");
+      if ((raw[3] & 0xff) != KDF_PBKDF2_SHA256) throw new IllegalArgumentException("Unknown vault KDF");
+      iterations = ByteBuffer.wrap(raw, 4, 4).getInt();
+      if (!validIterations(iterations)) throw new IllegalArgumentException("Invalid vault KDF cost");
+      headerLen = V3_HEADER_LEN;
+    } else {
+      throw new IllegalArgumentException("Unknown vault version");
+    }
+
+    int saltLen = raw[headerLen - 2] & 0xff;
+    int ivLen = raw[headerLen - 1] & 0xff;
+    int saltOff = headerLen;
+    int ivOff = saltOff + saltLen;
+    int dataOff = ivOff + ivLen;
+    if (dataOff > raw.length) throw new IllegalArgumentException("Truncated vault");
+
+    return new VaultEnvelope(v, iterations, raw, saltOff, saltLen, ivOff, ivLen, dataOff, raw.length - dataOff);
+  }
+
+  /** v1/v2 predate calibration and carry no KDF parameters. */
+  boolean hasKdfParams() {
+    return version >= 3;
+  }
+
+  static boolean validIterations(int iterations) {
+    return iterations >= KdfCalibrator.MIN_ITERATIONS && iterations <= KdfCalibrator.MAX_ITERATIONS;
+  }
+
+  /**
+   * Encrypts seed into a fresh v3 vault (new salt and iv) costed at iterations.
+   * Readable by seed.ts decryptSeed as well as parse().
+   */
+  static String seal(byte[] seed, String pin, int iterations, SecureRandom random) throws Exception {
+    byte[] salt = new byte[SALT_LEN];
+    random.nextBytes(salt);
+    return seal(seed, pin, iterations, salt, random);
+  }
+
+  /**
+   * Re-encrypts this vault's seed as v3 at iterations, keeping the salt (new iv).
+   * The salt identifies the vault to an unlocked session, so a rewrap made while
+   * unlocked stays usable without a PIN.
+   */
+  String reseal(byte[] seed, String pin, int iterations, SecureRandom random) throws Exception {
+    return seal(seed, pin, iterations, salt(), random);
+  }
+
+  private static String seal(byte[] seed, String pin, int iterations, byte[] salt, SecureRandom random) throws Exception {
+    if (!validIterations(iterations)) throw new IllegalArgumentException("Invalid vault KDF cost");
+    byte[] iv = new byte[IV_LEN];
+    random.nextBytes(iv);
+
+    byte[] keyBytes = pbkdf2(pin, salt, iterations);
+    byte[] ciphertext;
+    try {
+      Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+      cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(keyBytes, "AES"), new GCMParameterSpec(GCM_TAG_BITS, iv));
+      ciphertext = cipher.doFinal(seed);
+    } finally {
+      Arrays.fill(keyBytes, (byte) 0);
+    }
+
+    ByteBuffer out = ByteBuffer.allocate(V3_HEADER_LEN + salt.length + IV_LEN + ciphertext.length);
+    out.put(MAGIC_0).put(MAGIC_1).put((byte) 3).put((byte) KDF_PBKDF2_SHA256).putInt(iterations);
+    out.put((byte) salt.length).put((byte) IV_LEN).put(salt).put(iv).put(ciphertext);
+    return Base64.toBase64String(out.array());
+  }
+
+  /** Copy of the salt; PBEKeySpec and the session cache need their own array. */
+  byte[] salt() {
+    byte[] out = new byte[salt.remaining()];
+    salt.duplicate().get(out);
+    return out;
+  }
+
+  boolean saltEquals(byte[] other) {
+    return other != null && salt.equals(ByteBuffer.wrap(other));
+  }
+
+  /** PBKDF2WithHmacSHA256 -> 256 bit AES key, matching seed.ts. Cost comes from the header. */
+  SecretKey deriveKey(String pin) throws Exception {
+    byte[] keyBytes = pbkdf2(pin, salt(), iterations);
+    try {
+      return new SecretKeySpec(keyBytes, "AES"); // copies keyBytes
+    } finally {
+      Arrays.fill(keyBytes, (byte) 0);
+    }
+  }
+
+  static byte[] pbkdf2(String pin, byte[] salt, int iterations) throws Exception {
+    SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+    PBEKeySpec spec = new PBEKeySpec(pin.toCharArray(), salt, iterations, 256);
+    try {
+      return factory.generateSecret(spec).getEncoded();
+    } finally {
+      spec.clearPassword();
+    }
+  }
+
+  /** AES-GCM decrypt of the ciphertext slice; caller owns (and must wipe) the result. */
+  byte[] decrypt(SecretKey key) throws Exception {
+    Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+    cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, iv.array(), iv.arrayOffset(), iv.remaining()));
+    return cipher.doFinal(data.array(), data.arrayOffset(), data.remaining());
+  }
+}
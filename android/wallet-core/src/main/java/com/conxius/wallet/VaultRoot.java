@@ -0,0 +1,79 @@
+package com.conxius.wallet;
+
+import org.bitcoinj.crypto.DeterministicKey;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.crypto.SecretKey;
+
+/**
+ * Lazily resolves the BIP32 master key, at most once per call.
+ * With an explicit PIN key the vault is decrypted and the seed buffer wiped as soon
+ * as the master key is built; without one (key == null) the unlocked session's
+ * off-heap master key is used and nothing is decrypted.
+ *
+ * A PIN call always decrypts, even while the session cache could answer the path:
+ * the AES-GCM tag is the only thing that checks the PIN, so skipping the decrypt
+ * would accept any PIN for as long as a session is unlocked.
+ */
+final class VaultRoot implements DerivationCache.RootLoader {
+  private final SecretKey key;
+  private final VaultEnvelope envelope;
+  private final SessionSeed sessionSeed;
+  private final PluginMetrics metrics;
+  private DeterministicKey rootKey = null;
+
+  VaultRoot(SecretKey key, VaultEnvelope envelope, SessionSeed sessionSeed, PluginMetrics metrics) {
+    this.key = key;
+    this.envelope = envelope;
+    this.sessionSeed = sessionSeed;
+    this.metrics = metrics;
+  }
+
+  /** True when the master key comes from the unlocked session (no PIN given). */
+  boolean usesSession() {
+    return key == null;
+  }
+
+  @Override
+  public synchronized DeterministicKey load() throws Exception { // shared by parallel branches
+    if (rootKey != null) return rootKey;
+    if (key == null) {
+      rootKey = sessionSeed.masterKey(envelope.salt());
+      return rootKey;
+    }
+    long decryptStart = System.nanoTime();
+    byte[] seed = envelope.decrypt(key);
+    metrics.phase(PluginMetrics.Phase.DECRYPT, decryptStart);
+    try {
+      rootKey = KeyDerivation.masterKeyFromSeed(seed);
+      return rootKey;
+    } finally {
+      Arrays.fill(seed, (byte)0);
+    }
+  }
+
+  /**
+   * Resolves the root up front when the call will need it: always for a PIN (verifies
+   * it), and without one unless the session cache covers this vault. Callers use it to
+   * fail a bad PIN or corrupt vault once, before fanning out over many paths.
+   */
+  void prepare(DerivationCache cache) throws Exception {
+    if (key != null || !cache.isActive(envelope.salt())) load();
+  }
+
+  /**
+   * Derives path for this vault: from the session cache's deepest known ancestor while
+   * it is live for the vault's salt, otherwise by a walk from the master key (sharing
+   * parents if non-null).
+   */
+  DeterministicKey derive(DerivationCache cache, String path, Map<String, DeterministicKey> parents) throws Exception {
+    if (key != null) load();
+    byte[] salt = envelope.salt();
+    if (cache.isActive(salt)) {
+      return cache.derive(salt, path, this);
+    }
+    return KeyDerivation.deriveFromPath(load(), path, parents);
+  }
+}
@@ -0,0 +1,52 @@
+package com.conxius.wallet;
+
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.Sha256Hash;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class BatchVerifierTest {
+  private final SecureRandom random = new SecureRandom();
+  private final SchnorrSigner schnorr = new SchnorrSigner(random);
+
+  private BatchVerifier.Item item(int i, boolean valid) {
+    BigInteger d = BigInteger.valueOf(1000 + i);
+    byte[] msg = Sha256Hash.hash(ByteBuffer.allocate(4).putInt(i).array());
+    byte[] signed = valid ? msg : Sha256Hash.hash(msg);
+    if (i % 2 == 0) {
+      ECKey key = ECKey.fromPrivate(d);
+      byte[] der = key.sign(Sha256Hash.wrap(signed)).encodeToDER();
+      return new BatchVerifier.Item(BatchVerifier.Scheme.ECDSA, key.getPubKey(), msg, der);
+    }
+    SchnorrSigner.Signature sig = schnorr.sign(d, ECKey.publicPointFromPrivate(d), signed);
+    return new BatchVerifier.Item(BatchVerifier.Scheme.SCHNORR, sig.pubkey, msg, sig.sig);
+  }
+
+  @Test
+  public void bitmapMarksExactlyTheValidItems() {
+    int n = 150; // more than one fork-join slice
+    BatchVerifier.Item[] items = new BatchVerifier.Item[n];
+    for (int i = 0; i < n; i++) items[i] = item(i, i % 7 != 3);
+    byte[] bitmap = BatchVerifier.verify(items, ForkJoinPool.commonPool(), random);
+    assertEquals((n + 7) / 8, bitmap.length);
+    for (int i = 0; i < n; i++) {
+      boolean bit = (bitmap[i >>> 3] & (1 << (i & 7))) != 0;
+      assertEquals("item " + i, i % 7 != 3, bit);
+    }
+  }
+
+  @Test
+  public void malformedItemsAreInvalidNotErrors() {
+    BatchVerifier.Item[] items = {
+      new BatchVerifier.Item(BatchVerifier.Scheme.SCHNORR, new byte[31], new byte[32], new byte[64]),
+      new BatchVerifier.Item(BatchVerifier.Scheme.ECDSA, new byte[33], new byte[32], new byte[] {0x30, 1, 2}),
+    };
+    assertArrayEquals(new byte[] {0}, BatchVerifier.verify(items, ForkJoinPool.commonPool(), random));
+  }
+}
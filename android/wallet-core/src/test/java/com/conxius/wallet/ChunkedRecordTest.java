@@ -0,0 +1,112 @@
+package com.conxius.wallet;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.AEADBadTagException;
+
+import static org.junit.Assert.*;
+
+public class ChunkedRecordTest {
+  private static final int CHUNK = ChunkedRecord.DEFAULT_CHUNK_SIZE;
+  private static final int TAG = 16;
+
+  private final SecureRandom random = new SecureRandom();
+  private final byte[] dek = new byte[ChunkedRecord.DEK_BYTES];
+  // Stand-in for the Keystore-wrapped data key; the record only carries it
+  private final ItemRecord wrappedKey = new ItemRecord(1, new byte[12], new byte[ChunkedRecord.DEK_BYTES + TAG]);
+
+  private static String ascii(int n) {
+    char[] out = new char[n];
+    for (int i = 0; i < n; i++) out[i] = (char) ('a' + i % 26);
+    return new String(out);
+  }
+
+  private ByteBuffer seal(String value) throws Exception {
+    ChunkedRecord record = ChunkedRecord.create(wrappedKey, ChunkedRecord.utf8Length(value), random);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    record.write(out, dek, value);
+    assertEquals(record.encodedLength(), out.size());
+    return ByteBuffer.wrap(out.toByteArray());
+  }
+
+  /** Offset of segment index in an encoded record. */
+  private static int segmentOffset(ChunkedRecord record, int index) {
+    int headerLen = record.encodedLength() - record.length - record.segmentCount() * TAG;
+    return headerLen + index * (CHUNK + TAG);
+  }
+
+  @Test
+  public void roundTripsAroundChunkBoundaries() throws Exception {
+    for (int n : new int[] {0, 1, CHUNK - 1, CHUNK, CHUNK + 1, 2 * CHUNK, 2 * CHUNK + 7}) {
+      String value = ascii(n);
+      ByteBuffer record = seal(value);
+      ChunkedRecord parsed = ChunkedRecord.parse(record);
+      assertEquals(Math.max(1, (n + CHUNK - 1) / CHUNK), parsed.segmentCount());
+      assertEquals("length " + n, value, parsed.decrypt(dek, record));
+    }
+  }
+
+  @Test
+  public void multiByteCharAcrossSegmentBoundary() throws Exception {
+    // "é" is two UTF-8 bytes: the last byte of segment 0 and the first of segment 1
+    String value = ascii(CHUNK - 1) + "é" + ascii(10);
+    ByteBuffer record = seal(value);
+    ChunkedRecord parsed = ChunkedRecord.parse(record);
+    assertEquals(2, parsed.segmentCount());
+    assertEquals(value, parsed.decrypt(dek, record));
+    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+    assertArrayEquals(Arrays.copyOfRange(utf8, CHUNK - 3, CHUNK + 3), parsed.decryptRange(dek, record, CHUNK - 3, 6));
+  }
+
+  @Test
+  public void tamperedSegmentFailsOnlyReadsThatTouchIt() throws Exception {
+    String value = ascii(2 * CHUNK + 100);
+    ByteBuffer record = seal(value);
+    ChunkedRecord parsed = ChunkedRecord.parse(record);
+    record.array()[segmentOffset(parsed, 1) + 5] ^= 1;
+    try {
+      parsed.decrypt(dek, record);
+      fail("a flipped ciphertext bit must fail the whole read");
+    } catch (AEADBadTagException expected) {
+      // GCM tag of segment 1
+    }
+    try {
+      parsed.decryptRange(dek, record, CHUNK + 10, 10);
+      fail("a range in the tampered segment must fail");
+    } catch (AEADBadTagException expected) {
+      // GCM tag of segment 1
+    }
+    assertEquals(value.substring(0, 10), new String(parsed.decryptRange(dek, record, 0, 10), StandardCharsets.US_ASCII));
+  }
+
+  @Test
+  public void reorderedSegmentsFail() throws Exception {
+    ByteBuffer record = seal(ascii(3 * CHUNK));
+    ChunkedRecord parsed = ChunkedRecord.parse(record);
+    byte[] raw = record.array();
+    int a = segmentOffset(parsed, 0);
+    int b = segmentOffset(parsed, 1);
+    byte[] first = Arrays.copyOfRange(raw, a, a + CHUNK + TAG);
+    System.arraycopy(raw, b, raw, a, CHUNK + TAG);
+    System.arraycopy(first, 0, raw, b, CHUNK + TAG);
+    try {
+      parsed.decrypt(dek, record);
+      fail("the segment index is in the nonce, so swapped segments must not open");
+    } catch (AEADBadTagException expected) {
+      // nonce mismatch
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void truncatedRecordIsRejected() throws Exception {
+    byte[] raw = seal(ascii(CHUNK + 1)).array();
+    ChunkedRecord.parse(ByteBuffer.wrap(raw, 0, raw.length - TAG));
+  }
+}
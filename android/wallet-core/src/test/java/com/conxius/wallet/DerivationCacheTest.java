@@ -0,0 +1,82 @@
+package com.conxius.wallet;
+
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DerivationCacheTest {
+  private static final byte[] SALT = Hex.decode("00112233445566778899aabbccddeeff");
+  private static final DeterministicKey MASTER = KeyDerivation.masterKeyFromSeed(Hex.decode("000102030405060708090a0b0c0d0e0f"));
+  private static final String PATH = "m/84'/0'/0'/0/0";
+
+  private final DerivationCache cache = new DerivationCache();
+  private int loads = 0;
+  private final DerivationCache.RootLoader loader = () -> {
+    loads++;
+    return MASTER;
+  };
+
+  private static long later() {
+    return System.currentTimeMillis() + 60_000;
+  }
+
+  @Test
+  public void cachedAncestorsMatchAFullWalk() throws Exception {
+    cache.open(SALT, later());
+    cache.derive(SALT, PATH, loader);
+    DeterministicKey sibling = cache.derive(SALT, "m/84'/0'/0'/0/1", loader);
+    assertEquals(1, loads);
+    assertEquals(KeyDerivation.deriveFromPath(MASTER, "m/84'/0'/0'/0/1", null).getPrivateKeyAsHex(), sibling.getPrivateKeyAsHex());
+    long[] stats = cache.stats();
+    assertEquals(1, stats[0]); // hit
+    assertEquals(1, stats[1]); // miss
+    assertEquals(4, stats[3]); // four levels not re-derived
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedBeyondMaxEntries() throws Exception {
+    cache.open(SALT, later());
+    int paths = DerivationCache.MAX_ENTRIES + 10;
+    // m/0 plus one leaf per path; every derive touches m/0, so the oldest leaves go first
+    for (int i = 0; i < paths; i++) cache.derive(SALT, "m/0/" + i, loader);
+    long[] stats = cache.stats();
+    assertEquals(DerivationCache.MAX_ENTRIES, stats[4]);
+    assertEquals(paths + 1 - DerivationCache.MAX_ENTRIES, stats[2]);
+
+    // An evicted leaf is rebuilt from the surviving parent, not from the master
+    DeterministicKey leaf = cache.derive(SALT, "m/0/0", loader);
+    assertEquals(1, loads);
+    assertEquals(KeyDerivation.deriveFromPath(MASTER, "m/0/0", null).getPrivateKeyAsHex(), leaf.getPrivateKeyAsHex());
+  }
+
+  @Test
+  public void wipeDropsEveryNode() throws Exception {
+    cache.open(SALT, later());
+    DeterministicKey before = cache.derive(SALT, PATH, loader);
+    String expected = before.getPrivateKeyAsHex();
+    cache.wipe();
+    assertFalse(cache.isActive(SALT));
+    assertEquals(0, cache.stats()[4]);
+    // Keys handed out earlier own their arrays; the wipe must not zero them
+    assertEquals(expected, before.getPrivateKeyAsHex());
+
+    cache.open(SALT, later());
+    assertEquals(expected, cache.derive(SALT, PATH, loader).getPrivateKeyAsHex());
+    assertEquals(2, loads);
+  }
+
+  @Test
+  public void expiryAndOtherVaultsWipe() throws Exception {
+    cache.open(SALT, later());
+    cache.derive(SALT, PATH, loader);
+    byte[] otherSalt = Hex.decode("ffeeddccbbaa99887766554433221100");
+    assertFalse(cache.isActive(otherSalt));
+    cache.open(otherSalt, later());
+    assertEquals(0, cache.stats()[4]);
+
+    cache.open(SALT, System.currentTimeMillis() - 1);
+    assertFalse(cache.isActive(SALT));
+  }
+}
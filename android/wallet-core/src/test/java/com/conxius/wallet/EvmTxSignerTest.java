@@ -0,0 +1,58 @@
+package com.conxius.wallet;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionEncoder;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.*;
+
+public class EvmTxSignerTest {
+  // EIP-155 example key
+  private static final BigInteger KEY = new BigInteger("4646464646464646464646464646464646464646464646464646464646464646", 16);
+  private final EvmTxSigner signer = new EvmTxSigner(new FixedBaseTable());
+
+  @Test
+  public void eip155SpecExample() throws Exception {
+    EvmTxSigner.Fields fields = EvmTxSigner.Fields.parse(new JSONObject(
+      "{\"chainId\":1,\"gasPrice\":\"20000000000\",\"gasLimit\":21000," +
+      "\"to\":\"0x3535353535353535353535353535353535353535\",\"value\":\"1000000000000000000\"}"));
+    assertEquals(EvmTxSigner.Type.EIP155, fields.type);
+    EvmTxSigner.Signed signed = signer.sign(fields, BigInteger.valueOf(9), KEY);
+    assertEquals("0xf86c098504a817c800825208943535353535353535353535353535353535353535880de0b6b3a76400008025a0" +
+      "28ef61340bd939bc2195fe537567866003e1a15d3c71ff63e1590620aa636276a067cbe9d8997f761aecb703304b3800ccf555c9f3dc64214b297fb1966a3b6d83",
+      Numeric.toHexString(signed.raw));
+  }
+
+  @Test
+  public void matchesWeb3jForEveryType() throws Exception {
+    Credentials credentials = Credentials.create(ECKeyPair.create(KEY));
+    String[] templates = {
+      "{\"gasPrice\":\"0x4a817c800\",\"gasLimit\":\"21000\",\"to\":\"0x3535353535353535353535353535353535353535\",\"value\":\"1\"}",
+      "{\"chainId\":30,\"gasPrice\":\"60000000\",\"gasLimit\":\"90000\",\"data\":\"0x6060604052\"}",
+      "{\"chainId\":1,\"maxFeePerGas\":\"0x77359400\",\"maxPriorityFeePerGas\":\"0x3b9aca00\",\"gasLimit\":21000," +
+        "\"to\":\"0x3535353535353535353535353535353535353535\",\"value\":\"0x1\",\"data\":\"0xabcdef\"}",
+    };
+    for (String template : templates) {
+      EvmTxSigner.Fields fields = EvmTxSigner.Fields.parse(new JSONObject(template));
+      for (int nonce = 0; nonce < 20; nonce++) {
+        RawTransaction raw = fields.withNonce(BigInteger.valueOf(nonce));
+        byte[] expected = fields.type == EvmTxSigner.Type.EIP155
+          ? TransactionEncoder.signMessage(raw, fields.chainId, credentials)
+          : TransactionEncoder.signMessage(raw, credentials);
+        assertEquals(fields.type + " nonce " + nonce, Numeric.toHexString(expected),
+          Numeric.toHexString(signer.sign(fields, BigInteger.valueOf(nonce), KEY).raw));
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void eip1559NeedsChainId() throws Exception {
+    EvmTxSigner.Fields.parse(new JSONObject("{\"type\":\"eip1559\",\"maxFeePerGas\":\"1\",\"maxPriorityFeePerGas\":\"1\",\"gasLimit\":1}"));
+  }
+}
@@ -0,0 +1,56 @@
+package com.conxius.wallet;
+
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bitcoinj.params.MainNetParams;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class KeyDerivationTest {
+  private static final NetworkParameters MAIN = MainNetParams.get();
+  // BIP32 test vector 1
+  private static final byte[] SEED = Hex.decode("000102030405060708090a0b0c0d0e0f");
+
+  @Test
+  public void bip32TestVector1() {
+    DeterministicKey master = KeyDerivation.masterKeyFromSeed(SEED);
+    assertEquals("xprv9s21ZrQH143K3QTDL4LXw2F7HEK3wJUD2nW2nRk4stbPy6cq3jPPqjiChkVvvNKmPGJxWUtg6LnF5kejMRNNU3TGtRBeJgk33yuGBxrMPHi",
+      master.serializePrivB58(MAIN));
+    DeterministicKey child = KeyDerivation.deriveFromPath(master, "m/0'/1/2'/2/1000000000", null);
+    assertEquals("xprvA41z7zogVVwxVSgdKUHDy1SKmdb533PjDz7J6N6mV6uS3ze1ai8FHa8kmHScGpWmj4WggLyQjgPie1rFSruoUihUZREPSL39UNdE3BBDu76",
+      child.serializePrivB58(MAIN));
+  }
+
+  @Test
+  public void sharedParentsAreReused() {
+    DeterministicKey master = KeyDerivation.masterKeyFromSeed(SEED);
+    Map<String, DeterministicKey> parents = new HashMap<>();
+    DeterministicKey a = KeyDerivation.deriveFromPath(master, "m/84'/0'/0'/0/0", parents);
+    DeterministicKey account = parents.get("m/84'/0'/0'");
+    assertNotNull(account);
+    DeterministicKey b = KeyDerivation.deriveFromPath(master, "m/84'/0'/0'/0/1", parents);
+    assertSame(account, parents.get("m/84'/0'/0'"));
+    assertEquals(KeyDerivation.deriveFromPath(master, "m/84h/0h/0h/0/1", null), b);
+    assertNotEquals(a, b);
+  }
+
+  @Test
+  public void sessionCacheMatchesUncachedWalk() throws Exception {
+    DeterministicKey master = KeyDerivation.masterKeyFromSeed(SEED);
+    byte[] salt = new byte[16];
+    DerivationCache cache = new DerivationCache();
+    cache.open(salt, System.currentTimeMillis() + 60_000);
+    for (int i = 0; i < 5; i++) {
+      String path = "m/84'/0'/0'/0/" + i;
+      assertEquals(KeyDerivation.deriveFromPath(master, path, null), cache.derive(salt, path, () -> master));
+    }
+    assertTrue(cache.stats()[0] > 0); // later paths hit the cached account node
+    cache.wipe();
+    assertFalse(cache.isActive(salt));
+  }
+}
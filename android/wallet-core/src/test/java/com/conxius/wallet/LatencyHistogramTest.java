@@ -0,0 +1,83 @@
+package com.conxius.wallet;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+  @Test
+  public void bucketsCoverEveryValueWithinOneEighth() {
+    long previousUpper = -1;
+    for (int i = 0; i <= LatencyHistogram.index(LatencyHistogram.MAX_MICROS); i++) {
+      long upper = LatencyHistogram.upperBound(i);
+      assertEquals("bucket " + i + " starts where " + (i - 1) + " ends", i, LatencyHistogram.index(previousUpper + 1));
+      assertEquals(i, LatencyHistogram.index(upper));
+      assertTrue("bucket " + i + " too wide", upper - previousUpper <= Math.max(1, (previousUpper + 1) / 8));
+      previousUpper = upper;
+    }
+    assertEquals(LatencyHistogram.MAX_MICROS, previousUpper);
+  }
+
+  @Test
+  public void percentilesOfUniformSamples() throws Exception {
+    LatencyHistogram h = new LatencyHistogram();
+    for (long us = 1; us <= 1000; us++) h.record(us);
+    assertEquals(1000, h.count());
+    assertWithin(500, h.percentile(0.50));
+    assertWithin(950, h.percentile(0.95));
+    assertWithin(990, h.percentile(0.99));
+    assertEquals(1000, h.percentile(1.0));
+
+    JSONObject json = h.toJson();
+    assertEquals(1000, json.getLong("count"));
+    assertEquals(500, json.getLong("meanUs"));
+    assertEquals(1000, json.getLong("maxUs"));
+  }
+
+  @Test
+  public void outliersAreClampedButMaxIsExact() {
+    LatencyHistogram h = new LatencyHistogram();
+    h.record(5);
+    h.record(LatencyHistogram.MAX_MICROS * 4);
+    assertEquals(5, h.percentile(0.5));
+    assertEquals(LatencyHistogram.MAX_MICROS * 4, h.percentile(1.0));
+  }
+
+  @Test
+  public void resetClearsEverything() throws Exception {
+    LatencyHistogram h = new LatencyHistogram();
+    h.recordNanos(2_000_000);
+    h.reset();
+    assertEquals(0, h.count());
+    assertEquals(0, h.percentile(0.99));
+    assertEquals(0, h.toJson().getLong("maxUs"));
+  }
+
+  @Test
+  public void metricsTrackMethodsAndPhases() throws Exception {
+    PluginMetrics metrics = new PluginMetrics();
+    PluginMetrics.MethodStats stats = metrics.method("signPsbt");
+    assertSame(stats, metrics.method("signPsbt"));
+    long start = System.nanoTime();
+    stats.dequeued(start);
+    stats.error();
+    stats.completed(start);
+    metrics.phase(PluginMetrics.Phase.KDF, start);
+
+    JSONObject json = metrics.toJson();
+    JSONObject method = json.getJSONObject("methods").getJSONObject("signPsbt");
+    assertEquals(1, method.getLong("calls"));
+    assertEquals(1, method.getLong("errors"));
+    assertEquals(1, method.getJSONObject("queueWait").getLong("count"));
+    assertEquals(1, json.getJSONObject("phases").getJSONObject("kdf").getLong("count"));
+    assertEquals(0, json.getJSONObject("phases").getJSONObject("sign").getLong("count"));
+
+    metrics.reset();
+    assertEquals(0, metrics.toJson().getJSONObject("methods").getJSONObject("signPsbt").getLong("calls"));
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue(expected + " vs " + actual, actual >= expected && actual <= expected + expected / 8);
+  }
+}
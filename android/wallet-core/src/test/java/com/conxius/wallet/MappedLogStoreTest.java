@@ -0,0 +1,134 @@
+package com.conxius.wallet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class MappedLogStoreTest {
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void putGetRemoveSurviveReopen() throws Exception {
+    File file = new File(tmp.getRoot(), "items.log");
+    MappedLogStore store = new MappedLogStore(file);
+    store.put("a", bytes("1"));
+    store.put("b", bytes("2"));
+    store.put("a", bytes("3"));
+    store.remove("b");
+    Map<String, byte[]> batch = new LinkedHashMap<>();
+    batch.put("c", bytes("4"));
+    batch.put("d", bytes("5"));
+    store.putAll(batch);
+    store.removeAll(Arrays.asList("d", "missing"));
+    store.close();
+
+    store = new MappedLogStore(file);
+    assertArrayEquals(bytes("3"), store.get("a"));
+    assertNull(store.get("b"));
+    assertArrayEquals(bytes("4"), store.get("c"));
+    assertEquals(new HashSet<>(Arrays.asList("a", "c")), store.keys());
+    store.close();
+  }
+
+  @Test
+  public void tornTailIsDiscarded() throws Exception {
+    File file = new File(tmp.getRoot(), "items.log");
+    MappedLogStore store = new MappedLogStore(file);
+    store.put("kept", bytes("ok"));
+    store.close();
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      // Simulate a torn append: a record header with a bad CRC right after the last record
+      byte[] all = new byte[(int) raf.length()];
+      raf.readFully(all);
+      int end = all.length;
+      while (end > 0 && all[end - 1] == 0) end--;
+      raf.seek(end);
+      raf.writeInt(10);
+      raf.writeInt(0xdeadbeef);
+      raf.write(new byte[10]);
+    }
+    store = new MappedLogStore(file);
+    assertArrayEquals(bytes("ok"), store.get("kept"));
+    store.put("next", bytes("v"));
+    assertArrayEquals(bytes("v"), store.get("next"));
+    store.close();
+  }
+
+  @Test
+  public void compactionKeepsLiveValues() throws Exception {
+    File file = new File(tmp.getRoot(), "items.log");
+    MappedLogStore store = new MappedLogStore(file);
+    byte[] big = new byte[32 * 1024];
+    for (int i = 0; i < 20; i++) store.put("k", big);
+    store.put("other", bytes("x"));
+    assertTrue(store.deadBytes() > 0);
+    store.compact();
+    assertEquals(0, store.deadBytes());
+    store.close();
+    store = new MappedLogStore(file);
+    assertArrayEquals(big, store.get("k"));
+    assertArrayEquals(bytes("x"), store.get("other"));
+    store.close();
+  }
+
+  @Test
+  public void failedCompactionDoesNotFailTheWrite() throws Exception {
+    File file = new File(tmp.getRoot(), "items.log");
+    MappedLogStore store = new MappedLogStore(file);
+    // A non-empty directory where the side file goes: every compaction attempt fails
+    File blocker = new File(tmp.getRoot(), "items.log.compact");
+    assertTrue(new File(blocker, "x").mkdirs());
+    byte[] big = new byte[64 * 1024];
+    for (int i = 0; i < 10; i++) {
+      big[0] = (byte) i;
+      store.put("k", big);
+    }
+    assertNotNull(store.compactionFailure());
+    assertArrayEquals(big, store.get("k"));
+
+    assertTrue(new File(blocker, "x").delete() && blocker.delete());
+    store.compact();
+    assertEquals(0, store.deadBytes());
+    store.close();
+    store = new MappedLogStore(file);
+    assertArrayEquals(big, store.get("k"));
+    store.close();
+  }
+
+  @Test
+  public void chunkedRecordStreamsThroughTheStore() throws Exception {
+    SecureRandom random = new SecureRandom();
+    byte[] dek = new byte[ChunkedRecord.DEK_BYTES];
+    random.nextBytes(dek);
+    StringBuilder sb = new StringBuilder();
+    while (sb.length() < 200_000) sb.append("wallet state é😀 ");
+    String value = sb.toString();
+
+    ItemRecord wrapped = new ItemRecord(1, new byte[12], new byte[48]);
+    ChunkedRecord record = ChunkedRecord.create(wrapped, ChunkedRecord.utf8Length(value), random);
+    MappedLogStore store = new MappedLogStore(new File(tmp.getRoot(), "items.log"));
+    store.put("big", record.encodedLength(), out -> record.write(out, dek, value));
+
+    String back = store.read("big", buf -> ChunkedRecord.parse(buf).decrypt(dek, buf));
+    assertEquals(value, back);
+    byte[] range = store.read("big", buf -> ChunkedRecord.parse(buf).decryptRange(dek, buf, 70_000, 10));
+    assertArrayEquals(Arrays.copyOfRange(value.getBytes(StandardCharsets.UTF_8), 70_000, 70_010), range);
+    store.close();
+  }
+}
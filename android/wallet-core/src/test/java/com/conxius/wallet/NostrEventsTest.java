@@ -0,0 +1,52 @@
+package com.conxius.wallet;
+
+import org.bouncycastle.util.encoders.Hex;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class NostrEventsTest {
+  private static final String PUBKEY = "79be667ef9dcbbac55a06295ce870b07029bfcdb2dce28d959f2815b16f81798";
+
+  private static NostrEvents.Unsigned event(String content, String tags) throws Exception {
+    JSONObject o = new JSONObject();
+    o.put("created_at", 1700000000);
+    o.put("kind", 1);
+    o.put("tags", new JSONArray(tags));
+    o.put("content", content);
+    return NostrEvents.Unsigned.parse(o);
+  }
+
+  @Test
+  public void serializesLikeJsonStringify() throws Exception {
+    NostrEvents.Unsigned e = event("hi \"there\"\n\t\u0001\u001f\u007f é 😀 \ud800 \u2028end",
+      "[[\"e\",\"abc\",\"wss://r\"],[\"p\",\"q\\\"x\\\\y\"]]");
+    String expected = "[0,\"" + PUBKEY + "\",1700000000,1,[[\"e\",\"abc\",\"wss://r\"],[\"p\",\"q\\\"x\\\\y\"]]," +
+      "\"hi \\\"there\\\"\\n\\t\\u0001\\u001f\u007f é 😀 \\ud800 \u2028end\"]";
+    assertEquals(expected, new String(NostrEvents.serialize(PUBKEY, e), StandardCharsets.UTF_8));
+    // Same id as JS: crypto.subtle.digest('SHA-256', JSON.stringify([...]))
+    assertEquals("8aa6448ec7f1ae78941cd34820ac297d55eaeab03a8e68fb9fac8dba2806e321",
+      Hex.toHexString(NostrEvents.id(PUBKEY, e)));
+  }
+
+  @Test
+  public void emptyTagsAndContent() throws Exception {
+    assertEquals("[0,\"" + PUBKEY + "\",1700000000,1,[],\"\"]",
+      new String(NostrEvents.serialize(PUBKEY, event("", "[]")), StandardCharsets.UTF_8));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsNonStringTagValues() throws Exception {
+    event("x", "[[\"e\",1]]");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsFractionalTimestamps() throws Exception {
+    JSONObject o = new JSONObject("{\"created_at\":1.5,\"kind\":1,\"tags\":[],\"content\":\"\"}");
+    NostrEvents.Unsigned.parse(o);
+  }
+}
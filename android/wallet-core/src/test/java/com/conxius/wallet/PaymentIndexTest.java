@@ -0,0 +1,99 @@
+package com.conxius.wallet;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class PaymentIndexTest {
+  private static PaymentIndex.Summary payment(int i) {
+    String type = i % 3 == 0 ? "sent" : "received";
+    String status = i % 10 == 0 ? "failed" : "complete";
+    // Several payments per second, so ties on time are broken by hash
+    return new PaymentIndex.Summary(String.format("%064x", i), type, status, i * 1000L, 0, 1_700_000_000L + i / 4, "p" + i);
+  }
+
+  private static PaymentIndex filled(int n) {
+    PaymentIndex index = new PaymentIndex();
+    for (int i = 0; i < n; i++) index.put(payment(i));
+    return index;
+  }
+
+  @Test
+  public void cursorsVisitEveryPaymentOnceNewestFirst() {
+    PaymentIndex index = filled(1000);
+    Set<String> seen = new HashSet<>();
+    long lastTime = Long.MAX_VALUE;
+    String cursor = null;
+    int pages = 0;
+    do {
+      PaymentIndex.Page page = index.page(cursor, 64, null, null, 0);
+      for (PaymentIndex.Summary s : page.items) {
+        assertTrue(seen.add(s.hash));
+        assertTrue(s.timeSec <= lastTime);
+        lastTime = s.timeSec;
+      }
+      cursor = page.nextCursor;
+      pages++;
+    } while (cursor != null);
+    assertEquals(1000, seen.size());
+    assertEquals(16, pages);
+  }
+
+  @Test
+  public void pagingIsStableWhileNewPaymentsArrive() {
+    PaymentIndex index = filled(100);
+    PaymentIndex.Page first = index.page(null, 10, null, null, 0);
+    index.put(payment(500)); // newer than everything
+    PaymentIndex.Page second = index.page(first.nextCursor, 10, null, null, 0);
+    // newest second first, ascending hash within it: page one is 96..99, 92..95, 88, 89
+    assertEquals(payment(90).hash, second.items.get(0).hash);
+  }
+
+  @Test
+  public void filtersAndSinceTimestamp() throws Exception {
+    PaymentIndex index = filled(1000);
+    PaymentIndex.Page sent = index.page(null, PaymentIndex.MAX_LIMIT, Collections.singleton("sent"), Collections.singleton("complete"), 0);
+    for (PaymentIndex.Summary s : sent.items) {
+      assertEquals("sent", s.type);
+      assertEquals("complete", s.status);
+    }
+    // i % 3 == 0 and i % 10 != 0, i < 1000
+    assertEquals(334 - 34, sent.items.size());
+    assertNull(sent.nextCursor);
+
+    long since = 1_700_000_000L + 240; // payments 960..999
+    PaymentIndex.Page recent = index.page(null, PaymentIndex.MAX_LIMIT, null, null, since);
+    assertEquals(40, recent.items.size());
+    assertNull(recent.nextCursor);
+
+    JSONObject json = recent.toJson();
+    assertEquals(40, json.getJSONArray("payments").length());
+    assertFalse(json.has("nextCursor"));
+    assertEquals(996000, json.getJSONArray("payments").getJSONObject(0).getLong("amountMsat"));
+  }
+
+  @Test
+  public void updatesReplaceAndLoadsDoNotOverrideEvents() {
+    PaymentIndex index = filled(10);
+    PaymentIndex.Summary pending = payment(3).withStatus("pending");
+    index.put(pending);
+    assertEquals(10, index.size());
+    assertFalse(index.putIfAbsent(payment(3)));
+    assertEquals("pending", index.get(pending.hash).status);
+
+    assertTrue(index.updateStatus(pending.hash, "complete"));
+    assertEquals("complete", index.get(pending.hash).status);
+    assertFalse(index.updateStatus("unknown", "failed"));
+    assertEquals(10, index.page(null, 50, null, null, 0).items.size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsGarbageCursor() {
+    filled(5).page("not-a-cursor", 10, null, null, 0);
+  }
+}
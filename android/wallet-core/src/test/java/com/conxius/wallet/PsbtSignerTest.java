@@ -0,0 +1,203 @@
+package com.conxius.wallet;
+
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.core.Utils;
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bitcoinj.params.MainNetParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.script.ScriptBuilder;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PsbtSignerTest {
+  private static final NetworkParameters MAIN = MainNetParams.get();
+  private static final String P2WPKH_PATH = "m/84'/0'/0'/0/3";
+  private static final String P2TR_PATH = "m/86'/0'/0'/0/1";
+  private static final String P2SH_PATH = "m/49'/0'/0'/0/0";
+  private static final long[] VALUES = {100000, 250000, 77777};
+
+  private final SchnorrSigner schnorr = new SchnorrSigner(new SecureRandom());
+  private DeterministicKey master;
+  private byte[] fingerprint;
+  private DeterministicKey wpkhKey, trKey, shKey;
+  private byte[][] scripts;
+  private Transaction tx;
+
+  @Before
+  public void setUp() {
+    master = KeyDerivation.masterKeyFromSeed(new byte[32]);
+    fingerprint = Hex.decode(SessionSeed.fingerprintOf(master));
+    wpkhKey = KeyDerivation.deriveFromPath(master, P2WPKH_PATH, null);
+    trKey = KeyDerivation.deriveFromPath(master, P2TR_PATH, null);
+    shKey = KeyDerivation.deriveFromPath(master, P2SH_PATH, null);
+    scripts = new byte[][] {
+      concat(Hex.decode("0014"), wpkhKey.getPubKeyHash()),
+      concat(Hex.decode("5120"), schnorr.outputKey(trKey.getPubKeyPoint(), null)),
+      concat(Hex.decode("a914"), Utils.sha256hash160(redeemScript()), Hex.decode("87")),
+    };
+
+    tx = new Transaction(MAIN);
+    Random random = new Random(1);
+    for (int i = 0; i < 3; i++) {
+      byte[] txid = new byte[32];
+      random.nextBytes(txid);
+      TransactionInput input = new TransactionInput(MAIN, tx, new byte[0], new TransactionOutPoint(MAIN, i + 1, Sha256Hash.wrap(txid)));
+      input.setSequenceNumber(0xfffffffdL - i);
+      tx.addInput(input);
+    }
+    tx.addOutput(Coin.valueOf(300000), new Script(scripts[0]));
+    tx.addOutput(Coin.valueOf(120000), new Script(scripts[1]));
+    tx.setLockTime(800000);
+  }
+
+  private byte[] redeemScript() {
+    return concat(Hex.decode("0014"), shKey.getPubKeyHash());
+  }
+
+  @Test
+  public void bip143MatchesBitcoinj() {
+    RawTx raw = RawTx.parse(tx.bitcoinSerialize());
+    RawTx.Output[] spent = new RawTx.Output[3];
+    for (int i = 0; i < 3; i++) spent[i] = new RawTx.Output(VALUES[i], scripts[i]);
+    SighashEngine engine = new SighashEngine(raw, spent);
+    byte[] scriptCode = ScriptBuilder.createP2PKHOutputScript(wpkhKey.getPubKeyHash()).getProgram();
+    Transaction.SigHash[] modes = {Transaction.SigHash.ALL, Transaction.SigHash.NONE, Transaction.SigHash.SINGLE};
+    for (int m = 0; m < modes.length; m++) {
+      for (boolean anyoneCanPay : new boolean[] {false, true}) {
+        for (int i = 0; i < 3; i++) {
+          Sha256Hash expected = tx.hashForWitnessSignature(i, scriptCode, Coin.valueOf(VALUES[i]), modes[m], anyoneCanPay);
+          byte[] actual = engine.segwitV0(i, scriptCode, VALUES[i], (m + 1) | (anyoneCanPay ? 0x80 : 0));
+          assertArrayEquals(expected.getBytes(), actual);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void signsWithoutFinalizing() throws Exception {
+    Psbt psbt = Psbt.parse(buildPsbt());
+    List<PsbtSigner.InputResult> results = signer().sign(psbt, Collections.singletonList(P2SH_PATH), false);
+    for (PsbtSigner.InputResult r : results) {
+      assertTrue("input " + r.index + ": " + r.error, r.signed);
+      assertFalse(r.finalized);
+    }
+
+    RawTx.Output[] spent = new RawTx.Output[3];
+    for (int i = 0; i < 3; i++) spent[i] = psbt.spentOutput(i);
+    SighashEngine engine = new SighashEngine(psbt.tx, spent);
+    Psbt.Field partial = psbt.inputs[0].all(Psbt.IN_PARTIAL_SIG).get(0);
+    byte[] der = Arrays.copyOf(partial.value, partial.value.length - 1);
+    byte[] scriptCode = ScriptBuilder.createP2PKHOutputScript(wpkhKey.getPubKeyHash()).getProgram();
+    assertTrue(ECKey.verify(engine.segwitV0(0, scriptCode, VALUES[0], 1), der, partial.keyData()));
+    byte[] tapSig = psbt.inputs[1].get(Psbt.IN_TAP_KEY_SIG);
+    assertTrue(SchnorrSigner.verify(Arrays.copyOfRange(scripts[1], 2, 34), engine.taprootKeyPath(1, 0), tapSig));
+    // unknown / proprietary records survive
+    assertEquals(1, psbt.inputs[0].all(0xfc).size());
+  }
+
+  @Test
+  public void finalizedTransactionSpends() {
+    Psbt psbt = Psbt.parse(buildPsbt());
+    for (PsbtSigner.InputResult r : signer().sign(psbt, Collections.singletonList(P2SH_PATH), true)) {
+      assertTrue("input " + r.index + ": " + r.error, r.finalized);
+    }
+    assertFalse(psbt.inputs[1].has(Psbt.IN_TAP_INTERNAL_KEY));
+    Transaction signed = new Transaction(MAIN, psbt.extract());
+    for (int i : new int[] {0, 2}) {
+      TransactionInput input = signed.getInput(i);
+      input.getScriptSig().correctlySpends(signed, i, input.getWitness(), Coin.valueOf(VALUES[i]),
+        new Script(scripts[i]), Script.ALL_VERIFY_FLAGS);
+    }
+  }
+
+  @Test
+  public void foreignInputsAreReportedNotSigned() {
+    Psbt psbt = Psbt.parse(buildPsbt());
+    // No hint for the P2SH input and no derivation record: it is not ours as far as the signer knows
+    List<PsbtSigner.InputResult> results = signer().sign(psbt, null, true);
+    assertTrue(results.get(0).finalized);
+    assertFalse(results.get(2).signed);
+    assertNotNull(results.get(2).error);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void witnessCountBeyondInputIsRejectedBeforeAllocating() {
+    // 0xfe varint: 0x7fffffff witness items in a 5-byte buffer
+    RawTx.readWitness(ByteBuffer.wrap(Hex.decode("feffffff7f")).order(ByteOrder.LITTLE_ENDIAN));
+  }
+
+  private PsbtSigner signer() {
+    return new PsbtSigner(schnorr, fingerprint, path -> KeyDerivation.deriveFromPath(master, path, null));
+  }
+
+  private byte[] buildPsbt() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(0x70); out.write(0x73); out.write(0x62); out.write(0x74); out.write(0xff);
+    field(out, new byte[] {0}, tx.bitcoinSerialize());
+    out.write(0);
+
+    field(out, new byte[] {Psbt.IN_WITNESS_UTXO}, utxo(0));
+    field(out, concat(new byte[] {Psbt.IN_BIP32_DERIVATION}, wpkhKey.getPubKey()),
+      concat(fingerprint, path(0x80000054, 0x80000000, 0x80000000, 0, 3)));
+    field(out, Hex.decode("fc0470726f6701"), Hex.decode("deadbeef"));
+    out.write(0);
+
+    byte[] internalKey = SchnorrSigner.xOnly(trKey.getPubKeyPoint());
+    field(out, new byte[] {Psbt.IN_WITNESS_UTXO}, utxo(1));
+    field(out, concat(new byte[] {Psbt.IN_TAP_BIP32_DERIVATION}, internalKey),
+      concat(new byte[] {0}, fingerprint, path(0x80000056, 0x80000000, 0x80000000, 0, 1)));
+    field(out, new byte[] {Psbt.IN_TAP_INTERNAL_KEY}, internalKey);
+    out.write(0);
+
+    field(out, new byte[] {Psbt.IN_WITNESS_UTXO}, utxo(2));
+    field(out, new byte[] {Psbt.IN_REDEEM_SCRIPT}, redeemScript());
+    out.write(0);
+
+    out.write(0);
+    out.write(0);
+    byte[] psbt = out.toByteArray();
+    assertArrayEquals("parse/serialize round trip", psbt, Psbt.parse(psbt).serialize());
+    return psbt;
+  }
+
+  private byte[] utxo(int i) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new RawTx.Output(VALUES[i], scripts[i]).writeTo(out);
+    return out.toByteArray();
+  }
+
+  private static void field(ByteArrayOutputStream out, byte[] key, byte[] value) {
+    RawTx.writeVarBytes(out, key);
+    RawTx.writeVarBytes(out, value);
+  }
+
+  private static byte[] path(int... indexes) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (int index : indexes) RawTx.writeUInt32(out, index & 0xffffffffL);
+    return out.toByteArray();
+  }
+
+  private static byte[] concat(byte[]... parts) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (byte[] part : parts) out.write(part, 0, part.length);
+    return out.toByteArray();
+  }
+}
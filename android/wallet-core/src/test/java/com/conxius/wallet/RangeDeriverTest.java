@@ -0,0 +1,54 @@
+package com.conxius.wallet;
+
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bitcoinj.script.ScriptBuilder;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class RangeDeriverTest {
+  private static final DeterministicKey MASTER = KeyDerivation.masterKeyFromSeed(Hex.decode("000102030405060708090a0b0c0d0e0f"));
+  private static final String CHAIN = "m/84'/0'/0'/0";
+
+  private static byte[] slot(byte[] packed, RangeDeriver.Format format, int i) {
+    return Arrays.copyOfRange(packed, i * format.stride, (i + 1) * format.stride);
+  }
+
+  @Test
+  public void rangeMatchesSinglePathDerivation() {
+    Map<String, DeterministicKey> parents = new HashMap<>();
+    DeterministicKey chain = KeyDerivation.deriveFromPath(MASTER, CHAIN, parents);
+    int start = 5;
+    int count = 300; // several fork-join slices
+    byte[] pubkeys = RangeDeriver.derive(chain, start, count, RangeDeriver.Format.PUBKEY, ForkJoinPool.commonPool());
+    byte[] p2wpkh = RangeDeriver.derive(chain, start, count, RangeDeriver.Format.P2WPKH, ForkJoinPool.commonPool());
+    assertEquals(count * RangeDeriver.Format.PUBKEY.stride, pubkeys.length);
+    for (int i = 0; i < count; i++) {
+      DeterministicKey key = KeyDerivation.deriveFromPath(MASTER, CHAIN + "/" + (start + i), parents);
+      assertArrayEquals("index " + (start + i), key.getPubKey(), slot(pubkeys, RangeDeriver.Format.PUBKEY, i));
+      assertArrayEquals(ScriptBuilder.createP2WPKHOutputScript(key).getProgram(), slot(p2wpkh, RangeDeriver.Format.P2WPKH, i));
+    }
+  }
+
+  @Test
+  public void scriptFormatsMatchBitcoinj() {
+    DeterministicKey chain = KeyDerivation.deriveFromPath(MASTER, CHAIN, null);
+    DeterministicKey key = KeyDerivation.deriveFromPath(MASTER, CHAIN + "/7", null);
+    byte[] p2sh = RangeDeriver.derive(chain, 7, 1, RangeDeriver.Format.P2SH_P2WPKH, ForkJoinPool.commonPool());
+    byte[] p2pkh = RangeDeriver.derive(chain, 7, 1, RangeDeriver.Format.P2PKH, ForkJoinPool.commonPool());
+    assertArrayEquals(ScriptBuilder.createP2SHOutputScript(ScriptBuilder.createP2WPKHOutputScript(key)).getProgram(), p2sh);
+    assertArrayEquals(ScriptBuilder.createP2PKHOutputScript(key).getProgram(), p2pkh);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsRangePastTheNonHardenedSpace() {
+    DeterministicKey chain = KeyDerivation.deriveFromPath(MASTER, CHAIN, null);
+    RangeDeriver.derive(chain, Integer.MAX_VALUE, 2, RangeDeriver.Format.PUBKEY, ForkJoinPool.commonPool());
+  }
+}
@@ -0,0 +1,71 @@
+package com.conxius.wallet;
+
+import org.bitcoinj.core.ECKey;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+
+import static org.junit.Assert.*;
+
+public class SchnorrSignerTest {
+  private final SchnorrSigner signer = new SchnorrSigner(new SecureRandom());
+
+  private void vector(String secret, String pubkey, String aux, String msg, String sig) {
+    BigInteger d = new BigInteger(secret, 16);
+    ECPoint p = ECKey.publicPointFromPrivate(d);
+    SchnorrSigner.Signature s = signer.sign(d, p, Hex.decode(msg), Hex.decode(aux));
+    assertEquals(pubkey.toLowerCase(), Hex.toHexString(s.pubkey));
+    assertEquals(sig.toLowerCase(), Hex.toHexString(s.sig));
+    assertTrue(SchnorrSigner.verify(s.pubkey, Hex.decode(msg), s.sig));
+  }
+
+  @Test
+  public void bip340Vectors() {
+    vector("0000000000000000000000000000000000000000000000000000000000000003",
+      "F9308A019258C31049344F85F89D5229B531C845836F99B08601F113BCE036F9",
+      "0000000000000000000000000000000000000000000000000000000000000000",
+      "0000000000000000000000000000000000000000000000000000000000000000",
+      "E907831F80848D1069A5371B402410364BDF1C5F8307B0084C55F1CE2DCA821525F66A4A85EA8B71E482A74F382D2CE5EBEEE8FDB2172F477DF4900D310536C0");
+    vector("B7E151628AED2A6ABF7158809CF4F3C762E7160F38B4DA56A784D9045190CFEF",
+      "DFF1D77F2A671C5F36183726DB2341BE58FEAE1DA2DECED843240F7B502BA659",
+      "0000000000000000000000000000000000000000000000000000000000000001",
+      "243F6A8885A308D313198A2E03707344A4093822299F31D0082EFA98EC4E6C89",
+      "6896BD60EEAE296DB48A229FF71DFE071BDE413E6D43F917DC8DCF8C78DE33418906D11AC976ABCCB20B091292BFF4EA897EFCB639EA871CFA95F6DE339E4B0A");
+  }
+
+  @Test
+  public void verifyRejectsTamperedSignature() {
+    BigInteger d = BigInteger.valueOf(7);
+    byte[] msg = new byte[32];
+    SchnorrSigner.Signature s = signer.sign(d, ECKey.publicPointFromPrivate(d), msg);
+    s.sig[63] ^= 1;
+    assertFalse(SchnorrSigner.verify(s.pubkey, msg, s.sig));
+  }
+
+  @Test
+  public void tweakedSignatureVerifiesUnderOutputKey() {
+    BigInteger d = new BigInteger("1d2dc9e0b5f1a7c4e3b2a1908f7e6d5c4b3a29180f1e2d3c4b5a69788796a5b4", 16);
+    ECPoint p = ECKey.publicPointFromPrivate(d);
+    byte[] msg = SchnorrSigner.taggedHash("test", new byte[] {1});
+    byte[] merkleRoot = SchnorrSigner.taggedHash("TapBranch", new byte[] {2});
+    for (byte[] root : new byte[][] {null, merkleRoot}) {
+      SchnorrSigner.Signature s = signer.signTweaked(d, p, msg, root);
+      assertArrayEquals(signer.outputKey(p, root), s.pubkey);
+      assertArrayEquals(SchnorrSigner.xOnly(p), s.internalKey);
+      assertTrue(SchnorrSigner.verify(s.pubkey, msg, s.sig));
+    }
+  }
+
+  @Test
+  public void fixedBaseTableMatchesGenericMultiply() {
+    FixedBaseTable table = new FixedBaseTable();
+    SecureRandom random = new SecureRandom();
+    for (int i = 0; i < 20; i++) {
+      BigInteger k = new BigInteger(256, random).mod(ECKey.CURVE.getN().subtract(BigInteger.ONE)).add(BigInteger.ONE);
+      assertEquals(ECKey.CURVE.getG().multiply(k).normalize(), table.multiply(k).normalize());
+    }
+  }
+}
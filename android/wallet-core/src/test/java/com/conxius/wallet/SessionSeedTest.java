@@ -0,0 +1,69 @@
+package com.conxius.wallet;
+
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SessionSeedTest {
+  private static final byte[] SALT = Hex.decode("00112233445566778899aabbccddeeff");
+  private static final DeterministicKey MASTER = KeyDerivation.masterKeyFromSeed(Hex.decode("000102030405060708090a0b0c0d0e0f"));
+
+  private final SessionSeed session = new SessionSeed();
+
+  private static long later() {
+    return System.currentTimeMillis() + 60_000;
+  }
+
+  @Test
+  public void heldKeyRebuildsTheMasterKey() {
+    byte[] chainCode = MASTER.getChainCode().clone();
+    session.hold(SALT, MASTER, later());
+    // hold reads the key's own chain code array and must leave it alone
+    assertArrayEquals(chainCode, MASTER.getChainCode());
+
+    DeterministicKey rebuilt = session.masterKey(SALT);
+    assertEquals(MASTER.getPrivateKeyAsHex(), rebuilt.getPrivateKeyAsHex());
+    assertArrayEquals(MASTER.getChainCode(), rebuilt.getChainCode());
+    assertArrayEquals(MASTER.getPubKey(), rebuilt.getPubKey());
+    assertEquals(SessionSeed.fingerprintOf(MASTER), session.fingerprintHex());
+  }
+
+  @Test
+  public void onlyTheHeldVaultMatches() {
+    session.hold(SALT, MASTER, later());
+    byte[] other = Hex.decode("ffeeddccbbaa99887766554433221100");
+    assertTrue(session.matches(SALT));
+    assertFalse(session.matches(other));
+    try {
+      session.masterKey(other);
+      fail("another vault's salt must not get this master key");
+    } catch (IllegalStateException expected) {
+      // Unlock required
+    }
+  }
+
+  @Test
+  public void wipeAndExpiryEndTheSession() {
+    session.hold(SALT, MASTER, later());
+    session.wipe();
+    assertFalse(session.isActive());
+    assertFalse(session.matches(SALT));
+    try {
+      session.fingerprintHex();
+      fail("a wiped session has no fingerprint");
+    } catch (IllegalStateException expected) {
+      // Session expired
+    }
+
+    session.hold(SALT, MASTER, System.currentTimeMillis() - 1);
+    assertFalse(session.isActive());
+    try {
+      session.masterKey(SALT);
+      fail("an expired session must not hand out the key");
+    } catch (IllegalStateException expected) {
+      // Session expired
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package com.conxius.wallet;
+
+import org.bouncycastle.util.encoders.Base64;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+
+import javax.crypto.SecretKey;
+
+import static org.junit.Assert.*;
+
+public class VaultEnvelopeTest {
+  private static final byte[] SEED = new byte[64];
+  static {
+    for (int i = 0; i < SEED.length; i++) SEED[i] = (byte) i;
+  }
+
+  // Vaults as seed.ts wrote them before v3: PIN "1234", seed 00..0f, PBKDF2-SHA256 x 200000
+  private static final byte[] VECTOR_SEED = Hex.decode("000102030405060708090a0b0c0d0e0f");
+  private static final String V1_VAULT = "{\"v\":1,"
+    + "\"salt\":[160,161,162,163,164,165,166,167,168,169,170,171,172,173,174,175],"
+    + "\"iv\":[176,177,178,179,180,181,182,183,184,185,186,187],"
+    + "\"data\":[106,179,249,21,144,24,125,192,48,227,109,82,229,15,252,146,"
+    + "163,145,24,182,227,94,18,20,86,163,254,101,73,150,14,252]}";
+  private static final String V2_VAULT =
+    "Q1gCEAzAwcLDxMXGx8jJysvMzc7P0NHS09TV1tfY2drbrJOY8XfSJgvGYytDehHUf0k90ebziOb0lncLP7yRKsw=";
+
+  @Test
+  public void sealThenDecryptRoundTrips() throws Exception {
+    String vault = VaultEnvelope.seal(SEED, "1234", KdfCalibrator.MIN_ITERATIONS, new SecureRandom());
+    VaultEnvelope envelope = VaultEnvelope.parse(vault);
+    assertTrue(envelope.hasKdfParams());
+    assertArrayEquals(SEED, envelope.decrypt(envelope.deriveKey("1234")));
+    assertArrayEquals(SEED, NativeCrypto.decryptVault(vault, "1234"));
+  }
+
+  @Test
+  public void wrongPinFails() throws Exception {
+    VaultEnvelope envelope = VaultEnvelope.parse(VaultEnvelope.seal(SEED, "1234", KdfCalibrator.MIN_ITERATIONS, new SecureRandom()));
+    SecretKey wrong = envelope.deriveKey("4321");
+    try {
+      envelope.decrypt(wrong);
+      fail("decrypt with the wrong PIN must fail");
+    } catch (Exception expected) {
+      // AEAD tag mismatch
+    }
+  }
+
+  @Test
+  public void saltIdentifiesTheVault() throws Exception {
+    SecureRandom random = new SecureRandom();
+    VaultEnvelope a = VaultEnvelope.parse(VaultEnvelope.seal(SEED, "1234", KdfCalibrator.MIN_ITERATIONS, random));
+    VaultEnvelope b = VaultEnvelope.parse(VaultEnvelope.seal(SEED, "1234", KdfCalibrator.MIN_ITERATIONS, random));
+    assertTrue(a.saltEquals(a.salt()));
+    assertFalse(a.saltEquals(b.salt()));
+  }
+
+  @Test
+  public void decodesV1JsonVector() throws Exception {
+    VaultEnvelope envelope = VaultEnvelope.parse(V1_VAULT);
+    assertEquals(1, envelope.version);
+    assertFalse(envelope.hasKdfParams());
+    assertEquals(VaultEnvelope.KDF_ITERATIONS, envelope.iterations);
+    assertArrayEquals(Hex.decode("a0a1a2a3a4a5a6a7a8a9aaabacadaeaf"), envelope.salt());
+    assertArrayEquals(VECTOR_SEED, envelope.decrypt(envelope.deriveKey("1234")));
+  }
+
+  @Test
+  public void decodesV2BinaryVector() throws Exception {
+    VaultEnvelope envelope = VaultEnvelope.parse(V2_VAULT);
+    assertEquals(2, envelope.version);
+    assertFalse(envelope.hasKdfParams());
+    assertEquals(VaultEnvelope.KDF_ITERATIONS, envelope.iterations);
+    assertArrayEquals(Hex.decode("c0c1c2c3c4c5c6c7c8c9cacbcccdcecf"), envelope.salt());
+    assertArrayEquals(VECTOR_SEED, envelope.decrypt(envelope.deriveKey("1234")));
+    assertArrayEquals(VECTOR_SEED, NativeCrypto.decryptVault(V2_VAULT, "1234"));
+  }
+
+  @Test
+  public void rejectsKdfCostOutsideCalibratorBounds() throws Exception {
+    byte[] raw = Base64.decode(VaultEnvelope.seal(SEED, "1234", KdfCalibrator.MIN_ITERATIONS, new SecureRandom()));
+    for (int iterations : new int[] {1, KdfCalibrator.MIN_ITERATIONS - 1, KdfCalibrator.MAX_ITERATIONS + 1, -1}) {
+      ByteBuffer.wrap(raw).putInt(4, iterations);
+      try {
+        VaultEnvelope.parse(Base64.toBase64String(raw));
+        fail("iterations " + iterations + " must be rejected");
+      } catch (IllegalArgumentException expected) {
+        // Invalid vault KDF cost
+      }
+    }
+    try {
+      VaultEnvelope.seal(SEED, "1234", KdfCalibrator.MAX_ITERATIONS + 1, new SecureRandom());
+      fail("seal must not write a cost parse() rejects");
+    } catch (IllegalArgumentException expected) {
+      // Invalid vault KDF cost
+    }
+  }
+
+  @Test(expected = Exception.class)
+  public void rejectsGarbage() throws Exception {
+    VaultEnvelope.parse("not a vault");
+  }
+}
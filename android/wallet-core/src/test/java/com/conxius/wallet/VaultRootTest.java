@@ -0,0 +1,100 @@
+package com.conxius.wallet;
+
+import org.bitcoinj.crypto.DeterministicKey;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import static org.junit.Assert.*;
+
+public class VaultRootTest {
+  private static final byte[] SEED = new byte[64];
+  static {
+    for (int i = 0; i < SEED.length; i++) SEED[i] = (byte) i;
+  }
+  private static final String PATH = "m/84'/0'/0'/0/0";
+
+  private final PluginMetrics metrics = new PluginMetrics();
+  private final SessionSeed sessionSeed = new SessionSeed();
+  private final DerivationCache cache = new DerivationCache();
+  private VaultEnvelope envelope;
+
+  @Before
+  public void unlockSession() throws Exception {
+    envelope = VaultEnvelope.parse(VaultEnvelope.seal(SEED, "1234", KdfCalibrator.MIN_ITERATIONS, new SecureRandom()));
+    long expiry = System.currentTimeMillis() + 60_000;
+    sessionSeed.hold(envelope.salt(), KeyDerivation.masterKeyFromSeed(SEED), expiry);
+    cache.open(envelope.salt(), expiry);
+    // Warm the cache so a PIN call could be answered without touching the vault
+    new VaultRoot(null, envelope, sessionSeed, metrics).derive(cache, PATH, null);
+  }
+
+  @Test
+  public void wrongPinFailsWhileSessionIsUnlocked() throws Exception {
+    VaultRoot root = new VaultRoot(envelope.deriveKey("4321"), envelope, sessionSeed, metrics);
+    try {
+      root.derive(cache, PATH, null);
+      fail("a wrong PIN must fail even when the session cache has the path");
+    } catch (Exception expected) {
+      // AEAD tag mismatch
+    }
+    try {
+      new VaultRoot(envelope.deriveKey("4321"), envelope, sessionSeed, metrics).prepare(cache);
+      fail("prepare must check the PIN while the session is unlocked");
+    } catch (Exception expected) {
+      // AEAD tag mismatch
+    }
+  }
+
+  @Test
+  public void rightPinAndSessionDeriveTheSameKey() throws Exception {
+    DeterministicKey viaPin = new VaultRoot(envelope.deriveKey("1234"), envelope, sessionSeed, metrics).derive(cache, PATH, null);
+    DeterministicKey viaSession = new VaultRoot(null, envelope, sessionSeed, metrics).derive(cache, PATH, null);
+    assertArrayEquals(viaSession.getPrivKeyBytes(), viaPin.getPrivKeyBytes());
+    assertEquals(1, metrics.phase(PluginMetrics.Phase.DECRYPT).count());
+  }
+
+  @Test
+  public void rewrappedLegacyVaultStaysOnTheUnlockedSession() throws Exception {
+    // unlockSession on a v2 vault, then the v3 rewrap it hands to JS
+    VaultEnvelope legacy = VaultEnvelope.parse(v2Vault(SEED, "1234"));
+    byte[] seed = legacy.decrypt(legacy.deriveKey("1234"));
+    SessionSeed session = new SessionSeed();
+    DerivationCache sessionCache = new DerivationCache();
+    long expiry = System.currentTimeMillis() + 60_000;
+    session.hold(legacy.salt(), KeyDerivation.masterKeyFromSeed(seed), expiry);
+    sessionCache.open(legacy.salt(), expiry);
+    VaultEnvelope rewrapped = VaultEnvelope.parse(legacy.reseal(seed, "1234", KdfCalibrator.MIN_ITERATIONS, new SecureRandom()));
+    assertTrue(rewrapped.hasKdfParams());
+    assertArrayEquals(SEED, rewrapped.decrypt(rewrapped.deriveKey("1234")));
+
+    // Pin-less getPublicKey with the new vault: resolveRoot's salt check, then the session
+    assertTrue(session.matches(rewrapped.salt()));
+    DeterministicKey pinLess = new VaultRoot(null, rewrapped, session, metrics).derive(sessionCache, PATH, null);
+    DeterministicKey expected = KeyDerivation.deriveFromPath(KeyDerivation.masterKeyFromSeed(SEED), PATH, null);
+    assertEquals(expected.getPublicKeyAsHex(), pinLess.getPublicKeyAsHex());
+  }
+
+  /** 'C' 'X' 0x02 | saltLen | ivLen | salt | iv | ct, as seed.ts wrote before v3. */
+  static String v2Vault(byte[] seed, String pin) throws Exception {
+    SecureRandom random = new SecureRandom();
+    byte[] salt = new byte[16];
+    byte[] iv = new byte[12];
+    random.nextBytes(salt);
+    random.nextBytes(iv);
+    Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+    byte[] key = VaultEnvelope.pbkdf2(pin, salt, VaultEnvelope.KDF_ITERATIONS);
+    cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new GCMParameterSpec(VaultEnvelope.GCM_TAG_BITS, iv));
+    byte[] ct = cipher.doFinal(seed);
+    ByteBuffer out = ByteBuffer.allocate(5 + salt.length + iv.length + ct.length);
+    out.put((byte) 'C').put((byte) 'X').put((byte) 2).put((byte) salt.length).put((byte) iv.length);
+    out.put(salt).put(iv).put(ct);
+    return org.bouncycastle.util.encoders.Base64.toBase64String(out.array());
+  }
+}
@@ -4,6 +4,7 @@ import { Shield, ArrowRight, Key, Users, Zap, ShieldCheck, RefreshCcw, RotateCcw
 import { WalletConfig, AppMode } from '../types';
 import { deriveSovereignRoots } from '../services/signer';
 import { encryptSeed } from '../services/seed';
+import { getCalibratedKdfIterations } from '../services/enclave-storage';
 import * as bip39 from 'bip39';
 
 interface OnboardingProps {
@@ -90,7 +91,7 @@ const Onboarding: React.FC<OnboardingProps> = ({ onComplete }) => {
     // Async derivation ensures UI doesn't freeze during heavy hashing
     const roots = await deriveSovereignRoots(seedString, passphrase || undefined);
     const seedBytes = await bip39.mnemonicToSeed(seedString, passphrase || undefined);
-    const seedVault = await encryptSeed(new Uint8Array(seedBytes), pin);
+    const seedVault = await encryptSeed(new Uint8Array(seedBytes), pin, { iterations: await getCalibratedKdfIterations() });
     
     // Pass PIN up to App for encryption
     onComplete({ 
@@ -1,4 +1,101 @@
 import { registerPlugin } from '@capacitor/core';
+import type { PluginListenerHandle } from '@capacitor/core';
+import type { PluginMetricsSnapshot } from './enclave-storage';
+
+/**
+ * One SDK event. newBlock/synced are coalesced per batch (latest only); payment events
+ * are always delivered in order.
+ */
+export type BreezEventPayload = {
+  type: 'newBlock' | 'synced' | 'invoicePaid' | 'paymentSucceed' | 'paymentFailed' | string;
+  block?: number;
+  paymentHash?: string;
+  bolt11?: string;
+  amountMsat?: number;
+  error?: string;
+};
+
+/** Flushed every 250 ms while events arrive; dropped counts non-payment events lost to overflow. */
+export type BreezEventBatch = {
+  events: BreezEventPayload[];
+  dropped: number;
+};
+
+/**
+ * Scheduling options for start/invoice/pay/lnurlAuth. Pass your own operationId to be able
+ * to cancel() before the call settles; timeoutMs overrides the lane default (invoice 30 s,
+ * pay 5 min, lnurlAuth 60 s, start 2 min).
+ */
+export type LightningOperationOptions = {
+  operationId?: string;
+  timeoutMs?: number;
+};
+
+export type LightningLaneStats = {
+  threads: number;
+  queued: number;
+  queueCapacity: number;
+  inFlight: number;
+};
+
+export type LightningSchedulerStats = {
+  lanes: { invoice: LightningLaneStats; pay: LightningLaneStats; auth: LightningLaneStats };
+  live: number;
+  timedOut: number;
+  cancelled: number;
+};
+
+export type PaymentSummary = {
+  paymentHash: string;
+  type: 'sent' | 'received' | 'closedChannel';
+  status: 'pending' | 'complete' | 'failed';
+  amountMsat: number;
+  feeMsat: number;
+  /** Unix seconds. */
+  paymentTime: number;
+  description?: string;
+};
+
+export type ListPaymentsOptions = {
+  /** nextCursor from the previous page; omit for the newest payments. */
+  cursor?: string;
+  /** Page size, default 50, max 500. */
+  limit?: number;
+  types?: PaymentSummary['type'][];
+  statuses?: PaymentSummary['status'][];
+  /** Unix seconds; only payments at or after this time (incremental sync). */
+  sinceTimestamp?: number;
+};
+
+/** One invoice pool bucket; omit amountMsat for any-amount invoices. lowWatermark defaults to half the depth. */
+export type InvoicePoolBucket = {
+  amountMsat?: number;
+  depth: number;
+  lowWatermark?: number;
+};
+
+export type InvoicePoolStats = {
+  description: string;
+  expirySecs: number;
+  buckets: (Required<InvoicePoolBucket> & {
+    ready: number;
+    generating: number;
+    taken: number;
+    misses: number;
+    expired: number;
+    failures: number;
+  })[];
+};
+
+export type PooledInvoice = {
+  bolt11: string;
+  paymentHash: string;
+  amountMsat: number;
+  /** Unix ms; pooled invoices have at least 10 minutes left when handed out. */
+  expiresAt: number;
+  /** false when the bucket was empty and the invoice was generated on demand. */
+  pooled: boolean;
+};
 
 export interface BreezPluginDef {
   start(options: {
@@ -7,22 +104,51 @@ export interface BreezPluginDef {
     pin?: string;
     apiKey: string;
     inviteCode?: string;
-  }): Promise<{ id: string; balanceMsat: number }>;
-  nodeInfo(): Promise<{
+  } & LightningOperationOptions): Promise<{ id: string; balanceMsat: number }>;
+  /**
+   * Served from a native snapshot that payment/block/sync events invalidate (max 30 s old);
+   * forceRefresh queries the node.
+   */
+  nodeInfo(options?: { forceRefresh?: boolean }): Promise<{
     id: string;
     blockHeight: number;
     maxPayableMsat: number;
     maxReceivableMsat: number;
+    ageMs: number;
   }>;
   invoice(options: {
     amountMsat?: number;
     description?: string;
-  }): Promise<{ bolt11: string; paymentHash: string }>;
+  } & LightningOperationOptions): Promise<{ bolt11: string; paymentHash: string }>;
+  /**
+   * Starts background generation of invoices per amount bucket (total depth max 200,
+   * expirySecs default 3600, min 900). An empty bucket list turns the pool off.
+   */
+  configureInvoicePool(options: {
+    buckets: InvoicePoolBucket[];
+    description?: string;
+    expirySecs?: number;
+  }): Promise<InvoicePoolStats>;
+  takeInvoice(options?: { amountMsat?: number } & LightningOperationOptions): Promise<PooledInvoice>;
+  /**
+   * Rejects with "Timed out" / "Cancelled" when the deadline or cancel() wins, but the
+   * payment may still complete natively; watch breezEvents for the final outcome.
+   */
   pay(options: {
     bolt11: string;
-  }): Promise<{ paymentHash: string; status: string; amountMsat: number }>;
-  lnurlAuth(options: { lnurl: string }): Promise<void>;
+  } & LightningOperationOptions): Promise<{ paymentHash: string; status: string; amountMsat: number }>;
+  lnurlAuth(options: { lnurl: string } & LightningOperationOptions): Promise<void>;
+  /** Newest first, from a native index kept current by payment events. */
+  listPayments(options?: ListPaymentsOptions): Promise<{ payments: PaymentSummary[]; nextCursor?: string }>;
+  cancel(options: { operationId: string }): Promise<{ cancelled: boolean }>;
+  /** Per-method latency/error metrics plus scheduler lane depths; phases stay empty for this plugin. */
+  getMetrics(): Promise<PluginMetricsSnapshot & { scheduler: LightningSchedulerStats; invoicePool: InvoicePoolStats }>;
+  resetMetrics(): Promise<void>;
   stop(): Promise<void>;
+  addListener(
+    eventName: 'breezEvents',
+    listenerFunc: (batch: BreezEventBatch) => void,
+  ): Promise<PluginListenerHandle>;
 }
 
 const Breez = registerPlugin<BreezPluginDef>("Breez");
@@ -41,18 +167,43 @@ export async function startBreezNode(
   return Breez.start(options);
 }
 
-export async function getBreezInfo() {
-  return Breez.nodeInfo();
+export async function getBreezInfo(forceRefresh = false) {
+  return Breez.nodeInfo({ forceRefresh });
+}
+
+export async function createLnInvoice(amountMsat: number, description: string, op: LightningOperationOptions = {}) {
+  return Breez.invoice({ amountMsat, description, ...op });
+}
+
+export async function configureInvoicePool(buckets: InvoicePoolBucket[], description = '', expirySecs?: number) {
+  return Breez.configureInvoicePool({ buckets, description, expirySecs });
+}
+
+/** Checkout path: a ready invoice for the amount (omit for any amount), generated on demand if the pool is empty. */
+export async function takePooledInvoice(amountMsat?: number) {
+  return Breez.takeInvoice({ amountMsat });
+}
+
+export async function payLnInvoice(bolt11: string, op: LightningOperationOptions = {}) {
+  return Breez.pay({ bolt11, ...op });
+}
+
+export async function performLnurlAuth(lnurl: string, op: LightningOperationOptions = {}) {
+  return Breez.lnurlAuth({ lnurl, ...op });
+}
+
+export async function listLnPayments(options: ListPaymentsOptions = {}) {
+  return Breez.listPayments(options);
 }
 
-export async function createLnInvoice(amountMsat: number, description: string) {
-  return Breez.invoice({ amountMsat, description });
+export async function cancelLightningOperation(operationId: string) {
+  return (await Breez.cancel({ operationId })).cancelled;
 }
 
-export async function payLnInvoice(bolt11: string) {
-  return Breez.pay({ bolt11 });
+export async function getBreezMetrics() {
+  return Breez.getMetrics();
 }
 
-export async function performLnurlAuth(lnurl: string) {
-  return Breez.lnurlAuth({ lnurl });
+export function onBreezEvents(listener: (batch: BreezEventBatch) => void): Promise<PluginListenerHandle> {
+  return Breez.addListener('breezEvents', listener);
 }
@@ -1,4 +1,147 @@
 import { Capacitor, registerPlugin } from '@capacitor/core';
+import type { PluginListenerHandle } from '@capacitor/core';
+
+/**
+ * 'schnorr' is BIP-340 (64-byte signature, x-only pubkey); 'taproot' signs under the
+ * BIP-341 tweaked key, with merkleRoot for a script tree (omit for key-path only / BIP-86).
+ */
+export type SigType = 'der' | 'recoverable' | 'schnorr' | 'taproot';
+
+export type SignBatchEntry = {
+  path: string;
+  messageHash: string;
+  network?: string;
+  sigType?: SigType;
+  merkleRoot?: string;
+};
+
+export type SignBatchResult = {
+  index: number;
+  signature?: string;
+  pubkey?: string;
+  internalKey?: string;
+  recId?: number;
+  error?: string;
+};
+
+export type SignPsbtInputResult = {
+  index: number;
+  signed: boolean;
+  finalized: boolean;
+  error?: string;
+};
+
+export type SignPsbtResult = {
+  psbt: string; // base64, signed (and finalized where possible)
+  tx?: string; // hex, present when every input is finalized
+  signed: number;
+  inputs: SignPsbtInputResult[];
+};
+
+/** Quantities are 0x-hex or decimal strings. Type is inferred when omitted (maxFeePerGas => eip1559, chainId => eip155). */
+export type EvmTxFields = {
+  type?: 'legacy' | 'eip155' | 'eip1559';
+  chainId?: number | string;
+  gasPrice?: string;
+  maxFeePerGas?: string;
+  maxPriorityFeePerGas?: string;
+  gasLimit: number | string;
+  to?: string; // omitted or empty for contract creation
+  value?: string;
+  data?: string;
+};
+
+export type SignedEvmTx = {
+  nonce: string; // 0x quantity
+  raw: string; // 0x-hex, ready for eth_sendRawTransaction
+  hash: string;
+};
+
+export type NostrUnsignedEvent = {
+  pubkey?: string; // checked against the vault's key when present
+  created_at: number;
+  kind: number;
+  tags: string[][];
+  content: string;
+};
+
+export type NostrSignResult = {
+  index: number;
+  id?: string;
+  sig?: string;
+  error?: string;
+};
+
+export type VerifyBatchItem = {
+  pubkey: string;
+  msgHash: string;
+  sig: string;
+  scheme?: 'ecdsa' | 'schnorr';
+};
+
+export type WalletInfoChain = 'btc' | 'btc-testnet' | 'stacks' | 'evm' | 'rsk' | 'liquid';
+
+export type WalletInfoDescriptor =
+  | { chain: WalletInfoChain; account?: number; change?: number; index?: number }
+  | { path: string; chain?: string };
+
+export type WalletInfoEntry = {
+  chain: string;
+  account?: number;
+  change?: number;
+  index?: number;
+  path: string;
+  pubkey: string;
+  address?: string; // evm / rsk only
+};
+
+export type WalletInfo = {
+  fingerprint: string;
+  entries: WalletInfoEntry[];
+  memoHits: number;
+  // Present when accounts is omitted (historical account-0/index-0 response)
+  btcPubkey?: string;
+  stxPubkey?: string;
+  liquidPubkey?: string;
+  evmAddress?: string;
+};
+
+export type EnclaveItemResult = {
+  key: string;
+  value?: string | null;
+  error?: string;
+};
+
+export type DeriveRangeFormat = 'pubkey' | 'p2wpkh' | 'p2sh-p2wpkh' | 'p2pkh';
+
+/** Microseconds; percentiles are bucket upper bounds (within 12.5%), capped at maxUs. */
+export type LatencySummary = {
+  count: number;
+  meanUs: number;
+  p50Us: number;
+  p95Us: number;
+  p99Us: number;
+  maxUs: number;
+};
+
+export type PluginMethodMetrics = {
+  calls: number;
+  errors: number;
+  latency: LatencySummary;
+  queueWait: LatencySummary;
+};
+
+export type PluginMetricsSnapshot = {
+  sinceMs: number;
+  methods: Record<string, PluginMethodMetrics>;
+  phases: Record<'kdf' | 'decrypt' | 'derive' | 'sign', LatencySummary>;
+};
+
+export type VaultRewrappedEvent = {
+  vault: string;
+  previousVersion: number;
+  iterations: number;
+};
 
 type SecureEnclavePlugin = {
   isAvailable(): Promise<{ available: boolean }>;
@@ -6,16 +149,36 @@ type SecureEnclavePlugin = {
   getItem(options: {
     key: string;
     requireBiometric?: boolean;
-  }): Promise<{ value: string | null }>;
+    ranged?: boolean;
+  }): Promise<{ value: string | null; total?: number; recordId?: string }>;
   setItem(options: {
     key: string;
     value: string;
     requireBiometric?: boolean;
   }): Promise<void>;
+  getItemRange(options: {
+    key: string;
+    offset?: number;
+    length: number;
+    requireBiometric?: boolean;
+    recordId?: string;
+  }): Promise<{ data: string | null; total?: number }>;
   removeItem(options: {
     key: string;
     requireBiometric?: boolean;
   }): Promise<void>;
+  getItems(options: {
+    items: { key: string; requireBiometric?: boolean }[];
+    requireBiometric?: boolean;
+  }): Promise<{ results: EnclaveItemResult[]; failed: number }>;
+  setItems(options: {
+    items: { key: string; value: string; requireBiometric?: boolean }[];
+    requireBiometric?: boolean;
+  }): Promise<{ results: EnclaveItemResult[]; written: number; failed: number }>;
+  removeItems(options: {
+    keys: string[];
+    requireBiometric?: boolean;
+  }): Promise<void>;
   authenticate(options?: {
     durationSeconds?: number;
   }): Promise<{ authenticated: boolean; validUntilMs?: number }>;
@@ -26,7 +189,37 @@ type SecureEnclavePlugin = {
     path: string;
     messageHash: string;
     network?: string;
-  }): Promise<{ signature: string; pubkey: string }>;
+    sigType?: SigType;
+    merkleRoot?: string;
+  }): Promise<{ signature: string; pubkey: string; internalKey?: string }>;
+  signTransactionBatch(options: {
+    vault: string;
+    pin?: string;
+    network?: string;
+    entries: SignBatchEntry[];
+  }): Promise<{ results: SignBatchResult[]; signed: number; failed: number }>;
+  signPsbt(options: {
+    vault: string;
+    pin?: string;
+    psbt: string;
+    paths?: string[];
+    finalize?: boolean;
+  }): Promise<SignPsbtResult>;
+  signEvmTransactions(options: {
+    vault: string;
+    pin?: string;
+    path: string;
+    txs?: (EvmTxFields & { nonce: number | string })[];
+    template?: EvmTxFields;
+    nonceStart?: number | string;
+    count?: number;
+  }): Promise<{ from: string; transactions: SignedEvmTx[] }>;
+  signNostrEvents(options: {
+    vault: string;
+    pin?: string;
+    path?: string; // default NIP-06 m/44'/1237'/0'/0/0
+    events: NostrUnsignedEvent[];
+  }): Promise<{ pubkey: string; results: NostrSignResult[]; signed: number; failed: number }>;
   unlockSession(options: {
     vault: string;
     pin: string;
@@ -45,7 +238,38 @@ type SecureEnclavePlugin = {
   getWalletInfo(options: {
     vault: string;
     pin?: string;
-  }): Promise<{ btcPubkey: string; stxPubkey: string; liquidPubkey: string; evmAddress: string }>;
+    accounts?: WalletInfoDescriptor[];
+  }): Promise<WalletInfo>;
+  getDerivationCacheStats(): Promise<{
+    hits: number;
+    misses: number;
+    hitRate: number;
+    evictions: number;
+    stepsSaved: number;
+    entries: number;
+  }>;
+  deriveRange(options: {
+    vault: string;
+    pin?: string;
+    accountPath: string;
+    chain?: number;
+    start?: number;
+    count: number;
+    format?: DeriveRangeFormat;
+  }): Promise<{ data: string; format: DeriveRangeFormat; stride: number; start: number; count: number }>;
+  verifyBatch(options: {
+    items: VerifyBatchItem[];
+  }): Promise<{ bitmap: string; count: number; valid: number }>;
+  calibrateKdf(options?: {
+    targetMs?: number;
+    force?: boolean;
+  }): Promise<{ kdf: 'pbkdf2-sha256'; iterations: number; targetMs: number; estimatedMs?: number; cached: boolean }>;
+  getMetrics(): Promise<PluginMetricsSnapshot>;
+  resetMetrics(): Promise<void>;
+  addListener(
+    eventName: 'vaultRewrapped',
+    listenerFunc: (event: VaultRewrappedEvent) => void,
+  ): Promise<PluginListenerHandle>;
 };
 
 const SecureEnclave = registerPlugin<SecureEnclavePlugin>('SecureEnclave');
@@ -74,14 +298,46 @@ export async function hasEnclaveBlob(key: string): Promise<boolean> {
   return sessionStorage.getItem(key) != null || localStorage.getItem(key) != null;
 }
 
+// ChunkedRecord.DEFAULT_CHUNK_SIZE: each getItemRange call opens one native segment
+const ITEM_RANGE_BYTES = 64 * 1024;
+
+/** Pulls a large item through getItemRange and decodes it as it arrives. */
+async function readEnclaveItemRanges(key: string, total: number, recordId: string, requireBiometric: boolean): Promise<string> {
+  const decoder = new TextDecoder();
+  let out = '';
+  for (let offset = 0; offset < total; offset += ITEM_RANGE_BYTES) {
+    const length = Math.min(ITEM_RANGE_BYTES, total - offset);
+    const res = await SecureEnclave.getItemRange({ key, offset, length, requireBiometric, recordId });
+    if (res.data == null) throw new Error('Item removed during read');
+    const bin = atob(res.data);
+    const bytes = new Uint8Array(bin.length);
+    for (let i = 0; i < bin.length; i++) bytes[i] = bin.charCodeAt(i);
+    out += decoder.decode(bytes, { stream: offset + length < total });
+  }
+  return out;
+}
+
+/**
+ * Large values come back from the native side in segment-sized ranges, so native memory
+ * stays bounded whatever the size. A read that races a rewrite of the item is retried once.
+ */
 export async function getEnclaveBlob(key: string, opts?: { requireBiometric?: boolean }): Promise<string | null> {
   if (await hasNativeSecureEnclave()) {
+    const requireBiometric = opts?.requireBiometric ?? false;
     try {
-      const native = await SecureEnclave.getItem({ key, requireBiometric: opts?.requireBiometric ?? false });
-      if (native.value != null) return native.value;
+      for (let attempt = 0; ; attempt++) {
+        const native = await SecureEnclave.getItem({ key, requireBiometric, ranged: true });
+        if (native.value != null) return native.value;
+        if (native.total == null || native.recordId == null) break;
+        try {
+          return await readEnclaveItemRanges(key, native.total, native.recordId, requireBiometric);
+        } catch (e) {
+          if (attempt > 0) throw e;
+        }
+      }
     } catch (e: any) {
       const msg = typeof e?.message === 'string' ? e.message : '';
-      if ((opts?.requireBiometric ?? false) && msg.toLowerCase().includes('auth required')) {
+      if (requireBiometric && msg.toLowerCase().includes('auth required')) {
         throw new Error('auth required');
       }
     }
@@ -136,6 +392,95 @@ export async function removeEnclaveBlob(key: string): Promise<void> {
   localStorage.removeItem(key);
 }
 
+/**
+ * Batch getEnclaveBlob: one bridge call and one keystore setup for all keys.
+ * Keys missing natively fall back to (and migrate) legacy localStorage like the single variant.
+ */
+export async function getEnclaveBlobs(keys: string[], opts?: { requireBiometric?: boolean }): Promise<Record<string, string | null>> {
+  const out: Record<string, string | null> = {};
+  if (await hasNativeSecureEnclave()) {
+    const requireBiometric = opts?.requireBiometric ?? false;
+    const res = await SecureEnclave.getItems({ items: keys.map((key) => ({ key })), requireBiometric });
+    const migrate: { key: string; value: string }[] = [];
+    for (const r of res.results) {
+      if (r.error) {
+        if (requireBiometric && r.error.toLowerCase().includes('auth required')) throw new Error('auth required');
+      } else if (r.value != null) {
+        out[r.key] = r.value;
+        continue;
+      }
+      const legacy = localStorage.getItem(r.key);
+      out[r.key] = legacy;
+      if (legacy != null) migrate.push({ key: r.key, value: legacy });
+    }
+    if (migrate.length > 0) {
+      try {
+        const written = await SecureEnclave.setItems({ items: migrate, requireBiometric: false });
+        for (const r of written.results) {
+          if (!r.error) localStorage.removeItem(r.key);
+        }
+      } catch {
+      }
+    }
+    return out;
+  }
+  for (const key of keys) {
+    out[key] = await getEnclaveBlob(key, opts);
+  }
+  return out;
+}
+
+/**
+ * Batch setEnclaveBlob; the native side persists the batch with one commit (values large
+ * enough to be chunked are streamed and committed one by one).
+ */
+export async function setEnclaveBlobs(entries: Record<string, string>, opts?: { requireBiometric?: boolean }): Promise<void> {
+  const keys = Object.keys(entries);
+  if (await hasNativeSecureEnclave()) {
+    const requireBiometric = opts?.requireBiometric ?? false;
+    try {
+      const res = await SecureEnclave.setItems({
+        items: keys.map((key) => ({ key, value: entries[key] })),
+        requireBiometric,
+      });
+      const failed = res.results.filter((r) => r.error);
+      if (requireBiometric && failed.some((r) => r.error!.toLowerCase().includes('auth required'))) {
+        throw new Error('auth required');
+      }
+      const failedKeys = new Set(failed.map((r) => r.key));
+      for (const key of keys) {
+        if (failedKeys.has(key)) {
+          sessionStorage.setItem(key, entries[key]);
+        }
+        localStorage.removeItem(key);
+      }
+      return;
+    } catch (e: any) {
+      const msg = typeof e?.message === 'string' ? e.message : '';
+      if (requireBiometric && msg.toLowerCase().includes('auth required')) {
+        throw new Error('auth required');
+      }
+    }
+  }
+  for (const key of keys) {
+    sessionStorage.setItem(key, entries[key]);
+    localStorage.removeItem(key);
+  }
+}
+
+export async function removeEnclaveBlobs(keys: string[]): Promise<void> {
+  if (await hasNativeSecureEnclave()) {
+    try {
+      await SecureEnclave.removeItems({ keys });
+    } catch {
+    }
+  }
+  for (const key of keys) {
+    sessionStorage.removeItem(key);
+    localStorage.removeItem(key);
+  }
+}
+
 export async function clearEnclaveBiometricSession(): Promise<void> {
   if (await hasNativeSecureEnclave()) {
     try {
@@ -151,13 +496,73 @@ export async function signNative(options: {
   path: string;
   messageHash: string;
   network?: string;
-}): Promise<{ signature: string; pubkey: string }> {
+  sigType?: SigType;
+  merkleRoot?: string;
+}): Promise<{ signature: string; pubkey: string; internalKey?: string }> {
   if (await hasNativeSecureEnclave()) {
     return await SecureEnclave.signTransaction(options);
   }
   throw new Error("Native Enclave not available");
 }
 
+export async function signBatchNative(options: {
+  vault: string;
+  pin?: string;
+  network?: string;
+  entries: SignBatchEntry[];
+}): Promise<{ results: SignBatchResult[]; signed: number; failed: number }> {
+  if (await hasNativeSecureEnclave()) {
+    return await SecureEnclave.signTransactionBatch(options);
+  }
+  throw new Error("Native Enclave not available");
+}
+
+/** Signs every input of a base64 PSBT this vault owns in one native call (sighashes computed natively). */
+export async function signPsbtNative(options: {
+  vault: string;
+  pin?: string;
+  psbt: string;
+  paths?: string[];
+  finalize?: boolean;
+}): Promise<SignPsbtResult> {
+  if (await hasNativeSecureEnclave()) {
+    return await SecureEnclave.signPsbt(options);
+  }
+  throw new Error("Native Enclave not available");
+}
+
+/**
+ * RLP-encodes, hashes and signs EVM transactions natively with one key derivation.
+ * Pass explicit txs, or a template plus nonceStart/count for a run of sequential nonces.
+ */
+export async function signEvmTransactionsNative(options: {
+  vault: string;
+  pin?: string;
+  path: string;
+  txs?: (EvmTxFields & { nonce: number | string })[];
+  template?: EvmTxFields;
+  nonceStart?: number | string;
+  count?: number;
+}): Promise<{ from: string; transactions: SignedEvmTx[] }> {
+  if (await hasNativeSecureEnclave()) {
+    return await SecureEnclave.signEvmTransactions(options);
+  }
+  throw new Error("Native Enclave not available");
+}
+
+/** NIP-01 ids + BIP-340 signatures for a batch of events; the Nostr key never leaves native code. */
+export async function signNostrEventsNative(options: {
+  vault: string;
+  pin?: string;
+  path?: string;
+  events: NostrUnsignedEvent[];
+}): Promise<{ pubkey: string; results: NostrSignResult[]; signed: number; failed: number }> {
+  if (await hasNativeSecureEnclave()) {
+    return await SecureEnclave.signNostrEvents(options);
+  }
+  throw new Error("Native Enclave not available");
+}
+
 export async function getPublicKeyNative(options: {
   vault: string;
   pin?: string;
@@ -181,12 +586,103 @@ export async function getDerivedSecretNative(options: {
   throw new Error("Native Enclave not available");
 }
 
+export function getWalletInfoNative(options: {
+  vault: string;
+  pin?: string;
+}): Promise<{ btcPubkey: string; stxPubkey: string; liquidPubkey: string; evmAddress: string }>;
+export function getWalletInfoNative(options: {
+  vault: string;
+  pin?: string;
+  accounts: WalletInfoDescriptor[];
+}): Promise<WalletInfo>;
 export async function getWalletInfoNative(options: {
   vault: string;
   pin?: string;
-}): Promise<{ btcPubkey: string; stxPubkey: string; liquidPubkey: string; evmAddress: string }> {
+  accounts?: WalletInfoDescriptor[];
+}): Promise<any> {
   if (await hasNativeSecureEnclave()) {
     return await SecureEnclave.getWalletInfo(options);
   }
   throw new Error("Native Enclave not available");
 }
+
+/**
+ * Device-calibrated PBKDF2 cost for new seed vaults (stored natively after the
+ * first run). undefined on web or failure: callers fall back to the default cost.
+ */
+export async function getCalibratedKdfIterations(): Promise<number | undefined> {
+  if (await hasNativeSecureEnclave()) {
+    try {
+      const res = await SecureEnclave.calibrateKdf();
+      return res.iterations;
+    } catch {
+    }
+  }
+  return undefined;
+}
+
+/**
+ * Fired after unlockSession re-wraps a vault without KDF params (v1/v2) as v3.
+ * The new vault keeps the old salt, so the session that is already unlocked accepts it.
+ * Only emitted while a listener is registered.
+ */
+export function onVaultRewrapped(listener: (event: VaultRewrappedEvent) => void): Promise<PluginListenerHandle> {
+  return SecureEnclave.addListener('vaultRewrapped', listener);
+}
+
+/**
+ * Gap-limit scan helper: derives count keys (or scriptPubKeys) under
+ * accountPath/chain in one native call and unpacks them to hex, index-aligned with start.
+ */
+export async function deriveRangeNative(options: {
+  vault: string;
+  pin?: string;
+  accountPath: string;
+  chain?: number;
+  start?: number;
+  count: number;
+  format?: DeriveRangeFormat;
+}): Promise<string[]> {
+  if (!(await hasNativeSecureEnclave())) {
+    throw new Error("Native Enclave not available");
+  }
+  const res = await SecureEnclave.deriveRange(options);
+  const bin = atob(res.data);
+  const out: string[] = new Array(res.count);
+  for (let i = 0; i < res.count; i++) {
+    let hex = '';
+    for (let j = i * res.stride; j < (i + 1) * res.stride; j++) {
+      hex += bin.charCodeAt(j).toString(16).padStart(2, '0');
+    }
+    out[i] = hex;
+  }
+  return out;
+}
+
+/** Verifies many signatures natively; result[i] is true when items[i] verified. */
+export async function verifyBatchNative(items: VerifyBatchItem[]): Promise<boolean[]> {
+  if (!(await hasNativeSecureEnclave())) {
+    throw new Error("Native Enclave not available");
+  }
+  const res = await SecureEnclave.verifyBatch({ items });
+  const bits = atob(res.bitmap);
+  const out: boolean[] = new Array(res.count);
+  for (let i = 0; i < res.count; i++) {
+    out[i] = ((bits.charCodeAt(i >> 3) >> (i & 7)) & 1) === 1;
+  }
+  return out;
+}
+
+/** Per-method latency/error metrics and crypto phase timers of the native enclave. */
+export async function getEnclaveMetrics(): Promise<PluginMetricsSnapshot> {
+  if (!(await hasNativeSecureEnclave())) {
+    throw new Error("Native Enclave not available");
+  }
+  return SecureEnclave.getMetrics();
+}
+
+export async function resetEnclaveMetrics(): Promise<void> {
+  if (await hasNativeSecureEnclave()) {
+    await SecureEnclave.resetMetrics();
+  }
+}
@@ -1,6 +1,5 @@
 
-import { getDerivedSecretNative } from './enclave-storage';
-import * as tiny from 'tiny-secp256k1';
+import { getPublicKeyNative, signNostrEventsNative } from './enclave-storage';
 import { bech32 } from 'bech32';
 
 /**
@@ -20,28 +19,18 @@ export interface NostrEvent {
 
 export const generateNostrKeypair = async (vault: string = 'primary_vault') => {
   try {
-      // NIP-06: m/44'/1237'/0'/0/0
+      // NIP-06: m/44'/1237'/0'/0/0. Only the public key crosses the bridge.
       const path = "m/44'/1237'/0'/0/0";
       
-      const res = await getDerivedSecretNative({
+      const res = await getPublicKeyNative({
           vault,
           path
       });
       
-      const secretHex = res.secret;
-      
-      // Derive Schnorr Public Key (X-only)
-      const privBuffer = Buffer.from(secretHex, 'hex');
-      
-      // Verify private key is valid
-      if (!tiny.isPrivate(privBuffer)) {
-          throw new Error("Invalid private key derived");
-      }
-      
-      const pubKey = tiny.pointFromScalar(privBuffer);
-      if (!pubKey) throw new Error("Public key derivation failed");
-      const pubKeyX = pubKey.subarray(1, 33); // Drop prefix
-      const pubKeyHex = Buffer.from(pubKeyX).toString('hex');
+      // Schnorr public key is the X coordinate (drop the 02/03 prefix)
+      const pubKeyX = Buffer.from(res.pubkey, 'hex').subarray(1, 33);
+      if (pubKeyX.length !== 32) throw new Error("Public key derivation failed");
+      const pubKeyHex = pubKeyX.toString('hex');
       
       // Encode npub (bech32)
       const words = bech32.toWords(pubKeyX);
@@ -50,7 +39,6 @@ export const generateNostrKeypair = async (vault: string = 'primary_vault') => {
       return {
         nsec: `ENCLAVE_SECURED_KEY`, // UI display only
         npub: npub,
-        rawPriv: secretHex, // INTERNAL USE ONLY
         pubKeyHex: pubKeyHex
       };
   } catch (e) {
@@ -69,31 +57,26 @@ export const createNostrEvent = (content: string, pubkey: string, kind: number =
   };
 };
 
-export const signNostrEvent = async (event: NostrEvent, rawPrivHex: string): Promise<NostrEvent> => {
-  console.log("[NOSTR] Signing event with derived enclave key...");
-  
-  // Real cryptographic ID calculation (SHA256 of serialized event)
-  const encoder = new TextEncoder();
-  const serialized = JSON.stringify([
-    0,
-    event.pubkey,
-    event.created_at,
-    event.kind,
-    event.tags,
-    event.content
-  ]);
-  
-  const hashBuffer = await crypto.subtle.digest('SHA-256', encoder.encode(serialized));
-  const id = Array.from(new Uint8Array(hashBuffer))
-    .map(b => b.toString(16).padStart(2, '0'))
-    .join('');
-    
-  const idBuffer = Buffer.from(id, 'hex');
-  const privBuffer = Buffer.from(rawPrivHex, 'hex');
-  
-  // Sign using Schnorr
-  const sigBuffer = tiny.signSchnorr(idBuffer, privBuffer);
-  const sig = Buffer.from(sigBuffer).toString('hex');
-
-  return { ...event, id, sig };
+/**
+ * Signs a burst of events in one enclave call (ids computed natively, key stays native).
+ * Events that fail come back without id/sig; check `sig` before publishing.
+ */
+export const signNostrEventsWithEnclave = async (
+  events: NostrEvent[],
+  vault: string = 'primary_vault',
+  pin?: string,
+): Promise<NostrEvent[]> => {
+  const res = await signNostrEventsNative({
+    vault,
+    pin,
+    events: events.map(({ pubkey, created_at, kind, tags, content }) => ({ pubkey, created_at, kind, tags, content })),
+  });
+  return events.map((event, i) => {
+    const r = res.results[i];
+    if (!r || r.error) {
+      console.warn(`[NOSTR] Event ${i} not signed: ${r?.error}`);
+      return { ...event, pubkey: res.pubkey };
+    }
+    return { ...event, pubkey: res.pubkey, id: r.id, sig: r.sig };
+  });
 };
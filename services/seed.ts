@@ -5,6 +5,111 @@ type SeedEnvelopeV1 = {
   data: number[];
 };
 
+type SeedEnvelopeFields = {
+  salt: Uint8Array;
+  iv: Uint8Array;
+  data: Uint8Array;
+  iterations?: number;
+};
+
+// v2: Base64 of 'C' 'X' 0x02 | saltLen | ivLen | salt | iv | ciphertext
+// v3: Base64 of 'C' 'X' 0x03 | kdf | iterations u32 BE | saltLen | ivLen | salt | iv | ciphertext
+// (same layouts as VaultEnvelope.java on Android)
+const V2_MAGIC = [0x43, 0x58];
+const V2_HEADER_LEN = 5;
+const V3_HEADER_LEN = 10;
+const KDF_PBKDF2_SHA256 = 1;
+// Cost of every v1/v2 vault; v3 records its own (device-calibrated) value
+export const DEFAULT_KDF_ITERATIONS = 200000;
+// v3 cost bounds, KdfCalibrator.MIN_ITERATIONS/MAX_ITERATIONS on Android
+export const MIN_KDF_ITERATIONS = 100000;
+export const MAX_KDF_ITERATIONS = 2000000;
+
+function validIterations(iterations: number): boolean {
+  return Number.isInteger(iterations) && iterations >= MIN_KDF_ITERATIONS && iterations <= MAX_KDF_ITERATIONS;
+}
+
+function toBase64(bytes: Uint8Array): string {
+  let bin = '';
+  for (let i = 0; i < bytes.length; i++) bin += String.fromCharCode(bytes[i]);
+  return btoa(bin);
+}
+
+function fromBase64(str: string): Uint8Array {
+  const bin = atob(str);
+  const out = new Uint8Array(bin.length);
+  for (let i = 0; i < bin.length; i++) out[i] = bin.charCodeAt(i);
+  return out;
+}
+
+function encodeEnvelopeV2({ salt, iv, data }: SeedEnvelopeFields): string {
+  const out = new Uint8Array(V2_HEADER_LEN + salt.length + iv.length + data.length);
+  out.set([V2_MAGIC[0], V2_MAGIC[1], 2, salt.length, iv.length]);
+  out.set(salt, V2_HEADER_LEN);
+  out.set(iv, V2_HEADER_LEN + salt.length);
+  out.set(data, V2_HEADER_LEN + salt.length + iv.length);
+  return toBase64(out);
+}
+
+function encodeEnvelopeV3({ salt, iv, data, iterations }: SeedEnvelopeFields): string {
+  const out = new Uint8Array(V3_HEADER_LEN + salt.length + iv.length + data.length);
+  out.set([V2_MAGIC[0], V2_MAGIC[1], 3, KDF_PBKDF2_SHA256]);
+  new DataView(out.buffer).setUint32(4, iterations ?? DEFAULT_KDF_ITERATIONS);
+  out.set([salt.length, iv.length], 8);
+  out.set(salt, V3_HEADER_LEN);
+  out.set(iv, V3_HEADER_LEN + salt.length);
+  out.set(data, V3_HEADER_LEN + salt.length + iv.length);
+  return toBase64(out);
+}
+
+function decodeEnvelope(envelopeStr: string): SeedEnvelopeFields | null {
+  const trimmed = envelopeStr.trim();
+  if (trimmed.startsWith('{')) {
+    let parsed: unknown;
+    try {
+      parsed = JSON.parse(trimmed);
+    } catch {
+      return null;
+    }
+    if (!isSeedEnvelope(parsed)) return null;
+    return {
+      salt: new Uint8Array(parsed.salt),
+      iv: new Uint8Array(parsed.iv),
+      data: new Uint8Array(parsed.data),
+    };
+  }
+  let raw: Uint8Array;
+  try {
+    raw = fromBase64(trimmed);
+  } catch {
+    return null;
+  }
+  if (raw.length < V2_HEADER_LEN || raw[0] !== V2_MAGIC[0] || raw[1] !== V2_MAGIC[1]) {
+    return null;
+  }
+  let headerLen: number;
+  let iterations = DEFAULT_KDF_ITERATIONS;
+  if (raw[2] === 2) {
+    headerLen = V2_HEADER_LEN;
+  } else if (raw[2] === 3) {
+    if (raw.length < V3_HEADER_LEN || raw[3] !== KDF_PBKDF2_SHA256) return null;
+    iterations = new DataView(raw.buffer, raw.byteOffset).getUint32(4);
+    if (!validIterations(iterations)) return null;
+    headerLen = V3_HEADER_LEN;
+  } else {
+    return null;
+  }
+  const saltEnd = headerLen + raw[headerLen - 2];
+  const ivEnd = saltEnd + raw[headerLen - 1];
+  if (ivEnd > raw.length) return null;
+  return {
+    salt: raw.subarray(headerLen, saltEnd),
+    iv: raw.subarray(saltEnd, ivEnd),
+    data: raw.subarray(ivEnd),
+    iterations,
+  };
+}
+
 function getCrypto() {
   const cryptoObj = globalThis.crypto;
   if (!cryptoObj?.subtle) {
@@ -18,12 +123,12 @@ async function getKeyMaterial(pin: string): Promise<CryptoKey> {
   return getCrypto().subtle.importKey('raw', enc.encode(pin), { name: 'PBKDF2' }, false, ['deriveBits', 'deriveKey']);
 }
 
-async function deriveAesKey(keyMaterial: CryptoKey, salt: Uint8Array): Promise<CryptoKey> {
+async function deriveAesKey(keyMaterial: CryptoKey, salt: Uint8Array, iterations = DEFAULT_KDF_ITERATIONS): Promise<CryptoKey> {
   return getCrypto().subtle.deriveKey(
     {
       name: "PBKDF2",
       salt: salt as unknown as ArrayBuffer,
-      iterations: 200000,
+      iterations,
       hash: "SHA-256",
     },
     keyMaterial,
@@ -39,42 +144,59 @@ export function isSeedEnvelope(value: unknown): value is SeedEnvelopeV1 {
   return v === 1 && Array.isArray((value as any).salt) && Array.isArray((value as any).iv) && Array.isArray((value as any).data);
 }
 
-export async function encryptSeed(seed: Uint8Array, pin: string): Promise<string> {
+/**
+ * Writes a v3 vault. Pass the device-calibrated cost (SecureEnclave.calibrateKdf)
+ * when available; it is recorded in the header so decrypt never has to guess.
+ */
+export async function encryptSeed(seed: Uint8Array, pin: string, opts?: { iterations?: number }): Promise<string> {
   const cryptoObj = getCrypto();
+  const iterations = opts?.iterations ?? DEFAULT_KDF_ITERATIONS;
+  if (!validIterations(iterations)) {
+    throw new Error(`KDF iterations must be ${MIN_KDF_ITERATIONS}..${MAX_KDF_ITERATIONS}`);
+  }
   const salt = cryptoObj.getRandomValues(new Uint8Array(16));
   const iv = cryptoObj.getRandomValues(new Uint8Array(12));
   const keyMaterial = await getKeyMaterial(pin);
-  const key = await deriveAesKey(keyMaterial, salt);
+  const key = await deriveAesKey(keyMaterial, salt, iterations);
   const ciphertext = await cryptoObj.subtle.encrypt(
     { name: "AES-GCM", iv },
     key,
     seed as unknown as ArrayBuffer,
   );
-  const envelope: SeedEnvelopeV1 = {
-    v: 1,
-    salt: Array.from(salt),
-    iv: Array.from(iv),
-    data: Array.from(new Uint8Array(ciphertext))
-  };
-  return JSON.stringify(envelope);
+  return encodeEnvelopeV3({ salt, iv, data: new Uint8Array(ciphertext), iterations });
 }
 
-export async function decryptSeed(envelopeStr: string, pin: string): Promise<Uint8Array> {
-  const cryptoObj = getCrypto();
-  let parsed: unknown;
-  try {
-    parsed = JSON.parse(envelopeStr);
-  } catch {
+/** KDF iteration count recorded in (or implied by) a vault, null if unparseable. */
+export function seedVaultIterations(envelopeStr: string): number | null {
+  return decodeEnvelope(envelopeStr)?.iterations ?? null;
+}
+
+export function isLegacySeedVault(envelopeStr: string): boolean {
+  return envelopeStr.trim().startsWith('{');
+}
+
+/**
+ * One-shot v1 -> v2 migration. Only the encoding changes (salt, iv and
+ * ciphertext are kept), so no PIN is needed.
+ */
+export function migrateSeedVault(envelopeStr: string): string {
+  if (!isLegacySeedVault(envelopeStr)) return envelopeStr;
+  const fields = decodeEnvelope(envelopeStr);
+  if (!fields) {
     throw new Error('Invalid Credentials');
   }
-  if (!isSeedEnvelope(parsed)) {
+  return encodeEnvelopeV2(fields);
+}
+
+export async function decryptSeed(envelopeStr: string, pin: string): Promise<Uint8Array> {
+  const cryptoObj = getCrypto();
+  const fields = decodeEnvelope(envelopeStr);
+  if (!fields) {
     throw new Error('Invalid Credentials');
   }
-  const salt = new Uint8Array(parsed.salt);
-  const iv = new Uint8Array(parsed.iv);
-  const data = new Uint8Array(parsed.data);
+  const { salt, iv, data, iterations } = fields;
   const keyMaterial = await getKeyMaterial(pin);
-  const key = await deriveAesKey(keyMaterial, salt);
+  const key = await deriveAesKey(keyMaterial, salt, iterations);
   let plaintext: ArrayBuffer;
   try {
     plaintext = await cryptoObj.subtle.decrypt({ name: 'AES-GCM', iv }, key, data);
@@ -13,12 +13,8 @@ import { getAddressFromPrivateKey } from '@stacks/transactions';
 import { Buffer } from 'buffer';
 import { publicKeyToEvmAddress } from './evm';
 import { Capacitor } from "@capacitor/core";
-import { signNative, getWalletInfoNative } from "./enclave-storage";
-import {
-  getPsbtSighashes,
-  finalizePsbtWithSigs,
-  signPsbtBase64WithSeed,
-} from "./psbt";
+import { signNative, signPsbtNative, getWalletInfoNative } from "./enclave-storage";
+import { signPsbtBase64WithSeed } from "./psbt";
 
 // Initialize BIP32
 const bip32 = BIP32Factory(ecc);
@@ -210,44 +206,22 @@ export const requestEnclaveSignature = async (
       let broadcastHex = "";
 
       if (request.payload?.psbt) {
-        const pubkeyBuf = Buffer.from(pubkey, "hex");
-        const hashes = getPsbtSighashes(
-          request.payload.psbt,
-          pubkeyBuf,
-          network,
-        );
-        const signatures = [];
-
-        for (const item of hashes) {
-          const res = await signNative({
-            vault,
-            pin,
-            path,
-            messageHash: item.hash.toString("hex"),
-            network,
-          });
-          signatures.push({
-            index: item.index,
-            signature: Buffer.from(res.signature, "hex"),
-          });
+        // One bridge call: native parses the PSBT, computes every sighash, signs and finalizes
+        const signed = await signPsbtNative({
+          vault,
+          pin,
+          psbt: request.payload.psbt,
+          paths: [path],
+          finalize: true,
+        });
+        if (!signed.tx) {
+          const failed = signed.inputs.find((r) => !r.finalized);
+          throw new Error(
+            `Native signing failed for input ${failed?.index}: ${failed?.error ?? "not finalized"}`,
+          );
         }
-
-        broadcastHex = finalizePsbtWithSigs(
-          request.payload.psbt,
-          signatures,
-          pubkeyBuf,
-          network,
-        );
-        // Also get PSBT Base64 for flows that need it (PayJoin)
-        // We import it dynamically or assume it's available since we are in the same module bundle conceptually,
-        // but cleaner to call the helper we just added.
-        const { finalizePsbtWithSigsReturnBase64 } = await import("./psbt");
-        const signedBase64 = finalizePsbtWithSigsReturnBase64(
-          request.payload.psbt,
-          signatures,
-          pubkeyBuf,
-          network,
-        );
+        broadcastHex = signed.tx;
+        const signedBase64 = signed.psbt;
 
         signature = Buffer.from(
           bitcoin.crypto.sha256(Buffer.from(broadcastHex, "hex")),
@@ -1,5 +1,5 @@
 import { describe, it, expect } from 'vitest';
-import { encryptSeed, decryptSeed } from '../services/seed';
+import { encryptSeed, decryptSeed, isLegacySeedVault, migrateSeedVault, seedVaultIterations, DEFAULT_KDF_ITERATIONS, MAX_KDF_ITERATIONS } from '../services/seed';
 
 describe('seed vault', () => {
   it('roundtrips seed bytes', async () => {
@@ -10,6 +10,58 @@ describe('seed vault', () => {
     expect(Array.from(dec)).toEqual(Array.from(seed));
   });
 
+  it('writes the compact binary encoding', async () => {
+    const enc = await encryptSeed(new Uint8Array(64), '1234');
+    expect(isLegacySeedVault(enc)).toBe(false);
+    expect(enc.length).toBeLessThan(200);
+    expect(seedVaultIterations(enc)).toBe(DEFAULT_KDF_ITERATIONS);
+  });
+
+  it('records a calibrated KDF cost in the v3 header', async () => {
+    const seed = globalThis.crypto.getRandomValues(new Uint8Array(64));
+    const enc = await encryptSeed(seed, '1234', { iterations: 120000 });
+    expect(seedVaultIterations(enc)).toBe(120000);
+    expect(Array.from(await decryptSeed(enc, '1234'))).toEqual(Array.from(seed));
+  });
+
+  it('rejects a v3 KDF cost outside the calibrator bounds', async () => {
+    const enc = await encryptSeed(new Uint8Array(64), '1234', { iterations: 120000 });
+    const raw = Uint8Array.from(atob(enc), (c) => c.charCodeAt(0));
+    const withCost = (iterations: number) => {
+      new DataView(raw.buffer).setUint32(4, iterations);
+      return btoa(String.fromCharCode(...raw));
+    };
+    expect(seedVaultIterations(withCost(1))).toBeNull();
+    expect(seedVaultIterations(withCost(MAX_KDF_ITERATIONS + 1))).toBeNull();
+    expect(seedVaultIterations(withCost(0xffffffff))).toBeNull();
+    await expect(encryptSeed(new Uint8Array(64), '1234', { iterations: 1000 })).rejects.toThrow();
+  });
+
+  it('migrates and still decrypts a v1 JSON envelope', async () => {
+    const seed = globalThis.crypto.getRandomValues(new Uint8Array(64));
+    const pin = '1234';
+    const salt = globalThis.crypto.getRandomValues(new Uint8Array(16));
+    const iv = globalThis.crypto.getRandomValues(new Uint8Array(12));
+    const keyMaterial = await globalThis.crypto.subtle.importKey('raw', new TextEncoder().encode(pin), { name: 'PBKDF2' }, false, ['deriveKey']);
+    const key = await globalThis.crypto.subtle.deriveKey(
+      { name: 'PBKDF2', salt, iterations: 200000, hash: 'SHA-256' },
+      keyMaterial,
+      { name: 'AES-GCM', length: 256 },
+      false,
+      ['encrypt']
+    );
+    const ciphertext = await globalThis.crypto.subtle.encrypt({ name: 'AES-GCM', iv }, key, seed);
+    const v1 = JSON.stringify({ v: 1, salt: Array.from(salt), iv: Array.from(iv), data: Array.from(new Uint8Array(ciphertext)) });
+
+    expect(isLegacySeedVault(v1)).toBe(true);
+    expect(Array.from(await decryptSeed(v1, pin))).toEqual(Array.from(seed));
+
+    const v2 = migrateSeedVault(v1);
+    expect(isLegacySeedVault(v2)).toBe(false);
+    expect(seedVaultIterations(v2)).toBe(DEFAULT_KDF_ITERATIONS);
+    expect(Array.from(await decryptSeed(v2, pin))).toEqual(Array.from(seed));
+  });
+
   it('rejects wrong pin', async () => {
     const seed = new Uint8Array([1, 2, 3, 4]);
     const enc = await encryptSeed(seed, '1234');